@@ -0,0 +1,75 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+
+/**
+ * Loopback broker set up shared by the benchmarks that send messages, with
+ * the test certificates of the library.  The benchmarks must be run from 
+ * the project directory for the certificates to be found.
+ */
+final class Brokers {
+	
+	private static final String CERTS = new File("src/test/resources/certs").getAbsolutePath() + File.separator;
+	
+	private Brokers() {
+	}
+	
+	/**
+	 * Start a loopback broker on a free port
+	 * 
+	 * @return Started broker
+	 * @throws IOException Thrown when the certificates cannot be read or the socket cannot be opened
+	 */
+	static DxlLoopbackBroker start() throws IOException {
+		return DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key");
+	}
+	
+	/**
+	 * Write a client configuration file for the broker, deleted on exit
+	 * 
+	 * @param broker Broker the clients connect to
+	 * @param generalSettings Settings of the General section, may be null
+	 * @return Path of the configuration file
+	 * @throws IOException Thrown when the file cannot be written
+	 */
+	static String writeConfig(DxlLoopbackBroker broker, Map<String, String> generalSettings) throws IOException {
+		File config = File.createTempFile("dxlclient", ".config");
+		config.deleteOnExit();
+		broker.writeConfig(config, CERTS + "ca.crt", CERTS + "client.crt", CERTS + "client.key", generalSettings);
+		return config.getPath();
+	}
+}
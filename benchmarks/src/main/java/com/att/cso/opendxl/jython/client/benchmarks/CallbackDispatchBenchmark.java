@@ -0,0 +1,114 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+/**
+ * Callback dispatch in _CallbackManager.fire_message for an event manager
+ * with a callback on each of a number of topics and one wildcard callback
+ * matching all of them, with the native topic index and with the 
+ * dictionary and wildcard walk it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CallbackDispatchBenchmark {
+	
+	private static final String SCRIPT = String.join("\n",
+		"from dxlclient._callback_manager import _EventCallbackManager",
+		"from dxlclient.callbacks import EventCallback",
+		"from dxlclient.message import Event",
+		"",
+		"class CountingCallback(EventCallback):",
+		"    def __init__(self):",
+		"        super(CountingCallback, self).__init__()",
+		"        self.count = 0",
+		"    def on_event(self, event):",
+		"        self.count += 1",
+		"",
+		"manager = _EventCallbackManager()",
+		"if not topic_index:",
+		"    manager._topic_index = None",
+		"for idx in range(topics):",
+		"    manager.add_callback('/bench/topic/%d/events' % idx, CountingCallback())",
+		"manager.add_callback('/bench/topic/#', CountingCallback())",
+		"event = Event('/bench/topic/0/events')",
+		"fire = lambda: manager.fire_message(event)",
+		"");
+	
+	@Param({ "java", "python" })
+	public String index;
+	
+	@Param({ "1", "100", "1000" })
+	public int topics;
+	
+	private PythonInterpreter interpreter;
+	private PyObject fire;
+	
+	@Setup
+	public void setUp() {
+		interpreter = Interpreters.create();
+		interpreter.set("topic_index", Py.newBoolean("java".equals(index)));
+		interpreter.set("topics", Py.newInteger(topics));
+		interpreter.exec(SCRIPT);
+		fire = interpreter.get("fire");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		interpreter.close();
+	}
+	
+	@Benchmark
+	public PyObject fireMessage() {
+		return fire.__call__();
+	}
+}
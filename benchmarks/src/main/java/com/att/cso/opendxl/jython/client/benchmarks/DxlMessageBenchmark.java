@@ -0,0 +1,127 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+/**
+ * Building the DxlMessage handed to a callback from a received Python 
+ * message, with the _to_dxl_message functions of EventListener.py and 
+ * ServiceProvider.py.  With the native codec the lazy view the message 
+ * was decoded into is handed over, with the pure Python codec every field
+ * is copied.  "receive" also decodes the message, as the client does for
+ * every message it receives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DxlMessageBenchmark {
+	
+	private static final String SCRIPT = String.join("\n",
+		"from dxlclient.message import Message, Event, Request",
+		"if not java_codec:",
+		"    Message._java_codec = None",
+		"topic = '/bench/service/topic'",
+		"if kind == 'event':",
+		"    message = Event(topic)",
+		"else:",
+		"    message = Request(topic)",
+		"    message.reply_to_topic = '/mcafee/client/{bench}'",
+		"    message.service_id = '{bench-service}'",
+		"message.payload = '{\"key\":\"value\"}'",
+		"raw = message._to_bytes()",
+		"def received():",
+		"    message = Message._from_bytes(raw)",
+		"    message.destination_topic = topic",
+		"    return message",
+		"decoded = received()",
+		"convert = lambda: _to_dxl_message(decoded)",
+		"receive = lambda: _to_dxl_message(received())",
+		"");
+	
+	@Param({ "java", "python" })
+	public String codec;
+	
+	@Param({ "event", "request" })
+	public String kind;
+	
+	private PythonInterpreter interpreter;
+	private PyObject convert;
+	private PyObject receive;
+	
+	@Setup
+	public void setUp() throws IOException {
+		interpreter = Interpreters.create();
+		Interpreters.execModule(interpreter, "event".equals(kind) 
+				? "/com/att/cso/opendxl/jython/client/extensions/EventListener.py"
+				: "/com/att/cso/opendxl/jython/client/extensions/ServiceProvider.py");
+		interpreter.set("java_codec", Py.newBoolean("java".equals(codec)));
+		interpreter.set("kind", Py.newString(kind));
+		interpreter.exec(SCRIPT);
+		convert = interpreter.get("convert");
+		receive = interpreter.get("receive");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		interpreter.close();
+	}
+	
+	@Benchmark
+	public Object convert() {
+		return convert.__call__().__tojava__(Object.class);
+	}
+	
+	@Benchmark
+	public Object receive() {
+		return receive.__call__().__tojava__(Object.class);
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.cso.opendxl.jython.client.JythonFactory;
+import com.att.cso.opendxl.jython.client.interfaces.DxlListenerInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
+
+/**
+ * Factory and interpreter startup, and creating the Jython objects once 
+ * the factory runs.  Startup only happens once per JVM, so it is measured 
+ * as a single shot in each of several fresh JVMs.  Run it against a library
+ * built normally and one built with -Djython.precompile.skip=true to see 
+ * what the precompiled Python bytecode saves.
+ */
+@State(Scope.Benchmark)
+public class FactoryBenchmark {
+	
+	private JythonFactory factory;
+	
+	@TearDown
+	public void closeFactory() {
+		if (factory != null)
+			factory.closeFactory();
+	}
+	
+	/**
+	 * Cold start, from an uninitialized Jython to the first publisher
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public DxlPublisherInterface startup() {
+		Interpreters.initialize();
+		factory = JythonFactory.getInstance();
+		return factory.getDxlPublisherInterface();
+	}
+	
+	/**
+	 * Cold start with JythonFactory.warmUp called before the first publisher,
+	 * as an application does when it starts
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public DxlPublisherInterface startupWithWarmUp() {
+		Interpreters.initialize();
+		factory = JythonFactory.getInstance();
+		factory.warmUp();
+		return factory.getDxlPublisherInterface();
+	}
+	
+	/**
+	 * Factory with its interpreter pool running, for getJythonObject
+	 */
+	@State(Scope.Benchmark)
+	public static class RunningFactory {
+		
+		JythonFactory factory;
+		
+		@Setup
+		public void setUp() {
+			Interpreters.initialize();
+			factory = JythonFactory.getInstance();
+			// The module is compiled and its class defined on first use
+			factory.getDxlListenerInterface();
+		}
+		
+		@TearDown
+		public void tearDown() {
+			factory.closeFactory();
+		}
+	}
+	
+	/**
+	 * Creating a listener from the cached module, as done for every 
+	 * listener an application creates
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Fork(1)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public DxlListenerInterface getJythonObject(RunningFactory running) {
+		return running.factory.getDxlListenerInterface();
+	}
+}
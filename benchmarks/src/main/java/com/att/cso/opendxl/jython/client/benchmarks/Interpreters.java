@@ -0,0 +1,95 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.python.core.PySystemState;
+import org.python.util.PythonInterpreter;
+
+import com.att.cso.opendxl.jython.client.JythonFactory;
+
+/**
+ * Jython set up shared by the benchmarks.  Jython is initialized with the 
+ * settings of JythonFactory, but respecting Java accessibility so the 
+ * benchmarks do not need the JDK internals opened up.  Jython ignores the
+ * initialization by the factory that follows.
+ */
+final class Interpreters {
+	
+	private static boolean initialized = false;
+	
+	private Interpreters() {
+	}
+	
+	/**
+	 * Initialize Jython once per JVM
+	 */
+	static synchronized void initialize() {
+		if (initialized)
+			return;
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		initialized = true;
+	}
+	
+	/**
+	 * Create an interpreter with its own system state, like the interpreters
+	 * of the JythonFactory pool, so module changes made by a benchmark do not
+	 * leak into others
+	 * 
+	 * @return New PythonInterpreter object
+	 */
+	static PythonInterpreter create() {
+		initialize();
+		return new PythonInterpreter(null, new PySystemState());
+	}
+	
+	/**
+	 * Run one of the Python modules of the library in the interpreter, so 
+	 * its functions can be called by the benchmark
+	 * 
+	 * @param interpreter Interpreter to run the module in
+	 * @param resource Path of the module on the class path
+	 * @throws IOException Thrown when the module can not be read
+	 */
+	static void execModule(PythonInterpreter interpreter, String resource) throws IOException {
+		try (InputStream module = JythonFactory.class.getResourceAsStream(resource)) {
+			if (module == null)
+				throw new IOException("Python module not found: " + resource);
+			interpreter.execfile(module, resource);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+/**
+ * Encoding and decoding of events in message.py, with the native Java 
+ * codec and with the pure Python msgpack implementation it replaces.
+ * Decoding reads the payload, as every callback does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageCodecBenchmark {
+	
+	private static final String SCRIPT = String.join("\n",
+		"from dxlclient.message import Message, Event",
+		"if not java_codec:",
+		"    Message._java_codec = None",
+		"event = Event('/bench/topic')",
+		"event.payload = 'x' * payload_size",
+		"raw = event._to_bytes()",
+		"encode = lambda: event._to_bytes()",
+		"decode = lambda: Message._from_bytes(raw).payload",
+		"");
+	
+	@Param({ "java", "python" })
+	public String codec;
+	
+	@Param({ "64", "4096" })
+	public int payloadSize;
+	
+	private PythonInterpreter interpreter;
+	private PyObject encode;
+	private PyObject decode;
+	
+	@Setup
+	public void setUp() {
+		interpreter = Interpreters.create();
+		interpreter.set("java_codec", Py.newBoolean("java".equals(codec)));
+		interpreter.set("payload_size", Py.newInteger(payloadSize));
+		interpreter.exec(SCRIPT);
+		encode = interpreter.get("encode");
+		decode = interpreter.get("decode");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		interpreter.close();
+	}
+	
+	@Benchmark
+	public PyObject encode() {
+		return encode.__call__();
+	}
+	
+	@Benchmark
+	public PyObject decode() {
+		return decode.__call__();
+	}
+}
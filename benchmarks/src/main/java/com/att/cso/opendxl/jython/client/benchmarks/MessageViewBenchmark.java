@@ -0,0 +1,95 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.codec.DxlMessageCodec;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Full decoding of a received event against the lazy view, for a callback
+ * that only reads the topic and payload.  Run with "-prof gc" to compare 
+ * the bytes allocated per message as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageViewBenchmark {
+	
+	private static final String TOPIC = "/bench/topic";
+	
+	private byte[] raw;
+	
+	@Setup
+	public void setUp() throws DxlJythonException {
+		DxlMessage message = new DxlMessage();
+		message.setMessageType(DxlMessage.MESSAGE_TYPE_EVENT);
+		message.setClientId(DxlMessageCodec.generateMessageId());
+		message.setBrokerId(DxlMessageCodec.generateMessageId());
+		message.setBrokerIdList(Arrays.asList(DxlMessageCodec.generateMessageId(), DxlMessageCodec.generateMessageId()));
+		message.setClientIdList(Arrays.asList(DxlMessageCodec.generateMessageId()));
+		message.setSourceTenantGuid(DxlMessageCodec.generateMessageId());
+		message.setDestinationTenantGuidList(Arrays.asList(DxlMessageCodec.generateMessageId()));
+		message.setPayload("{\"event\":\"sample\",\"severity\":3}");
+		raw = DxlMessageCodec.encode(message);
+	}
+	
+	@Benchmark
+	public int decode() throws DxlJythonException {
+		return read(DxlMessageCodec.decode(TOPIC, raw));
+	}
+	
+	@Benchmark
+	public int view() throws DxlJythonException {
+		return read(DxlMessageCodec.view(TOPIC, raw));
+	}
+	
+	private static int read(DxlMessage message) {
+		return message.getTopic().length() + message.getPayloadBuffer().remaining();
+	}
+}
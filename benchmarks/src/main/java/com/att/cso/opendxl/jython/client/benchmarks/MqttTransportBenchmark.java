@@ -0,0 +1,152 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+
+/**
+ * Event throughput of a DXL client on the paho client against one on the
+ * Java MQTT transport, in events per second.  One client publishes events,
+ * singly or in batches, and a second client receives them through the 
+ * loopback broker over TLS, so each event crosses both transports twice.
+ * An invocation ends once all its events have been received.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MqttTransportBenchmark {
+	
+	private static final int EVENTS = 1000;
+	
+	private static final String SCRIPT = String.join("\n",
+		"import threading",
+		"from dxlclient.callbacks import EventCallback",
+		"from dxlclient.client import DxlClient",
+		"from dxlclient.client_config import DxlClientConfig",
+		"from dxlclient.message import Event",
+		"",
+		"class CountingCallback(EventCallback):",
+		"    def __init__(self):",
+		"        self.expected = 0",
+		"        self.count = 0",
+		"        self.done = threading.Event()",
+		"    def on_event(self, event):",
+		"        self.count += 1",
+		"        if self.count == self.expected:",
+		"            self.done.set()",
+		"",
+		"receiver = DxlClient(DxlClientConfig.create_dxl_config_from_file(config_file))",
+		"sender = DxlClient(DxlClientConfig.create_dxl_config_from_file(config_file))",
+		"receiver.connect()",
+		"sender.connect()",
+		"callback = CountingCallback()",
+		"receiver.add_event_callback('/opendxl/jython/benchmark/transport', callback)",
+		"payload = 'x' * payload_size",
+		"",
+		"def run(events):",
+		"    callback.count = 0",
+		"    callback.expected = events",
+		"    callback.done.clear()",
+		"    for _ in range(0, events, batch_size):",
+		"        batch = []",
+		"        for _ in range(batch_size):",
+		"            event = Event('/opendxl/jython/benchmark/transport')",
+		"            event.payload = payload",
+		"            batch.append(event)",
+		"        if batch_size == 1:",
+		"            sender.send_event(batch[0])",
+		"        else:",
+		"            sender.send_events(batch)",
+		"    if not callback.done.wait(120):",
+		"        raise Exception('Received %d of %d events' % (callback.count, events))",
+		"    return callback.count",
+		"");
+	
+	@Param({ "paho", "java" })
+	public String transport;
+	
+	@Param({ "1", "100" })
+	public int batchSize;
+	
+	@Param({ "100" })
+	public int payloadSize;
+	
+	private DxlLoopbackBroker broker;
+	private PythonInterpreter interpreter;
+	private PyObject run;
+	
+	@Setup
+	public void setUp() throws Exception {
+		broker = Brokers.start();
+		interpreter = Interpreters.create();
+		interpreter.set("config_file", Brokers.writeConfig(broker, Collections.singletonMap("MqttTransport", transport)));
+		interpreter.set("batch_size", Py.newInteger(batchSize));
+		interpreter.set("payload_size", Py.newInteger(payloadSize));
+		interpreter.exec(SCRIPT);
+		run = interpreter.get("run");
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		interpreter.exec("sender.destroy()\nreceiver.destroy()");
+		interpreter.close();
+		broker.close();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public PyObject sendEvents() {
+		return run.__call__(Py.newInteger(EVENTS));
+	}
+}
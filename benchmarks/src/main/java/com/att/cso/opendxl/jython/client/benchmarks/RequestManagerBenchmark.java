@@ -0,0 +1,150 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+/**
+ * Synchronous requests through _request_manager.py, every benchmark thread
+ * is a caller of the same RequestManager.  A stub client answers every 
+ * request from a single responder thread, like the network thread of a 
+ * DXL client.  "shared" parks all callers on one condition and wakes them 
+ * all for each response, as the RequestManager did before it had a 
+ * completion slot per request.  Run with "-t 1" up to "-t 32" to see how
+ * each scales with the number of callers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RequestManagerBenchmark {
+	
+	private static final String SCRIPT = String.join("\n",
+		"import threading",
+		"from java.util.concurrent import Executors",
+		"from dxlclient._request_manager import RequestManager",
+		"from dxlclient.message import Request, Response",
+		"",
+		"class StubClient(object):",
+		"    def __init__(self):",
+		"        self.manager = None",
+		"        self.responder = Executors.newSingleThreadExecutor()",
+		"    def add_response_callback(self, channel, callback):",
+		"        pass",
+		"    def _send_request(self, request):",
+		"        manager = self.manager",
+		"        self.responder.execute(lambda: manager.on_response(Response(request)))",
+		"",
+		"class SharedConditionManager(RequestManager):",
+		"    def __init__(self, client):",
+		"        RequestManager.__init__(self, client)",
+		"        self.condition = threading.Condition(threading.RLock())",
+		"        self.waiting = set()",
+		"        self.responses = {}",
+		"    def register_wait_for_response(self, request):",
+		"        with self.condition:",
+		"            self.waiting.add(request.message_id)",
+		"    def unregister_wait_for_response(self, request):",
+		"        with self.condition:",
+		"            self.waiting.discard(request.message_id)",
+		"            self.responses.pop(request.message_id, None)",
+		"    def wait_for_response(self, request, wait):",
+		"        with self.condition:",
+		"            while request.message_id not in self.responses:",
+		"                self.condition.wait(wait)",
+		"            return self.responses.pop(request.message_id)",
+		"    def on_response(self, response):",
+		"        message_id = response.request_message_id",
+		"        try:",
+		"            with self.condition:",
+		"                if message_id in self.waiting:",
+		"                    self.waiting.remove(message_id)",
+		"                    self.responses[message_id] = response",
+		"                    self.condition.notifyAll()",
+		"            callback = self.unregister_async_callback(message_id)",
+		"        finally:",
+		"            self.remove_current_request(message_id)",
+		"",
+		"client = StubClient()",
+		"if manager_type == 'shared':",
+		"    client.manager = SharedConditionManager(client)",
+		"else:",
+		"    client.manager = RequestManager(client)",
+		"def request():",
+		"    request = Request('/benchmark')",
+		"    request.reply_to_topic = '/reply'",
+		"    return client.manager.sync_request(request, 10)",
+		"");
+	
+	@Param({ "slots", "shared" })
+	public String manager;
+	
+	private PythonInterpreter interpreter;
+	private PyObject request;
+	
+	@Setup
+	public void setUp() {
+		interpreter = Interpreters.create();
+		interpreter.set("manager_type", manager);
+		interpreter.exec(SCRIPT);
+		request = interpreter.get("request");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		interpreter.exec("client.responder.shutdown()");
+		interpreter.close();
+	}
+	
+	@Benchmark
+	public PyObject syncRequest() {
+		return request.__call__();
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.cso.opendxl.jython.client.DxlPublishRouting;
+import com.att.cso.opendxl.jython.client.JythonFactory;
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
+
+/**
+ * Egress throughput of a publisher with one connection against one with
+ * several connections, in messages per second.  Every benchmark thread 
+ * publishes batches on its own topic, so routing by topic spreads the 
+ * threads over the connections.  The publisher connects to a loopback 
+ * broker, or to the brokers of a configuration file given with 
+ * "-p configFile=&lt;path&gt;".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShardedPublisherBenchmark {
+	
+	private static final int BATCH_SIZE = 100;
+	
+	@Param({ "" })
+	public String configFile;
+	
+	@Param({ "1", "4" })
+	public int connections;
+	
+	@Param({ "BY_TOPIC", "ROUND_ROBIN" })
+	public DxlPublishRouting routing;
+	
+	private DxlLoopbackBroker broker;
+	private JythonFactory factory;
+	private DxlPublisherInterface publisher;
+	private final AtomicInteger senders = new AtomicInteger();
+	
+	@Setup
+	public void setUp() throws Exception {
+		String config = configFile;
+		if (config.isEmpty()) {
+			broker = Brokers.start();
+			config = Brokers.writeConfig(broker, null);
+		}
+		Interpreters.initialize();
+		factory = JythonFactory.getInstance();
+		// Started again when an earlier trial in this JVM closed it
+		factory.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION);
+		publisher = factory.getDxlPublisherInterface(true);
+		publisher.setConnections(connections, routing);
+		publisher.connect(config);
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		publisher.disconnect();
+		factory.closeFactory();
+		if (broker != null)
+			broker.close();
+	}
+	
+	/**
+	 * Topic and batch of one sender thread
+	 */
+	@State(Scope.Thread)
+	public static class Sender {
+		
+		String topic;
+		List<String> batch = new ArrayList<String>();
+		
+		@Setup
+		public void setUp(ShardedPublisherBenchmark benchmark) {
+			topic = "/opendxl/jython/benchmark/shard/" + benchmark.senders.getAndIncrement();
+			for (int i = 0; i < BATCH_SIZE; i++)
+				batch.add("message " + i);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public boolean[] sendMessages(Sender sender) throws DxlJythonException {
+		return publisher.sendMessages(sender.topic, sender.batch);
+	}
+}
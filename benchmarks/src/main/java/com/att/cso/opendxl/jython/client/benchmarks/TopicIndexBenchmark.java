@@ -0,0 +1,140 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.cso.opendxl.jython.client.topic.DxlTopicIndex;
+
+/**
+ * The topic index on its own against the lookups of the Python callback 
+ * manager it replaces, which looks up "", the topic and every wildcard 
+ * prefix string of the topic in a map.  Subscriptions are spread over a 
+ * 4 level hierarchy, one in ten is a wildcard.  "build" adds all the 
+ * subscriptions to a new index.  Run with "-prof gc" to compare the bytes
+ * allocated per message as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TopicIndexBenchmark {
+	
+	@Param({ "10", "1000", "100000" })
+	public int subscriptions;
+	
+	private String[] channels;
+	private String[] topics;
+	private DxlTopicIndex index;
+	private Map<String, List<Object>> map;
+	private int next = 0;
+	
+	@Setup
+	public void setUp() {
+		// /dxl/svc<a>/grp<b>/evt<c>, every tenth replaced by the wildcard of its group
+		int fanout = Math.max(2, (int)Math.ceil(Math.cbrt(subscriptions)));
+		channels = new String[subscriptions];
+		List<String> received = new ArrayList<String>();
+		for (int idx = 0; idx < subscriptions; idx++) {
+			String group = "/dxl/svc" + (idx / (fanout * fanout)) + "/grp" + (idx / fanout % fanout);
+			channels[idx] = idx % 10 == 9 ? group + "/#" : group + "/evt" + (idx % fanout);
+			// One received topic for each exact subscription
+			if (idx % 10 != 9)
+				received.add(channels[idx]);
+		}
+		topics = received.toArray(new String[0]);
+		
+		index = build();
+		map = new HashMap<String, List<Object>>();
+		for (int idx = 0; idx < channels.length; idx++) {
+			List<Object> callbacks = new ArrayList<Object>();
+			callbacks.add(Integer.valueOf(idx));
+			map.put(channels[idx], callbacks);
+		}
+	}
+	
+	@Benchmark
+	public List<Object> index() {
+		return index.match(nextTopic());
+	}
+	
+	@Benchmark
+	public List<Object> strings() {
+		String topic = nextTopic();
+		List<Object> matches = new ArrayList<Object>();
+		fire("", matches);
+		fire(topic, matches);
+		// Same prefix strings as the Python wildcard generator
+		for (int slash = topic.lastIndexOf('/'); slash >= 0; slash = topic.lastIndexOf('/', slash - 1))
+			fire(topic.substring(0, slash) + "/#", matches);
+		fire("#", matches);
+		return matches;
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public DxlTopicIndex build() {
+		DxlTopicIndex built = new DxlTopicIndex();
+		for (int idx = 0; idx < channels.length; idx++)
+			built.add(channels[idx], Integer.valueOf(idx));
+		return built;
+	}
+	
+	private String nextTopic() {
+		String topic = topics[next];
+		next = next + 1 == topics.length ? 0 : next + 1;
+		return topic;
+	}
+	
+	private void fire(String channel, List<Object> matches) {
+		List<Object> callbacks = map.get(channel);
+		if (callbacks != null)
+			matches.addAll(callbacks);
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.python.core.PyObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Registry of DXL clients shared by the listeners, providers, publishers and
+ * requesters of an interpreter, one client per configuration file.  The 
+ * first object to connect with a configuration file creates the client, 
+ * later ones reuse it, and the last one to let go destroys it.  The client
+ * counts its subscriptions, so a topic stays subscribed until every object 
+ * that subscribed to it has unsubscribed.
+ * 
+ * The client is created with the dispatcher and overload policy of the 
+ * first object.  Objects receiving messages with other settings are turned
+ * away rather than silently running with those of the client.
+ */
+public class DxlConnectionManager {
+	// Error code when the shared client uses another dispatcher or overload policy
+	public static final int ERROR_CONFLICTING_SETTINGS = 2500;
+	
+	Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	// Shared clients, keyed by canonical path of the configuration file
+	private final Map<String, Connection> connections = new HashMap<String, Connection>();
+	
+	private static class Connection {
+		// Python DxlClient, null until connected
+		private Object client;
+		private int references;
+		// Settings the client is created with
+		private DxlDispatcher dispatcher;
+		private DxlOverloadPolicy overloadPolicy;
+	}
+	
+	/**
+	 * Get the client shared for a configuration file, connecting it with the
+	 * default dispatcher and overload policy if no object holds it yet.  For
+	 * objects that only send, whatever the settings of the client.
+	 * 
+	 * @param configFile Path to the DXL client configuration file
+	 * @param connector Creates and connects the client
+	 * @return The shared client
+	 * @throws Exception Thrown by the connector when the client cannot connect
+	 */
+	public Object acquire(String configFile, Callable<Object> connector) throws Exception {
+		return acquire(configFile, null, null, false, connector);
+	}
+	
+	/**
+	 * Get the client shared for a configuration file, connecting it if no
+	 * object holds it yet.  Connecting only blocks callers of the same
+	 * configuration file.  Every successful call must be matched by a call
+	 * to release.
+	 * 
+	 * @param configFile Path to the DXL client configuration file
+	 * @param dispatcher Dispatcher the client has to use, null for the Python thread pool
+	 * @param overloadPolicy Overload policy the client has to use, null for the default
+	 * @param connector Creates and connects the client with the dispatcher and overload policy
+	 * @return The shared client
+	 * @throws DxlJythonException Thrown when the client uses another dispatcher or overload policy
+	 * @throws Exception Thrown by the connector when the client cannot connect
+	 */
+	public Object acquire(String configFile, DxlDispatcher dispatcher, DxlOverloadPolicy overloadPolicy, 
+			Callable<Object> connector) throws Exception {
+		return acquire(configFile, dispatcher, overloadPolicy, true, connector);
+	}
+	
+	private Object acquire(String configFile, DxlDispatcher dispatcher, DxlOverloadPolicy overloadPolicy, 
+			boolean checked, Callable<Object> connector) throws Exception {
+		String key = key(configFile);
+		Connection connection;
+		synchronized (this) {
+			connection = connections.get(key);
+			if (connection == null) {
+				connection = new Connection();
+				connection.dispatcher = dispatcher;
+				connection.overloadPolicy = overloadPolicy;
+				connections.put(key, connection);
+			} else if (checked && (connection.dispatcher != dispatcher || connection.overloadPolicy != overloadPolicy)) {
+				throw new DxlJythonException(ERROR_CONFLICTING_SETTINGS, 
+						"The shared DXL client of " + key + " uses another dispatcher or overload policy");
+			}
+			connection.references++;
+		}
+		
+		synchronized (connection) {
+			if (connection.client == null) {
+				try {
+					logger.info("Creating shared DXL client for {}", key);
+					connection.client = connector.call();
+				} catch (Exception | Error e) {
+					release(key, connection);
+					throw e;
+				}
+			}
+			return connection.client;
+		}
+	}
+	
+	/**
+	 * Let go of a shared client.  The client is dropped from the registry when
+	 * no other object holds it, the caller then has to destroy it.
+	 * 
+	 * @param configFile Path to the configuration file the client was acquired with
+	 * @param client The client returned by acquire
+	 * @return True when the caller was the last holder of the client
+	 */
+	public boolean release(String configFile, Object client) {
+		String key = key(configFile);
+		synchronized (this) {
+			Connection connection = connections.get(key);
+			if (connection == null || connection.client != client)
+				return false;
+			return release(key, connection);
+		}
+	}
+	
+	private synchronized boolean release(String key, Connection connection) {
+		if (--connection.references > 0)
+			return false;
+		connections.remove(key);
+		return true;
+	}
+	
+	/**
+	 * Get the number of shared clients
+	 * 
+	 * @return Number of configuration files with a shared client
+	 */
+	public synchronized int getConnectionCount() {
+		return connections.size();
+	}
+	
+	/**
+	 * Get the number of objects holding the client of a configuration file
+	 * 
+	 * @param configFile Path to the configuration file
+	 * @return Number of holders, 0 when there is no shared client
+	 */
+	public synchronized int getReferenceCount(String configFile) {
+		Connection connection = connections.get(key(configFile));
+		return connection == null ? 0 : connection.references;
+	}
+	
+	/**
+	 * Destroy the clients still held, called when the factory is closed
+	 */
+	public void close() {
+		List<Object> clients = new ArrayList<Object>();
+		synchronized (this) {
+			for (Connection connection : connections.values())
+				clients.add(connection.client);
+			connections.clear();
+		}
+		
+		for (Object client : clients) {
+			if (client instanceof PyObject) {
+				try {
+					((PyObject) client).invoke("destroy");
+				} catch (RuntimeException e) {
+					logger.error("Unable to destroy shared DXL client", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Configuration files are told apart by their canonical path, so 
+	 * different spellings of the same path share a client
+	 * 
+	 * @param configFile Path to the configuration file
+	 * @return Key of the configuration file
+	 */
+	private static String key(String configFile) {
+		File file = new File(configFile);
+		try {
+			return file.getCanonicalPath();
+		} catch (IOException e) {
+			return file.getAbsolutePath();
+		}
+	}
+}
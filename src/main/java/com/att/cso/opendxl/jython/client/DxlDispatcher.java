@@ -0,0 +1,349 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.interfaces.DxlKeyExtractor;
+
+/**
+ * Executor for messages received from the DXL fabric.  Without one, each DXL
+ * client hands received messages to a small Python thread pool and a slow
+ * callback stalls every message queued behind it.  A dispatcher hands each
+ * message to a Java executor instead, and keeps queue depth and worker
+ * metrics for it.
+ * 
+ * Set a dispatcher on the JythonFactory to use it for every client created
+ * afterwards, or on a single listener, provider or requester before it is
+ * started.  Messages are no longer delivered in order once the executor 
+ * runs more than one of them at a time, unless the dispatcher is ordered.
+ * An ordered dispatcher hashes each message by its destination topic, or by
+ * the key from a DxlKeyExtractor, onto one of a number of single threaded
+ * lanes.  Messages with the same key are handled in the order they were 
+ * received, messages with different keys in parallel.
+ */
+public class DxlDispatcher implements Executor, Closeable {
+	// Error code when the JVM cannot create virtual threads
+	public static final int ERROR_VIRTUAL_THREADS = 2300;
+	
+	Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	// A single executor, or one single threaded executor per lane when ordered
+	private final Executor[] executors;
+	// Executors created by the dispatcher are shut down when it is closed
+	private final boolean owned;
+	private final int maximumWorkers;
+	private final boolean ordered;
+	private final DxlKeyExtractor keyExtractor;
+	private final AtomicInteger nextLane = new AtomicInteger();
+	
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private final AtomicInteger peakQueueDepth = new AtomicInteger();
+	private final AtomicInteger activeWorkers = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * Create a dispatcher handing messages to an existing executor.  The
+	 * executor is not shut down when the dispatcher is closed.
+	 * 
+	 * @param executor Executor running the message callbacks
+	 */
+	public DxlDispatcher(Executor executor) {
+		this(new Executor[] { executor }, false, false, null);
+	}
+	
+	private DxlDispatcher(Executor[] executors, boolean owned, boolean ordered, DxlKeyExtractor keyExtractor) {
+		for (Executor executor : executors) {
+			if (executor == null)
+				throw new IllegalArgumentException("Executor is required");
+		}
+		this.executors = executors;
+		this.owned = owned;
+		this.ordered = ordered;
+		this.keyExtractor = keyExtractor;
+		
+		Executor executor = executors[0];
+		if (ordered)
+			maximumWorkers = executors.length;
+		else if (executor instanceof ThreadPoolExecutor)
+			maximumWorkers = ((ThreadPoolExecutor)executor).getMaximumPoolSize();
+		else if (executor instanceof ForkJoinPool)
+			maximumWorkers = ((ForkJoinPool)executor).getParallelism();
+		else
+			maximumWorkers = 0;
+	}
+	
+	/**
+	 * Create a dispatcher running messages on a fixed number of daemon 
+	 * threads.  One thread keeps messages in order.
+	 * 
+	 * @param threads number of worker threads
+	 * @return DxlDispatcher owning its thread pool
+	 */
+	public static DxlDispatcher fixedThreadPool(int threads) {
+		return new DxlDispatcher(new Executor[] { Executors.newFixedThreadPool(threads, threadFactory()) }, true, false, null);
+	}
+	
+	/**
+	 * Create an ordered dispatcher keyed by destination topic.  Messages on 
+	 * the same topic are handled one at a time in the order they were 
+	 * received, messages on different topics run on up to lanes threads.
+	 * 
+	 * @param lanes number of single threaded lanes
+	 * @return DxlDispatcher owning its lanes
+	 */
+	public static DxlDispatcher ordered(int lanes) {
+		return ordered(lanes, null);
+	}
+	
+	/**
+	 * Create an ordered dispatcher keyed by the key extractor.  Messages with
+	 * the same key are handled one at a time in the order they were received,
+	 * messages with different keys run on up to lanes threads.
+	 * 
+	 * @param lanes number of single threaded lanes
+	 * @param keyExtractor picks the key of each message, null to key by destination topic
+	 * @return DxlDispatcher owning its lanes
+	 */
+	public static DxlDispatcher ordered(int lanes, DxlKeyExtractor keyExtractor) {
+		if (lanes < 1)
+			throw new IllegalArgumentException("At least one lane is required");
+		ThreadFactory factory = threadFactory();
+		Executor[] executors = new Executor[lanes];
+		for (int lane = 0; lane < lanes; lane++)
+			executors[lane] = Executors.newSingleThreadExecutor(factory);
+		return new DxlDispatcher(executors, true, true, keyExtractor);
+	}
+	
+	private static ThreadFactory threadFactory() {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "DxlDispatcher-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * Create a dispatcher starting a virtual thread for every message, so a
+	 * blocking callback never holds up other messages.  Needs a JVM with 
+	 * virtual threads (Java 21 or later).
+	 * 
+	 * @return DxlDispatcher owning its executor
+	 * @throws DxlJythonException Thrown when the JVM does not support virtual threads
+	 */
+	public static DxlDispatcher virtualThreadPerMessage() throws DxlJythonException {
+		Method factory = virtualThreadFactory();
+		if (factory == null)
+			throw new DxlJythonException(ERROR_VIRTUAL_THREADS, "Virtual threads are not supported by this JVM");
+		try {
+			return new DxlDispatcher(new Executor[] { (Executor)factory.invoke(null) }, true, false, null);
+		} catch (ReflectiveOperationException ex) {
+			throw new DxlJythonException(ERROR_VIRTUAL_THREADS, "Unable to create a virtual thread executor: " + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Check if the JVM supports virtual threads
+	 * 
+	 * @return True if virtualThreadPerMessage can be used
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return virtualThreadFactory() != null;
+	}
+	
+	// The project is built for Java 8, so the Java 21 API is looked up at runtime
+	private static Method virtualThreadFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Check if messages with the same key are handled in order
+	 * 
+	 * @return True for a dispatcher created by ordered
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+	
+	/**
+	 * Hand a received message to the executor.  On an ordered dispatcher 
+	 * tasks without a message are spread over the lanes round robin.
+	 * 
+	 * @param task Task handling the message
+	 * @throws RejectedExecutionException Thrown when the executor does not accept the task
+	 */
+	@Override
+	public void execute(Runnable task) {
+		int lane = executors.length == 1 ? 0 : (nextLane.getAndIncrement() & Integer.MAX_VALUE) % executors.length;
+		submit(executors[lane], task);
+	}
+	
+	/**
+	 * Hand a received message to the lane of its key.  The message is decoded
+	 * before it is dispatched so the key can be read from it.
+	 * 
+	 * @param topic Topic the message was received on
+	 * @param message Message received, may be null when the native codec is not in use
+	 * @param task Task handling the message
+	 * @throws RejectedExecutionException Thrown when the lane does not accept the task
+	 */
+	public void dispatch(String topic, DxlMessage message, Runnable task) {
+		if (!ordered || executors.length == 1) {
+			submit(executors[0], task);
+			return;
+		}
+		
+		String key = null;
+		if (keyExtractor != null && message != null) {
+			try {
+				key = keyExtractor.extractKey(message);
+			} catch (RuntimeException ex) {
+				logger.error("Unable to extract the key of a DXL message, ordering by topic", ex);
+			}
+		}
+		if (key == null)
+			key = topic;
+		
+		int hash = key == null ? 0 : key.hashCode();
+		// Spread the high bits, topics often share long prefixes
+		hash ^= hash >>> 16;
+		submit(executors[(hash & Integer.MAX_VALUE) % executors.length], task);
+	}
+	
+	private void submit(Executor executor, final Runnable task) {
+		int depth = queueDepth.incrementAndGet();
+		int peak;
+		while (depth > (peak = peakQueueDepth.get()) && !peakQueueDepth.compareAndSet(peak, depth));
+		
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					queueDepth.decrementAndGet();
+					activeWorkers.incrementAndGet();
+					try {
+						task.run();
+					} catch (RuntimeException ex) {
+						failed.incrementAndGet();
+						logger.error("Error handling DXL message", ex);
+					} finally {
+						activeWorkers.decrementAndGet();
+						completed.incrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			queueDepth.decrementAndGet();
+			rejected.incrementAndGet();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Shut down the executor if it was created by the dispatcher
+	 */
+	@Override
+	public void close() {
+		if (!owned)
+			return;
+		for (Executor executor : executors) {
+			if (executor instanceof ExecutorService)
+				((ExecutorService)executor).shutdown();
+		}
+	}
+	
+	/**
+	 * @return Number of messages handed to the executor and not started yet
+	 */
+	public int getQueueDepth()				{ return queueDepth.get(); }
+	
+	/**
+	 * @return Highest queue depth seen since the dispatcher was created
+	 */
+	public int getPeakQueueDepth()			{ return peakQueueDepth.get(); }
+	
+	/**
+	 * @return Number of messages being handled right now
+	 */
+	public int getActiveWorkers()			{ return activeWorkers.get(); }
+	
+	/**
+	 * @return Maximum number of workers of the executor, 0 when unbounded or unknown
+	 */
+	public int getMaximumWorkers()			{ return maximumWorkers; }
+	
+	/**
+	 * @return Share of the workers busy handling messages, from 0 to 1, 
+	 *         always 0 when the number of workers is unbounded or unknown
+	 */
+	public double getWorkerSaturation() {
+		return maximumWorkers > 0 ? (double)activeWorkers.get() / maximumWorkers : 0;
+	}
+	
+	/**
+	 * @return Number of messages handled, including failed ones
+	 */
+	public long getCompletedCount()			{ return completed.get(); }
+	
+	/**
+	 * @return Number of messages whose handler threw an exception
+	 */
+	public long getFailedCount()			{ return failed.get(); }
+	
+	/**
+	 * @return Number of messages the executor did not accept
+	 */
+	public long getRejectedCount()			{ return rejected.get(); }
+}
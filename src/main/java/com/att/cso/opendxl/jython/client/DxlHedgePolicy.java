@@ -0,0 +1,213 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.att.cso.opendxl.jython.client.metrics.DxlHistogram;
+
+/**
+ * When a requester sends a second copy of a request that has not been
+ * answered yet.  A service registered on several instances is likely to 
+ * route the copy to another instance, so an occasional slow instance no 
+ * longer sets the tail latency of the requests.  The first response wins, 
+ * the other request is cancelled and its response ignored.
+ * 
+ * The delay is either fixed or a percentile of the response times seen by
+ * the policy, e.g. the 95th percentile hedges the slowest 5% of requests.
+ * Hedges are limited to a ratio of the requests, 10% by default, so a slow
+ * fabric is not flooded with copies.  A policy can be set on several 
+ * requesters of the same services.
+ */
+public class DxlHedgePolicy {
+	// Ratio of hedged requests when none is set
+	public static final double DEFAULT_MAX_HEDGE_RATIO = 0.1;
+	
+	// Responses recorded before the percentile replaces the initial delay
+	private static final long MIN_SAMPLES = 100;
+	// Responses per window, the percentile follows the last full window
+	private static final long WINDOW = 10000;
+	// Responses recorded between computations of the percentile
+	private static final long REFRESH = 100;
+	
+	private final long delayNanos;
+	private final double percentile;
+	private volatile double maxHedgeRatio = DEFAULT_MAX_HEDGE_RATIO;
+	
+	private volatile DxlHistogram current = new DxlHistogram();
+	private DxlHistogram previous;
+	private volatile long percentileNanos;
+	private final AtomicLong recorded = new AtomicLong();
+	
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong overBudget = new AtomicLong();
+	
+	private DxlHedgePolicy(long delayNanos, double percentile) {
+		this.delayNanos = delayNanos;
+		this.percentile = percentile;
+		this.percentileNanos = delayNanos;
+	}
+	
+	/**
+	 * Create a policy hedging requests not answered after a fixed delay
+	 * 
+	 * @param delay time to wait for the response before hedging
+	 * @param unit unit of the delay
+	 * @return Policy with a fixed delay
+	 */
+	public static DxlHedgePolicy fixed(long delay, TimeUnit unit) {
+		if (delay < 0)
+			throw new IllegalArgumentException("Delay must not be negative");
+		return new DxlHedgePolicy(unit.toNanos(delay), 0);
+	}
+	
+	/**
+	 * Create a policy hedging requests not answered within a percentile of
+	 * the response times, using the initial delay until enough responses
+	 * have been seen
+	 * 
+	 * @param percentile percentile of the response times, e.g. 95
+	 * @param initialDelay delay used before enough responses have been seen
+	 * @param unit unit of the initial delay
+	 * @return Policy with a delay following the response times
+	 */
+	public static DxlHedgePolicy percentile(double percentile, long initialDelay, TimeUnit unit) {
+		if (percentile <= 0 || percentile >= 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		if (initialDelay < 0)
+			throw new IllegalArgumentException("Delay must not be negative");
+		return new DxlHedgePolicy(unit.toNanos(initialDelay), percentile);
+	}
+	
+	public double getPercentile()				{ return percentile; }
+	public double getMaxHedgeRatio()			{ return maxHedgeRatio; }
+	
+	/**
+	 * Set the maximum ratio of hedged requests, 1 hedges every request that 
+	 * is not answered in time
+	 * 
+	 * @param maxHedgeRatio ratio from 0 to 1
+	 */
+	public void setMaxHedgeRatio(double maxHedgeRatio) {
+		if (maxHedgeRatio < 0 || maxHedgeRatio > 1)
+			throw new IllegalArgumentException("Hedge ratio must be between 0 and 1");
+		this.maxHedgeRatio = maxHedgeRatio;
+	}
+	
+	/**
+	 * Get the current delay before hedging a request
+	 * 
+	 * @param unit unit of the delay
+	 * @return delay in the unit
+	 */
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(percentile > 0 ? percentileNanos : delayNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Count a request sent by a requester, called by the Python extensions
+	 */
+	public void recordRequest() {
+		requests.incrementAndGet();
+	}
+	
+	/**
+	 * Check whether a hedge may be sent within the maximum ratio and count
+	 * it, called by the Python extensions
+	 * 
+	 * @return True if the hedge may be sent
+	 */
+	public boolean tryHedge() {
+		long limit = (long)Math.ceil(requests.get() * maxHedgeRatio);
+		long sent;
+		do {
+			sent = hedges.get();
+			if (sent >= limit) {
+				overBudget.incrementAndGet();
+				return false;
+			}
+		} while (!hedges.compareAndSet(sent, sent + 1));
+		return true;
+	}
+	
+	/**
+	 * Record the response time of the request that answered first, called
+	 * by the Python extensions
+	 * 
+	 * @param nanos time from sending the request to its response
+	 * @param hedge True if the hedge answered first
+	 */
+	public void recordResponse(long nanos, boolean hedge) {
+		if (hedge)
+			hedgeWins.incrementAndGet();
+		if (percentile <= 0)
+			return;
+		
+		DxlHistogram histogram = current;
+		histogram.record(nanos);
+		long count = recorded.incrementAndGet();
+		if (count % REFRESH != 0)
+			return;
+		
+		synchronized (this) {
+			if (histogram.getCount() >= WINDOW && histogram == current) {
+				previous = current;
+				current = new DxlHistogram();
+			}
+			DxlHistogram window = previous != null ? previous : current;
+			if (window.getCount() >= MIN_SAMPLES)
+				percentileNanos = window.getPercentile(percentile);
+		}
+	}
+	
+	/**
+	 * @return Number of requests sent under the policy, without the hedges
+	 */
+	public long getRequestCount()			{ return requests.get(); }
+	
+	/**
+	 * @return Number of hedges sent
+	 */
+	public long getHedgeCount()				{ return hedges.get(); }
+	
+	/**
+	 * @return Number of hedges answered before the request they copied
+	 */
+	public long getHedgeWinCount()			{ return hedgeWins.get(); }
+	
+	/**
+	 * @return Number of hedges not sent because of the maximum ratio
+	 */
+	public long getOverBudgetCount()		{ return overBudget.get(); }
+}
@@ -30,8 +30,11 @@
 
 package com.att.cso.opendxl.jython.client;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Message class to hold the fields of a OpenDXL message.  This structure is 
@@ -44,11 +47,16 @@ public class DxlMessage {
 	public static final int MESSAGE_TYPE_EVENT = 2;
 	public static final int MESSAGE_TYPE_ERROR = 3;
 	
+	// Current DXL message format version
+	public static final int MESSAGE_VERSION = 2;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
 	// MQTT message structure
 	private String topic = null;
 	
 	// DXL message structure
-	private int messageVersion = 0;
+	private int messageVersion = MESSAGE_VERSION;
 	private int messageType = 0;
 	private String messageId = null;
 	private String clientId = null;
@@ -56,12 +64,20 @@ public class DxlMessage {
 	private List<String> clientIdList = null;
 	private List<String> brokerIdList = null;
 	private String payload = null;
+	private byte[] payloadBytes = null;
 	private String replyTopic = null;
 	private String requestMessageId = null;
 	private String serviceId = null;
 	private String errorCode = null;
 	private String errorMessage = null;
 	
+	// DXL message structure (version 1)
+	private Map<String, String> otherFields = null;
+	
+	// DXL message structure (version 2)
+	private String sourceTenantGuid = null;
+	private List<String> destinationTenantGuidList = null;
+	
 	public String getTopic()				{ return topic; }
 	public int getMessageVersion() 			{ return messageVersion; }
 	public int getMessageType() 			{ return messageType; }
@@ -70,12 +86,14 @@ public class DxlMessage {
 	public String getBrokerId() 			{ return brokerId; }
 	public List<String> getClientIdList() 	{ return clientIdList; }
 	public List<String> getBrokerIdList() 	{ return brokerIdList; }
-	public String getPayload() 				{ return payload; }
 	public String getReplyTopic() 			{ return replyTopic; }
 	public String getRequestMessageId()		{ return requestMessageId; }
 	public String getServiceId() 			{ return serviceId; }
 	public String getErrorCode()			{ return errorCode; }
 	public String getErrorMessage()			{ return errorMessage; }
+	public Map<String, String> getOtherFields()	{ return otherFields; }
+	public String getSourceTenantGuid()		{ return sourceTenantGuid; }
+	public List<String> getDestinationTenantGuidList()	{ return destinationTenantGuidList; }
 
 	public void setTopic(String topic)							{ this.topic = topic; }
 	public void setMessageVersion(int messageVersion) 			{ this.messageVersion = messageVersion; }
@@ -87,12 +105,78 @@ public class DxlMessage {
 	public void setClientIdList(String[] clientIdList)			{ this.clientIdList = Arrays.asList(clientIdList); }
 	public void setBrokerIdList(List<String> brokerIdList) 		{ this.brokerIdList = brokerIdList; }
 	public void setBrokerIdList(String[] brokerIdList)			{ this.brokerIdList = Arrays.asList(brokerIdList); }
-	public void setPayload(String payload) 						{ this.payload = payload; }
 	public void setReplyTopic(String replyTopic) 				{ this.replyTopic = replyTopic; }
 	public void setRequestMessageId(String requestMessageId) 	{ this.requestMessageId = requestMessageId; }
 	public void setServiceId(String serviceId) 					{ this.serviceId = serviceId; }
 	public void setErrorCode(String errorCode)					{ this.errorCode = errorCode; }
 	public void setErrorMessage(String errorMessage)			{ this.errorMessage = errorMessage; }
+	public void setOtherFields(Map<String, String> otherFields)	{ this.otherFields = otherFields; }
+	public void setSourceTenantGuid(String sourceTenantGuid)	{ this.sourceTenantGuid = sourceTenantGuid; }
+	public void setDestinationTenantGuidList(List<String> destinationTenantGuidList)	{ this.destinationTenantGuidList = destinationTenantGuidList; }
+	public void setDestinationTenantGuidList(String[] destinationTenantGuidList)		{ this.destinationTenantGuidList = Arrays.asList(destinationTenantGuidList); }
+
+	/**
+	 * Get the payload as a string.  When the message was populated with the
+	 * raw payload bytes they are decoded as UTF-8 on first access.
+	 * 
+	 * @return String containing the payload
+	 */
+	public String getPayload() {
+		if (payload == null && payloadBytes != null)
+			payload = new String(payloadBytes, UTF8);
+		return payload;
+	}
+	
+	/**
+	 * Get the payload as the raw bytes sent on the fabric.  When the message 
+	 * was populated with a string payload it is encoded as UTF-8 on first access.
+	 * 
+	 * @return byte array containing the payload
+	 */
+	public byte[] getPayloadBytes() {
+		if (payloadBytes == null && payload != null)
+			payloadBytes = payload.getBytes(UTF8);
+		return payloadBytes;
+	}
+	
+	public void setPayload(String payload) {
+		this.payload = payload;
+		this.payloadBytes = null;
+	}
+	
+	public void setPayloadBytes(byte[] payloadBytes) {
+		this.payloadBytes = payloadBytes;
+		this.payload = null;
+	}
+	
+	/**
+	 * Get the payload as a read-only buffer over the raw payload bytes, 
+	 * without copying them.
+	 * 
+	 * @return ByteBuffer containing the payload
+	 */
+	public ByteBuffer getPayloadBuffer() {
+		byte[] bytes = getPayloadBytes();
+		if (bytes == null)
+			return null;
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Set the payload from the remaining bytes of a buffer.  The buffer 
+	 * position is not changed.
+	 * 
+	 * @param payloadBuffer ByteBuffer containing the payload
+	 */
+	public void setPayloadBuffer(ByteBuffer payloadBuffer) {
+		if (payloadBuffer == null) {
+			setPayloadBytes(null);
+			return;
+		}
+		byte[] bytes = new byte[payloadBuffer.remaining()];
+		payloadBuffer.duplicate().get(bytes);
+		setPayloadBytes(bytes);
+	}
 
 	/**
 	 * Create a displayable message for testing
@@ -116,6 +200,13 @@ public class DxlMessage {
 		buf.append("   Client id list: " + getClientIdList() + "\n");
 		buf.append("   Broker id list: " + getBrokerIdList() + "\n");
 		buf.append("   Payload:        " + getPayload() + "\n");
+		if (getMessageVersion() > 0) {
+			buf.append("   Other fields:   " + getOtherFields() + "\n");
+		}
+		if (getMessageVersion() > 1) {
+			buf.append("   Tenant guid:    " + getSourceTenantGuid() + "\n");
+			buf.append("   Dest tenants:   " + getDestinationTenantGuidList() + "\n");
+		}
 		if (getMessageType() == MESSAGE_TYPE_REQUEST) {
 			buf.append("   ReplyTo topic:  " + getReplyTopic() + "\n");
 			buf.append("   Service id:     " + getServiceId() + "\n");
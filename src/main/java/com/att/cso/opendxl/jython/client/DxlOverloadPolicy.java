@@ -0,0 +1,200 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.att.cso.opendxl.jython.client.interfaces.DxlCallbackInterface;
+
+/**
+ * What a listener or provider does with received messages when its callbacks
+ * fall behind and the incoming message queue of the DXL client is full.  The
+ * default of blocking stalls the network thread of the client, which stops
+ * keepalives and eventually drops the connection.  The other modes keep the
+ * network thread running by dropping messages or handing them to an 
+ * overflow callback, and providers can answer dropped requests right away 
+ * with a "busy" error response instead of letting them time out.
+ * 
+ * The policy also counts the overload events of the clients it is set on.
+ * Policies only apply to the Python thread pool, not to a DxlDispatcher.
+ */
+public class DxlOverloadPolicy {
+	// Size of the incoming message queue when none is set
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+	
+	/**
+	 * What happens to a received message when the incoming queue is full
+	 */
+	public enum Mode {
+		/** Wait for room in the queue, stalling the network thread */
+		BLOCK("block"),
+		/** Drop the oldest queued message to make room */
+		DROP_OLDEST("drop_oldest"),
+		/** Drop the received message */
+		DROP_NEWEST("drop_newest"),
+		/** Hand the received message to the overflow callback */
+		OVERFLOW("overflow");
+		
+		private final String policyName;
+		
+		private Mode(String policyName) {
+			this.policyName = policyName;
+		}
+		
+		/**
+		 * @return Name of the policy in the DXL client configuration
+		 */
+		public String getPolicyName() {
+			return policyName;
+		}
+	}
+	
+	private final Mode mode;
+	private final DxlCallbackInterface overflowCallback;
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	private boolean busyResponse = false;
+	
+	private final AtomicLong blocked = new AtomicLong();
+	private final AtomicLong droppedOldest = new AtomicLong();
+	private final AtomicLong droppedNewest = new AtomicLong();
+	private final AtomicLong overflowed = new AtomicLong();
+	private final AtomicLong busyResponses = new AtomicLong();
+	
+	private DxlOverloadPolicy(Mode mode, DxlCallbackInterface overflowCallback) {
+		this.mode = mode;
+		this.overflowCallback = overflowCallback;
+	}
+	
+	/**
+	 * @return Policy waiting for room in the queue, the default of the DXL client
+	 */
+	public static DxlOverloadPolicy block() {
+		return new DxlOverloadPolicy(Mode.BLOCK, null);
+	}
+	
+	/**
+	 * @return Policy dropping the oldest queued message to make room
+	 */
+	public static DxlOverloadPolicy dropOldest() {
+		return new DxlOverloadPolicy(Mode.DROP_OLDEST, null);
+	}
+	
+	/**
+	 * @return Policy dropping received messages while the queue is full
+	 */
+	public static DxlOverloadPolicy dropNewest() {
+		return new DxlOverloadPolicy(Mode.DROP_NEWEST, null);
+	}
+	
+	/**
+	 * Create a policy handing received messages to a callback while the queue 
+	 * is full.  The callback runs on the network thread of the DXL client, so
+	 * it must be quick, e.g. spool the message for later.  Its return value is
+	 * ignored, no response is sent for overflowed requests.
+	 * 
+	 * @param overflowCallback callback receiving the messages that did not fit
+	 * @return Policy shedding messages to the callback
+	 */
+	public static DxlOverloadPolicy overflow(DxlCallbackInterface overflowCallback) {
+		if (overflowCallback == null)
+			throw new IllegalArgumentException("Overflow callback is required");
+		return new DxlOverloadPolicy(Mode.OVERFLOW, overflowCallback);
+	}
+	
+	public Mode getMode()								{ return mode; }
+	public DxlCallbackInterface getOverflowCallback()	{ return overflowCallback; }
+	public int getQueueSize()							{ return queueSize; }
+	public boolean isBusyResponse()						{ return busyResponse; }
+	
+	/**
+	 * Set the number of received messages queued for the callbacks
+	 * 
+	 * @param queueSize size of the incoming message queue
+	 */
+	public void setQueueSize(int queueSize) {
+		if (queueSize < 1)
+			throw new IllegalArgumentException("Queue size must be at least 1");
+		this.queueSize = queueSize;
+	}
+	
+	/**
+	 * Answer requests dropped by the policy with an error response saying the
+	 * service is busy.  Only applies to providers.
+	 * 
+	 * @param busyResponse True to send busy error responses
+	 */
+	public void setBusyResponse(boolean busyResponse) {
+		this.busyResponse = busyResponse;
+	}
+	
+	/**
+	 * Count an overload event, called by the Python extensions
+	 * 
+	 * @param event name of the event reported by the DXL client
+	 */
+	public void overloaded(String event) {
+		if ("blocked".equals(event))
+			blocked.incrementAndGet();
+		else if ("drop_oldest".equals(event))
+			droppedOldest.incrementAndGet();
+		else if ("drop_newest".equals(event))
+			droppedNewest.incrementAndGet();
+		else if ("overflow".equals(event))
+			overflowed.incrementAndGet();
+		else if ("busy_response".equals(event))
+			busyResponses.incrementAndGet();
+	}
+	
+	/**
+	 * @return Number of received messages that waited for room in the queue
+	 */
+	public long getBlockedCount()			{ return blocked.get(); }
+	
+	/**
+	 * @return Number of queued messages dropped to make room
+	 */
+	public long getDroppedOldestCount()		{ return droppedOldest.get(); }
+	
+	/**
+	 * @return Number of received messages dropped because the queue was full
+	 */
+	public long getDroppedNewestCount()		{ return droppedNewest.get(); }
+	
+	/**
+	 * @return Number of received messages handed to the overflow callback
+	 */
+	public long getOverflowCount()			{ return overflowed.get(); }
+	
+	/**
+	 * @return Number of busy error responses sent for dropped requests
+	 */
+	public long getBusyResponseCount()		{ return busyResponses.get(); }
+}
@@ -0,0 +1,369 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.att.cso.opendxl.jython.client.codec.DxlMessageCodec;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Cache of responses to idempotent requests, keyed by topic and payload, for
+ * requesters that repeat the same lookups.  Responses are kept for a time to
+ * live and the least recently used ones are evicted when the cache holds too
+ * many entries or bytes.  Identical requests sent while the first is still in
+ * flight wait for its response instead of sending their own.
+ * 
+ * Error responses are not cached unless a time to live is set for them, they
+ * are still handed to the requests waiting for them.  Timeouts and other
+ * failures are never cached.
+ * 
+ * Responses are kept encoded, every caller gets its own copy of the message.
+ * A cache can be set on several requesters to share the responses.
+ */
+public class DxlResponseCache {
+	// Error code of requests not answered in time
+	public static final int ERROR_TIMEOUT = 1300;
+	
+	// Estimated bytes used by an entry besides its key and response
+	private static final int ENTRY_OVERHEAD = 128;
+	
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long ttlNanos;
+	private volatile long errorTtlNanos = 0;
+	
+	// Least recently used first, guarded by this
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private long bytes;
+	
+	// Requests sent and not answered yet, completed with the encoded response
+	private final Map<Key, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<Key, CompletableFuture<byte[]>>();
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	
+	private static class Key {
+		private final String topic;
+		private final byte[] payload;
+		private final int hash;
+		
+		private Key(String topic, byte[] payload) {
+			this.topic = topic;
+			this.payload = payload;
+			this.hash = 31 * topic.hashCode() + Arrays.hashCode(payload);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key)other;
+			return hash == key.hash && topic.equals(key.topic) && Arrays.equals(payload, key.payload);
+		}
+	}
+	
+	private static class Entry {
+		private final byte[] raw;
+		private final long expires;
+		private final long size;
+		
+		private Entry(byte[] raw, long expires, long size) {
+			this.raw = raw;
+			this.expires = expires;
+			this.size = size;
+		}
+	}
+	
+	/**
+	 * Create a cache
+	 * 
+	 * @param maxEntries maximum number of cached responses
+	 * @param maxBytes maximum estimated memory used by the cached responses and their keys
+	 * @param ttl time responses are kept
+	 * @param unit unit of the time to live
+	 */
+	public DxlResponseCache(int maxEntries, long maxBytes, long ttl, TimeUnit unit) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("Maximum entries must be at least 1");
+		if (maxBytes < 1)
+			throw new IllegalArgumentException("Maximum bytes must be at least 1");
+		if (ttl <= 0)
+			throw new IllegalArgumentException("Time to live must be positive");
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.ttlNanos = unit.toNanos(ttl);
+	}
+	
+	public int getMaxEntries()					{ return maxEntries; }
+	public long getMaxBytes()					{ return maxBytes; }
+	public long getTtl(TimeUnit unit)			{ return unit.convert(ttlNanos, TimeUnit.NANOSECONDS); }
+	public long getErrorTtl(TimeUnit unit)		{ return unit.convert(errorTtlNanos, TimeUnit.NANOSECONDS); }
+	
+	/**
+	 * Set the time error responses are kept, 0 (the default) to not cache them.
+	 * A short time spares a failing service the retries of many callers.
+	 * 
+	 * @param ttl time error responses are kept
+	 * @param unit unit of the time to live
+	 */
+	public void setErrorTtl(long ttl, TimeUnit unit) {
+		if (ttl < 0)
+			throw new IllegalArgumentException("Time to live must not be negative");
+		this.errorTtlNanos = unit.toNanos(ttl);
+	}
+	
+	/**
+	 * Get the response to a request from the cache, from the identical request
+	 * in flight, or else from the loader.  Called by the requesters.
+	 * 
+	 * @param topic DXL topic of the request
+	 * @param payload payload of the request
+	 * @param loader sends the request, called when neither has the response
+	 * @return Future completed with a copy of the response, or exceptionally
+	 *         when the request failed
+	 */
+	public CompletableFuture<DxlMessage> get(String topic, byte[] payload, Callable<CompletableFuture<DxlMessage>> loader) {
+		return fetch(new Key(topic, payload.clone()), new CompletableFuture<byte[]>(), loader).thenApply(DxlResponseCache::copy);
+	}
+	
+	/**
+	 * Get the response to a request like get, within the timeout of the caller.
+	 * A caller waiting for an identical request in flight gives up at its own
+	 * timeout.  When the request it waits for times out first, having been 
+	 * sent with a shorter timeout, the caller loads the response again.
+	 * 
+	 * @param topic DXL topic of the request
+	 * @param payload payload of the request
+	 * @param timeout time to wait for the response
+	 * @param unit unit of the timeout
+	 * @param loader sends the request with the timeout of the caller
+	 * @return Future completed with a copy of the response, or exceptionally
+	 *         when the request failed, with error code 1300 when no response
+	 *         arrived in time
+	 */
+	public CompletableFuture<DxlMessage> get(String topic, byte[] payload, long timeout, TimeUnit unit, 
+			Callable<CompletableFuture<DxlMessage>> loader) {
+		Key key = new Key(topic, payload.clone());
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		CompletableFuture<DxlMessage> result = new CompletableFuture<DxlMessage>();
+		ScheduledFuture<?> expiry = DxlScheduler.schedule(() -> result.completeExceptionally(
+				new DxlJythonException(ERROR_TIMEOUT, "Timeout waiting for a response from the DXL fabric")), unit.toMillis(timeout));
+		result.whenComplete((response, error) -> expiry.cancel(false));
+		fetch(key, deadline, loader, result);
+		return result;
+	}
+	
+	private void fetch(Key key, long deadline, Callable<CompletableFuture<DxlMessage>> loader, CompletableFuture<DxlMessage> result) {
+		CompletableFuture<byte[]> own = new CompletableFuture<byte[]>();
+		CompletableFuture<byte[]> raw = fetch(key, own, loader);
+		raw.whenComplete((encoded, error) -> {
+			if (error == null) {
+				try {
+					result.complete(copy(encoded));
+				} catch (CompletionException e) {
+					result.completeExceptionally(e.getCause());
+				}
+			} else if (raw != own && isTimeout(error) && deadline - System.nanoTime() > 0 && !result.isDone()) {
+				fetch(key, deadline, loader, result);
+			} else {
+				result.completeExceptionally(unwrap(error));
+			}
+		});
+	}
+	
+	/**
+	 * Get the encoded response from the cache, from the identical request in
+	 * flight, or else from the loader
+	 * 
+	 * @param key key of the request
+	 * @param shared future the response is loaded into when no identical request is in flight
+	 * @param loader sends the request
+	 * @return Future of the encoded response, shared when the loader was called
+	 */
+	private CompletableFuture<byte[]> fetch(Key key, CompletableFuture<byte[]> shared, Callable<CompletableFuture<DxlMessage>> loader) {
+		byte[] raw = lookup(key);
+		if (raw != null) {
+			hits.incrementAndGet();
+			return CompletableFuture.completedFuture(raw);
+		}
+		
+		CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, shared);
+		if (existing != null) {
+			coalesced.incrementAndGet();
+			return existing;
+		}
+		
+		misses.incrementAndGet();
+		try {
+			loader.call().whenComplete((response, error) -> {
+				byte[] encoded = null;
+				if (error == null) {
+					try {
+						encoded = DxlMessageCodec.encode(response);
+						store(key, response.getMessageType() == DxlMessage.MESSAGE_TYPE_ERROR, encoded);
+					} catch (DxlJythonException e) {
+						error = e;
+					}
+				}
+				// Cached before leaving the in flight requests, so later requests find the response
+				inFlight.remove(key, shared);
+				if (error == null)
+					shared.complete(encoded);
+				else
+					shared.completeExceptionally(unwrap(error));
+			});
+		} catch (Exception e) {
+			inFlight.remove(key, shared);
+			shared.completeExceptionally(e);
+		}
+		return shared;
+	}
+	
+	/**
+	 * Drop all cached responses, requests in flight are not affected
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+	
+	private synchronized byte[] lookup(Key key) {
+		Entry entry = entries.get(key);
+		if (entry == null)
+			return null;
+		if (entry.expires - System.nanoTime() <= 0) {
+			entries.remove(key);
+			bytes -= entry.size;
+			expirations.incrementAndGet();
+			return null;
+		}
+		return entry.raw;
+	}
+	
+	private void store(Key key, boolean error, byte[] raw) {
+		long ttl = error ? errorTtlNanos : ttlNanos;
+		long size = ENTRY_OVERHEAD + 2L * key.topic.length() + key.payload.length + raw.length;
+		if (ttl == 0 || size > maxBytes)
+			return;
+		
+		synchronized (this) {
+			Entry previous = entries.put(key, new Entry(raw, System.nanoTime() + ttl, size));
+			if (previous != null)
+				bytes -= previous.size;
+			bytes += size;
+			
+			// Expired entries are dropped on the way, they do not count as evictions
+			Iterator<Entry> eldest = entries.values().iterator();
+			while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+				Entry entry = eldest.next();
+				eldest.remove();
+				bytes -= entry.size;
+				if (entry.expires - System.nanoTime() <= 0)
+					expirations.incrementAndGet();
+				else
+					evictions.incrementAndGet();
+			}
+		}
+	}
+	
+	private static DxlMessage copy(byte[] raw) {
+		try {
+			return DxlMessageCodec.view(raw);
+		} catch (DxlJythonException e) {
+			throw new CompletionException(e);
+		}
+	}
+	
+	private static boolean isTimeout(Throwable error) {
+		Throwable cause = unwrap(error);
+		return cause instanceof DxlJythonException && ((DxlJythonException)cause).getErrorCode() == ERROR_TIMEOUT;
+	}
+	
+	private static Throwable unwrap(Throwable error) {
+		if (error instanceof CompletionException && error.getCause() != null)
+			return error.getCause();
+		return error;
+	}
+	
+	/**
+	 * @return Number of requests answered from the cache
+	 */
+	public long getHitCount()				{ return hits.get(); }
+	
+	/**
+	 * @return Number of requests sent to the fabric
+	 */
+	public long getMissCount()				{ return misses.get(); }
+	
+	/**
+	 * @return Number of requests that waited for an identical request in flight
+	 */
+	public long getCoalescedCount()			{ return coalesced.get(); }
+	
+	/**
+	 * @return Number of responses evicted to stay within the bounds
+	 */
+	public long getEvictionCount()			{ return evictions.get(); }
+	
+	/**
+	 * @return Number of responses dropped because their time to live elapsed
+	 */
+	public long getExpiredCount()			{ return expirations.get(); }
+	
+	/**
+	 * @return Number of cached responses
+	 */
+	public synchronized int getSize()		{ return entries.size(); }
+	
+	/**
+	 * @return Estimated memory used by the cached responses
+	 */
+	public synchronized long getBytes()		{ return bytes; }
+}
@@ -0,0 +1,101 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared timer used by the Python extensions for work that has to happen
+ * after a delay, such as expiring asynchronous requests that never receive
+ * a response.  A single daemon thread serves every client in the JVM so 
+ * pending timeouts do not hold a thread each.  Tasks that do more than a
+ * little bookkeeping, such as sending a message, are handed to worker 
+ * threads so they never hold up the timer.
+ */
+public final class DxlScheduler {
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	
+	private static final ScheduledThreadPoolExecutor executor;
+	// Runs the tasks of scheduleAsync, threads are created as needed and idle ones expire
+	private static final ExecutorService workers;
+	static {
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "DxlScheduler-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		executor = new ScheduledThreadPoolExecutor(1, threadFactory);
+		// Completed requests cancel their timeout, don't keep them queued
+		executor.setRemoveOnCancelPolicy(true);
+		workers = Executors.newCachedThreadPool(threadFactory);
+	}
+	
+	private DxlScheduler() {
+	}
+	
+	/**
+	 * Run the task once after the delay
+	 * 
+	 * @param task task to run
+	 * @param delayMillis delay in milliseconds
+	 * @return future that can be used to cancel the task
+	 */
+	public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+		return executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Run the task once after the delay on a worker thread, the timer thread
+	 * only hands it over.  Cancelling keeps the task from being handed over,
+	 * not from finishing once it has started.
+	 * 
+	 * @param task task to run
+	 * @param delayMillis delay in milliseconds
+	 * @return future that can be used to cancel the task
+	 */
+	public static ScheduledFuture<?> scheduleAsync(final Runnable task, long delayMillis) {
+		return executor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				workers.execute(task);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle returned by the non-blocking start methods of the listener and 
+ * provider extensions.  The subscription or service registration is active
+ * when the handle is returned.  Closing the handle stops the listener or
+ * provider and destroys its DXL connection, or lets go of it when the 
+ * connection is shared.  No thread is needed to keep it running.
+ */
+public class DxlSubscription implements Closeable {
+	
+	private final Runnable shutdown;
+	private final AtomicBoolean closing = new AtomicBoolean(false);
+	private final CompletableFuture<String> stopFuture = new CompletableFuture<String>();
+	
+	/**
+	 * Create a handle for a running listener or provider
+	 * 
+	 * @param shutdown Action that stops the listener or provider, run at most once
+	 */
+	public DxlSubscription(Runnable shutdown) {
+		this.shutdown = shutdown;
+	}
+	
+	/**
+	 * Stop the listener or provider.  Calling close more than once has no
+	 * further effect.
+	 */
+	@Override
+	public void close() {
+		if (closing.compareAndSet(false, true))
+			shutdown.run();
+	}
+	
+	/**
+	 * Check if the listener or provider is still running
+	 * 
+	 * @return True until the listener or provider has stopped
+	 */
+	public boolean isActive() {
+		return !stopFuture.isDone();
+	}
+	
+	/**
+	 * Future completed when the listener or provider has stopped, with the 
+	 * message that indicates the reason for stopping
+	 * 
+	 * @return CompletableFuture for the shutdown
+	 */
+	public CompletableFuture<String> getStopFuture() {
+		return stopFuture;
+	}
+	
+	/**
+	 * Called by the Python extension once it has shut down
+	 * 
+	 * @param reason Message that indicates the reason for stopping
+	 */
+	public void stopped(String reason) {
+		closing.set(true);
+		stopFuture.complete(reason);
+	}
+}
@@ -30,9 +30,24 @@
 
 package com.att.cso.opendxl.jython.client;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+import org.python.core.PyProxy;
+import org.python.core.PySystemState;
 import org.python.util.PythonInterpreter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +56,7 @@ import com.att.cso.opendxl.jython.client.interfaces.DxlListenerInterface;
 import com.att.cso.opendxl.jython.client.interfaces.DxlProviderInterface;
 import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
 import com.att.cso.opendxl.jython.client.interfaces.DxlRequesterInterface;
+import com.att.cso.opendxl.jython.client.metrics.DxlMetrics;
 
 /**
  * Factory class to interact with the Jython standalone library that includes
@@ -67,11 +83,29 @@ public class JythonFactory {
 	public static final String DXL_PROVIDER_INTERFACE = "com.att.cso.opendxl.jython.client.interfaces.DxlProviderInterface";
 	// Location to find the OpenDXL client library
 	public static final String DEFAULT_JYTHON_LOCATION = "/";
+	// Number of interpreters in the pool when no size is given
+	public static final int DEFAULT_INTERPRETER_POOL_SIZE = 1;
 	
 	Logger logger = LoggerFactory.getLogger(this.getClass());
 	
 	private static JythonFactory instance = null;
-	PythonInterpreter interpreter = null;
+	// Shared interpreters, clients are spread across them round robin
+	private volatile PythonInterpreter[] interpreters = null;
+	// Interpreters created for a single pinned client, keyed by the client object
+	private final Map<Object, PythonInterpreter> dedicatedInterpreters = new IdentityHashMap<Object, PythonInterpreter>();
+	private final AtomicInteger nextInterpreter = new AtomicInteger();
+	// Compiled extension modules, keyed by module path
+	private final Map<String, PyCode> compiledModules = new ConcurrentHashMap<String, PyCode>();
+	// Python classes already defined in each interpreter, keyed by module path
+	private final Map<PythonInterpreter, Map<String, PyObject>> loadedClasses = new ConcurrentHashMap<PythonInterpreter, Map<String, PyObject>>();
+	// Executor for received messages handed to new objects, null for the Python thread pool
+	private volatile DxlDispatcher dispatcher = null;
+	// Metrics recorded by all objects created by this factory
+	private final DxlMetrics metrics = new DxlMetrics();
+	// DXL clients shared by objects created while shared connections are on, one
+	// registry per interpreter so clients never cross interpreters
+	private final Map<PythonInterpreter, DxlConnectionManager> connectionManagers = new ConcurrentHashMap<PythonInterpreter, DxlConnectionManager>();
+	private volatile boolean sharedConnections = false;
 	
 	/**
 	 * Get a instance of the Jython factory object
@@ -89,12 +123,24 @@ public class JythonFactory {
 	 * @return Instance object of the JythonFactory
 	 */
 	public static synchronized JythonFactory getInstance(String location) {
+		return getInstance(location, DEFAULT_INTERPRETER_POOL_SIZE);
+	}
+	
+	/**
+	 * Get a instance of the Jython factory object.  The pool size only
+	 * applies to the call that creates the factory.
+	 * 
+	 * @param location Location of the Jython library
+	 * @param interpreterPoolSize Number of isolated interpreters to spread clients across
+	 * @return Instance object of the JythonFactory
+	 */
+	public static synchronized JythonFactory getInstance(String location, int interpreterPoolSize) {
 		if (location == null) 
 			location = DEFAULT_JYTHON_LOCATION;
 		
 		if (instance == null) {
 			instance = new JythonFactory();
-			instance.initJythonObject(location);
+			instance.initJythonObject(location, interpreterPoolSize);
 		}
 		
 		return instance;
@@ -109,8 +155,20 @@ public class JythonFactory {
 	 * @param pathToJythonPythonSource Full path to where the OpenDXL client library
 	 */
 	public void initJythonObject(String pathToJythonPythonSource) {
+		initJythonObject(pathToJythonPythonSource, DEFAULT_INTERPRETER_POOL_SIZE);
+	}
+	
+	/**
+	 * Initialization of the pool of Jython interpreter objects.  Each 
+	 * interpreter has its own PySystemState so module state is not shared
+	 * between them.
+	 * 
+	 * @param pathToJythonPythonSource Full path to where the OpenDXL client library
+	 * @param interpreterPoolSize Number of interpreters to create
+	 */
+	public synchronized void initJythonObject(String pathToJythonPythonSource, int interpreterPoolSize) {
 		
-		if (interpreter != null)
+		if (interpreters != null)
 			return;
 			
 		// The pathToJythonPythonSource should be the path to the OpenDXL
@@ -127,8 +185,41 @@ public class JythonFactory {
 		Properties preprops = System.getProperties();
 		
 		PythonInterpreter.initialize(preprops, props, new String[0]);
-		interpreter = new PythonInterpreter();
-
+		
+		PythonInterpreter[] pool = new PythonInterpreter[Math.max(1, interpreterPoolSize)];
+		logger.info("Creating {} Jython interpreters", pool.length);
+		for (int idx = 0; idx < pool.length; idx++) {
+			pool[idx] = newInterpreter();
+		}
+		nextInterpreter.set(0);
+		interpreters = pool;
+		metrics.register();
+	}
+	
+	/**
+	 * Create an interpreter with its own system state
+	 * 
+	 * @return New PythonInterpreter object
+	 */
+	private PythonInterpreter newInterpreter() {
+		return new PythonInterpreter(null, new PySystemState());
+	}
+	
+	/**
+	 * Pick the interpreter a new client will run in
+	 * 
+	 * @param dedicated True to create an interpreter used only by this client, the
+	 *        caller keeps track of it
+	 * @return PythonInterpreter for the client, null if the factory is closed
+	 */
+	private PythonInterpreter selectInterpreter(boolean dedicated) {
+		PythonInterpreter[] pool = interpreters;
+		if (pool == null)
+			return null;
+		
+		if (dedicated)
+			return newInterpreter();
+		return pool[Math.floorMod(nextInterpreter.getAndIncrement(), pool.length)];
 	}
 	
 	/**
@@ -142,6 +233,18 @@ public class JythonFactory {
 		return this.getClass().getResourceAsStream(resource);
 	}
 	
+	/**
+	 * Open the stream for a bundled module, unless it is already compiled
+	 * 
+	 * @param pathToJythonModule Path to the Python module resource
+	 * @return InputStream for the module, null when the compiled module is cached
+	 */
+	private InputStream getModuleStream(String pathToJythonModule) {
+		if (compiledModules.containsKey(pathToJythonModule))
+			return null;
+		return getResourceAsStream(pathToJythonModule);
+	}
+	
 	/**
 	 * Simple interface for pre-configured DXL Python publisher interfaces
 	 * This method will connect to a DXL client, send a message then
@@ -150,7 +253,17 @@ public class JythonFactory {
 	 * @return Object implementing the DxlPublisherInterface
 	 */
 	public DxlPublisherInterface getDxlPublisherInterface() {
-		return (DxlPublisherInterface)getJythonObject(DXL_PUBLISHER_INTERFACE, EVENT_PUBLISHER, DEFAULT_JYTHON_LOCATION);
+		return getDxlPublisherInterface(false);
+	}
+	
+	/**
+	 * Simple interface for pre-configured DXL Python publisher interfaces
+	 * 
+	 * @param dedicated True to pin the publisher to its own interpreter, see releaseInterpreter
+	 * @return Object implementing the DxlPublisherInterface
+	 */
+	public DxlPublisherInterface getDxlPublisherInterface(boolean dedicated) {
+		return (DxlPublisherInterface)getJythonObject(DXL_PUBLISHER_INTERFACE, getModuleStream(EVENT_PUBLISHER), EVENT_PUBLISHER, DEFAULT_JYTHON_LOCATION, dedicated);
 	}
 	
 	/**
@@ -159,7 +272,17 @@ public class JythonFactory {
 	 * @return Object implementing the DxlListenerInterface
 	 */
 	public DxlListenerInterface getDxlListenerInterface() {
-		return (DxlListenerInterface)getJythonObject(DXL_LISTENER_INTERFACE, EVENT_LISTENER, DEFAULT_JYTHON_LOCATION);
+		return getDxlListenerInterface(false);
+	}
+	
+	/**
+	 * Simple interface for pre-configured DXL Python listener interfaces
+	 * 
+	 * @param dedicated True to pin the listener to its own interpreter, see releaseInterpreter
+	 * @return Object implementing the DxlListenerInterface
+	 */
+	public DxlListenerInterface getDxlListenerInterface(boolean dedicated) {
+		return (DxlListenerInterface)getJythonObject(DXL_LISTENER_INTERFACE, getModuleStream(EVENT_LISTENER), EVENT_LISTENER, DEFAULT_JYTHON_LOCATION, dedicated);
 	}
 
 	/**
@@ -168,7 +291,17 @@ public class JythonFactory {
 	 * @return Object implementing the DxlRequesterInterface
 	 */
 	public DxlRequesterInterface getDxlRequesterInterface() {
-		return (DxlRequesterInterface)getJythonObject(DXL_REQUESTER_INTERFACE, SERVICE_REQUESTER, DEFAULT_JYTHON_LOCATION);
+		return getDxlRequesterInterface(false);
+	}
+	
+	/**
+	 * Simple interface for pre-configured DXL Python requester interfaces
+	 * 
+	 * @param dedicated True to pin the requester to its own interpreter, see releaseInterpreter
+	 * @return Object implementing the DxlRequesterInterface
+	 */
+	public DxlRequesterInterface getDxlRequesterInterface(boolean dedicated) {
+		return (DxlRequesterInterface)getJythonObject(DXL_REQUESTER_INTERFACE, getModuleStream(SERVICE_REQUESTER), SERVICE_REQUESTER, DEFAULT_JYTHON_LOCATION, dedicated);
 	}
 	
 	/**
@@ -177,7 +310,17 @@ public class JythonFactory {
 	 * @return Object implementing the DxlProviderInterface
 	 */
 	public DxlProviderInterface getDxlProviderInterface() {
-		return (DxlProviderInterface)getJythonObject(DXL_PROVIDER_INTERFACE, SERVICE_PROVIDER, DEFAULT_JYTHON_LOCATION);
+		return getDxlProviderInterface(false);
+	}
+	
+	/**
+	 * Simple interface for pre-configured DXL Python provider interfaces
+	 * 
+	 * @param dedicated True to pin the provider to its own interpreter, see releaseInterpreter
+	 * @return Object implementing the DxlProviderInterface
+	 */
+	public DxlProviderInterface getDxlProviderInterface(boolean dedicated) {
+		return (DxlProviderInterface)getJythonObject(DXL_PROVIDER_INTERFACE, getModuleStream(SERVICE_PROVIDER), SERVICE_PROVIDER, DEFAULT_JYTHON_LOCATION, dedicated);
 	}
 
 	/**
@@ -189,7 +332,7 @@ public class JythonFactory {
 	 * @return Jython object that executes the DXL python module
 	 */
 	public Object getJythonObject(String interfaceName, String pathToJythonModule, String pathToJythonPythonSource) {
-		return getJythonObject(interfaceName, getResourceAsStream(pathToJythonModule), pathToJythonModule, pathToJythonPythonSource);
+		return getJythonObject(interfaceName, getModuleStream(pathToJythonModule), pathToJythonModule, pathToJythonPythonSource);
 	}
 	
 	
@@ -203,41 +346,341 @@ public class JythonFactory {
 	 * @return Jython object that executes the DXL python module
 	 */
 	public  Object getJythonObject(String interfaceName, InputStream jythonModuleStream, String pathToJythonModule, String pathToJythonPythonSource) {
+		return getJythonObject(interfaceName, jythonModuleStream, pathToJythonModule, pathToJythonPythonSource, false);
+	}
+	
+	/**
+	 * Interface for DXL Python interfaces that are internal to the Java jar file.
+	 * The module is compiled once per path and the Python class is defined once
+	 * per interpreter, so the stream is only read the first time a path is used.
+	 * Call invalidateModule when the module behind a path changes.
+	 * 
+	 * @param interfaceName The Java interface implemented by the Python code
+	 * @param jythonModuleStream input stream for the Python class to be executed, may be null when the module is already cached,
+	 *        closed before returning
+	 * @param pathToJythonModule Full path to the DXL python module implementing the Java interface
+	 * @param pathToJythonPythonSource Full path to where the Jython Lib file can be found.  Probably should use DEFAULT_JYTHON_LOCATION
+	 * @param dedicated True to run the object in its own interpreter instead of one from the pool
+	 * @return Jython object that executes the DXL python module
+	 */
+	public Object getJythonObject(String interfaceName, InputStream jythonModuleStream, String pathToJythonModule, String pathToJythonPythonSource, boolean dedicated) {
+		Object javaInterface = null;
+		try (InputStream stream = jythonModuleStream) {
+			javaInterface = createJythonObject(interfaceName, stream, pathToJythonModule, dedicated);
+		} catch (IOException ex) {
+			logger.warn("Unable to close the stream of module {}", pathToJythonModule, ex);
+		}
+		return javaInterface;
+	}
+	
+	private Object createJythonObject(String interfaceName, InputStream jythonModuleStream, String pathToJythonModule, boolean dedicated) {
 		Object javaInterface = null;
 		
-		if (jythonModuleStream == null)
+		if (jythonModuleStream == null && !compiledModules.containsKey(pathToJythonModule))
 			return null;
-				
-		interpreter.execfile(jythonModuleStream);
 		
-		String tempName = pathToJythonModule.substring(pathToJythonModule.lastIndexOf('/') + 1);
-		tempName = tempName.substring(0, tempName.indexOf('.'));
-		
-		String instanceName = tempName.toLowerCase();
-		String javaClassName = tempName.substring(0,1).toUpperCase() + tempName.substring(1);
-		String objectDef = "=" + javaClassName + "()";
-		
-		interpreter.exec(instanceName + objectDef);
+		PythonInterpreter interpreter = selectInterpreter(dedicated);
+		if (interpreter == null)
+			return null;
 		
 		try {
 			Class<?> classInterface = Class.forName(interfaceName);
-			javaInterface = interpreter.get(instanceName).__tojava__(classInterface);
+			PyObject pythonClass = getPythonClass(interpreter, jythonModuleStream, pathToJythonModule);
+			if (pythonClass == null) {
+				if (dedicated)
+					closeInterpreter(interpreter);
+				return null;
+			}
+			PyObject pythonObject = pythonClass.__call__();
+			DxlDispatcher objectDispatcher = dispatcher;
+			if (objectDispatcher != null && pythonObject.__findattr__("setDispatcher") != null)
+				pythonObject.invoke("setDispatcher", Py.java2py(objectDispatcher));
+			if (pythonObject.__findattr__("setMetrics") != null)
+				pythonObject.invoke("setMetrics", Py.java2py(metrics));
+			if (sharedConnections && pythonObject.__findattr__("setConnectionManager") != null)
+				pythonObject.invoke("setConnectionManager", Py.java2py(getConnectionManager(interpreter)));
+			javaInterface = pythonObject.__tojava__(classInterface);
 		} catch (ClassNotFoundException ex) {
+			if (dedicated)
+				closeInterpreter(interpreter);
 			return null;
 		}
 		
+		if (dedicated) {
+			synchronized (dedicatedInterpreters) {
+				// Closed meanwhile, the interpreter would never be released
+				if (interpreters == null) {
+					closeInterpreter(interpreter);
+					return null;
+				}
+				dedicatedInterpreters.put(javaInterface, interpreter);
+			}
+		}
 		return javaInterface;
 	}
 	
 	/**
-	 * Close the Python interpreter object effectively shutting down the 
-	 * Jython connection.
+	 * Close the dedicated interpreter of an object created with dedicated set,
+	 * along with the Python classes defined in it.  Disconnect or stop the 
+	 * object first, it can no longer be used afterwards.  Objects running in
+	 * the shared interpreters are left alone.
+	 * 
+	 * @param jythonObject Object returned by the factory
+	 * @return True if a dedicated interpreter was closed
 	 */
-	public void closeFactory() {
-		if (interpreter == null)  
-			return;
+	public boolean releaseInterpreter(Object jythonObject) {
+		PythonInterpreter interpreter;
+		synchronized (dedicatedInterpreters) {
+			interpreter = dedicatedInterpreters.remove(jythonObject);
+		}
+		if (interpreter == null)
+			return false;
+		
+		closeInterpreter(interpreter);
+		return true;
+	}
+	
+	/**
+	 * @return Number of dedicated interpreters not released yet
+	 */
+	int getDedicatedInterpreterCount() {
+		synchronized (dedicatedInterpreters) {
+			return dedicatedInterpreters.size();
+		}
+	}
+	
+	/**
+	 * @return Number of interpreters with Python classes defined in them
+	 */
+	int getLoadedInterpreterCount() {
+		return loadedClasses.size();
+	}
+	
+	private void closeInterpreter(PythonInterpreter interpreter) {
+		loadedClasses.remove(interpreter);
+		DxlConnectionManager connectionManager = connectionManagers.remove(interpreter);
+		if (connectionManager != null)
+			connectionManager.close();
 		interpreter.cleanup();
 		interpreter.close();
-		interpreter = null;
+	}
+	
+	/**
+	 * Look up the Python class of a module in an interpreter, compiling the
+	 * module and defining the class the first time it is needed.  The class
+	 * is named after the module file, i.e. EventPublisher.py defines 
+	 * EventPublisher.
+	 * 
+	 * @param interpreter Interpreter the class is defined in
+	 * @param jythonModuleStream input stream for the module, only read when the module is not compiled yet
+	 * @param pathToJythonModule Path the compiled module is cached under
+	 * @return Python class object, null if the module could not be found
+	 */
+	private PyObject getPythonClass(PythonInterpreter interpreter, InputStream jythonModuleStream, String pathToJythonModule) {
+		Map<String, PyObject> classes = loadedClasses.get(interpreter);
+		if (classes == null) {
+			loadedClasses.putIfAbsent(interpreter, new ConcurrentHashMap<String, PyObject>());
+			classes = loadedClasses.get(interpreter);
+		}
+		
+		PyObject pythonClass = classes.get(pathToJythonModule);
+		if (pythonClass != null)
+			return pythonClass;
+		
+		PyCode code = compiledModules.get(pathToJythonModule);
+		if (code == null) {
+			if (jythonModuleStream == null)
+				return null;
+			logger.debug("Compiling Python module {}", pathToJythonModule);
+			code = Py.compile_flags(jythonModuleStream, pathToJythonModule, CompileMode.exec, new CompilerFlags());
+			compiledModules.put(pathToJythonModule, code);
+		}
+		
+		// Interpreters are shared, keep the module exec and class lookup together
+		synchronized (interpreter) {
+			pythonClass = classes.get(pathToJythonModule);
+			if (pythonClass == null) {
+				String tempName = pathToJythonModule.substring(pathToJythonModule.lastIndexOf('/') + 1);
+				tempName = tempName.substring(0, tempName.indexOf('.'));
+				String javaClassName = tempName.substring(0,1).toUpperCase() + tempName.substring(1);
+				
+				// Each module runs in a namespace of its own, otherwise the module
+				// level helpers of the extension loaded last replace those of the
+				// others in the interpreter
+				PyModule module = new PyModule(tempName);
+				PyObject locals = interpreter.getLocals();
+				interpreter.setLocals(module.__dict__);
+				try {
+					interpreter.exec(code);
+				} finally {
+					interpreter.setLocals(locals);
+				}
+				pythonClass = module.__dict__.__finditem__(javaClassName);
+				if (pythonClass != null)
+					classes.put(pathToJythonModule, pythonClass);
+			}
+		}
+		return pythonClass;
+	}
+	
+	/**
+	 * Set the dispatcher that listeners, providers and requesters created from
+	 * now on hand their received messages to.  Objects already created keep
+	 * the dispatcher they were created with.  The factory does not close the
+	 * dispatcher.
+	 * 
+	 * @param dispatcher DxlDispatcher to use, null for the Python thread pool of each DXL client
+	 */
+	public void setDispatcher(DxlDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+	
+	/**
+	 * Get the dispatcher handed to new listeners, providers and requesters
+	 * 
+	 * @return DxlDispatcher in use, null when none is set
+	 */
+	public DxlDispatcher getDispatcher() {
+		return dispatcher;
+	}
+	
+	/**
+	 * Get the metrics registry of the factory.  Objects created by the factory
+	 * record into it, and it is exposed over JMX while the factory is open.
+	 * 
+	 * @return DxlMetrics of the factory
+	 */
+	public DxlMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Make listeners, providers, publishers and requesters created from now on
+	 * share one DXL client per configuration file, instead of opening a
+	 * connection each.  The first object to connect with a configuration file
+	 * decides the dispatcher and overload policy of the shared client.
+	 * Objects already created keep their own connections.
+	 * 
+	 * @param sharedConnections True to share DXL clients
+	 */
+	public void setSharedConnections(boolean sharedConnections) {
+		this.sharedConnections = sharedConnections;
+	}
+	
+	/**
+	 * Check if new objects share DXL clients
+	 * 
+	 * @return True when shared connections are on
+	 */
+	public boolean isSharedConnections() {
+		return sharedConnections;
+	}
+	
+	/**
+	 * Get the registry of the DXL clients shared by objects of the first 
+	 * interpreter in the pool, which holds all of them with the default 
+	 * pool size of one
+	 * 
+	 * @return DxlConnectionManager of the first interpreter, null if the factory is closed
+	 */
+	public DxlConnectionManager getConnectionManager() {
+		PythonInterpreter[] pool = interpreters;
+		return pool == null ? null : getConnectionManager(pool[0]);
+	}
+	
+	/**
+	 * Get the registry of the DXL clients an object shares.  Objects only 
+	 * share clients with objects running in the same interpreter.
+	 * 
+	 * @param jythonObject Object returned by the factory
+	 * @return DxlConnectionManager of the object, null when it was created without shared connections
+	 */
+	public DxlConnectionManager getConnectionManager(Object jythonObject) {
+		if (!(jythonObject instanceof PyProxy))
+			return null;
+		PyObject connectionManager = ((PyProxy)jythonObject)._getPyInstance().__findattr__("connection_manager");
+		if (connectionManager == null || connectionManager == Py.None)
+			return null;
+		return (DxlConnectionManager)connectionManager.__tojava__(DxlConnectionManager.class);
+	}
+	
+	private DxlConnectionManager getConnectionManager(PythonInterpreter interpreter) {
+		DxlConnectionManager connectionManager = connectionManagers.get(interpreter);
+		if (connectionManager == null) {
+			connectionManagers.putIfAbsent(interpreter, new DxlConnectionManager());
+			connectionManager = connectionManagers.get(interpreter);
+		}
+		return connectionManager;
+	}
+	
+	/**
+	 * Load the bundled extension modules, and with them the OpenDXL client
+	 * library, into every interpreter in the pool.  Call this at startup so
+	 * the first client created does not pay the import and compile cost.
+	 */
+	public void warmUp() {
+		PythonInterpreter[] pool = interpreters;
+		if (pool == null)
+			return;
+		
+		String[] modules = { EVENT_PUBLISHER, SERVICE_REQUESTER, EVENT_LISTENER, SERVICE_PROVIDER };
+		for (PythonInterpreter interpreter : pool) {
+			for (String module : modules) {
+				try (InputStream stream = getModuleStream(module)) {
+					getPythonClass(interpreter, stream, module);
+				} catch (IOException ex) {
+					logger.warn("Unable to close the stream of module {}", module, ex);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Drop the compiled code and class definitions cached for a module.  The
+	 * next getJythonObject call for the path reads and compiles the module
+	 * stream again.  Objects already created keep using the old class.
+	 * 
+	 * @param pathToJythonModule Path the module was loaded with
+	 */
+	public void invalidateModule(String pathToJythonModule) {
+		compiledModules.remove(pathToJythonModule);
+		for (Map<String, PyObject> classes : loadedClasses.values())
+			classes.remove(pathToJythonModule);
+	}
+	
+	/**
+	 * Drop the compiled code and class definitions cached for all modules
+	 */
+	public void invalidateModules() {
+		compiledModules.clear();
+		loadedClasses.clear();
+	}
+	
+	/**
+	 * Close the Python interpreter objects effectively shutting down the 
+	 * Jython connection.
+	 */
+	public synchronized void closeFactory() {
+		if (interpreters == null)  
+			return;
+		
+		List<PythonInterpreter> closing = new ArrayList<PythonInterpreter>();
+		for (PythonInterpreter interpreter : interpreters)
+			closing.add(interpreter);
+		synchronized (dedicatedInterpreters) {
+			closing.addAll(dedicatedInterpreters.values());
+			dedicatedInterpreters.clear();
+			interpreters = null;
+		}
+		invalidateModules();
+		metrics.unregister();
+		for (DxlConnectionManager connectionManager : connectionManagers.values())
+			connectionManager.close();
+		connectionManagers.clear();
+		
+		for (PythonInterpreter interpreter : closing) {
+			interpreter.cleanup();
+			interpreter.close();
+		}
 	}
 }
@@ -0,0 +1,466 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.broker;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.codec.DxlMessageCodec;
+import com.att.cso.opendxl.jython.client.codec.DxlMessageView;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.topic.DxlTopicIndex;
+import com.att.cso.opendxl.jython.client.transport.MqttPacket;
+import com.att.cso.opendxl.jython.client.transport.MqttPacketReader;
+import com.att.cso.opendxl.jython.client.transport.MqttPackets;
+import com.att.cso.opendxl.jython.client.transport.PemSslContexts;
+
+/**
+ * Embeddable stand-in for a DXL broker, listening on the loopback address
+ * only, for functional and throughput tests without a DXL fabric.  
+ * 
+ * It speaks MQTT 3.1/3.1.1 at QoS 0 over TLS or plain TCP, with a thread 
+ * per connection.  Events and responses go to every matching subscription.  
+ * Service registrations are answered by the broker itself, and each 
+ * request is delivered to a single registered service of its topic, or 
+ * answered with a "service not found" error response.  Configuration files
+ * written by writeConfig point DXL clients at the broker.
+ */
+public class DxlLoopbackBroker implements AutoCloseable {
+	
+	/** Broker id set on the messages the broker creates */
+	public static final String BROKER_ID = "{dxl-loopback-broker}";
+	
+	static final String REGISTER_TOPIC = "/mcafee/service/dxl/svcregistry/register";
+	static final String UNREGISTER_TOPIC = "/mcafee/service/dxl/svcregistry/unregister";
+	// Error code of the DXL fabric when no service handles a request
+	static final long SERVICE_NOT_FOUND = 0x80000001L;
+	
+	Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	private final ServerSocket server;
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+	private final DxlTopicIndex subscriptions = new DxlTopicIndex();
+	private final DxlServiceRegistry services = new DxlServiceRegistry();
+	private final AtomicLong published = new AtomicLong();
+	private volatile boolean closed;
+	
+	/**
+	 * Start a broker on a free loopback port
+	 * 
+	 * @param sslContext Context with the broker certificate, null for plain TCP
+	 * @throws IOException Thrown when the server socket cannot be opened
+	 */
+	public DxlLoopbackBroker(SSLContext sslContext) throws IOException {
+		this(sslContext, 0);
+	}
+	
+	/**
+	 * Start a broker on a loopback port
+	 * 
+	 * @param sslContext Context with the broker certificate, null for plain TCP
+	 * @param port Port to listen on, 0 for a free port
+	 * @throws IOException Thrown when the server socket cannot be opened
+	 */
+	public DxlLoopbackBroker(SSLContext sslContext, int port) throws IOException {
+		if (sslContext != null) {
+			SSLServerSocket socket = (SSLServerSocket) sslContext.getServerSocketFactory()
+					.createServerSocket(port, 50, InetAddress.getLoopbackAddress());
+			// DXL clients always present their certificate
+			socket.setWantClientAuth(true);
+			server = socket;
+		} else {
+			server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		}
+		Thread acceptor = new Thread(this::accept, "DxlLoopbackBroker-" + server.getLocalPort());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Start a TLS broker on a free loopback port
+	 * 
+	 * @param caBundle PEM file of the CA certificates of the clients
+	 * @param certFile PEM file of the broker certificate
+	 * @param keyFile PEM file of the broker private key
+	 * @return Started broker
+	 * @throws IOException Thrown when the files cannot be read or the socket cannot be opened
+	 */
+	public static DxlLoopbackBroker create(String caBundle, String certFile, String keyFile) throws IOException {
+		return new DxlLoopbackBroker(PemSslContexts.create(caBundle, certFile, keyFile));
+	}
+	
+	/**
+	 * @return Port the broker listens on
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+	
+	/**
+	 * @return Number of open client connections
+	 */
+	public int getConnectionCount() {
+		return sessions.size();
+	}
+	
+	/**
+	 * @return Number of registered services
+	 */
+	public int getServiceCount() {
+		return services.size();
+	}
+	
+	/**
+	 * @return Number of messages published to the broker
+	 */
+	public long getPublishedCount() {
+		return published.get();
+	}
+	
+	/**
+	 * Write a DXL client configuration file for the broker
+	 * 
+	 * @param configFile File to write
+	 * @param caBundle PEM file of the CA certificates of the broker
+	 * @param certFile PEM file of the client certificate
+	 * @param keyFile PEM file of the client private key
+	 * @param generalSettings Settings of the General section, such as ClientId, may be null
+	 * @throws IOException Thrown when the file cannot be written
+	 */
+	public void writeConfig(File configFile, String caBundle, String certFile, String keyFile, 
+			Map<String, String> generalSettings) throws IOException {
+		StringBuilder config = new StringBuilder();
+		config.append("[Certs]\n");
+		config.append("BrokerCertChain=").append(caBundle).append('\n');
+		config.append("CertFile=").append(certFile).append('\n');
+		config.append("PrivateKey=").append(keyFile).append("\n\n");
+		config.append("[Brokers]\n");
+		config.append("loopback=loopback;").append(getPort()).append(";localhost;127.0.0.1\n");
+		if (generalSettings != null && !generalSettings.isEmpty()) {
+			config.append("\n[General]\n");
+			for (Map.Entry<String, String> setting : generalSettings.entrySet())
+				config.append(setting.getKey()).append('=').append(setting.getValue()).append('\n');
+		}
+		Files.write(configFile.toPath(), config.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Stop listening and close all connections
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		server.close();
+		for (Session session : sessions)
+			session.close();
+	}
+	
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				Session session = new Session(socket);
+				sessions.add(session);
+				Thread thread = new Thread(session::run, "DxlLoopbackBroker-session-" + socket.getPort());
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				if (!closed)
+					logger.warn("Unable to accept a connection", e);
+			}
+		}
+	}
+	
+	/**
+	 * Route a message published by a session
+	 */
+	private void route(Session source, String topic, byte[] payload) throws IOException {
+		published.incrementAndGet();
+		DxlMessageView message;
+		try {
+			message = DxlMessageCodec.view(topic, payload);
+			if (message.getMessageType() != DxlMessage.MESSAGE_TYPE_REQUEST) {
+				fanOut(topic, payload);
+				return;
+			}
+		} catch (DxlJythonException e) {
+			// Not a DXL message, plain MQTT
+			fanOut(topic, payload);
+			return;
+		}
+		
+		try {
+			if (topic.equals(REGISTER_TOPIC)) {
+				register(source, message);
+			} else if (topic.equals(UNREGISTER_TOPIC)) {
+				unregister(message);
+			} else {
+				DxlServiceRegistry.Service service = services.select(topic, message.getServiceId());
+				if (service == null) {
+					respond(message, error(message, SERVICE_NOT_FOUND, "unable to locate service for request"));
+					return;
+				}
+				Session target = (Session) service.session;
+				if (services.count(target, topic) > 1 && message.getServiceId().isEmpty()) {
+					// The client would hand the request to all its services of the topic
+					message.setServiceId(service.serviceGuid);
+					payload = DxlMessageCodec.encode(message);
+				}
+				target.write(MqttPackets.publish(topic, payload, false));
+			}
+		} catch (DxlJythonException e) {
+			logger.warn("Unable to handle a request on {}: {}", topic, e.getMessage());
+		}
+	}
+	
+	private void fanOut(String topic, byte[] payload) {
+		List<Object> matches = subscriptions.match(topic);
+		if (matches.isEmpty())
+			return;
+		ByteBuffer packet = MqttPackets.publish(topic, payload, false);
+		if (matches.size() == 1) {
+			((Session) matches.get(0)).write(packet);
+			return;
+		}
+		// A session subscribed with several matching filters gets the message once
+		Set<Object> targets = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		for (Object match : matches)
+			if (targets.add(match))
+				((Session) match).write(packet.duplicate());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void register(Session source, DxlMessage request) throws DxlJythonException {
+		Map<String, Object> registration;
+		try {
+			registration = (Map<String, Object>) JsonParser.parse(new String(request.getPayloadBytes(), StandardCharsets.UTF_8));
+		} catch (IOException | ClassCastException e) {
+			respond(request, error(request, 1, "Invalid service registration: " + e.getMessage()));
+			return;
+		}
+		String serviceGuid = String.valueOf(registration.get("serviceGuid"));
+		List<String> topics = new ArrayList<String>();
+		Object channels = registration.get("requestChannels");
+		if (channels instanceof List)
+			for (Object channel : (List<Object>) channels)
+				topics.add(String.valueOf(channel));
+		services.register(new DxlServiceRegistry.Service(serviceGuid, 
+				String.valueOf(registration.get("serviceType")), source, topics));
+		logger.debug("Registered service {} on {}", serviceGuid, topics);
+		respond(request, response(request));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void unregister(DxlMessage request) throws DxlJythonException {
+		try {
+			Map<String, Object> registration = (Map<String, Object>) JsonParser.parse(
+					new String(request.getPayloadBytes(), StandardCharsets.UTF_8));
+			services.unregister(String.valueOf(registration.get("serviceGuid")));
+		} catch (IOException | ClassCastException e) {
+			respond(request, error(request, 1, "Invalid service unregistration: " + e.getMessage()));
+			return;
+		}
+		respond(request, response(request));
+	}
+	
+	private static DxlMessage response(DxlMessage request) {
+		DxlMessage response = new DxlMessage();
+		response.setMessageType(DxlMessage.MESSAGE_TYPE_RESPONSE);
+		response.setMessageVersion(request.getMessageVersion());
+		response.setBrokerId(BROKER_ID);
+		response.setRequestMessageId(request.getMessageId());
+		response.setServiceId(request.getServiceId());
+		response.setTopic(request.getReplyTopic());
+		return response;
+	}
+	
+	private static DxlMessage error(DxlMessage request, long code, String text) {
+		DxlMessage response = response(request);
+		response.setMessageType(DxlMessage.MESSAGE_TYPE_ERROR);
+		response.setErrorCode(String.valueOf(code));
+		response.setErrorMessage(text);
+		return response;
+	}
+	
+	private void respond(DxlMessage request, DxlMessage response) throws DxlJythonException {
+		String replyTopic = request.getReplyTopic();
+		if (replyTopic != null && !replyTopic.isEmpty())
+			fanOut(replyTopic, DxlMessageCodec.encode(response));
+	}
+	
+	/**
+	 * Connection of a client, read on its own thread.  Other sessions write
+	 * to it, and it is flushed once the reading session has handled all
+	 * input available so far.
+	 */
+	private class Session {
+		
+		private final Socket socket;
+		private final OutputStream out;
+		private final List<String> filters = new ArrayList<String>();
+		private String clientId = "";
+		private boolean dirty;
+		
+		Session(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new BufferedOutputStream(socket.getOutputStream(), 65536);
+		}
+		
+		void run() {
+			MqttPacketReader reader = new MqttPacketReader(MqttPackets.MAX_REMAINING_LENGTH);
+			byte[] buffer = new byte[65536];
+			try {
+				InputStream in = socket.getInputStream();
+				int count;
+				while ((count = in.read(buffer)) > 0) {
+					ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+					MqttPacket packet;
+					while ((packet = reader.read(bytes)) != null) {
+						if (!handle(packet))
+							return;
+					}
+					if (in.available() == 0)
+						flushAll();
+				}
+			} catch (IOException e) {
+				logger.debug("Connection of {} lost: {}", clientId, e.toString());
+			} finally {
+				close();
+				flushAll();
+			}
+		}
+		
+		private boolean handle(MqttPacket packet) throws IOException {
+			switch (packet.getType()) {
+			case MqttPackets.CONNECT:
+				clientId = packet.getClientId();
+				write(MqttPackets.connack(0));
+				break;
+			case MqttPackets.SUBSCRIBE:
+				for (String topic : packet.getTopics()) {
+					synchronized (filters) {
+						if (!filters.contains(topic))
+							filters.add(topic);
+					}
+					subscriptions.add(topic, this);
+				}
+				write(MqttPackets.suback(packet.getMessageId(), packet.getTopics().size()));
+				break;
+			case MqttPackets.UNSUBSCRIBE:
+				for (String topic : packet.getTopics()) {
+					synchronized (filters) {
+						filters.remove(topic);
+					}
+					subscriptions.remove(topic, this);
+				}
+				write(MqttPackets.unsuback(packet.getMessageId()));
+				break;
+			case MqttPackets.PUBLISH:
+				route(this, packet.getTopic(), packet.getPayload());
+				break;
+			case MqttPackets.PINGREQ:
+				write(MqttPackets.empty(MqttPackets.PINGRESP));
+				break;
+			case MqttPackets.DISCONNECT:
+				return false;
+			default:
+				break;
+			}
+			return true;
+		}
+		
+		synchronized void write(ByteBuffer packet) {
+			try {
+				out.write(packet.array(), packet.arrayOffset() + packet.position(), packet.remaining());
+				dirty = true;
+			} catch (IOException e) {
+				close();
+			}
+		}
+		
+		synchronized void flush() {
+			if (!dirty)
+				return;
+			dirty = false;
+			try {
+				out.flush();
+			} catch (IOException e) {
+				close();
+			}
+		}
+		
+		void close() {
+			if (!sessions.remove(this))
+				return;
+			synchronized (filters) {
+				for (String topic : filters)
+					subscriptions.remove(topic, this);
+				filters.clear();
+			}
+			services.unregisterAll(this);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+	}
+	
+	private void flushAll() {
+		for (Session session : sessions)
+			session.flush();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.broker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Services registered with the loopback broker, by service GUID and by
+ * request topic.  Requests without a service GUID go to the services of 
+ * their topic in turn.
+ */
+class DxlServiceRegistry {
+	
+	/**
+	 * A registered service instance
+	 */
+	static class Service {
+		final String serviceGuid;
+		final String serviceType;
+		final Object session;
+		final List<String> topics;
+		
+		Service(String serviceGuid, String serviceType, Object session, List<String> topics) {
+			this.serviceGuid = serviceGuid;
+			this.serviceType = serviceType;
+			this.session = session;
+			this.topics = topics;
+		}
+	}
+	
+	private final Map<String, Service> services = new HashMap<String, Service>();
+	// Services of each request topic, replaced on change so lookups need no copy
+	private volatile Map<String, Service[]> servicesByTopic = new HashMap<String, Service[]>();
+	private final AtomicInteger next = new AtomicInteger();
+	
+	/**
+	 * Register a service, replacing an earlier registration with the same GUID
+	 * 
+	 * @param service Service to register
+	 */
+	synchronized void register(Service service) {
+		services.put(service.serviceGuid, service);
+		rebuild();
+	}
+	
+	/**
+	 * Unregister a service
+	 * 
+	 * @param serviceGuid GUID of the service
+	 * @return True if the service was registered
+	 */
+	synchronized boolean unregister(String serviceGuid) {
+		if (services.remove(serviceGuid) == null)
+			return false;
+		rebuild();
+		return true;
+	}
+	
+	/**
+	 * Unregister all services of a session
+	 * 
+	 * @param session Session that registered the services
+	 */
+	synchronized void unregisterAll(Object session) {
+		boolean changed = false;
+		for (Iterator<Service> it = services.values().iterator(); it.hasNext(); ) {
+			if (it.next().session == session) {
+				it.remove();
+				changed = true;
+			}
+		}
+		if (changed)
+			rebuild();
+	}
+	
+	/**
+	 * Select the service a request is delivered to
+	 * 
+	 * @param topic Topic of the request
+	 * @param serviceGuid GUID of the service the request is for, empty for any
+	 * @return Selected service, null when no service handles the topic
+	 */
+	Service select(String topic, String serviceGuid) {
+		Service[] candidates = servicesByTopic.get(topic);
+		if (candidates == null)
+			return null;
+		if (serviceGuid != null && !serviceGuid.isEmpty()) {
+			for (Service service : candidates)
+				if (service.serviceGuid.equals(serviceGuid))
+					return service;
+			return null;
+		}
+		return candidates[Math.floorMod(next.getAndIncrement(), candidates.length)];
+	}
+	
+	/**
+	 * Count the services a session registered for a topic
+	 * 
+	 * @param session Session of the services
+	 * @param topic Request topic
+	 * @return Number of services
+	 */
+	int count(Object session, String topic) {
+		Service[] candidates = servicesByTopic.get(topic);
+		int count = 0;
+		if (candidates != null)
+			for (Service service : candidates)
+				if (service.session == session)
+					count++;
+		return count;
+	}
+	
+	synchronized int size() {
+		return services.size();
+	}
+	
+	private void rebuild() {
+		Map<String, List<Service>> lists = new HashMap<String, List<Service>>();
+		for (Service service : services.values()) {
+			for (String topic : service.topics) {
+				List<Service> list = lists.get(topic);
+				if (list == null)
+					lists.put(topic, list = new ArrayList<Service>());
+				list.add(service);
+			}
+		}
+		Map<String, Service[]> rebuilt = new HashMap<String, Service[]>();
+		for (Map.Entry<String, List<Service>> entry : lists.entrySet())
+			rebuilt.put(entry.getKey(), entry.getValue().toArray(new Service[entry.getValue().size()]));
+		servicesByTopic = rebuilt;
+	}
+}
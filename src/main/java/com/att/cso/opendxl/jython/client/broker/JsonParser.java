@@ -0,0 +1,211 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.broker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser for the service registration payloads of the DXL 
+ * client.  Objects become Maps, arrays Lists, numbers Doubles.
+ */
+class JsonParser {
+	
+	private final String text;
+	private int position;
+	
+	private JsonParser(String text) {
+		this.text = text;
+	}
+	
+	/**
+	 * Parse a JSON document
+	 * 
+	 * @param text JSON text
+	 * @return Parsed value
+	 * @throws IOException Thrown when the text is not valid JSON
+	 */
+	static Object parse(String text) throws IOException {
+		JsonParser parser = new JsonParser(text);
+		Object value = parser.value();
+		parser.skipWhitespace();
+		if (parser.position != text.length())
+			throw parser.error("Unexpected content");
+		return value;
+	}
+	
+	private Object value() throws IOException {
+		skipWhitespace();
+		if (position >= text.length())
+			throw error("Unexpected end");
+		char c = text.charAt(position);
+		switch (c) {
+		case '{':
+			return object();
+		case '[':
+			return array();
+		case '"':
+			return string();
+		case 't':
+			return literal("true", Boolean.TRUE);
+		case 'f':
+			return literal("false", Boolean.FALSE);
+		case 'n':
+			return literal("null", null);
+		default:
+			return number();
+		}
+	}
+	
+	private Map<String, Object> object() throws IOException {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		position++;
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"')
+				throw error("Expected a key");
+			String key = string();
+			skipWhitespace();
+			expect(':');
+			object.put(key, value());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+				continue;
+			}
+			expect('}');
+			return object;
+		}
+	}
+	
+	private List<Object> array() throws IOException {
+		List<Object> array = new ArrayList<Object>();
+		position++;
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			array.add(value());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+				continue;
+			}
+			expect(']');
+			return array;
+		}
+	}
+	
+	private String string() throws IOException {
+		StringBuilder value = new StringBuilder();
+		position++;
+		while (true) {
+			if (position >= text.length())
+				throw error("Unterminated string");
+			char c = text.charAt(position++);
+			if (c == '"')
+				return value.toString();
+			if (c != '\\') {
+				value.append(c);
+				continue;
+			}
+			if (position >= text.length())
+				throw error("Unterminated string");
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+			case 'b': value.append('\b'); break;
+			case 'f': value.append('\f'); break;
+			case 'n': value.append('\n'); break;
+			case 'r': value.append('\r'); break;
+			case 't': value.append('\t'); break;
+			case 'u':
+				if (position + 4 > text.length())
+					throw error("Invalid escape");
+				try {
+					value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid escape");
+				}
+				position += 4;
+				break;
+			default:
+				value.append(escaped);
+			}
+		}
+	}
+	
+	private Double number() throws IOException {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0)
+			position++;
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Invalid value");
+		}
+	}
+	
+	private Object literal(String name, Object value) throws IOException {
+		if (!text.startsWith(name, position))
+			throw error("Invalid value");
+		position += name.length();
+		return value;
+	}
+	
+	private char peek() {
+		return position < text.length() ? text.charAt(position) : 0;
+	}
+	
+	private void expect(char c) throws IOException {
+		if (peek() != c)
+			throw error("Expected '" + c + "'");
+		position++;
+	}
+	
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+			position++;
+	}
+	
+	private IOException error(String message) {
+		return new IOException(message + " at offset " + position + " of JSON text");
+	}
+}
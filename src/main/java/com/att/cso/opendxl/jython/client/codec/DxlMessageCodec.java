@@ -0,0 +1,237 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+import java.util.UUID;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Native encoder and decoder for the DXL message wire format (versions 0 
+ * through 2).  The byte layout is identical to Message._to_bytes and 
+ * Message._from_bytes in dxlclient/message.py, which delegate here when
+ * running inside this library so the pure Python msgpack code is not used
+ * on the message path.
+ */
+public final class DxlMessageCodec {
+	// Error code when the bytes are not a valid DXL message
+	public static final int ERROR_DECODE = 3000;
+	// Error code when the message type is not a known DXL message type
+	public static final int ERROR_UNKNOWN_MESSAGE_TYPE = 3010;
+	// Error code when the DxlMessage cannot be represented on the wire
+	public static final int ERROR_ENCODE = 3100;
+
+	private DxlMessageCodec() {
+	}
+	
+	/**
+	 * Encode the message into the DXL wire format using the version set on 
+	 * the message.  A message id is generated and set on the message when 
+	 * one has not been assigned.
+	 * 
+	 * @param message DxlMessage to encode
+	 * @return bytes to publish on the fabric
+	 * @throws DxlJythonException Thrown when the message can not be encoded
+	 */
+	public static byte[] encode(DxlMessage message) throws DxlJythonException {
+		int type = message.getMessageType();
+		if (type < DxlMessage.MESSAGE_TYPE_REQUEST || type > DxlMessage.MESSAGE_TYPE_ERROR)
+			throw new DxlJythonException(ERROR_UNKNOWN_MESSAGE_TYPE, "Unknown message type: " + type);
+		
+		if (message.getMessageId() == null)
+			message.setMessageId(generateMessageId());
+		
+		byte[] payload = message.getPayloadBytes();
+		MessagePacker packer = new MessagePacker(256 + (payload == null ? 0 : payload.length));
+		
+		packer.packLong(message.getMessageVersion());
+		packer.packLong(type);
+		
+		packer.packString(message.getMessageId());
+		packer.packString(emptyIfNull(message.getClientId()));
+		packer.packString(emptyIfNull(message.getBrokerId()));
+		packer.packStringList(message.getBrokerIdList());
+		packer.packStringList(message.getClientIdList());
+		packer.packRaw(payload == null ? new byte[0] : payload);
+		
+		switch (type) {
+		case DxlMessage.MESSAGE_TYPE_REQUEST:
+			packer.packString(message.getReplyTopic());
+			packer.packString(emptyIfNull(message.getServiceId()));
+			break;
+		case DxlMessage.MESSAGE_TYPE_RESPONSE:
+			packer.packString(message.getRequestMessageId());
+			packer.packString(emptyIfNull(message.getServiceId()));
+			break;
+		case DxlMessage.MESSAGE_TYPE_ERROR:
+			packer.packString(message.getRequestMessageId());
+			packer.packString(emptyIfNull(message.getServiceId()));
+			packer.packLong(parseErrorCode(message.getErrorCode()));
+			packer.packString(emptyIfNull(message.getErrorMessage()));
+			break;
+		default:
+			break;
+		}
+		
+		if (message.getMessageVersion() > 0) {
+			packer.packStringPairs(message.getOtherFields());
+		}
+		if (message.getMessageVersion() > 1) {
+			packer.packString(emptyIfNull(message.getSourceTenantGuid()));
+			packer.packStringList(message.getDestinationTenantGuidList());
+		}
+		
+		return packer.toByteArray();
+	}
+	
+	/**
+	 * Decode a DXL message received on the fabric
+	 * 
+	 * @param raw bytes received from the broker
+	 * @return DxlMessage populated from the bytes, without a topic
+	 * @throws DxlJythonException Thrown when the bytes are not a valid DXL message
+	 */
+	public static DxlMessage decode(byte[] raw) throws DxlJythonException {
+		return decode(null, raw);
+	}
+	
+	/**
+	 * Decode a DXL message received on the fabric
+	 * 
+	 * @param topic MQTT topic the message was received on
+	 * @param raw bytes received from the broker
+	 * @return DxlMessage populated from the bytes
+	 * @throws DxlJythonException Thrown when the bytes are not a valid DXL message
+	 */
+	public static DxlMessage decode(String topic, byte[] raw) throws DxlJythonException {
+		if (raw == null)
+			throw new DxlJythonException(ERROR_DECODE, "Unable to decode DXL message: no data");
+		
+		MessageUnpacker unpacker = new MessageUnpacker(raw);
+		int version = (int)unpacker.readLong();
+		int type = (int)unpacker.readLong();
+		if (type < DxlMessage.MESSAGE_TYPE_REQUEST || type > DxlMessage.MESSAGE_TYPE_ERROR)
+			throw new DxlJythonException(ERROR_UNKNOWN_MESSAGE_TYPE, "Unknown message type: " + type);
+		
+		DxlMessage message = new DxlMessage();
+		message.setTopic(topic);
+		message.setMessageVersion(version);
+		message.setMessageType(type);
+		
+		message.setMessageId(unpacker.readString());
+		message.setClientId(unpacker.readString());
+		message.setBrokerId(unpacker.readString());
+		message.setBrokerIdList(unpacker.readStringList());
+		message.setClientIdList(unpacker.readStringList());
+		message.setPayloadBytes(unpacker.readRaw());
+		
+		switch (type) {
+		case DxlMessage.MESSAGE_TYPE_REQUEST:
+			message.setReplyTopic(unpacker.readString());
+			message.setServiceId(unpacker.readString());
+			break;
+		case DxlMessage.MESSAGE_TYPE_RESPONSE:
+			message.setRequestMessageId(unpacker.readString());
+			message.setServiceId(unpacker.readString());
+			break;
+		case DxlMessage.MESSAGE_TYPE_ERROR:
+			message.setRequestMessageId(unpacker.readString());
+			message.setServiceId(unpacker.readString());
+			message.setErrorCode(String.valueOf(unpacker.readLong()));
+			message.setErrorMessage(unpacker.readString());
+			break;
+		default:
+			break;
+		}
+		
+		if (version > 0) {
+			message.setOtherFields(unpacker.readStringPairs());
+		}
+		if (version > 1) {
+			message.setSourceTenantGuid(unpacker.readString());
+			message.setDestinationTenantGuidList(unpacker.readStringList());
+		}
+		
+		return message;
+	}
+	
+	/**
+	 * Create a lazy view of a DXL message received on the fabric.  Only the
+	 * structure is checked up front, fields are decoded when first read.
+	 * 
+	 * @param raw bytes received from the broker, must not be modified while the view is in use
+	 * @return DxlMessageView over the bytes, without a topic
+	 * @throws DxlJythonException Thrown when the bytes are not a valid DXL message
+	 */
+	public static DxlMessageView view(byte[] raw) throws DxlJythonException {
+		return view(null, raw);
+	}
+	
+	/**
+	 * Create a lazy view of a DXL message received on the fabric.  Only the
+	 * structure is checked up front, fields are decoded when first read.
+	 * 
+	 * @param topic MQTT topic the message was received on
+	 * @param raw bytes received from the broker, must not be modified while the view is in use
+	 * @return DxlMessageView over the bytes
+	 * @throws DxlJythonException Thrown when the bytes are not a valid DXL message
+	 */
+	public static DxlMessageView view(String topic, byte[] raw) throws DxlJythonException {
+		if (raw == null)
+			throw new DxlJythonException(ERROR_DECODE, "Unable to decode DXL message: no data");
+		return new DxlMessageView(topic, raw);
+	}
+	
+	/**
+	 * Generate a message id in the format used by the Python client, a 
+	 * lowercase UUID with enclosing brackets.
+	 * 
+	 * @return new message id
+	 */
+	public static String generateMessageId() {
+		return "{" + UUID.randomUUID().toString() + "}";
+	}
+	
+	private static long parseErrorCode(String errorCode) throws DxlJythonException {
+		if (errorCode == null || errorCode.isEmpty())
+			return 0;
+		try {
+			return Long.parseLong(errorCode.trim());
+		} catch (NumberFormatException ex) {
+			throw new DxlJythonException(ERROR_ENCODE, "Error code must be numeric: " + errorCode);
+		}
+	}
+	
+	private static String emptyIfNull(String value) {
+		return value == null ? "" : value;
+	}
+}
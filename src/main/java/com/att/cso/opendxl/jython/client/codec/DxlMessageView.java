@@ -0,0 +1,349 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Lazy view of a DXL message received on the fabric.  Creating the view
+ * checks the structure of the message and records where each field starts,
+ * without copying anything out of the received bytes.  A field is decoded
+ * the first time its getter is called, so a callback that only reads the
+ * topic and payload does not pay for the rest of the message.
+ * 
+ * GUID shaped identifiers are held as two longs and only formatted when 
+ * read, identifier lists are read-only lists backed by longs.  Setters 
+ * replace the value received on the wire, as on a plain DxlMessage.
+ */
+public final class DxlMessageView extends DxlMessage {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	// Fields of the message, in wire order
+	private static final int MESSAGE_ID = 0;
+	private static final int CLIENT_ID = 1;
+	private static final int BROKER_ID = 2;
+	private static final int BROKER_IDS = 3;
+	private static final int CLIENT_IDS = 4;
+	private static final int PAYLOAD = 5;
+	private static final int REPLY_TOPIC = 6;
+	private static final int REQUEST_MESSAGE_ID = 7;
+	private static final int SERVICE_ID = 8;
+	private static final int ERROR_CODE = 9;
+	private static final int ERROR_MESSAGE = 10;
+	private static final int OTHER_FIELDS = 11;
+	private static final int TENANT_GUID = 12;
+	private static final int TENANT_GUIDS = 13;
+	private static final int FIELD_COUNT = 14;
+	
+	private final byte[] raw;
+	// Offset of each field in raw, -1 when the message type or version has no such field
+	private final int[] offsets = new int[FIELD_COUNT];
+	private int payloadOffset = 0;
+	private int payloadLength = -1;
+	
+	// Fields decoded from raw, and fields replaced through a setter
+	private int loaded = 0;
+	private int replaced = 0;
+	private Object[] values = null;
+	private String payloadString = null;
+	// Identifiers held as two longs, by field
+	private long[] guidBits = null;
+	private byte[] guidShapes = null;
+	
+	/**
+	 * Create a view over the bytes of a message.  The bytes must not be 
+	 * modified while the view is in use.
+	 * 
+	 * @param topic MQTT topic the message was received on
+	 * @param raw bytes received from the broker
+	 * @throws DxlJythonException Thrown when the bytes are not a valid DXL message
+	 */
+	DxlMessageView(String topic, byte[] raw) throws DxlJythonException {
+		this.raw = raw;
+		
+		MessageUnpacker unpacker = new MessageUnpacker(raw);
+		int version = (int)unpacker.readLong();
+		int type = (int)unpacker.readLong();
+		if (type < MESSAGE_TYPE_REQUEST || type > MESSAGE_TYPE_ERROR)
+			throw new DxlJythonException(DxlMessageCodec.ERROR_UNKNOWN_MESSAGE_TYPE, "Unknown message type: " + type);
+		
+		super.setTopic(topic);
+		super.setMessageVersion(version);
+		super.setMessageType(type);
+		
+		Arrays.fill(offsets, -1);
+		skipRaw(unpacker, MESSAGE_ID);
+		skipRaw(unpacker, CLIENT_ID);
+		skipRaw(unpacker, BROKER_ID);
+		skipList(unpacker, BROKER_IDS);
+		skipList(unpacker, CLIENT_IDS);
+		
+		offsets[PAYLOAD] = unpacker.position();
+		payloadLength = unpacker.readRawLength();
+		payloadOffset = unpacker.position();
+		unpacker.skip(payloadLength);
+		
+		switch (type) {
+		case MESSAGE_TYPE_REQUEST:
+			skipRaw(unpacker, REPLY_TOPIC);
+			skipRaw(unpacker, SERVICE_ID);
+			break;
+		case MESSAGE_TYPE_RESPONSE:
+			skipRaw(unpacker, REQUEST_MESSAGE_ID);
+			skipRaw(unpacker, SERVICE_ID);
+			break;
+		case MESSAGE_TYPE_ERROR:
+			skipRaw(unpacker, REQUEST_MESSAGE_ID);
+			skipRaw(unpacker, SERVICE_ID);
+			offsets[ERROR_CODE] = unpacker.position();
+			unpacker.readLong();
+			skipRaw(unpacker, ERROR_MESSAGE);
+			break;
+		default:
+			break;
+		}
+		
+		if (version > 0) {
+			skipList(unpacker, OTHER_FIELDS);
+		}
+		if (version > 1) {
+			skipRaw(unpacker, TENANT_GUID);
+			skipList(unpacker, TENANT_GUIDS);
+		}
+	}
+	
+	@Override public String getMessageId()				{ return replaced(MESSAGE_ID) ? super.getMessageId() : id(MESSAGE_ID); }
+	@Override public String getClientId()				{ return replaced(CLIENT_ID) ? super.getClientId() : id(CLIENT_ID); }
+	@Override public String getBrokerId()				{ return replaced(BROKER_ID) ? super.getBrokerId() : id(BROKER_ID); }
+	@Override public List<String> getClientIdList()		{ return replaced(CLIENT_IDS) ? super.getClientIdList() : list(CLIENT_IDS); }
+	@Override public List<String> getBrokerIdList()		{ return replaced(BROKER_IDS) ? super.getBrokerIdList() : list(BROKER_IDS); }
+	@Override public String getReplyTopic()				{ return replaced(REPLY_TOPIC) ? super.getReplyTopic() : (String)value(REPLY_TOPIC); }
+	@Override public String getRequestMessageId()		{ return replaced(REQUEST_MESSAGE_ID) ? super.getRequestMessageId() : id(REQUEST_MESSAGE_ID); }
+	@Override public String getServiceId()				{ return replaced(SERVICE_ID) ? super.getServiceId() : (String)value(SERVICE_ID); }
+	@Override public String getErrorCode()				{ return replaced(ERROR_CODE) ? super.getErrorCode() : (String)value(ERROR_CODE); }
+	@Override public String getErrorMessage()			{ return replaced(ERROR_MESSAGE) ? super.getErrorMessage() : (String)value(ERROR_MESSAGE); }
+	@Override public String getSourceTenantGuid()		{ return replaced(TENANT_GUID) ? super.getSourceTenantGuid() : id(TENANT_GUID); }
+	@Override public List<String> getDestinationTenantGuidList()	{ return replaced(TENANT_GUIDS) ? super.getDestinationTenantGuidList() : list(TENANT_GUIDS); }
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, String> getOtherFields() {
+		return replaced(OTHER_FIELDS) ? super.getOtherFields() : (Map<String, String>)value(OTHER_FIELDS);
+	}
+	
+	@Override public void setMessageId(String messageId)				{ replace(MESSAGE_ID); super.setMessageId(messageId); }
+	@Override public void setClientId(String clientId)					{ replace(CLIENT_ID); super.setClientId(clientId); }
+	@Override public void setBrokerId(String brokerId)					{ replace(BROKER_ID); super.setBrokerId(brokerId); }
+	@Override public void setClientIdList(List<String> clientIdList)	{ replace(CLIENT_IDS); super.setClientIdList(clientIdList); }
+	@Override public void setClientIdList(String[] clientIdList)		{ replace(CLIENT_IDS); super.setClientIdList(clientIdList); }
+	@Override public void setBrokerIdList(List<String> brokerIdList)	{ replace(BROKER_IDS); super.setBrokerIdList(brokerIdList); }
+	@Override public void setBrokerIdList(String[] brokerIdList)		{ replace(BROKER_IDS); super.setBrokerIdList(brokerIdList); }
+	@Override public void setReplyTopic(String replyTopic)				{ replace(REPLY_TOPIC); super.setReplyTopic(replyTopic); }
+	@Override public void setRequestMessageId(String requestMessageId)	{ replace(REQUEST_MESSAGE_ID); super.setRequestMessageId(requestMessageId); }
+	@Override public void setServiceId(String serviceId)				{ replace(SERVICE_ID); super.setServiceId(serviceId); }
+	@Override public void setErrorCode(String errorCode)				{ replace(ERROR_CODE); super.setErrorCode(errorCode); }
+	@Override public void setErrorMessage(String errorMessage)			{ replace(ERROR_MESSAGE); super.setErrorMessage(errorMessage); }
+	@Override public void setOtherFields(Map<String, String> otherFields)	{ replace(OTHER_FIELDS); super.setOtherFields(otherFields); }
+	@Override public void setSourceTenantGuid(String sourceTenantGuid)	{ replace(TENANT_GUID); super.setSourceTenantGuid(sourceTenantGuid); }
+	@Override public void setDestinationTenantGuidList(List<String> destinationTenantGuidList)	{ replace(TENANT_GUIDS); super.setDestinationTenantGuidList(destinationTenantGuidList); }
+	@Override public void setDestinationTenantGuidList(String[] destinationTenantGuidList)		{ replace(TENANT_GUIDS); super.setDestinationTenantGuidList(destinationTenantGuidList); }
+	
+	/**
+	 * Get the payload as a string, decoded as UTF-8 straight from the 
+	 * received bytes on first access.
+	 * 
+	 * @return String containing the payload
+	 */
+	@Override
+	public String getPayload() {
+		if (replaced(PAYLOAD))
+			return super.getPayload();
+		synchronized (this) {
+			if (payloadString == null && payloadLength >= 0)
+				payloadString = new String(raw, payloadOffset, payloadLength, UTF8);
+			return payloadString;
+		}
+	}
+	
+	/**
+	 * Get the payload as bytes.  The bytes are copied out of the received
+	 * message on first access, getPayloadBuffer avoids the copy.
+	 * 
+	 * @return byte array containing the payload
+	 */
+	@Override
+	public byte[] getPayloadBytes() {
+		if (replaced(PAYLOAD))
+			return super.getPayloadBytes();
+		return (byte[])value(PAYLOAD);
+	}
+	
+	/**
+	 * Get the payload as a read-only buffer over the received bytes
+	 * 
+	 * @return ByteBuffer containing the payload
+	 */
+	@Override
+	public ByteBuffer getPayloadBuffer() {
+		if (replaced(PAYLOAD))
+			return super.getPayloadBuffer();
+		if (payloadLength < 0)
+			return null;
+		return ByteBuffer.wrap(raw, payloadOffset, payloadLength).slice().asReadOnlyBuffer();
+	}
+	
+	@Override
+	public void setPayload(String payload) {
+		replace(PAYLOAD);
+		super.setPayload(payload);
+	}
+	
+	@Override
+	public void setPayloadBytes(byte[] payloadBytes) {
+		replace(PAYLOAD);
+		super.setPayloadBytes(payloadBytes);
+	}
+	
+	private void skipRaw(MessageUnpacker unpacker, int field) throws DxlJythonException {
+		offsets[field] = unpacker.position();
+		unpacker.skipRaw();
+	}
+	
+	private void skipList(MessageUnpacker unpacker, int field) throws DxlJythonException {
+		offsets[field] = unpacker.position();
+		unpacker.skipStringList();
+	}
+	
+	private synchronized boolean replaced(int field) {
+		return (replaced & (1 << field)) != 0;
+	}
+	
+	private synchronized void replace(int field) {
+		replaced |= 1 << field;
+	}
+	
+	/**
+	 * Read an identifier, GUIDs are parsed into two longs on first access
+	 * and formatted on every access
+	 */
+	private synchronized String id(int field) {
+		int bit = 1 << field;
+		if ((loaded & bit) == 0) {
+			loaded |= bit;
+			if (offsets[field] >= 0) {
+				MessageUnpacker unpacker = unpacker(field);
+				int length = readRawLength(unpacker);
+				int offset = unpacker.position();
+				byte shape = length < 0 ? Guids.NOT_GUID : Guids.shape(raw, offset, length);
+				if (shape != Guids.NOT_GUID) {
+					if (guidBits == null) {
+						guidBits = new long[2 * FIELD_COUNT];
+						guidShapes = new byte[FIELD_COUNT];
+					}
+					Guids.parse(raw, offset, shape, guidBits, 2 * field);
+					guidShapes[field] = shape;
+				} else if (length >= 0) {
+					values()[field] = new String(raw, offset, length, UTF8);
+				}
+			}
+		}
+		if (guidShapes != null && guidShapes[field] != Guids.NOT_GUID)
+			return Guids.format(guidBits[2 * field], guidBits[2 * field + 1], guidShapes[field]);
+		return values == null ? null : (String)values[field];
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<String> list(int field) {
+		return (List<String>)value(field);
+	}
+	
+	/**
+	 * Decode any other field on first access
+	 */
+	private synchronized Object value(int field) {
+		int bit = 1 << field;
+		if ((loaded & bit) == 0) {
+			loaded |= bit;
+			if (offsets[field] >= 0)
+				values()[field] = decode(field);
+		}
+		return values == null ? null : values[field];
+	}
+	
+	private Object decode(int field) {
+		MessageUnpacker unpacker = unpacker(field);
+		try {
+			switch (field) {
+			case BROKER_IDS:
+			case CLIENT_IDS:
+			case TENANT_GUIDS:
+				return unpacker.readGuidList();
+			case PAYLOAD:
+				return unpacker.readRaw();
+			case ERROR_CODE:
+				return String.valueOf(unpacker.readLong());
+			case OTHER_FIELDS:
+				return unpacker.readStringPairs();
+			default:
+				return unpacker.readString();
+			}
+		} catch (DxlJythonException ex) {
+			// The structure was checked when the view was created
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+	}
+	
+	private int readRawLength(MessageUnpacker unpacker) {
+		try {
+			return unpacker.readRawLength();
+		} catch (DxlJythonException ex) {
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+	}
+	
+	private MessageUnpacker unpacker(int field) {
+		int offset = offsets[field];
+		return new MessageUnpacker(raw, offset, raw.length - offset);
+	}
+	
+	private Object[] values() {
+		if (values == null)
+			values = new Object[FIELD_COUNT];
+		return values;
+	}
+}
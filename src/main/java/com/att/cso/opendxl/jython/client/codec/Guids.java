@@ -0,0 +1,147 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+/**
+ * Compact form of the GUID shaped identifiers used on the fabric.  A GUID
+ * in the canonical lowercase form, with or without enclosing brackets, is 
+ * held as two longs and formatted back to exactly the same text.  Any other
+ * value is left to the caller to keep as a String.
+ */
+final class Guids {
+	// Value is not a GUID in canonical lowercase form
+	static final byte NOT_GUID = 0;
+	// GUID without brackets, xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+	static final byte BARE = 1;
+	// GUID with enclosing brackets, {xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx}
+	static final byte BRACED = 2;
+	
+	private static final int BARE_LENGTH = 36;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	private Guids() {
+	}
+	
+	/**
+	 * Check whether the bytes are a GUID that can be held as two longs
+	 * 
+	 * @param buf buffer holding the UTF-8 bytes of the value
+	 * @param off offset of the value
+	 * @param len length of the value
+	 * @return NOT_GUID, BARE or BRACED
+	 */
+	static byte shape(byte[] buf, int off, int len) {
+		if (len == BARE_LENGTH)
+			return isBare(buf, off) ? BARE : NOT_GUID;
+		if (len == BARE_LENGTH + 2 && buf[off] == '{' && buf[off + len - 1] == '}')
+			return isBare(buf, off + 1) ? BRACED : NOT_GUID;
+		return NOT_GUID;
+	}
+	
+	/**
+	 * Parse a GUID into two longs
+	 * 
+	 * @param buf buffer holding the UTF-8 bytes of the value
+	 * @param off offset of the value
+	 * @param shape shape returned by shape() for the value, BARE or BRACED
+	 * @param bits array receiving the most significant bits at index and the least at index + 1
+	 * @param index position in bits to store the GUID
+	 */
+	static void parse(byte[] buf, int off, byte shape, long[] bits, int index) {
+		if (shape == BRACED)
+			off++;
+		long high = 0;
+		long low = 0;
+		int digit = 0;
+		for (int i = 0; i < BARE_LENGTH; i++) {
+			if (isDash(i))
+				continue;
+			long value = hexValue(buf[off + i]);
+			if (digit++ < 16)
+				high = (high << 4) | value;
+			else
+				low = (low << 4) | value;
+		}
+		bits[index] = high;
+		bits[index + 1] = low;
+	}
+	
+	/**
+	 * Format a GUID held as two longs
+	 * 
+	 * @param high most significant bits
+	 * @param low least significant bits
+	 * @param shape BARE or BRACED
+	 * @return the GUID text
+	 */
+	static String format(long high, long low, byte shape) {
+		boolean braced = shape == BRACED;
+		char[] chars = new char[braced ? BARE_LENGTH + 2 : BARE_LENGTH];
+		int pos = 0;
+		if (braced)
+			chars[pos++] = '{';
+		int digit = 0;
+		for (int i = 0; i < BARE_LENGTH; i++) {
+			if (isDash(i)) {
+				chars[pos++] = '-';
+				continue;
+			}
+			long word = digit < 16 ? high : low;
+			int shift = (15 - (digit & 15)) * 4;
+			chars[pos++] = HEX[(int)(word >>> shift) & 0xf];
+			digit++;
+		}
+		if (braced)
+			chars[pos] = '}';
+		return new String(chars);
+	}
+	
+	private static boolean isBare(byte[] buf, int off) {
+		for (int i = 0; i < BARE_LENGTH; i++) {
+			if (isDash(i) ? buf[off + i] != '-' : hexValue(buf[off + i]) < 0)
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean isDash(int i) {
+		return i == 8 || i == 13 || i == 18 || i == 23;
+	}
+	
+	// Only lowercase digits are accepted so formatting reproduces the original text
+	private static int hexValue(byte c) {
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		return -1;
+	}
+}
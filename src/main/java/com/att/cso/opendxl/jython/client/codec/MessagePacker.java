@@ -0,0 +1,225 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal MessagePack writer covering the subset of the format used by the
+ * DXL wire protocol.  The output matches the msgpack fallback Packer bundled
+ * with the OpenDXL Python client (use_bin_type disabled), so strings and 
+ * byte arrays are both written as raw values.
+ */
+class MessagePacker {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int DEFAULT_CAPACITY = 256;
+
+	private byte[] buf;
+	private int count = 0;
+	
+	MessagePacker() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	MessagePacker(int capacity) {
+		buf = new byte[Math.max(capacity, 16)];
+	}
+	
+	/**
+	 * Write a nil value
+	 */
+	void packNil() {
+		ensure(1);
+		buf[count++] = (byte)0xc0;
+	}
+	
+	/**
+	 * Write an integer using the smallest encoding, following the same 
+	 * ordering of checks as the Python packer.
+	 * 
+	 * @param value integer value to write
+	 */
+	void packLong(long value) {
+		ensure(9);
+		if (value >= 0 && value < 0x80) {
+			buf[count++] = (byte)value;
+		} else if (value >= -0x20 && value < 0) {
+			buf[count++] = (byte)value;
+		} else if (value >= 0x80 && value <= 0xff) {
+			buf[count++] = (byte)0xcc;
+			buf[count++] = (byte)value;
+		} else if (value >= -0x80 && value < 0) {
+			buf[count++] = (byte)0xd0;
+			buf[count++] = (byte)value;
+		} else if (value > 0xff && value <= 0xffff) {
+			buf[count++] = (byte)0xcd;
+			writeShort((int)value);
+		} else if (value >= -0x8000 && value < -0x80) {
+			buf[count++] = (byte)0xd1;
+			writeShort((int)value);
+		} else if (value > 0xffff && value <= 0xffffffffL) {
+			buf[count++] = (byte)0xce;
+			writeInt((int)value);
+		} else if (value >= -0x80000000L && value < -0x8000) {
+			buf[count++] = (byte)0xd2;
+			writeInt((int)value);
+		} else if (value > 0xffffffffL) {
+			buf[count++] = (byte)0xcf;
+			writeLong(value);
+		} else {
+			buf[count++] = (byte)0xd3;
+			writeLong(value);
+		}
+	}
+	
+	/**
+	 * Write a string as a UTF-8 encoded raw value, null is written as nil
+	 * 
+	 * @param value String to write
+	 */
+	void packString(String value) {
+		if (value == null) {
+			packNil();
+			return;
+		}
+		packRaw(value.getBytes(UTF8));
+	}
+	
+	/**
+	 * Write a byte array as a raw value, null is written as nil
+	 * 
+	 * @param value bytes to write
+	 */
+	void packRaw(byte[] value) {
+		if (value == null) {
+			packNil();
+			return;
+		}
+		int n = value.length;
+		ensure(n + 5);
+		if (n <= 0x1f) {
+			buf[count++] = (byte)(0xa0 | n);
+		} else if (n <= 0xffff) {
+			buf[count++] = (byte)0xda;
+			writeShort(n);
+		} else {
+			buf[count++] = (byte)0xdb;
+			writeInt(n);
+		}
+		System.arraycopy(value, 0, buf, count, n);
+		count += n;
+	}
+	
+	/**
+	 * Write the header for an array of n elements
+	 * 
+	 * @param n number of elements that follow
+	 */
+	void packArrayHeader(int n) {
+		ensure(5);
+		if (n <= 0x0f) {
+			buf[count++] = (byte)(0x90 | n);
+		} else if (n <= 0xffff) {
+			buf[count++] = (byte)0xdc;
+			writeShort(n);
+		} else {
+			buf[count++] = (byte)0xdd;
+			writeInt(n);
+		}
+	}
+	
+	/**
+	 * Write a list of strings as an array, null is written as an empty array
+	 * 
+	 * @param values strings to write
+	 */
+	void packStringList(List<String> values) {
+		if (values == null) {
+			packArrayHeader(0);
+			return;
+		}
+		packArrayHeader(values.size());
+		for (String value : values)
+			packString(value);
+	}
+	
+	/**
+	 * Write a map of strings as a flat array of alternating keys and values,
+	 * which is how DXL carries the message "other fields".
+	 * 
+	 * @param values map to write
+	 */
+	void packStringPairs(Map<String, String> values) {
+		if (values == null) {
+			packArrayHeader(0);
+			return;
+		}
+		packArrayHeader(values.size() * 2);
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			packString(entry.getKey());
+			packString(entry.getValue());
+		}
+	}
+	
+	/**
+	 * @return copy of the bytes written so far
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+	
+	private void writeShort(int value) {
+		buf[count++] = (byte)(value >>> 8);
+		buf[count++] = (byte)value;
+	}
+	
+	private void writeInt(int value) {
+		buf[count++] = (byte)(value >>> 24);
+		buf[count++] = (byte)(value >>> 16);
+		buf[count++] = (byte)(value >>> 8);
+		buf[count++] = (byte)value;
+	}
+	
+	private void writeLong(long value) {
+		writeInt((int)(value >>> 32));
+		writeInt((int)value);
+	}
+	
+	private void ensure(int needed) {
+		if (count + needed <= buf.length)
+			return;
+		int size = Math.max(buf.length << 1, count + needed);
+		buf = Arrays.copyOf(buf, size);
+	}
+}
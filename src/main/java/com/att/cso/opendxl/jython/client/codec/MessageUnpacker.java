@@ -0,0 +1,312 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Minimal MessagePack reader covering the subset of the format used by the
+ * DXL wire protocol.  Raw, str and bin values are all accepted wherever a
+ * string or byte array is expected, matching the Python Unpacker which 
+ * returns each of them as a byte string.
+ */
+class MessageUnpacker {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final byte[] buf;
+	private final int limit;
+	private int pos;
+	
+	MessageUnpacker(byte[] buf) {
+		this(buf, 0, buf.length);
+	}
+	
+	MessageUnpacker(byte[] buf, int offset, int length) {
+		this.buf = buf;
+		this.pos = offset;
+		this.limit = offset + length;
+	}
+	
+	/**
+	 * Read an integer value
+	 * 
+	 * @return the value read
+	 * @throws DxlJythonException Thrown when the next value is not an integer
+	 */
+	long readLong() throws DxlJythonException {
+		int b = readByte();
+		if ((b & 0x80) == 0 || (b & 0xe0) == 0xe0)
+			return (byte)b;
+		switch (b) {
+		case 0xcc: return readByte();
+		case 0xcd: return readShort();
+		case 0xce: return readInt() & 0xffffffffL;
+		case 0xcf: return readLongValue();
+		case 0xd0: return (byte)readByte();
+		case 0xd1: return (short)readShort();
+		case 0xd2: return readInt();
+		case 0xd3: return readLongValue();
+		default:
+			throw malformed("Expected integer, found 0x" + Integer.toHexString(b));
+		}
+	}
+	
+	/**
+	 * Read a raw value as bytes
+	 * 
+	 * @return bytes read or null when the value is nil
+	 * @throws DxlJythonException Thrown when the next value is not a raw value
+	 */
+	byte[] readRaw() throws DxlJythonException {
+		int n = readRawHeader();
+		if (n < 0)
+			return null;
+		ensure(n);
+		byte[] value = Arrays.copyOfRange(buf, pos, pos + n);
+		pos += n;
+		return value;
+	}
+	
+	/**
+	 * Read a raw value as a UTF-8 string
+	 * 
+	 * @return String read or null when the value is nil
+	 * @throws DxlJythonException Thrown when the next value is not a raw value
+	 */
+	String readString() throws DxlJythonException {
+		int n = readRawHeader();
+		if (n < 0)
+			return null;
+		ensure(n);
+		String value = new String(buf, pos, n, UTF8);
+		pos += n;
+		return value;
+	}
+	
+	/**
+	 * Read an array header
+	 * 
+	 * @return number of elements in the array
+	 * @throws DxlJythonException Thrown when the next value is not an array
+	 */
+	int readArrayHeader() throws DxlJythonException {
+		int b = readByte();
+		if ((b & 0xf0) == 0x90)
+			return b & 0x0f;
+		if (b == 0xdc)
+			return readShort();
+		if (b == 0xdd)
+			return checkLength(readInt());
+		throw malformed("Expected array, found 0x" + Integer.toHexString(b));
+	}
+	
+	/**
+	 * Read an array of strings
+	 * 
+	 * @return list of strings read
+	 * @throws DxlJythonException Thrown when the next value is not an array of strings
+	 */
+	List<String> readStringList() throws DxlJythonException {
+		int n = readArrayHeader();
+		List<String> values = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++)
+			values.add(readString());
+		return values;
+	}
+	
+	/**
+	 * Read a flat array of alternating keys and values into a map
+	 * 
+	 * @return map of the pairs read, in wire order
+	 * @throws DxlJythonException Thrown when the next value is not an array of strings
+	 */
+	Map<String, String> readStringPairs() throws DxlJythonException {
+		int n = readArrayHeader();
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		for (int i = 0; i + 1 < n; i += 2)
+			values.put(readString(), readString());
+		// Python ignores a trailing key without a value
+		if ((n & 1) == 1)
+			readString();
+		return values;
+	}
+	
+	/**
+	 * Read an array of identifiers, holding GUID shaped entries as two longs
+	 * 
+	 * @return read-only list of the identifiers read
+	 * @throws DxlJythonException Thrown when the next value is not an array of strings
+	 */
+	List<String> readGuidList() throws DxlJythonException {
+		int n = readArrayHeader();
+		long[] bits = new long[2 * n];
+		byte[] shapes = new byte[n];
+		String[] others = null;
+		for (int i = 0; i < n; i++) {
+			int length = readRawHeader();
+			if (length < 0)
+				continue;
+			ensure(length);
+			byte shape = Guids.shape(buf, pos, length);
+			if (shape == Guids.NOT_GUID) {
+				if (others == null)
+					others = new String[n];
+				others[i] = new String(buf, pos, length, UTF8);
+			} else {
+				Guids.parse(buf, pos, shape, bits, 2 * i);
+			}
+			shapes[i] = shape;
+			pos += length;
+		}
+		return new GuidList(bits, shapes, others);
+	}
+	
+	/**
+	 * Read the header of a raw value, leaving the position at its first byte
+	 * 
+	 * @return length of the value or -1 when the value is nil
+	 * @throws DxlJythonException Thrown when the next value is not a raw value
+	 */
+	int readRawLength() throws DxlJythonException {
+		int n = readRawHeader();
+		if (n > 0)
+			ensure(n);
+		return n;
+	}
+	
+	/**
+	 * Skip over a raw value
+	 * 
+	 * @throws DxlJythonException Thrown when the next value is not a raw value
+	 */
+	void skipRaw() throws DxlJythonException {
+		int n = readRawHeader();
+		if (n > 0) {
+			ensure(n);
+			pos += n;
+		}
+	}
+	
+	/**
+	 * Skip over an array of strings
+	 * 
+	 * @throws DxlJythonException Thrown when the next value is not an array of strings
+	 */
+	void skipStringList() throws DxlJythonException {
+		int n = readArrayHeader();
+		for (int i = 0; i < n; i++)
+			skipRaw();
+	}
+	
+	/**
+	 * Skip over bytes whose length is already checked by readRawLength
+	 * 
+	 * @param n number of bytes to skip
+	 */
+	void skip(int n) {
+		if (n > 0)
+			pos += n;
+	}
+	
+	/**
+	 * Current position in the buffer
+	 * 
+	 * @return offset of the next value
+	 */
+	int position() {
+		return pos;
+	}
+	
+	private int readRawHeader() throws DxlJythonException {
+		int b = readByte();
+		if ((b & 0xe0) == 0xa0)
+			return b & 0x1f;
+		switch (b) {
+		case 0xc0: return -1;
+		case 0xc4:
+		case 0xd9: return readByte();
+		case 0xc5:
+		case 0xda: return readShort();
+		case 0xc6:
+		case 0xdb: return checkLength(readInt());
+		default:
+			throw malformed("Expected raw value, found 0x" + Integer.toHexString(b));
+		}
+	}
+	
+	private int readByte() throws DxlJythonException {
+		ensure(1);
+		return buf[pos++] & 0xff;
+	}
+	
+	private int readShort() throws DxlJythonException {
+		ensure(2);
+		int value = ((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff);
+		pos += 2;
+		return value;
+	}
+	
+	private int readInt() throws DxlJythonException {
+		ensure(4);
+		int value = ((buf[pos] & 0xff) << 24) | ((buf[pos + 1] & 0xff) << 16)
+				| ((buf[pos + 2] & 0xff) << 8) | (buf[pos + 3] & 0xff);
+		pos += 4;
+		return value;
+	}
+	
+	private long readLongValue() throws DxlJythonException {
+		long high = readInt() & 0xffffffffL;
+		long low = readInt() & 0xffffffffL;
+		return (high << 32) | low;
+	}
+	
+	private int checkLength(int n) throws DxlJythonException {
+		if (n < 0)
+			throw malformed("Length out of range");
+		return n;
+	}
+	
+	private void ensure(int n) throws DxlJythonException {
+		if (n > limit - pos)
+			throw malformed("Unexpected end of message");
+	}
+	
+	private static DxlJythonException malformed(String reason) {
+		return new DxlJythonException(DxlMessageCodec.ERROR_DECODE, "Unable to decode DXL message: " + reason);
+	}
+}
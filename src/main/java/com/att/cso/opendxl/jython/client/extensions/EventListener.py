@@ -29,16 +29,19 @@
 from com.att.cso.opendxl.jython.client.interfaces import DxlListenerInterface
 from com.att.cso.opendxl.jython.client.interfaces import DxlCallbackInterface
 from com.att.cso.opendxl.jython.client import DxlMessage as JavaDxlMessage
+from com.att.cso.opendxl.jython.client import DxlSubscription
 from com.att.cso.opendxl.jython.client.exceptions import DxlJythonException
+from java.lang import System
+from java.util import ArrayList
 
 import logging
 import os
 import sys
-import time
+import threading
 
-from dxlclient.callbacks import EventCallback
-from dxlclient.client import DxlClient
+from dxlclient.callbacks import EventCallback, BatchEventCallback
 from dxlclient.client_config import DxlClientConfig
+from dxlclient import _extension_utils
 
 # Enable logging, this will also direct built-in DXL log messages.
 # See - https://docs.python.org/2/howto/logging-cookbook.html
@@ -58,61 +61,183 @@ logger = logging.getLogger("EventListener")
 logger.setLevel(logging.INFO)
 
 
+def _to_dxl_message(event):
+    # Events decoded by the native codec are handed over as the lazy Java
+    # view they were received as, fields are only decoded if asked for
+    if event._java_message is not None:
+        event._java_message.setTopic(event.destination_topic)
+        return event._java_message
+
+    dxl_message = JavaDxlMessage()
+    dxl_message.setTopic(event.destination_topic)
+    dxl_message.setMessageVersion(event.version)
+    dxl_message.setMessageId(event.message_id)
+    dxl_message.setClientId(event.source_client_id)
+    dxl_message.setBrokerId(event.source_broker_id)
+    dxl_message.setMessageType(event.message_type)
+    dxl_message.setBrokerIdList(event.broker_ids)
+    dxl_message.setClientIdList(event.client_ids)
+    # The payload is decoded on the Java side only if asked for as a string
+    dxl_message.setPayloadBytes(event.payload)
+    return dxl_message
+
+
+class MyEventCallback(EventCallback):
+    def __init__(self, dxl_callback, topic, metrics):
+        self.dxlCallback = dxl_callback
+        self.metrics = metrics
+        # Callback durations are recorded under the subscribed topic
+        self.topic_metrics = metrics.getTopicMetrics(topic) if metrics is not None else None
+
+    def on_event(self, event):
+        if self.metrics is None:
+            self.dxlCallback.callbackEvent(_to_dxl_message(event))
+            return
+
+        self.metrics.recordReceived(1)
+        start = System.nanoTime()
+        try:
+            self.dxlCallback.callbackEvent(_to_dxl_message(event))
+        finally:
+            self.topic_metrics.record(System.nanoTime() - start)
+
+
+class MyBatchEventCallback(BatchEventCallback):
+    def __init__(self, dxl_callback, max_batch_size, max_latency, topic, metrics):
+        self.dxlCallback = dxl_callback
+        self.max_batch_size = max_batch_size
+        self.max_latency = max_latency
+        self.metrics = metrics
+        self.topic_metrics = metrics.getTopicMetrics(topic) if metrics is not None else None
+
+    def on_events(self, events):
+        if self.metrics is not None:
+            self.metrics.recordReceived(len(events))
+            start = System.nanoTime()
+        messages = ArrayList(len(events))
+        for event in events:
+            messages.add(_to_dxl_message(event))
+        try:
+            self.dxlCallback.callbackEvents(messages)
+        finally:
+            # One duration per batch
+            if self.metrics is not None:
+                self.topic_metrics.record(System.nanoTime() - start)
+
+
 class EventListener(DxlListenerInterface):
 
     def __init__(self):
         self.started = False
-        self.loop = True
-        
-    def start(self, config_file="./dxlclient.config", topic="/dsa/dxl/test/event2", dxl_callback=None):
-        if self.started:
-            raise DxlJythonException(2000, "Already started")
-        if not dxl_callback:
-            raise DxlJythonException(2100, "DXL callback is required")
-                
-        try:
-            logger.info("Starting event listener on topic '%s'", topic)
-            logger.info("Reading configuration file from '%s'", config_file)
-            config = DxlClientConfig.create_dxl_config_from_file(config_file)
-              
-            # Initialize DXL client using our configuration
-            with DxlClient(config) as client:
-
-                # Connect to DXL Broker
-                client.connect()
-            
-                class MyEventCallback(EventCallback):
-                    def __init__(self, dxl_callback):
-                        self.dxlCallback = dxl_callback
-                        
-                    def on_event(self, event):
-                        dxl_message = JavaDxlMessage()
-                        dxl_message.setTopic(event.destination_topic)
-                        dxl_message.setMessageVersion(event.version)
-                        dxl_message.setMessageId(event.message_id)
-                        dxl_message.setClientId(event.source_client_id)
-                        dxl_message.setBrokerId(event.source_broker_id)
-                        dxl_message.setMessageType(event.message_type)
-                        dxl_message.setBrokerIdList(event.broker_ids)
-                        dxl_message.setClientIdList(event.client_ids)
-                        dxl_message.setPayload(event.payload.decode())
-
-                        self.dxlCallback.callbackEvent(dxl_message)
-                
-                client.add_event_callback(str(topic), MyEventCallback(dxl_callback))
-                
-                self.started = True
-                while self.loop:
-                    time.sleep(1)
-                
-                logger.info("Shutting down event listener on topic '%s'", topic)
-                return "Shutting down event listener on topic '%s'" % topic
-                
-        except Exception as e:
-            logger.error("Exception $s", e.message)
-            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
-
-        
+        # Not self.dispatcher, Jython would take that for the setDispatcher bean property
+        self._dispatcher = None
+        self.overload_policy = None
+        self.metrics = None
+        self.connection_manager = None
+        self.client = None
+        self.subscription = None
+        self.topic = None
+        self.callback = None
+        self.config_file = None
+        self.lock = threading.Lock()
+
+    def start(self, config_file="./dxlclient.config", topic="/dsa/dxl/test/event2", dxl_callback=None,
+              max_batch_size=None, max_latency=None, unit=None):
+        # Block the caller until the listener is stopped
+        subscription = self.startAsync(config_file, topic, dxl_callback, max_batch_size, max_latency, unit)
+        return subscription.getStopFuture().get()
+
+    def startAsync(self, config_file="./dxlclient.config", topic="/dsa/dxl/test/event2", dxl_callback=None,
+                   max_batch_size=None, max_latency=None, unit=None):
+        with self.lock:
+            if self.started:
+                raise DxlJythonException(2000, "Already started")
+            if not dxl_callback:
+                raise DxlJythonException(2100, "DXL callback is required")
+
+            # Batch overloads hand the callback batches flushed by size or latency
+            if max_batch_size is not None:
+                if max_batch_size < 1 or max_latency < 0 or unit is None:
+                    raise DxlJythonException(2200, "Batch size must be positive and latency not negative")
+                callback = MyBatchEventCallback(dxl_callback, max_batch_size, unit.toMicros(max_latency) / 1000000.0,
+                                                topic, self.metrics)
+            else:
+                callback = MyEventCallback(dxl_callback, topic, self.metrics)
+
+            client = None
+            connection_manager = self.connection_manager
+            try:
+                logger.info("Starting event listener on topic '%s'", topic)
+                logger.info("Reading configuration file from '%s'", config_file)
+                config = DxlClientConfig.create_dxl_config_from_file(config_file)
+
+                if connection_manager is None:
+                    # Initialize DXL client using our configuration
+                    client = _extension_utils.create_client(config, self._dispatcher, self.overload_policy, self.metrics, _to_dxl_message)
+
+                    # Connect to DXL Broker
+                    client.connect()
+                else:
+                    # Share the DXL client of the configuration, subscriptions are counted
+                    client = connection_manager.acquire(config_file, self._dispatcher, self.overload_policy, lambda: _extension_utils.connect_shared(
+                        _extension_utils.create_client(config, self._dispatcher, self.overload_policy, self.metrics, _to_dxl_message, True)))
+
+                # Returns once the broker has acknowledged the subscription
+                client.add_event_callback(str(topic), callback)
+
+            except Exception as e:
+                logger.error("Exception %s", e)
+                if client is not None:
+                    _extension_utils.release_client(connection_manager, config_file, client)
+                raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+
+            self.client = client
+            self.topic = topic
+            self.callback = callback
+            self.config_file = config_file
+            self.subscription = DxlSubscription(self.stop)
+            self.started = True
+            return self.subscription
+
+    def setDispatcher(self, dispatcher):
+        self._dispatcher = dispatcher
+
+    def setOverloadPolicy(self, overload_policy):
+        self.overload_policy = overload_policy
+
+    def setMetrics(self, metrics):
+        self.metrics = metrics
+
+    def setConnectionManager(self, connection_manager):
+        self.connection_manager = connection_manager
+
     def stop(self):
-        self.started = False
-        self.loop = False
+        with self.lock:
+            if not self.started:
+                return
+            self.started = False
+            client, self.client = self.client, None
+            subscription, self.subscription = self.subscription, None
+            topic, callback, config_file = self.topic, self.callback, self.config_file
+            connection_manager = self.connection_manager
+
+        # Destroying the client waits for running callbacks, so it must not
+        # run on the callback thread that may have called stop
+        def shutdown():
+            try:
+                if connection_manager is None:
+                    client.destroy()
+                else:
+                    # Other objects may still use the client and the topic
+                    try:
+                        client.remove_event_callback(str(topic), callback)
+                    finally:
+                        _extension_utils.release_client(connection_manager, config_file, client)
+            except Exception as e:
+                logger.error("Exception %s", e)
+            logger.info("Shutting down event listener on topic '%s'", topic)
+            subscription.stopped("Shutting down event listener on topic '%s'" % topic)
+
+        thread = threading.Thread(target=shutdown, name="EventListenerShutdown")
+        thread.daemon = True
+        thread.start()
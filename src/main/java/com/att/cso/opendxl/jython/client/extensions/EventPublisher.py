@@ -27,8 +27,11 @@
 # DAMAGE.
 
 from com.att.cso.opendxl.jython.client.interfaces import DxlPublisherInterface
+from com.att.cso.opendxl.jython.client import DxlPublishRouting
 from com.att.cso.opendxl.jython.client.exceptions import DxlJythonException
+from java.util.concurrent.atomic import AtomicInteger
 
+import jarray
 import logging
 import os
 import sys
@@ -37,6 +40,7 @@ import time
 from dxlclient.client import DxlClient
 from dxlclient.client_config import DxlClientConfig
 from dxlclient.message import Event
+from dxlclient import _extension_utils
 
 # Enable logging, this will also direct built-in DXL log messages.
 # See - https://docs.python.org/2/howto/logging-cookbook.html
@@ -55,10 +59,48 @@ logger.setLevel(logging.WARN)
 logger = logging.getLogger("EventPublisher")
 logger.setLevel(logging.INFO)
 
+
+def _connect_client(config_file, index, metrics):
+    # Each connection reads its own configuration, and starts on its own
+    # broker when the configuration lists several
+    config = DxlClientConfig.create_dxl_config_from_file(config_file)
+    if index > 0:
+        # Brokers drop an earlier connection with the same client identifier
+        config._client_id = "%s-%d" % (config._client_id, index)
+
+    client = DxlClient(config, metrics=metrics)
+    brokers = list(config.brokers)
+    if index > 0 and len(brokers) > 1:
+        retries = config.connect_retries
+        try:
+            config.brokers = [brokers[index % len(brokers)]]
+            config.connect_retries = 0
+            client.connect()
+            return client
+        except Exception as e:
+            logger.info("Unable to connect to preferred broker, trying all brokers: " + str(e))
+        finally:
+            # Reconnects choose from all brokers again
+            config.brokers = brokers
+            config.connect_retries = retries
+
+    client.connect()
+    return client
+
+
 class EventPublisher(DxlPublisherInterface):
     
     def __init__(self):
         self.client = None
+        # All connections, the first one is also self.client
+        self.clients = []
+        self.connections = 1
+        self.routing = DxlPublishRouting.BY_TOPIC
+        self.next_client = AtomicInteger()
+        self.metrics = None
+        self.connection_manager = None
+        # Configuration file of the shared client, None when not shared
+        self.shared_config_file = None
         
 
     def connect(self, config_file="./dxlclient.config"):
@@ -69,15 +111,37 @@ class EventPublisher(DxlPublisherInterface):
             logger.info("Reading configuration file from '%s'", config_file)
             config = DxlClientConfig.create_dxl_config_from_file(config_file)
 
-            # Initialize DXL client using our configuration
-            self.client = DxlClient(config)
+            if self.connections == 1 and self.connection_manager is not None:
+                # Share the DXL client of the configuration
+                self.client = self.connection_manager.acquire(config_file, lambda: _extension_utils.connect_shared(
+                    DxlClient(config, metrics=self.metrics, shared=True)))
+                self.clients = [self.client]
+                self.shared_config_file = config_file
+                return
 
-            # Connect to DXL Broker
-            self.client.connect()
+            if self.connections == 1:
+                # Initialize DXL client using our configuration
+                self.client = DxlClient(config, metrics=self.metrics)
 
+                # Connect to DXL Broker
+                self.client.connect()
+                self.clients = [self.client]
+                return
+
+            logger.info("Opening %d connections", self.connections)
+            clients = []
+            try:
+                for index in range(self.connections):
+                    clients.append(_connect_client(config_file, index, self.metrics))
+            except Exception:
+                for client in clients:
+                    client.destroy()
+                raise
+            self.clients = clients
+            self.client = clients[0]
             return
         except Exception as e:
-            logger.info("Exception: " + e.message)
+            logger.info("Exception: " + str(e))
             raise DxlJythonException(1000, "Unable to establish a connection with the DXL broker")
         
         
@@ -88,29 +152,112 @@ class EventPublisher(DxlPublisherInterface):
         try:
             event = Event(topic)
 
-            # Encode string payload as UTF-8
-            event.payload = message.encode()
+            # Encode string payload as UTF-8, binary payload is sent as is
+            event.payload = _extension_utils.to_payload(message)
 
             # Send event on DXL
-            logger.info("Sending '" + message + "' to '" + topic + "'")
-            self.client.send_event(event)
+            logger.info("Sending %d bytes to '%s'", len(event.payload), topic)
+            self._route(topic).send_event(event)
+            if self.metrics is not None:
+                self.metrics.recordPublished(1)
 
             return "Event successfully posted to topic '%s'" % topic
 
         except Exception as e:
             logger.info("Exception: " + e.message)
             raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
-        
-        
+
+
+    def sendMessages(self, topics, messages):
+        if not self.isConnected():
+            raise DxlJythonException(1200, "Not connected to a OpenDXL broker")
+
+        # Single topic overload, every message goes to the same topic
+        if isinstance(topics, basestring):
+            topics = [topics] * len(messages)
+        elif len(topics) != len(messages):
+            raise DxlJythonException(1400, "Number of topics does not match number of messages")
+
+        statuses = [False] * len(messages)
+        # Events and their indexes in the batch, per connection
+        batches = {}
+        for index, (topic, message) in enumerate(zip(topics, messages)):
+            if not topic or message is None:
+                continue
+            event = Event(topic)
+            event.payload = _extension_utils.to_payload(message)
+            events, indexes = batches.setdefault(self._route(topic), ([], []))
+            events.append(event)
+            indexes.append(index)
+
+        try:
+            # Send the whole batch on DXL, one call per connection
+            sent_count = 0
+            for client, (events, indexes) in batches.items():
+                logger.info("Sending batch of %d events", len(events))
+                for index, sent in zip(indexes, client.send_events(events)):
+                    statuses[index] = sent
+                    if sent:
+                        sent_count += 1
+            if self.metrics is not None:
+                self.metrics.recordPublished(sent_count)
+
+            return jarray.array(statuses, "z")
+
+        except Exception as e:
+            logger.info("Exception: " + e.message)
+            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+
+
+    def _route(self, topic):
+        clients = self.clients
+        count = len(clients)
+        if count == 1:
+            return clients[0]
+        if self.routing == DxlPublishRouting.BY_TOPIC:
+            # Same topic, same connection, so per topic order is kept
+            return clients[(hash(topic) & 0x7fffffff) % count]
+
+        # Take turns, skipping connections that are reconnecting
+        for _ in range(count):
+            client = clients[(self.next_client.getAndIncrement() & 0x7fffffff) % count]
+            if client.connected:
+                return client
+        return client
+
     def disconnect(self):
+        if self.shared_config_file is not None:
+            # The last object sharing the client destroys it
+            client, config_file = self.client, self.shared_config_file
+            self.client, self.clients, self.shared_config_file = None, [], None
+            _extension_utils.release_client(self.connection_manager, config_file, client)
+            return
+
         if not self.isConnected():
             return
         
-        self.client.disconnect()
+        for client in self.clients:
+            client.disconnect()
+        
+    def setConnections(self, connections, routing):
+        if self.isConnected():
+            raise DxlJythonException(1100, "Already connected to the OpenDXL broker")
+        if connections < 1 or routing is None:
+            raise DxlJythonException(2400, "Number of connections must be positive")
+        self.connections = connections
+        self.routing = routing
+
+    def setMetrics(self, metrics):
+        self.metrics = metrics
+
+    def setConnectionManager(self, connection_manager):
+        self.connection_manager = connection_manager
         
     def isConnected(self):
-        if self.client is None:
-            return False;
-        return self.client.connected
+        # Connected while any connection is, the others reconnect on their own
+        for client in self.clients:
+            if client.connected:
+                return True
+        return False
     
     
\ No newline at end of file
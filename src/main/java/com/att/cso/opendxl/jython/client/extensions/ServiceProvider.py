@@ -29,18 +29,23 @@
 from com.att.cso.opendxl.jython.client.interfaces import DxlProviderInterface
 from com.att.cso.opendxl.jython.client.interfaces import DxlCallbackInterface
 from com.att.cso.opendxl.jython.client import DxlMessage as JavaDxlMessage
+from com.att.cso.opendxl.jython.client import DxlSubscription
 from com.att.cso.opendxl.jython.client.exceptions import DxlJythonException
+from java.lang import System, Throwable
+from java.util.concurrent import CompletionException, Semaphore
+from java.util.function import BiConsumer
 
 import logging
 import os
 import sys
-import time
+import threading
 
 from dxlclient.callbacks import RequestCallback
 from dxlclient.client import DxlClient
 from dxlclient.client_config import DxlClientConfig
-from dxlclient.message import Response
+from dxlclient.message import Response, ErrorResponse
 from dxlclient.service import ServiceRegistrationInfo
+from dxlclient import _extension_utils
 
 # Enable logging, this will also direct built-in DXL log messages.
 # See - https://docs.python.org/2/howto/logging-cookbook.html
@@ -58,88 +63,273 @@ logger.setLevel(logging.WARN)
 logger = logging.getLogger("ServiceProvider")
 logger.setLevel(logging.INFO)
 
+
+def _to_dxl_message(request):
+    # Requests decoded by the native codec are handed over as the lazy Java
+    # view they were received as, fields are only decoded if asked for
+    if request._java_message is not None:
+        request._java_message.setTopic(request.destination_topic)
+        return request._java_message
+
+    dxl_message = JavaDxlMessage()
+    dxl_message.setTopic(request.destination_topic)
+    dxl_message.setMessageVersion(request.version)
+    dxl_message.setMessageId(request.message_id)
+    dxl_message.setClientId(request.source_client_id)
+    dxl_message.setBrokerId(request.source_broker_id)
+    dxl_message.setMessageType(request.message_type)
+    dxl_message.setBrokerIdList(request.broker_ids)
+    dxl_message.setClientIdList(request.client_ids)
+    dxl_message.setReplyTopic(request.reply_to_topic)
+    dxl_message.setServiceId(request.service_id)
+    # The payload is decoded on the Java side only if asked for as a string
+    dxl_message.setPayloadBytes(request.payload)
+    return dxl_message
+
+
+def _to_error_response(request, error):
+    # Failed stages complete with a CompletionException around the cause
+    while isinstance(error, CompletionException) and error.getCause() is not None:
+        error = error.getCause()
+    if isinstance(error, DxlJythonException):
+        return ErrorResponse(request, error.getErrorCode(), error.getMessage() or "")
+    logger.error("Exception %s", error)
+    return ErrorResponse(request, 0, str(error))
+
+
+class MyRequestCallback(RequestCallback):
+    def __init__(self, client, dxl_callback, topic, metrics):
+        self.client = client
+        self.dxlCallback = dxl_callback
+        self.metrics = metrics
+        # Callback durations are recorded under the service topic
+        self.topic_metrics = metrics.getTopicMetrics(topic) if metrics is not None else None
+
+    def on_request(self, request):
+        response = Response(request)
+        if self.metrics is None:
+            resp = self.dxlCallback.callbackEvent(_to_dxl_message(request))
+        else:
+            self.metrics.recordReceived(1)
+            start = System.nanoTime()
+            try:
+                resp = self.dxlCallback.callbackEvent(_to_dxl_message(request))
+            finally:
+                self.topic_metrics.record(System.nanoTime() - start)
+        response.payload = _extension_utils.to_payload(resp)
+        self.client.send_response(response)
+
+
+class MyAsyncRequestCallback(RequestCallback):
+    # Sends the response when the stage returned by the callback completes,
+    # the dispatch thread returns as soon as the callback has been called
+    def __init__(self, client, dxl_callback, topic, in_flight, overload_policy, metrics):
+        self.client = client
+        self.dxlCallback = dxl_callback
+        self.in_flight = in_flight
+        self.overload_policy = overload_policy
+        self.metrics = metrics
+        # Durations until the response is sent are recorded under the service topic
+        self.topic_metrics = metrics.getTopicMetrics(topic) if metrics is not None else None
+
+    def on_request(self, request):
+        if self.metrics is not None:
+            self.metrics.recordReceived(1)
+
+        # Requests over the limit are answered right away instead of waiting
+        if self.in_flight is not None and not self.in_flight.tryAcquire():
+            self.client.send_response(ErrorResponse(request, DxlClient.BUSY_ERROR_CODE, "Service busy"))
+            if self.overload_policy is not None:
+                self.overload_policy.overloaded("busy_response")
+            return
+
+        completion = ResponseCompletion(self, request)
+        try:
+            stage = self.dxlCallback.callbackEvent(_to_dxl_message(request))
+        except (Exception, Throwable) as e:
+            completion.accept(None, e)
+            return
+        if stage is None:
+            completion.accept(None, None)
+        else:
+            stage.whenComplete(completion)
+
+    def send_response(self, request, result, error):
+        try:
+            if error is None:
+                response = Response(request)
+                response.payload = _extension_utils.to_payload(result)
+            else:
+                response = _to_error_response(request, error)
+            self.client.send_response(response)
+        except Exception as e:
+            logger.error("Exception %s", e)
+
+
+class ResponseCompletion(BiConsumer):
+    # Completes a request of an asynchronous callback, Jython does not
+    # coerce Python functions to a BiConsumer
+    def __init__(self, request_callback, request):
+        self.request_callback = request_callback
+        self.request = request
+        self.start = System.nanoTime()
+
+    def accept(self, result, error):
+        callback = self.request_callback
+        # The slot is free once the callback completes, a request sent right
+        # after the response arrives must not find it still taken
+        if callback.in_flight is not None:
+            callback.in_flight.release()
+        if callback.topic_metrics is not None:
+            callback.topic_metrics.record(System.nanoTime() - self.start)
+        callback.send_response(self.request, result, error)
+
+
 class ServiceProvider(DxlProviderInterface):
 
     def __init__(self):
         self.started = False
-        self.loop = True
+        # Not self.dispatcher, Jython would take that for the setDispatcher bean property
+        self._dispatcher = None
+        self.overload_policy = None
+        self.metrics = None
+        self.connection_manager = None
+        self.client = None
+        self.subscription = None
+        self.service = None
+        self.service_registration_info = None
+        self.topic_info = None
+        self.config_file = None
+        self.lock = threading.Lock()
 
     def start(self, config_file="./dxlclient.config", service="/dsa/dxl/test", *args):
-        if self.started:
-            raise DxlJythonException(2000, "Already started")
+        # Block the caller until the service is stopped
+        subscription = self.startAsync(config_file, service, *args)
+        return subscription.getStopFuture().get()
+
+    def startAsync(self, config_file="./dxlclient.config", service="/dsa/dxl/test", *args):
+        with self.lock:
+            if self.started:
+                raise DxlJythonException(2000, "Already started")
 
-        if len(args) == 2:
-            # Topic and callback were specified in separate parameters
-            if not args[1]:
+            # Asynchronous callbacks are followed by the maximum requests in flight
+            max_in_flight = None
+            if len(args) in (2, 3) and isinstance(args[-1], (int, long)):
+                max_in_flight = args[-1]
+                args = args[:-1]
+                if max_in_flight < 0:
+                    raise DxlJythonException(2600, "Maximum requests in flight must not be negative")
+
+            if len(args) == 2:
+                # Topic and callback were specified in separate parameters
+                if not args[1]:
+                    raise DxlJythonException(2100, "DXL callback is required")
+                topic = args[0] or "/dsa/dxl/test/event2"
+                callbacks_by_topic = {topic: args[1]}
+                topic_info = "topic '%s'" % topic
+            elif len(args) == 1:
+                # Topics/callbacks were specified in a map
+                callbacks_by_topic = args[0]
+                topic_info = "topics '%s'" % ",".join(list(callbacks_by_topic.keys()))
+            else:
                 raise DxlJythonException(2100, "DXL callback is required")
-            topic = args[0] or "/dsa/dxl/test/event2"
-            callbacks_by_topic = {topic: args[1]}
-            topic_info = "topic '%s'" % topic
-        elif len(args) == 1:
-            # Topics/callbacks were specified in a map
-            callbacks_by_topic = args[0]
-            topic_info = "topics '%s'" % ",".join(list(callbacks_by_topic.keys()))
-        else:
-            raise DxlJythonException(2100, "DXL callback is required")
 
-        try:
-            logger.info("Starting service '%s' on %s", service, topic_info)
-            logger.info("Reading configuration file from '%s'", config_file)
-            config = DxlClientConfig.create_dxl_config_from_file(config_file)
-              
-            # Initialize DXL client using our configuration
-            with DxlClient(config) as client:
-                # Connect to DXL Broker
-                client.connect()
-
-                class MyRequestCallback(RequestCallback):
-                    def __init__(self, dxl_callback):
-                        self.dxlCallback = dxl_callback
-
-                    def on_request(self, request):
-                        dxl_message = JavaDxlMessage()
-                        dxl_message.setTopic(request.destination_topic)
-                        dxl_message.setMessageVersion(request.version)
-                        dxl_message.setMessageId(request.message_id)
-                        dxl_message.setClientId(request.source_client_id)
-                        dxl_message.setBrokerId(request.source_broker_id)
-                        dxl_message.setMessageType(request.message_type)
-                        dxl_message.setBrokerIdList(request.broker_ids)
-                        dxl_message.setClientIdList(request.client_ids)
-                        dxl_message.setReplyTopic(request.reply_to_topic)
-                        dxl_message.setServiceId(request.service_id)
-                        dxl_message.setPayload(request.payload.decode())
-                        dxl_message.setReplyTopic(request.reply_to_topic)
-                        dxl_message.setServiceId(request.service_id)
-
-                        response = Response(request)
-                        resp = self.dxlCallback.callbackEvent(dxl_message)
-                        response.payload = resp.encode()
-                        client.send_response(response)
+            # The limit applies to all topics of the service
+            if max_in_flight is None:
+                def request_callback(client, dxl_callback, topic):
+                    return MyRequestCallback(client, dxl_callback, topic, self.metrics)
+            else:
+                in_flight = Semaphore(max_in_flight) if max_in_flight > 0 else None
+
+                def request_callback(client, dxl_callback, topic):
+                    return MyAsyncRequestCallback(client, dxl_callback, topic, in_flight,
+                                                  self.overload_policy, self.metrics)
+
+            client = None
+            connection_manager = self.connection_manager
+            try:
+                logger.info("Starting service '%s' on %s", service, topic_info)
+                logger.info("Reading configuration file from '%s'", config_file)
+                config = DxlClientConfig.create_dxl_config_from_file(config_file)
+
+                if connection_manager is None:
+                    # Initialize DXL client using our configuration
+                    client = _extension_utils.create_client(config, self._dispatcher, self.overload_policy, self.metrics, _to_dxl_message)
+
+                    # Connect to DXL Broker
+                    client.connect()
+                else:
+                    # Share the DXL client of the configuration, subscriptions are counted
+                    client = connection_manager.acquire(config_file, self._dispatcher, self.overload_policy, lambda: _extension_utils.connect_shared(
+                        _extension_utils.create_client(config, self._dispatcher, self.overload_policy, self.metrics, _to_dxl_message, True)))
 
                 # Create DXL Service Registration object
                 service_registration_info = ServiceRegistrationInfo(client, str(service))
 
                 # Add topics for the service to respond to
                 service_registration_info.add_topics(
-                    {str(k): MyRequestCallback(v)
+                    {str(k): request_callback(client, v, k)
                      for k, v in callbacks_by_topic.iteritems()})
 
                 # Register the service with the DXL fabric (with a wait up to 10 seconds for registration to complete)
                 client.register_service_sync(service_registration_info, 10)
-                
-                self.started = True
-                while self.loop:
-                    time.sleep(1)
-
-                logger.info("Shutting down service '%s' on %s", service, topic_info)
-                return "Shutting down service provider on %s" % topic_info
-                
-        except Exception as e:
-            logger.error("Exception $s", e.message)
-            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
-        
+
+            except Exception as e:
+                logger.error("Exception %s", e)
+                if client is not None:
+                    _extension_utils.release_client(connection_manager, config_file, client)
+                raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+
+            self.client = client
+            self.service = service
+            self.service_registration_info = service_registration_info
+            self.config_file = config_file
+            self.topic_info = topic_info
+            self.subscription = DxlSubscription(self.stop)
+            self.started = True
+            return self.subscription
+
+    def setDispatcher(self, dispatcher):
+        self._dispatcher = dispatcher
+
+    def setOverloadPolicy(self, overload_policy):
+        self.overload_policy = overload_policy
+
+    def setMetrics(self, metrics):
+        self.metrics = metrics
+
+    def setConnectionManager(self, connection_manager):
+        self.connection_manager = connection_manager
+
     def stop(self):
         logger.info("Stopping service")
-        self.started = False
-        self.loop = False
+        with self.lock:
+            if not self.started:
+                return
+            self.started = False
+            client, self.client = self.client, None
+            subscription, self.subscription = self.subscription, None
+            service, topic_info = self.service, self.topic_info
+            service_registration_info, config_file = self.service_registration_info, self.config_file
+            connection_manager = self.connection_manager
+
+        # Destroying the client waits for running callbacks, so it must not
+        # run on the callback thread that may have called stop
+        def shutdown():
+            try:
+                if connection_manager is None:
+                    client.destroy()
+                else:
+                    # Other objects may still use the client and the topics
+                    try:
+                        client.unregister_service_sync(service_registration_info, 10)
+                    finally:
+                        _extension_utils.release_client(connection_manager, config_file, client)
+            except Exception as e:
+                logger.error("Exception %s", e)
+            logger.info("Shutting down service '%s' on %s", service, topic_info)
+            subscription.stopped("Shutting down service provider on %s" % topic_info)
+
+        thread = threading.Thread(target=shutdown, name="ServiceProviderShutdown")
+        thread.daemon = True
+        thread.start()
@@ -28,16 +28,22 @@
 
 from com.att.cso.opendxl.jython.client.interfaces import DxlRequesterInterface
 from com.att.cso.opendxl.jython.client import DxlMessage as JavaDxlMessage
+from com.att.cso.opendxl.jython.client import DxlScheduler
 from com.att.cso.opendxl.jython.client.exceptions import DxlJythonException
+from java.lang import InterruptedException, System, Thread, Throwable
+from java.util.concurrent import CompletableFuture, ExecutionException, TimeUnit
 
 import logging
 import os
 import sys
+import threading
 
 from dxlclient.callbacks import ResponseCallback
 from dxlclient.client import DxlClient
 from dxlclient.client_config import DxlClientConfig
+from dxlclient.exceptions import WaitTimeoutException
 from dxlclient.message import Message, Request
+from dxlclient import _extension_utils
 
 # Enable logging, this will also direct built-in DXL log messages.
 # See - https://docs.python.org/2/howto/logging-cookbook.html
@@ -56,10 +62,159 @@ logger.setLevel(logging.WARN)
 logger = logging.getLogger("ServiceRequester")
 logger.setLevel(logging.INFO)
 
+
+def _to_dxl_message(response):
+    # Responses decoded by the native codec are handed over as the lazy Java
+    # view they were received as, fields are only decoded if asked for
+    if response._java_message is not None:
+        return response._java_message
+
+    dxl_message = JavaDxlMessage()
+    dxl_message.setMessageVersion(response.version)
+    dxl_message.setMessageId(response.message_id)
+    dxl_message.setClientId(response.source_client_id)
+    dxl_message.setBrokerId(response.source_broker_id)
+    dxl_message.setMessageType(response.message_type)
+    dxl_message.setBrokerIdList(response.broker_ids)
+    dxl_message.setClientIdList(response.client_ids)
+    dxl_message.setRequestMessageId(response.request_message_id)
+        
+    # Check that the Response is not an Error Response, then extract
+    if response.message_type != Message.MESSAGE_TYPE_ERROR:
+        dxl_message.setServiceId(response.service_id)
+        # The payload is decoded on the Java side only if asked for as a string
+        dxl_message.setPayloadBytes(response.payload)
+    else:
+        dxl_message.setErrorCode(str(response.error_code))
+        dxl_message.setErrorMessage(response.error_message)
+        
+    return dxl_message
+
+
+class FutureResponseCallback(ResponseCallback):
+    # Completes the Java future handed out by sendMessageAsync when the
+    # response to the asynchronous request arrives
+    
+    def __init__(self, future, metrics):
+        super(FutureResponseCallback, self).__init__()
+        self.future = future
+        self.timeout_task = None
+        self.metrics = metrics
+        self.start = System.nanoTime()
+        
+    def on_response(self, response):
+        if self.timeout_task is not None:
+            self.timeout_task.cancel(False)
+        if self.metrics is not None:
+            self.metrics.recordRequest(System.nanoTime() - self.start)
+        try:
+            self.future.complete(_to_dxl_message(response))
+        except Exception as e:
+            logger.info("Exception: " + str(e))
+            self.future.completeExceptionally(DxlJythonException(1010, "Unable to process the DXL response"))
+
+
+class HedgeResponseCallback(ResponseCallback):
+    # Hands the response to one of the copies of a hedged request to the
+    # request, remembering when the copy was sent
+
+    def __init__(self, hedged_request, hedge):
+        super(HedgeResponseCallback, self).__init__()
+        self.hedged_request = hedged_request
+        self.hedge = hedge
+        self.start = System.nanoTime()
+
+    def on_response(self, response):
+        self.hedged_request.on_response(response, self)
+
+
+class HedgedRequest(object):
+    # A request and its hedge share the Java future, the first response
+    # completes it and the other copy is cancelled in the request manager,
+    # so its response is ignored when it arrives
+
+    def __init__(self, client, topic, payload, future, hedge_policy, metrics):
+        self.client = client
+        self.topic = topic
+        self.payload = payload
+        self.future = future
+        self.hedge_policy = hedge_policy
+        self.metrics = metrics
+        self.start = System.nanoTime()
+        self.message_ids = []
+        self.hedge_task = None
+        self.timeout_task = None
+        self.lock = threading.Lock()
+
+    def send(self, hedge):
+        request = Request(self.topic)
+        request.payload = self.payload
+        with self.lock:
+            if self.future.isDone():
+                return
+            self.message_ids.append(request.message_id)
+        self.client.async_request(request, HedgeResponseCallback(self, hedge))
+        # The other copy may have been answered while this one was sent
+        if self.future.isDone():
+            self.client._cancel_async_request(request.message_id)
+
+    def hedge(self):
+        if self.future.isDone() or not self.hedge_policy.tryHedge():
+            return
+        try:
+            self.send(True)
+        except Exception as e:
+            logger.info("Exception: " + str(e))
+
+    def on_response(self, response, callback):
+        elapsed = System.nanoTime() - callback.start
+        try:
+            completed = self.future.complete(_to_dxl_message(response))
+        except Exception as e:
+            logger.info("Exception: " + str(e))
+            completed = self.future.completeExceptionally(
+                DxlJythonException(1010, "Unable to process the DXL response"))
+        if not completed:
+            return
+        self.finish(response.request_message_id)
+        self.hedge_policy.recordResponse(elapsed, callback.hedge)
+        if self.metrics is not None:
+            self.metrics.recordRequest(System.nanoTime() - self.start)
+
+    def expire(self):
+        if self.future.completeExceptionally(
+                DxlJythonException(1300, "Timeout waiting for a response from the DXL fabric")):
+            self.finish(None)
+            if self.metrics is not None:
+                self.metrics.recordRequestTimeout()
+
+    def finish(self, winner_id):
+        self.cancel_tasks()
+        with self.lock:
+            losers = [message_id for message_id in self.message_ids if message_id != winner_id]
+        for message_id in losers:
+            self.client._cancel_async_request(message_id)
+
+    def cancel_tasks(self):
+        if self.hedge_task is not None:
+            self.hedge_task.cancel(False)
+        if self.timeout_task is not None:
+            self.timeout_task.cancel(False)
+
+
 class ServiceRequester(DxlRequesterInterface):
 
     def __init__(self):
         self.client = None
+        # Not self.dispatcher, Jython would take that for the setDispatcher bean property
+        self._dispatcher = None
+        self.metrics = None
+        self.connection_manager = None
+        # Not self.response_cache, Jython would take that for the setResponseCache bean property
+        self._response_cache = None
+        self._hedge_policy = None
+        # Configuration file of the shared client, None when not shared
+        self.shared_config_file = None
 
     def connect(self, config_file="./dxlclient.config"):
         if self.isConnected():
@@ -69,8 +224,15 @@ class ServiceRequester(DxlRequesterInterface):
             logger.info("Reading configuration file from '%s'", config_file)
             config = DxlClientConfig.create_dxl_config_from_file(config_file)
 
+            if self.connection_manager is not None:
+                # Share the DXL client of the configuration
+                self.client = self.connection_manager.acquire(config_file, self._dispatcher, None, lambda: _extension_utils.connect_shared(
+                    DxlClient(config, self._dispatcher, metrics=self.metrics, shared=True)))
+                self.shared_config_file = config_file
+                return
+
             # Initialize DXL client using our configuration
-            self.client = DxlClient(config)
+            self.client = DxlClient(config, self._dispatcher, metrics=self.metrics)
 
             # Connect to DXL Broker
             self.client.connect()
@@ -81,51 +243,183 @@ class ServiceRequester(DxlRequesterInterface):
             raise DxlJythonException(1000, "Unable to establish a connection with the DXL broker")
         
         
-    def sendMessage(self, topic="/dsa/dxl/test/event2", message="Default message"):
+    def sendMessage(self, topic="/dsa/dxl/test/event2", message="Default message", timeout=None, unit=None):
         if not self.isConnected():
             raise DxlJythonException(1200, "Not connected to a OpenDXL broker")
         
+        if self._response_cache is not None or self._hedge_policy is not None:
+            # Cached and hedged requests are sent asynchronously
+            return self._send_and_wait(topic, message, timeout, unit)
+        
+        if timeout is None:
+            wait = DxlClient._DEFAULT_WAIT
+        else:
+            wait = unit.toMillis(timeout) / 1000.0
+        
         try:
             request = Request(topic)
 
-            # Encode string payload as UTF-8
-            request.payload = message.encode()
-
-            # Send Synchronous Request with default timeout and wait for Response
-            logger.info("Requesting '" + message + "' from '" + topic + "'")
-            response = self.client.sync_request(request)
-
-            dxl_message = JavaDxlMessage()
-            dxl_message.setMessageVersion(response.version)
-            dxl_message.setMessageId(response.message_id)
-            dxl_message.setClientId(response.source_client_id)
-            dxl_message.setBrokerId(response.source_broker_id)
-            dxl_message.setMessageType(response.message_type)
-            dxl_message.setBrokerIdList(response.broker_ids)
-            dxl_message.setClientIdList(response.client_ids)
-            dxl_message.setRequestMessageId(response.request_message_id)
-                
-            # Check that the Response is not an Error Response, then extract
-            if response.message_type != Message.MESSAGE_TYPE_ERROR:
-                dxl_message.setServiceId(response.service_id)
-                dxl_message.setPayload(response.payload.decode())
-            else:
-                dxl_message.setErrorCode(response.error_code)
-                dxl_message.setErrorMessage(response.error_message)
+            # Encode string payload as UTF-8, binary payload is sent as is
+            request.payload = _extension_utils.to_payload(message)
+
+            # Send Synchronous Request and wait for Response
+            logger.info("Requesting %d bytes from '%s'", len(request.payload), topic)
+            start = System.nanoTime()
+            response = self.client.sync_request(request, wait)
+            if self.metrics is not None:
+                self.metrics.recordRequest(System.nanoTime() - start)
+
+            return _to_dxl_message(response)
+            
+        except WaitTimeoutException as e:
+            if self.metrics is not None:
+                self.metrics.recordRequestTimeout()
+            logger.info("Exception: " + str(e))
+            if timeout is not None:
+                raise DxlJythonException(1300, "Timeout waiting for a response from the DXL fabric")
+            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+        except Exception as e:
+            logger.info("Exception: " + e.message)
+            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+        
+        
+    def _send_and_wait(self, topic, message, timeout, unit):
+        # Failures are reported with the same error codes as a plain request
+        logger.info("Requesting %d bytes from '%s'", len(_extension_utils.to_payload(message)), topic)
+        try:
+            return self.sendMessageAsync(topic, message, timeout, unit).get()
+        except ExecutionException as e:
+            cause = e.getCause()
+            if not isinstance(cause, DxlJythonException):
+                raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+            if cause.getErrorCode() == 1300 and timeout is None:
+                raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+            raise cause
+        except DxlJythonException:
+            raise
+        except (Exception, Throwable) as e:
+            logger.info("Exception: " + str(e))
+            if isinstance(e, InterruptedException):
+                Thread.currentThread().interrupt()
+            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+        
+        
+    def sendMessageAsync(self, topic="/dsa/dxl/test/event2", message="Default message", timeout=None, unit=None):
+        if not self.isConnected():
+            raise DxlJythonException(1200, "Not connected to a OpenDXL broker")
+        
+        if timeout is None:
+            timeout_ms = DxlClient._DEFAULT_WAIT * 1000
+        else:
+            timeout_ms = unit.toMillis(timeout)
+        
+        # Encode string payload as UTF-8, binary payload is sent as is
+        payload = _extension_utils.to_payload(message)
+        if self._response_cache is not None:
+            return self._send_cached(topic, payload, timeout_ms)
+        return self._send_async(topic, payload, timeout_ms)
+            
+            
+    def _send_cached(self, topic, payload, timeout_ms):
+        # Identical requests in flight share the request sent by the first, each
+        # caller still waits no longer than its own timeout
+        def load():
+            try:
+                return self._send_async(topic, payload, timeout_ms)
+            except DxlJythonException as e:
+                future = CompletableFuture()
+                future.completeExceptionally(e)
+                return future
+        return self._response_cache.get(topic, payload, timeout_ms, TimeUnit.MILLISECONDS, load)
+            
+            
+    def _send_async(self, topic, payload, timeout_ms):
+        if self._hedge_policy is not None:
+            return self._send_hedged(topic, payload, timeout_ms, self._hedge_policy)
+        
+        try:
+            request = Request(topic)
+            request.payload = payload
+
+            # Send Asynchronous Request, the callback completes the future
+            future = CompletableFuture()
+            callback = FutureResponseCallback(future, self.metrics)
+            self.client.async_request(request, callback)
+            
+            # Expire the request if the response does not arrive in time
+            message_id = request.message_id
+            callback.timeout_task = DxlScheduler.schedule(
+                lambda: self._expire_request(message_id, future), timeout_ms)
+            if future.isDone():
+                callback.timeout_task.cancel(False)
                 
-            return dxl_message
+            return future
             
         except Exception as e:
             logger.info("Exception: " + e.message)
             raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+            
+            
+    def _send_hedged(self, topic, payload, timeout_ms, hedge_policy):
+        try:
+            future = CompletableFuture()
+            hedged_request = HedgedRequest(self.client, topic, payload, future, hedge_policy, self.metrics)
+            hedge_policy.recordRequest()
+            hedged_request.send(False)
+            
+            # Hedge the request if it is not answered in time, expire both copies at the timeout.
+            # The hedge is sent on a worker thread, sending on the timer would hold up every
+            # timeout in the JVM
+            delay_ms = (hedge_policy.getDelay(TimeUnit.MICROSECONDS) + 999) // 1000
+            if delay_ms < timeout_ms:
+                hedged_request.hedge_task = DxlScheduler.scheduleAsync(hedged_request.hedge, delay_ms)
+            hedged_request.timeout_task = DxlScheduler.schedule(hedged_request.expire, timeout_ms)
+            if future.isDone():
+                hedged_request.cancel_tasks()
+                
+            return future
+            
+        except Exception as e:
+            logger.info("Exception: " + str(e))
+            raise DxlJythonException(1010, "Unable to communicate with a DXL broker")
+            
+            
+    def _expire_request(self, message_id, future):
+        client = self.client
+        if client is None or client._cancel_async_request(message_id) is not None:
+            if self.metrics is not None:
+                self.metrics.recordRequestTimeout()
+            future.completeExceptionally(DxlJythonException(1300, "Timeout waiting for a response from the DXL fabric"))
         
         
     def disconnect(self):
+        if self.shared_config_file is not None:
+            # The last object sharing the client destroys it
+            client, config_file = self.client, self.shared_config_file
+            self.client, self.shared_config_file = None, None
+            _extension_utils.release_client(self.connection_manager, config_file, client)
+            return
+
         if not self.isConnected():
             return
         
         self.client.disconnect()
         
+    def setDispatcher(self, dispatcher):
+        self._dispatcher = dispatcher
+
+    def setMetrics(self, metrics):
+        self.metrics = metrics
+
+    def setConnectionManager(self, connection_manager):
+        self.connection_manager = connection_manager
+
+    def setResponseCache(self, response_cache):
+        self._response_cache = response_cache
+
+    def setHedgePolicy(self, hedge_policy):
+        self._hedge_policy = hedge_policy
+
     def isConnected(self):
         if self.client is None:
             return False;
@@ -0,0 +1,57 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.interfaces;
+
+import java.util.concurrent.CompletionStage;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+
+/**
+ * Callback interface for providers answering requests asynchronously, e.g.
+ * after a call to a downstream service.  The callback returns right away 
+ * and the response is sent when the returned stage completes, so the
+ * dispatch thread is free to handle other requests in the meantime.
+ */
+public interface DxlAsyncCallbackInterface {
+	
+	/**
+	 * The callback event that will be called when a request is received on
+	 * the DXL fabric.  The stage completes with the payload of the response,
+	 * a String sent as UTF-8, a byte[] sent as is, or null for an empty
+	 * payload.  An error response is sent when the stage completes 
+	 * exceptionally, with the error code of a DxlJythonException or 0 for 
+	 * other exceptions.
+	 * 
+	 * @param message DxlMessage object containing the key data about the request and payload
+	 * @return Stage completed with the payload of the response
+	 */
+	public CompletionStage<?> callbackEvent(DxlMessage message);
+}
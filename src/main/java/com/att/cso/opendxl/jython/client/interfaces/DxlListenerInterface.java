@@ -30,6 +30,11 @@
 
 package com.att.cso.opendxl.jython.client.interfaces;
 
+import java.util.concurrent.TimeUnit;
+
+import com.att.cso.opendxl.jython.client.DxlDispatcher;
+import com.att.cso.opendxl.jython.client.DxlOverloadPolicy;
+import com.att.cso.opendxl.jython.client.DxlSubscription;
 import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
 
 /**
@@ -52,6 +57,69 @@ public interface DxlListenerInterface {
 	 */
 	public String start(String configFile, String topic, DxlCallbackInterface dxlCallback) throws DxlJythonException;
 	
+	/** 
+	 * Start the event listener without blocking.  The method returns once
+	 * the subscription to the topic is confirmed by the broker.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation to process message payload
+	 * @return handle that stops the listener when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and start a listener
+	 */
+	public DxlSubscription startAsync(String configFile, String topic, DxlCallbackInterface dxlCallback) throws DxlJythonException;
+	
+	/** 
+	 * Provider start method to run the event listener delivering messages in
+	 * batches, method does not return until the listener is stopped.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation to process batches of messages
+	 * @param maxBatchSize maximum number of messages in a batch
+	 * @param maxLatency maximum time a message waits for its batch to fill up
+	 * @param unit unit of the maximum latency
+	 * @return message that indicates reason for exiting the implementer
+	 * @throws DxlJythonException Thrown when unable to create a connection and start a listener
+	 */
+	public String start(String configFile, String topic, DxlBatchCallbackInterface dxlCallback, 
+			int maxBatchSize, long maxLatency, TimeUnit unit) throws DxlJythonException;
+	
+	/** 
+	 * Start the event listener delivering messages in batches without 
+	 * blocking.  The method returns once the subscription to the topic is
+	 * confirmed by the broker.  Messages still pending when the listener is
+	 * stopped are delivered before the stop completes.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation to process batches of messages
+	 * @param maxBatchSize maximum number of messages in a batch
+	 * @param maxLatency maximum time a message waits for its batch to fill up
+	 * @param unit unit of the maximum latency
+	 * @return handle that stops the listener when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and start a listener
+	 */
+	public DxlSubscription startAsync(String configFile, String topic, DxlBatchCallbackInterface dxlCallback,
+			int maxBatchSize, long maxLatency, TimeUnit unit) throws DxlJythonException;
+	
+	/**
+	 * Hand messages received by this listener to a Java executor instead of
+	 * the Python thread pool of the DXL client.  Must be called before start,
+	 * overrides the dispatcher set on the JythonFactory.
+	 * 
+	 * @param dispatcher DxlDispatcher to use, null for the Python thread pool
+	 */
+	public void setDispatcher(DxlDispatcher dispatcher);
+	
+	/**
+	 * Set what happens to received messages when the callbacks fall behind
+	 * and the incoming message queue is full.  Must be called before start.
+	 * 
+	 * @param overloadPolicy DxlOverloadPolicy to use, null to block as before
+	 */
+	public void setOverloadPolicy(DxlOverloadPolicy overloadPolicy);
+	
 	/**
 	 * Stop the listener and destroy the connection to the DXL fabric
 	 */
@@ -30,6 +30,9 @@
 
 package com.att.cso.opendxl.jython.client.interfaces;
 
+import com.att.cso.opendxl.jython.client.DxlDispatcher;
+import com.att.cso.opendxl.jython.client.DxlOverloadPolicy;
+import com.att.cso.opendxl.jython.client.DxlSubscription;
 import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
 
 import java.util.Map;
@@ -65,6 +68,106 @@ public interface DxlProviderInterface {
 	 */
 	public String start(String configFile, String service, Map<String, DxlCallbackInterface> dxlCallbacksByTopic) throws DxlJythonException;
 
+	/**
+	 * Start the service without blocking.  The method returns once the 
+	 * service registration is confirmed by the fabric.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation to process message payload
+	 * @return handle that stops the service when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and register the service
+	 */
+	public DxlSubscription startAsync(String configFile, String service, String topic, DxlCallbackInterface dxlCallback) throws DxlJythonException;
+
+	/**
+	 * Start the service without blocking.  The method returns once the 
+	 * service registration is confirmed by the fabric.
+	 *
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param dxlCallbacksByTopic map of topic names ("/my/service/foo/bar") to corresponding java callback implementations to process message payload
+	 * @return handle that stops the service when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and register the service
+	 */
+	public DxlSubscription startAsync(String configFile, String service, Map<String, DxlCallbackInterface> dxlCallbacksByTopic) throws DxlJythonException;
+
+	/**
+	 * Provider start method to run a service answering requests asynchronously.
+	 * Requests received while maxInFlight responses are pending are answered
+	 * with a "busy" error response.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation returning the response payload asynchronously
+	 * @param maxInFlight maximum number of pending responses for the service, 0 for no limit
+	 * @return message that indicates reason for exiting the implementer
+	 * @throws DxlJythonException Thrown when unable to create a connection and start a listener,
+	 *         with error code 2600 when maxInFlight is negative
+	 */
+	public String start(String configFile, String service, String topic, DxlAsyncCallbackInterface dxlCallback, int maxInFlight) throws DxlJythonException;
+
+	/**
+	 * Provider start method to run a service answering requests asynchronously
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param dxlCallbacksByTopic map of topic names ("/my/service/foo/bar") to corresponding asynchronous java callback implementations
+	 * @param maxInFlight maximum number of pending responses for the service, 0 for no limit
+	 * @return message that indicates reason for exiting the implementer
+	 * @throws DxlJythonException Thrown when unable to create a connection and start a listener,
+	 *         with error code 2600 when maxInFlight is negative
+	 */
+	public String start(String configFile, String service, Map<String, DxlAsyncCallbackInterface> dxlCallbacksByTopic, int maxInFlight) throws DxlJythonException;
+
+	/**
+	 * Start a service answering requests asynchronously without blocking.
+	 * Requests received while maxInFlight responses are pending are answered
+	 * with a "busy" error response.
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param topic topic name ("/my/service/foo/bar")
+	 * @param dxlCallback java callback implementation returning the response payload asynchronously
+	 * @param maxInFlight maximum number of pending responses for the service, 0 for no limit
+	 * @return handle that stops the service when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and register the service,
+	 *         with error code 2600 when maxInFlight is negative
+	 */
+	public DxlSubscription startAsync(String configFile, String service, String topic, DxlAsyncCallbackInterface dxlCallback, int maxInFlight) throws DxlJythonException;
+
+	/**
+	 * Start a service answering requests asynchronously without blocking
+	 * 
+	 * @param configFile location of the dxlclient.config file
+	 * @param service service name ("/my/service/foo")
+	 * @param dxlCallbacksByTopic map of topic names ("/my/service/foo/bar") to corresponding asynchronous java callback implementations
+	 * @param maxInFlight maximum number of pending responses for the service, 0 for no limit
+	 * @return handle that stops the service when closed
+	 * @throws DxlJythonException Thrown when unable to create a connection and register the service,
+	 *         with error code 2600 when maxInFlight is negative
+	 */
+	public DxlSubscription startAsync(String configFile, String service, Map<String, DxlAsyncCallbackInterface> dxlCallbacksByTopic, int maxInFlight) throws DxlJythonException;
+
+	/**
+	 * Hand messages received by this provider to a Java executor instead of
+	 * the Python thread pool of the DXL client.  Must be called before start,
+	 * overrides the dispatcher set on the JythonFactory.
+	 * 
+	 * @param dispatcher DxlDispatcher to use, null for the Python thread pool
+	 */
+	public void setDispatcher(DxlDispatcher dispatcher);
+	
+	/**
+	 * Set what happens to received messages when the callbacks fall behind
+	 * and the incoming message queue is full.  Must be called before start.
+	 * 
+	 * @param overloadPolicy DxlOverloadPolicy to use, null to block as before
+	 */
+	public void setOverloadPolicy(DxlOverloadPolicy overloadPolicy);
+	
 	/**
 	 * Stop the executing service
 	 */
@@ -30,6 +30,9 @@
 
 package com.att.cso.opendxl.jython.client.interfaces;
 
+import java.util.List;
+
+import com.att.cso.opendxl.jython.client.DxlPublishRouting;
 import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
 
 /**
@@ -63,6 +66,18 @@ public interface DxlPublisherInterface {
 	 */
 	public boolean isConnected();
 	
+	/**
+	 * Publish over several connections to the DXL fabric, each with its own
+	 * socket and network thread.  The connections are made from the same 
+	 * configuration file and start on different brokers of its broker list
+	 * when it has more than one.  Must be called before connect.
+	 * 
+	 * @param connections number of connections, 1 for a single connection
+	 * @param routing how messages are spread over the connections
+	 * @throws DxlJythonException Thrown when connected or the number of connections is not positive
+	 */
+	public void setConnections(int connections, DxlPublishRouting routing) throws DxlJythonException;
+	
 	/**
 	 * Send a message to the DXL fabric using the topic supplied
 	 * 
@@ -72,4 +87,38 @@ public interface DxlPublisherInterface {
 	 * @throws DxlJythonException Thrown when there is an issue with sending data
 	 */
 	public String sendMessage(String topic, String message) throws DxlJythonException;
+	
+	/**
+	 * Send a binary message to the DXL fabric using the topic supplied.  The
+	 * bytes are sent as is, without any character encoding.
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @return String indicating the state of the sent message
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public String sendMessage(String topic, byte[] message) throws DxlJythonException;
+
+	/**
+	 * Send a batch of messages to the DXL fabric on a single topic. The whole
+	 * batch is handed to the Python client in one call and published in order.
+	 *
+	 * @param topic DXL topic to be used to transmit the messages
+	 * @param messages DXL payloads to be sent on the fabric
+	 * @return Per-message status, true if the message was handed to the broker
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public boolean[] sendMessages(String topic, List<String> messages) throws DxlJythonException;
+
+	/**
+	 * Send a batch of messages to the DXL fabric, each on its own topic. The
+	 * topic at a given index is used for the message at the same index.
+	 *
+	 * @param topics DXL topics to be used to transmit the messages
+	 * @param messages DXL payloads to be sent on the fabric
+	 * @return Per-message status, true if the message was handed to the broker
+	 * @throws DxlJythonException Thrown when the lists differ in size or there
+	 *         is an issue with sending data
+	 */
+	public boolean[] sendMessages(List<String> topics, List<String> messages) throws DxlJythonException;
 }
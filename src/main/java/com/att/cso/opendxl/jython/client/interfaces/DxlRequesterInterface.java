@@ -30,7 +30,13 @@
 
 package com.att.cso.opendxl.jython.client.interfaces;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.att.cso.opendxl.jython.client.DxlDispatcher;
+import com.att.cso.opendxl.jython.client.DxlHedgePolicy;
 import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.DxlResponseCache;
 import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
 
 /**
@@ -64,6 +70,35 @@ public interface DxlRequesterInterface {
 	 */
 	public boolean isConnected();
 	
+	/**
+	 * Hand responses received by this requester to a Java executor instead of
+	 * the Python thread pool of the DXL client.  Must be called before connect,
+	 * overrides the dispatcher set on the JythonFactory.
+	 * 
+	 * @param dispatcher DxlDispatcher to use, null for the Python thread pool
+	 */
+	public void setDispatcher(DxlDispatcher dispatcher);
+	
+	/**
+	 * Answer repeated requests from a cache of responses, and send identical
+	 * requests in flight at the same time only once.  Only set a cache for
+	 * idempotent requests.  When a cache is set a request that times out 
+	 * fails with error code 1300.
+	 * 
+	 * @param responseCache DxlResponseCache to use, null to send every request
+	 */
+	public void setResponseCache(DxlResponseCache responseCache);
+	
+	/**
+	 * Send a copy of requests that are not answered after the delay of the
+	 * policy, the first response wins.  Only set a policy for idempotent
+	 * requests.  When a policy is set a request that times out fails with
+	 * error code 1300.
+	 * 
+	 * @param hedgePolicy DxlHedgePolicy to use, null to send every request once
+	 */
+	public void setHedgePolicy(DxlHedgePolicy hedgePolicy);
+	
 	/**
 	 * Send a message to the DXL fabric using the topic supplied
 	 * 
@@ -73,4 +108,96 @@ public interface DxlRequesterInterface {
 	 * @throws DxlJythonException Thrown when there is an issue with sending data
 	 */
 	public DxlMessage sendMessage(String topic, String message) throws DxlJythonException;
+	
+	/**
+	 * Send a binary message to the DXL fabric using the topic supplied.  The
+	 * bytes are sent as is, without any character encoding.
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @return DxlMessage containing the response
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public DxlMessage sendMessage(String topic, byte[] message) throws DxlJythonException;
+	
+	/**
+	 * Send a message to the DXL fabric using the topic supplied, waiting at
+	 * most the timeout for the response
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @param timeout maximum time to wait for the response
+	 * @param unit unit of the timeout
+	 * @return DxlMessage containing the response
+	 * @throws DxlJythonException Thrown when there is an issue with sending data,
+	 *         with error code 1300 when no response arrives in time
+	 */
+	public DxlMessage sendMessage(String topic, String message, long timeout, TimeUnit unit) throws DxlJythonException;
+	
+	/**
+	 * Send a binary message to the DXL fabric using the topic supplied, 
+	 * waiting at most the timeout for the response
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @param timeout maximum time to wait for the response
+	 * @param unit unit of the timeout
+	 * @return DxlMessage containing the response
+	 * @throws DxlJythonException Thrown when there is an issue with sending data,
+	 *         with error code 1300 when no response arrives in time
+	 */
+	public DxlMessage sendMessage(String topic, byte[] message, long timeout, TimeUnit unit) throws DxlJythonException;
+	
+	/**
+	 * Send a message to the DXL fabric without waiting for the response.  The
+	 * returned future completes with the response (or error response) using
+	 * the default request timeout of the DXL client.
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @return Future completed with the response, or exceptionally with a
+	 *         DxlJythonException when no response arrives in time
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public CompletableFuture<DxlMessage> sendMessageAsync(String topic, String message) throws DxlJythonException;
+	
+	/**
+	 * Send a message to the DXL fabric without waiting for the response.  
+	 * The future is completed on a DXL client thread, dependent stages that
+	 * do heavy work should use the *Async variants of CompletableFuture.
+	 * 
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @param timeout maximum time to wait for the response
+	 * @param unit unit of the timeout
+	 * @return Future completed with the response, or exceptionally with a
+	 *         DxlJythonException when no response arrives in time
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public CompletableFuture<DxlMessage> sendMessageAsync(String topic, String message, long timeout, TimeUnit unit) throws DxlJythonException;
+	
+	/**
+	 * Send a binary message to the DXL fabric without waiting for the response,
+	 * using the default request timeout of the DXL client.
+	 *
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @return Future completed with the response, or exceptionally with a
+	 *         DxlJythonException when no response arrives in time
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public CompletableFuture<DxlMessage> sendMessageAsync(String topic, byte[] message) throws DxlJythonException;
+
+	/**
+	 * Send a binary message to the DXL fabric without waiting for the response.
+	 *
+	 * @param topic DXL topic to be used to transmit the message
+	 * @param message DXL payload to be sent on the fabric
+	 * @param timeout maximum time to wait for the response
+	 * @param unit unit of the timeout
+	 * @return Future completed with the response, or exceptionally with a
+	 *         DxlJythonException when no response arrives in time
+	 * @throws DxlJythonException Thrown when there is an issue with sending data
+	 */
+	public CompletableFuture<DxlMessage> sendMessageAsync(String topic, byte[] message, long timeout, TimeUnit unit) throws DxlJythonException;
 }
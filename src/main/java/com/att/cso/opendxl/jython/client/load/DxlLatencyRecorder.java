@@ -0,0 +1,110 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.att.cso.opendxl.jython.client.metrics.DxlHistogram;
+
+/**
+ * Latencies of the messages sent by the load generator.  Every latency is 
+ * recorded twice: from the time the schedule intended the message to be 
+ * sent, and from the time it was actually sent.  When the sender falls 
+ * behind, the messages that should have gone out meanwhile wait too, which
+ * only the latency from the intended time shows.  Measuring from the actual
+ * send time hides that wait (coordinated omission), it is reported next to
+ * the corrected latency to show how much is hidden.
+ */
+class DxlLatencyRecorder {
+	
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+	
+	private final DxlHistogram corrected = new DxlHistogram();
+	private final DxlHistogram uncorrected = new DxlHistogram();
+	private final LongAdder errors = new LongAdder();
+	
+	/**
+	 * Record the latency of a message
+	 * 
+	 * @param intended System.nanoTime() the schedule intended to send the message at
+	 * @param sent System.nanoTime() the message was sent at
+	 * @param done System.nanoTime() the message was received or answered at
+	 */
+	void record(long intended, long sent, long done) {
+		corrected.record(done - intended);
+		uncorrected.record(done - sent);
+	}
+	
+	/**
+	 * Count a message that failed or was answered with an error.  The time
+	 * until it failed still counts in the latency from the intended send 
+	 * time, leaving it out would hide the slowest messages, which are the 
+	 * ones most likely to time out.
+	 * 
+	 * @param intended System.nanoTime() the schedule intended to send the message at
+	 * @param done System.nanoTime() the message failed or timed out at
+	 */
+	void error(long intended, long done) {
+		corrected.record(done - intended);
+		errors.increment();
+	}
+	
+	long getCount() {
+		return corrected.getCount();
+	}
+	
+	long getErrors() {
+		return errors.sum();
+	}
+	
+	/**
+	 * Print the percentiles of both latencies in microseconds
+	 * 
+	 * @param out Stream to print to
+	 * @param title What the latency is of
+	 */
+	void print(PrintStream out, String title) {
+		out.printf("%-28s %10s", title + " (us)", "mean");
+		for (double percentile : PERCENTILES)
+			out.printf(" %10s", "p" + (percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile)));
+		out.printf(" %10s%n", "max");
+		print(out, "  from intended send time", corrected);
+		print(out, "  from actual send time", uncorrected);
+	}
+	
+	private static void print(PrintStream out, String label, DxlHistogram histogram) {
+		out.printf("%-28s %10.0f", label, histogram.getMean() / 1000);
+		for (double percentile : PERCENTILES)
+			out.printf(" %10d", histogram.getPercentile(percentile) / 1000);
+		out.printf(" %10d%n", histogram.getMax() / 1000);
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongUnaryOperator;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.DxlPublishRouting;
+import com.att.cso.opendxl.jython.client.DxlSubscription;
+import com.att.cso.opendxl.jython.client.JythonFactory;
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+import com.att.cso.opendxl.jython.client.interfaces.DxlCallbackInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlListenerInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlProviderInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlRequesterInterface;
+
+/**
+ * Fixed rate load generator for capacity planning.  Messages are sent on
+ * a schedule set before the run (open loop), a slow broker or service does
+ * not slow the sender down, and latencies are measured from the time the 
+ * schedule intended each message to be sent, so they include the time a 
+ * message waited behind a late sender.
+ * <p>
+ * Modes:
+ * <ul>
+ * <li>events: publishes events that listeners of this process receive, 
+ * the latency is from sending to delivery</li>
+ * <li>requests: sends asynchronous requests to an echo provider of this
+ * process, or to a service of the fabric, the latency is to the response</li>
+ * <li>record: captures the events of the fabric matching a topic to a file</li>
+ * <li>replay: publishes a captured file with its original timing, sped up
+ * or slowed down, the latency is the time to publish</li>
+ * </ul>
+ * Without a configuration file the load goes to a loopback broker in this
+ * process.
+ * 
+ *    java -cp opendxl.jython.client.jar:&lt;jython&gt;:&lt;slf4j&gt; \
+ *       com.att.cso.opendxl.jython.client.load.DxlLoadGenerator --rate=2000 --topics=10
+ */
+public class DxlLoadGenerator {
+	
+	/** Size of the send times at the start of generated payloads */
+	static final int TIMESTAMPS_SIZE = 16;
+	
+	// Sending starts shortly after scheduling so all sender threads are ready
+	private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	
+	private final DxlLoadOptions options;
+	private final JythonFactory factory;
+	private final String configFile;
+	private final DxlLatencyRecorder recorder = new DxlLatencyRecorder();
+	
+	/**
+	 * Sends the message with an index of the schedule
+	 */
+	private interface Sender {
+		void send(int index, long intended) throws Exception;
+	}
+	
+	DxlLoadGenerator(DxlLoadOptions options, JythonFactory factory, String configFile) {
+		this.options = options;
+		this.factory = factory;
+		this.configFile = configFile;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if (Arrays.asList(args).contains("--help")) {
+			System.out.println(DxlLoadOptions.USAGE);
+			return;
+		}
+		
+		DxlLoadOptions options = null;
+		try {
+			options = DxlLoadOptions.parse(args);
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			System.err.println(DxlLoadOptions.USAGE);
+			System.exit(2);
+		}
+		
+		DxlLoopbackBroker broker = null;
+		String configFile = options.config;
+		if (configFile == null) {
+			String certs = options.certs + File.separator;
+			broker = DxlLoopbackBroker.create(certs + "ca.crt", certs + "broker.crt", certs + "broker.key");
+			File config = File.createTempFile("dxlclient", ".config");
+			config.deleteOnExit();
+			broker.writeConfig(config, certs + "ca.crt", certs + "client.crt", certs + "client.key",
+					Collections.singletonMap("MqttTransport", options.transport));
+			configFile = config.getPath();
+		}
+		
+		JythonFactory factory = JythonFactory.getInstance();
+		try {
+			new DxlLoadGenerator(options, factory, configFile).run();
+		} finally {
+			factory.closeFactory();
+			if (broker != null)
+				broker.close();
+		}
+		System.exit(0);
+	}
+	
+	void run() throws Exception {
+		System.out.printf("Mode %s against %s%n", options.mode, options.config != null ? options.config : "a loopback broker");
+		switch (options.mode) {
+		case "events":
+			events();
+			break;
+		case "requests":
+			requests();
+			break;
+		case "record":
+			record();
+			break;
+		default:
+			replay();
+			break;
+		}
+	}
+	
+	private void events() throws Exception {
+		long start = System.nanoTime() + START_DELAY_NANOS;
+		long measureStart = start + TimeUnit.SECONDS.toNanos(options.warmup);
+		LongAdder delivered = new LongAdder();
+		
+		List<DxlSubscription> subscriptions = new ArrayList<DxlSubscription>();
+		DxlCallbackInterface callback = message -> {
+			long done = System.nanoTime();
+			ByteBuffer payload = ByteBuffer.wrap(message.getPayloadBytes());
+			long intended = payload.getLong(0);
+			if (intended >= measureStart)
+				recorder.record(intended, payload.getLong(8), done);
+			delivered.increment();
+			return null;
+		};
+		for (int idx = 0; idx < options.listeners; idx++) {
+			DxlListenerInterface listener = factory.getDxlListenerInterface();
+			subscriptions.add(listener.startAsync(configFile, options.prefix + "/events/#", callback));
+		}
+		
+		DxlPublisherInterface publisher = connectPublisher();
+		String[] topics = topics("/events/");
+		long count = (long) (options.rate * (options.warmup + options.duration));
+		long sent = schedule(start, measureStart, count, index -> (long) (index * 1e9 / options.rate), (index, intended) -> {
+			byte[] payload = new byte[options.payload];
+			ByteBuffer.wrap(payload).putLong(0, intended).putLong(8, System.nanoTime());
+			publisher.sendMessage(topics[index % topics.length], payload);
+		});
+		
+		long expected = sent * options.listeners;
+		await(() -> delivered.sum() >= expected);
+		System.out.printf("Delivered %d of %d events to %d listener(s), %d failed to send%n", 
+				delivered.sum(), expected, options.listeners, recorder.getErrors());
+		recorder.print(System.out, "Delivery latency");
+		
+		publisher.disconnect();
+		for (DxlSubscription subscription : subscriptions)
+			stop(subscription);
+	}
+	
+	private void requests() throws Exception {
+		long start = System.nanoTime() + START_DELAY_NANOS;
+		long measureStart = start + TimeUnit.SECONDS.toNanos(options.warmup);
+		LongAdder completed = new LongAdder();
+		String[] topics = topics("/requests/");
+		
+		DxlSubscription subscription = null;
+		if (options.provider) {
+			Map<String, DxlCallbackInterface> callbacks = new HashMap<String, DxlCallbackInterface>();
+			for (String topic : topics)
+				callbacks.put(topic, message -> null);
+			DxlProviderInterface provider = factory.getDxlProviderInterface();
+			subscription = provider.startAsync(configFile, options.prefix + "/service", callbacks);
+		}
+		
+		DxlRequesterInterface requester = factory.getDxlRequesterInterface();
+		requester.connect(configFile);
+		long count = (long) (options.rate * (options.warmup + options.duration));
+		long sent = schedule(start, measureStart, count, index -> (long) (index * 1e9 / options.rate), (index, intended) -> {
+			long sendTime = System.nanoTime();
+			requester.sendMessageAsync(topics[index % topics.length], new byte[options.payload], options.timeout, TimeUnit.SECONDS)
+				.whenComplete((response, ex) -> {
+					long done = System.nanoTime();
+					if (intended >= measureStart) {
+						if (ex != null || response.getMessageType() == DxlMessage.MESSAGE_TYPE_ERROR)
+							recorder.error(intended, done);
+						else
+							recorder.record(intended, sendTime, done);
+					}
+					completed.increment();
+				});
+		});
+		
+		await(() -> completed.sum() >= sent);
+		System.out.printf("Completed %d of %d requests, %d failed or timed out%n", completed.sum(), sent, recorder.getErrors());
+		recorder.print(System.out, "Response latency");
+		
+		requester.disconnect();
+		if (subscription != null)
+			stop(subscription);
+	}
+	
+	private void record() throws Exception {
+		long start = System.nanoTime();
+		LongAdder failed = new LongAdder();
+		try (DxlTrafficFile.Writer writer = new DxlTrafficFile.Writer(new File(options.file))) {
+			DxlListenerInterface listener = factory.getDxlListenerInterface();
+			DxlSubscription subscription = listener.startAsync(configFile, options.filter, message -> {
+				byte[] payload = message.getPayloadBytes();
+				try {
+					writer.write(System.nanoTime() - start, message.getTopic(), payload != null ? payload : new byte[0]);
+				} catch (IOException ex) {
+					failed.increment();
+				}
+				return null;
+			});
+			System.out.printf("Recording '%s' for %d s%n", options.filter, options.duration);
+			Thread.sleep(TimeUnit.SECONDS.toMillis(options.duration));
+			stop(subscription);
+			System.out.printf("Recorded %d events to %s, %d failed to write%n", writer.getCount(), options.file, failed.sum());
+		}
+	}
+	
+	private void replay() throws Exception {
+		List<DxlTrafficFile.Record> records = DxlTrafficFile.read(new File(options.file));
+		if (records.isEmpty()) {
+			System.out.printf("No events in %s%n", options.file);
+			return;
+		}
+		
+		long first = records.get(0).offset;
+		DxlPublisherInterface publisher = connectPublisher();
+		long start = System.nanoTime() + START_DELAY_NANOS;
+		schedule(start, start, records.size(), index -> (long) ((records.get((int) index).offset - first) / options.speed), 
+				(index, intended) -> {
+			DxlTrafficFile.Record record = records.get(index);
+			long sent = System.nanoTime();
+			publisher.sendMessage(record.topic, record.payload);
+			recorder.record(intended, sent, System.nanoTime());
+		});
+		System.out.printf("Replayed %d events at %.1fx, %d failed%n", records.size(), options.speed, recorder.getErrors());
+		recorder.print(System.out, "Publish latency");
+		
+		publisher.disconnect();
+	}
+	
+	/**
+	 * Send messages on a fixed schedule over the sending threads, each 
+	 * thread takes every n-th message.  A thread that falls behind sends 
+	 * the messages it missed right away, it never skips or delays the 
+	 * schedule.
+	 * 
+	 * @param start System.nanoTime() of the first message
+	 * @param measureStart System.nanoTime() of the first message whose errors count
+	 * @param count Number of messages
+	 * @param offsetOf Nanoseconds from the start to each message
+	 * @param sender Sends a message, exceptions are counted as errors
+	 * @return Number of messages sent without an exception
+	 */
+	private long schedule(long start, long measureStart, long count, LongUnaryOperator offsetOf, Sender sender) throws InterruptedException {
+		LongAdder sent = new LongAdder();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int idx = 0; idx < options.threads; idx++) {
+			int first = idx;
+			Thread thread = new Thread(() -> {
+				for (long index = first; index < count; index += options.threads) {
+					long intended = start + offsetOf.applyAsLong(index);
+					long wait;
+					while ((wait = intended - System.nanoTime()) > 0)
+						LockSupport.parkNanos(wait);
+					try {
+						sender.send((int) index, intended);
+						sent.increment();
+					} catch (Exception ex) {
+						if (intended >= measureStart)
+							recorder.error(intended, System.nanoTime());
+					}
+				}
+			}, "DxlLoadSender-" + idx);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Sent %d of %d messages in %.1f s, %.0f/s%n", sent.sum(), count, seconds, sent.sum() / seconds);
+		return sent.sum();
+	}
+	
+	private DxlPublisherInterface connectPublisher() throws Exception {
+		DxlPublisherInterface publisher = factory.getDxlPublisherInterface();
+		if (options.connections > 1)
+			publisher.setConnections(options.connections, DxlPublishRouting.ROUND_ROBIN);
+		publisher.connect(configFile);
+		return publisher;
+	}
+	
+	private String[] topics(String kind) {
+		String[] topics = new String[options.topics];
+		for (int idx = 0; idx < topics.length; idx++)
+			topics[idx] = options.prefix + kind + idx;
+		return topics;
+	}
+	
+	/**
+	 * Wait up to the timeout for the messages in flight
+	 */
+	private void await(BooleanSupplier done) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.timeout);
+		while (!done.getAsBoolean() && System.nanoTime() < deadline)
+			Thread.sleep(10);
+	}
+	
+	private void stop(DxlSubscription subscription) throws Exception {
+		subscription.close();
+		subscription.getStopFuture().get(options.timeout, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.load;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the load generator, given as --name=value arguments
+ */
+class DxlLoadOptions {
+	
+	static final String USAGE = String.join("\n",
+		"Usage: DxlLoadGenerator [--name=value ...]",
+		"  --mode=events|requests|record|replay  Traffic to generate (events)",
+		"  --config=<file>       dxlclient.config of the fabric, a loopback broker is started when missing",
+		"  --certs=<dir>         ca.crt, broker.crt/key and client.crt/key for the loopback broker (src/test/resources/certs)",
+		"  --transport=paho|java MQTT transport of the loopback configuration (paho)",
+		"  --rate=<n>            Messages per second (1000)",
+		"  --duration=<s>        Seconds measured (30)",
+		"  --warmup=<s>          Seconds sent before measuring (5)",
+		"  --payload=<bytes>     Payload size, at least 16 (256)",
+		"  --topics=<n>          Topics the messages are spread over (1)",
+		"  --listeners=<n>       Listeners receiving every event (1)",
+		"  --provider=true|false Start an echo provider for the requests (true)",
+		"  --threads=<n>         Sending threads (1)",
+		"  --connections=<n>     Connections of the publisher (1)",
+		"  --timeout=<s>         Request timeout and wait for the last messages (10)",
+		"  --prefix=<topic>      Prefix of the generated topics (/load)",
+		"  --filter=<topic>      Topics captured by record (/#)",
+		"  --file=<file>         Recording written by record and read by replay",
+		"  --speed=<x>           Replay speed, 2 replays twice as fast (1)");
+	
+	String mode = "events";
+	String config = null;
+	String certs = "src/test/resources/certs";
+	String transport = "paho";
+	double rate = 1000;
+	int duration = 30;
+	int warmup = 5;
+	int payload = 256;
+	int topics = 1;
+	int listeners = 1;
+	boolean provider = true;
+	int threads = 1;
+	int connections = 1;
+	int timeout = 10;
+	String prefix = "/load";
+	String filter = "/#";
+	String file = null;
+	double speed = 1;
+	
+	/**
+	 * Parse the arguments of the load generator
+	 * 
+	 * @param args --name=value arguments
+	 * @return Options, defaults for the ones not given
+	 * @throws IllegalArgumentException Thrown when an argument is unknown or invalid
+	 */
+	static DxlLoadOptions parse(String[] args) {
+		Map<String, String> values = new HashMap<String, String>();
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0)
+				throw new IllegalArgumentException("Invalid argument: " + arg);
+			values.put(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+		
+		DxlLoadOptions options = new DxlLoadOptions();
+		try {
+			options.mode = take(values, "mode", options.mode);
+			options.config = take(values, "config", options.config);
+			options.certs = take(values, "certs", options.certs);
+			options.transport = take(values, "transport", options.transport);
+			options.rate = Double.parseDouble(take(values, "rate", String.valueOf(options.rate)));
+			options.duration = Integer.parseInt(take(values, "duration", String.valueOf(options.duration)));
+			options.warmup = Integer.parseInt(take(values, "warmup", String.valueOf(options.warmup)));
+			options.payload = Integer.parseInt(take(values, "payload", String.valueOf(options.payload)));
+			options.topics = Integer.parseInt(take(values, "topics", String.valueOf(options.topics)));
+			options.listeners = Integer.parseInt(take(values, "listeners", String.valueOf(options.listeners)));
+			options.provider = Boolean.parseBoolean(take(values, "provider", String.valueOf(options.provider)));
+			options.threads = Integer.parseInt(take(values, "threads", String.valueOf(options.threads)));
+			options.connections = Integer.parseInt(take(values, "connections", String.valueOf(options.connections)));
+			options.timeout = Integer.parseInt(take(values, "timeout", String.valueOf(options.timeout)));
+			options.prefix = take(values, "prefix", options.prefix);
+			options.filter = take(values, "filter", options.filter);
+			options.file = take(values, "file", options.file);
+			options.speed = Double.parseDouble(take(values, "speed", String.valueOf(options.speed)));
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid number: " + ex.getMessage());
+		}
+		
+		if (!values.isEmpty())
+			throw new IllegalArgumentException("Unknown argument: --" + values.keySet().iterator().next());
+		if (!options.mode.matches("events|requests|record|replay"))
+			throw new IllegalArgumentException("Unknown mode: " + options.mode);
+		if (options.rate <= 0 || options.speed <= 0 || options.duration < 1 || options.warmup < 0 
+				|| options.topics < 1 || options.listeners < 1 || options.threads < 1 
+				|| options.connections < 1 || options.timeout < 1)
+			throw new IllegalArgumentException("Rates, counts and durations must be positive");
+		if (options.file == null && (options.mode.equals("record") || options.mode.equals("replay")))
+			throw new IllegalArgumentException("--file is required to " + options.mode);
+		options.payload = Math.max(DxlLoadGenerator.TIMESTAMPS_SIZE, options.payload);
+		return options;
+	}
+	
+	private static String take(Map<String, String> values, String name, String defaultValue) {
+		String value = values.remove(name);
+		return value != null ? value : defaultValue;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.load;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File of captured DXL traffic: a header followed by one record per 
+ * message with its offset from the start of the capture in nanoseconds, 
+ * its topic and its payload.
+ */
+class DxlTrafficFile {
+	
+	private static final int MAGIC = 0x44584C52;	// "DXLR"
+	private static final int VERSION = 1;
+	
+	/**
+	 * A captured message
+	 */
+	static class Record {
+		final long offset;
+		final String topic;
+		final byte[] payload;
+		
+		Record(long offset, String topic, byte[] payload) {
+			this.offset = offset;
+			this.topic = topic;
+			this.payload = payload;
+		}
+	}
+	
+	/**
+	 * Appends records to a new file, safe to use from several callback threads
+	 */
+	static class Writer implements Closeable {
+		
+		private final DataOutputStream out;
+		private long count;
+		
+		Writer(File file) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+		
+		synchronized void write(long offset, String topic, byte[] payload) throws IOException {
+			out.writeLong(offset);
+			out.writeUTF(topic);
+			out.writeInt(payload.length);
+			out.write(payload);
+			count++;
+		}
+		
+		synchronized long getCount() {
+			return count;
+		}
+		
+		@Override
+		public synchronized void close() throws IOException {
+			out.close();
+		}
+	}
+	
+	private DxlTrafficFile() {
+	}
+	
+	/**
+	 * Read all records of a file
+	 * 
+	 * @param file File written by a Writer
+	 * @return Records in the order they were captured
+	 * @throws IOException Thrown when the file can not be read or is not a capture
+	 */
+	static List<Record> read(File file) throws IOException {
+		List<Record> records = new ArrayList<Record>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a DXL traffic capture: " + file);
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported DXL traffic capture version " + version + ": " + file);
+			while (true) {
+				long offset;
+				try {
+					offset = in.readLong();
+				} catch (EOFException ex) {
+					break;
+				}
+				String topic = in.readUTF();
+				byte[] payload = new byte[in.readInt()];
+				in.readFully(payload);
+				records.add(new Record(offset, topic, payload));
+			}
+		}
+		return records;
+	}
+}
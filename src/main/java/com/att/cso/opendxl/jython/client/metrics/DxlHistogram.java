@@ -0,0 +1,138 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non-negative values, such as durations in 
+ * nanoseconds.  Values are counted in log-linear buckets: 16 buckets for 
+ * every power of two, so a reported percentile is within 1/16 (6.25%) above
+ * the recorded value.  Recording is an index computation and one atomic 
+ * increment, cheap enough to leave on in production.
+ */
+public class DxlHistogram {
+	// Values below this are counted exactly, above it 16 buckets per power of two
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Record a value, negative values are recorded as 0
+	 * 
+	 * @param value value to record
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value));
+	}
+	
+	/**
+	 * Get a percentile of the recorded values
+	 * 
+	 * @param percentile percentile from 0 to 100, e.g. 99.9
+	 * @return upper bound of the bucket holding the percentile, 0 when nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+			total += snapshot[bucket];
+		}
+		if (total == 0)
+			return 0;
+		
+		long rank = (long)Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += snapshot[bucket];
+			if (seen >= rank)
+				return Math.min(upperBound(bucket), max.get());
+		}
+		return max.get();
+	}
+	
+	public long getCount()		{ return count.sum(); }
+	public long getMax()		{ return max.get(); }
+	
+	/**
+	 * @return Mean of the recorded values, 0 when nothing was recorded
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double)sum.sum() / n;
+	}
+	
+	/**
+	 * Forget all recorded values.  Values recorded while resetting may be
+	 * partly kept.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+			counts.set(bucket, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+	
+	static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	static long upperBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		int shift = exponent - SUB_BUCKET_BITS;
+		long bound = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+		return bound < 0 ? Long.MAX_VALUE : bound;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events and keeps an exponentially weighted one minute rate.  The 
+ * rate is updated every 5 seconds, lazily by whichever thread marks or reads 
+ * the meter first after the interval ended, so no timer thread is needed.
+ */
+public class DxlMeter {
+	private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+	private static final double TICK_SECONDS = 5.0;
+	private static final double ALPHA = 1 - Math.exp(-TICK_SECONDS / 60);
+	
+	private final LongAdder count = new LongAdder();
+	// Events marked since the last tick
+	private final LongAdder uncounted = new LongAdder();
+	private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+	private volatile double rate = 0;
+	private volatile boolean initialized = false;
+	
+	/**
+	 * Mark one event
+	 */
+	public void mark() {
+		mark(1);
+	}
+	
+	/**
+	 * Mark a number of events
+	 * 
+	 * @param events number of events
+	 */
+	public void mark(long events) {
+		tickIfNecessary();
+		count.add(events);
+		uncounted.add(events);
+	}
+	
+	public long getCount()		{ return count.sum(); }
+	
+	/**
+	 * @return One minute exponentially weighted rate in events per second
+	 */
+	public double getOneMinuteRate() {
+		tickIfNecessary();
+		return rate;
+	}
+	
+	private void tickIfNecessary() {
+		long previous = lastTick.get();
+		long age = System.nanoTime() - previous;
+		if (age < TICK_INTERVAL)
+			return;
+		
+		// Only the thread that moves lastTick applies the missed ticks
+		long next = previous + age - age % TICK_INTERVAL;
+		if (lastTick.compareAndSet(previous, next)) {
+			for (long ticks = age / TICK_INTERVAL; ticks > 0; ticks--)
+				tick();
+		}
+	}
+	
+	private synchronized void tick() {
+		double instantRate = uncounted.sumThenReset() / TICK_SECONDS;
+		if (initialized) {
+			rate += ALPHA * (instantRate - rate);
+		} else {
+			rate = instantRate;
+			initialized = true;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics registry of the DXL clients created by a JythonFactory.  The 
+ * Python extensions record publishes, received messages, request round 
+ * trips, callback durations per topic and reconnects, and the DXL clients 
+ * record the depth of and wait time in their incoming message queues.
+ * 
+ * Recording only touches LongAdders and atomic counters, so the registry 
+ * is meant to stay on in production.  Once registered, the metrics are 
+ * exposed as JMX MBeans on the platform MBean server.
+ */
+public class DxlMetrics implements DxlMetricsMXBean {
+	// JMX domain of the MBeans
+	public static final String JMX_DOMAIN = "com.att.cso.opendxl.jython";
+	// Number of topics with their own callback durations
+	public static final int MAX_TOPICS = 1000;
+	// Topic the callbacks of any further topic are recorded under
+	public static final String OTHER_TOPICS = "<other>";
+	
+	Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	private final DxlMeter published = new DxlMeter();
+	private final DxlMeter received = new DxlMeter();
+	private final DxlHistogram requests = new DxlHistogram();
+	private final LongAdder requestTimeouts = new LongAdder();
+	private final AtomicLong queueDepth = new AtomicLong();
+	private final AtomicLong peakQueueDepth = new AtomicLong();
+	private final DxlHistogram queueWait = new DxlHistogram();
+	private final LongAdder reconnects = new LongAdder();
+	private final ConcurrentMap<String, DxlTopicMetrics> topics = new ConcurrentHashMap<String, DxlTopicMetrics>();
+	// Set while the MBeans are registered
+	private volatile MBeanServer server = null;
+	
+	/**
+	 * Record published messages
+	 * 
+	 * @param events number of messages handed to the broker
+	 */
+	public void recordPublished(int events) {
+		published.mark(events);
+	}
+	
+	/**
+	 * Record messages received by a listener or provider
+	 * 
+	 * @param events number of messages
+	 */
+	public void recordReceived(int events) {
+		received.mark(events);
+	}
+	
+	/**
+	 * Record the duration of a listener or provider callback
+	 * 
+	 * @param topic topic the callback is registered for
+	 * @param nanos duration in nanoseconds
+	 */
+	public void recordCallback(String topic, long nanos) {
+		getTopicMetrics(topic).record(nanos);
+	}
+	
+	/**
+	 * Record the round trip of a request that got a response
+	 * 
+	 * @param nanos time from sending the request to receiving the response
+	 */
+	public void recordRequest(long nanos) {
+		requests.record(nanos);
+	}
+	
+	/**
+	 * Record a request that got no response in time
+	 */
+	public void recordRequestTimeout() {
+		requestTimeouts.increment();
+	}
+	
+	/**
+	 * Record a message added to an incoming message queue
+	 */
+	public void recordQueued() {
+		long depth = queueDepth.incrementAndGet();
+		long peak;
+		while (depth > (peak = peakQueueDepth.get()) && !peakQueueDepth.compareAndSet(peak, depth));
+	}
+	
+	/**
+	 * Record a message taken from an incoming message queue
+	 * 
+	 * @param waitNanos time the message spent in the queue
+	 */
+	public void recordDequeued(long waitNanos) {
+		queueDepth.decrementAndGet();
+		queueWait.record(waitNanos);
+	}
+	
+	/**
+	 * Record a queued message dropped to make room for a newer one
+	 */
+	public void recordQueueDropped() {
+		queueDepth.decrementAndGet();
+	}
+	
+	/**
+	 * Record a DXL client connecting again after losing its connection
+	 */
+	public void recordReconnect() {
+		reconnects.increment();
+	}
+	
+	/**
+	 * Get the callback metrics of a topic, creating them the first time
+	 * 
+	 * @param topic topic the callback is registered for
+	 * @return DxlTopicMetrics of the topic, shared by all topics past MAX_TOPICS
+	 */
+	public DxlTopicMetrics getTopicMetrics(String topic) {
+		DxlTopicMetrics metrics = topics.get(topic);
+		if (metrics != null)
+			return metrics;
+		
+		if (topics.size() >= MAX_TOPICS)
+			topic = OTHER_TOPICS;
+		DxlTopicMetrics created = new DxlTopicMetrics(topic);
+		metrics = topics.putIfAbsent(topic, created);
+		if (metrics != null)
+			return metrics;
+		
+		MBeanServer registered = server;
+		if (registered != null)
+			registerMBean(registered, created, topicName(topic));
+		return created;
+	}
+	
+	public DxlMeter getPublished()				{ return published; }
+	public DxlMeter getReceived()				{ return received; }
+	public DxlHistogram getRequests()			{ return requests; }
+	public DxlHistogram getQueueWait()			{ return queueWait; }
+	
+	@Override
+	public long getPublishedCount()				{ return published.getCount(); }
+	@Override
+	public double getPublishRate()				{ return published.getOneMinuteRate(); }
+	@Override
+	public long getReceivedCount()				{ return received.getCount(); }
+	@Override
+	public double getReceiveRate()				{ return received.getOneMinuteRate(); }
+	@Override
+	public long getRequestCount()				{ return requests.getCount(); }
+	@Override
+	public long getRequestTimeoutCount()		{ return requestTimeouts.sum(); }
+	@Override
+	public long getRequestP50Micros()			{ return micros(requests.getPercentile(50)); }
+	@Override
+	public long getRequestP99Micros()			{ return micros(requests.getPercentile(99)); }
+	@Override
+	public long getRequestP999Micros()			{ return micros(requests.getPercentile(99.9)); }
+	@Override
+	public long getRequestMaxMicros()			{ return micros(requests.getMax()); }
+	@Override
+	public long getQueueDepth()					{ return queueDepth.get(); }
+	@Override
+	public long getPeakQueueDepth()				{ return peakQueueDepth.get(); }
+	@Override
+	public long getQueueWaitP50Micros()			{ return micros(queueWait.getPercentile(50)); }
+	@Override
+	public long getQueueWaitP99Micros()			{ return micros(queueWait.getPercentile(99)); }
+	@Override
+	public long getQueueWaitP999Micros()		{ return micros(queueWait.getPercentile(99.9)); }
+	@Override
+	public long getQueueWaitMaxMicros()			{ return micros(queueWait.getMax()); }
+	@Override
+	public long getReconnectCount()				{ return reconnects.sum(); }
+	
+	@Override
+	public String[] getCallbackTopics() {
+		return topics.keySet().toArray(new String[0]);
+	}
+	
+	@Override
+	public void reset() {
+		requests.reset();
+		queueWait.reset();
+		peakQueueDepth.set(queueDepth.get());
+		for (DxlTopicMetrics metrics : topics.values())
+			metrics.reset();
+	}
+	
+	/**
+	 * Register the MBeans on the platform MBean server.  Topics seen later 
+	 * get their MBean when their first callback is recorded.
+	 */
+	public synchronized void register() {
+		if (server != null)
+			return;
+		
+		MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+		registerMBean(platform, this, metricsName());
+		server = platform;
+		for (DxlTopicMetrics metrics : topics.values())
+			registerMBean(platform, metrics, topicName(metrics.getTopic()));
+	}
+	
+	/**
+	 * Remove the MBeans from the platform MBean server
+	 */
+	public synchronized void unregister() {
+		MBeanServer registered = server;
+		if (registered == null)
+			return;
+		
+		server = null;
+		unregisterMBean(registered, metricsName());
+		for (DxlTopicMetrics metrics : topics.values())
+			unregisterMBean(registered, topicName(metrics.getTopic()));
+	}
+	
+	public boolean isRegistered() {
+		return server != null;
+	}
+	
+	private void registerMBean(MBeanServer registered, Object mbean, ObjectName name) {
+		try {
+			if (!registered.isRegistered(name))
+				registered.registerMBean(mbean, name);
+		} catch (JMException ex) {
+			logger.warn("Unable to register MBean {}", name, ex);
+		}
+	}
+	
+	private void unregisterMBean(MBeanServer registered, ObjectName name) {
+		try {
+			if (registered.isRegistered(name))
+				registered.unregisterMBean(name);
+		} catch (JMException ex) {
+			logger.warn("Unable to unregister MBean {}", name, ex);
+		}
+	}
+	
+	private static ObjectName metricsName() {
+		return objectName("type=DxlMetrics");
+	}
+	
+	private static ObjectName topicName(String topic) {
+		return objectName("type=DxlCallback,topic=" + ObjectName.quote(topic));
+	}
+	
+	private static ObjectName objectName(String properties) {
+		try {
+			return new ObjectName(JMX_DOMAIN + ":" + properties);
+		} catch (JMException ex) {
+			throw new IllegalArgumentException(ex);
+		}
+	}
+	
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
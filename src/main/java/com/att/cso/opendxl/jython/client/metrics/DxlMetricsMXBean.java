@@ -0,0 +1,88 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+/**
+ * JMX view of the DXL client metrics, registered as
+ * com.att.cso.opendxl.jython:type=DxlMetrics.  Rates are one minute 
+ * exponentially weighted rates in messages per second, durations are in
+ * microseconds and percentiles are within 6.25% of the recorded value.
+ */
+public interface DxlMetricsMXBean {
+	
+	public long getPublishedCount();
+	
+	public double getPublishRate();
+	
+	public long getReceivedCount();
+	
+	public double getReceiveRate();
+	
+	public long getRequestCount();
+	
+	public long getRequestTimeoutCount();
+	
+	public long getRequestP50Micros();
+	
+	public long getRequestP99Micros();
+	
+	public long getRequestP999Micros();
+	
+	public long getRequestMaxMicros();
+	
+	/**
+	 * @return Received messages waiting in the incoming queues of the DXL clients
+	 */
+	public long getQueueDepth();
+	
+	public long getPeakQueueDepth();
+	
+	public long getQueueWaitP50Micros();
+	
+	public long getQueueWaitP99Micros();
+	
+	public long getQueueWaitP999Micros();
+	
+	public long getQueueWaitMaxMicros();
+	
+	public long getReconnectCount();
+	
+	/**
+	 * @return Topics with callback durations, each has its own DxlCallback MBean
+	 */
+	public String[] getCallbackTopics();
+	
+	/**
+	 * Forget the recorded durations and the peak queue depth, counts and 
+	 * rates are kept
+	 */
+	public void reset();
+}
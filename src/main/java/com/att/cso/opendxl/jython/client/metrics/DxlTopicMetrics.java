@@ -0,0 +1,80 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Callback durations recorded for one topic
+ */
+public class DxlTopicMetrics implements DxlTopicMetricsMXBean {
+	private final String topic;
+	private final DxlHistogram callbacks = new DxlHistogram();
+	
+	DxlTopicMetrics(String topic) {
+		this.topic = topic;
+	}
+	
+	/**
+	 * Record the duration of one callback
+	 * 
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		callbacks.record(nanos);
+	}
+	
+	public DxlHistogram getCallbacks()			{ return callbacks; }
+	
+	@Override
+	public String getTopic()					{ return topic; }
+	@Override
+	public long getCallbackCount()				{ return callbacks.getCount(); }
+	@Override
+	public double getCallbackMeanMicros()		{ return callbacks.getMean() / 1000; }
+	@Override
+	public long getCallbackP50Micros()			{ return micros(callbacks.getPercentile(50)); }
+	@Override
+	public long getCallbackP99Micros()			{ return micros(callbacks.getPercentile(99)); }
+	@Override
+	public long getCallbackP999Micros()			{ return micros(callbacks.getPercentile(99.9)); }
+	@Override
+	public long getCallbackMaxMicros()			{ return micros(callbacks.getMax()); }
+	
+	@Override
+	public void reset() {
+		callbacks.reset();
+	}
+	
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
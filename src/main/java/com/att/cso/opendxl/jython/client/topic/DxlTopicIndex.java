@@ -0,0 +1,399 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.topic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index of callbacks by DXL topic, resolving all callbacks that match a 
+ * received topic in one walk over it.  Topics are stored in a trie with one
+ * node per topic level, and the levels of a received topic are looked up 
+ * by their position in the topic, so matching creates no strings.
+ * 
+ * Subscriptions follow the DXL client rules: "" receives every message,
+ * "#" and topics ending in "/#" receive every topic below their prefix, and 
+ * any other topic is matched exactly.  Matches are returned in the order 
+ * the Python callback manager fires them: "" first, then the exact topic, 
+ * then wildcards from the deepest to "#".
+ * 
+ * Reads never lock.  Updates are serialized, and replace callback arrays
+ * and child tables with copies instead of changing them in place, so a 
+ * concurrent match sees either the old or the new subscriptions.
+ */
+public class DxlTopicIndex {
+	// Subscription receiving all topics
+	public static final String ALL_TOPICS = "#";
+	// Suffix of subscriptions receiving every topic below a prefix
+	public static final String WILDCARD_SUFFIX = "/#";
+	
+	private static final Object[] NONE = new Object[0];
+	// Marks a slot of a child table whose node was removed
+	private static final Node REMOVED = new Node(null, 0);
+	
+	private final Node root = new Node("", 0);
+	// Callbacks subscribed to "#"
+	private volatile Object[] all = NONE;
+	// Number of topic and callback pairs, only changed while holding the lock
+	private int size = 0;
+	
+	/**
+	 * Add a callback for a topic
+	 * 
+	 * @param topic topic or wildcard subscribed to, "" for all messages
+	 * @param callback callback to add
+	 * @return True if added, false if the callback was already added for the topic
+	 */
+	public synchronized boolean add(String topic, Object callback) {
+		if (topic == null || callback == null)
+			throw new IllegalArgumentException("Topic and callback are required");
+		
+		if (topic.equals(ALL_TOPICS)) {
+			if (contains(all, callback))
+				return false;
+			all = append(all, callback);
+		} else if (topic.endsWith(WILDCARD_SUFFIX)) {
+			Node node = createNode(topic, topic.length() - WILDCARD_SUFFIX.length());
+			if (contains(node.wildcard, callback))
+				return false;
+			node.wildcard = append(node.wildcard, callback);
+		} else {
+			Node node = createNode(topic, topic.length());
+			if (contains(node.exact, callback))
+				return false;
+			node.exact = append(node.exact, callback);
+		}
+		size++;
+		return true;
+	}
+	
+	/**
+	 * Remove a callback for a topic
+	 * 
+	 * @param topic topic or wildcard the callback was added for
+	 * @param callback callback to remove
+	 * @return True if removed, false if the callback was not added for the topic
+	 */
+	public synchronized boolean remove(String topic, Object callback) {
+		if (topic == null || callback == null)
+			return false;
+		
+		if (topic.equals(ALL_TOPICS)) {
+			if (!contains(all, callback))
+				return false;
+			all = without(all, callback);
+			size--;
+			return true;
+		}
+		
+		boolean wildcard = topic.endsWith(WILDCARD_SUFFIX);
+		int length = wildcard ? topic.length() - WILDCARD_SUFFIX.length() : topic.length();
+		List<Node> path = new ArrayList<Node>();
+		Node node = root;
+		path.add(node);
+		for (int start = 0; ; ) {
+			int end = levelEnd(topic, start, length);
+			node = node.child(topic, start, end);
+			if (node == null)
+				return false;
+			path.add(node);
+			if (end == length)
+				break;
+			start = end + 1;
+		}
+		
+		if (wildcard) {
+			if (!contains(node.wildcard, callback))
+				return false;
+			node.wildcard = without(node.wildcard, callback);
+		} else {
+			if (!contains(node.exact, callback))
+				return false;
+			node.exact = without(node.exact, callback);
+		}
+		size--;
+		
+		// Drop the nodes left without callbacks or children
+		for (int idx = path.size() - 1; idx > 0; idx--) {
+			Node child = path.get(idx);
+			if (!child.isEmpty())
+				break;
+			path.get(idx - 1).removeChild(child);
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the callbacks matching a received topic
+	 * 
+	 * @param topic topic the message was received on
+	 * @return Matching callbacks in firing order, a callback added for 
+	 *         several matching subscriptions is returned once for each
+	 */
+	public List<Object> match(String topic) {
+		List<Object> matches = new ArrayList<Object>();
+		Node global = root.child("", 0, 0);
+		if (global != null)
+			addAll(matches, global.exact);
+		if (topic == null)
+			return matches;
+		
+		int length = topic.length();
+		// The DXL client treats the last level of a topic ending in "#" as a
+		// wildcard, and does not match the prefix in front of it
+		boolean wildcardTopic = length > 0 && topic.charAt(length - 1) == '#';
+		int lastSlash = topic.lastIndexOf('/');
+		Object[] exact = NONE;
+		// Nodes followed by a "/" in the topic, their wildcards match
+		Node[] prefixes = null;
+		int prefixCount = 0;
+		
+		if (topic.equals(ALL_TOPICS)) {
+			exact = all;
+		} else {
+			Node node = root;
+			for (int start = 0; ; ) {
+				int end = levelEnd(topic, start, length);
+				node = node.child(topic, start, end);
+				if (node == null)
+					break;
+				if (end == length) {
+					exact = node.exact;
+					break;
+				}
+				if (end + 2 == length && wildcardTopic) {
+					// The topic itself is the wildcard subscribed to
+					exact = node.wildcard;
+					break;
+				}
+				// "/#" is matched after the walk, it is the first level for topics starting with "/"
+				if (end > 0 && node.wildcard.length > 0 && !(end == lastSlash && wildcardTopic)) {
+					if (prefixes == null)
+						prefixes = new Node[8];
+					else if (prefixCount == prefixes.length)
+						prefixes = Arrays.copyOf(prefixes, prefixCount * 2);
+					prefixes[prefixCount++] = node;
+				}
+				start = end + 1;
+			}
+		}
+		addAll(matches, exact);
+		
+		for (int idx = prefixCount - 1; idx >= 0; idx--)
+			addAll(matches, prefixes[idx].wildcard);
+		
+		if (!topic.equals(ALL_TOPICS)) {
+			// The DXL client matches "/#" to every topic, also those not starting with "/"
+			if (length > 0 && !(length == 2 && wildcardTopic) && global != null)
+				addAll(matches, global.wildcard);
+			addAll(matches, all);
+		}
+		return matches;
+	}
+	
+	/**
+	 * @return Number of topic and callback pairs in the index
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Find or create the node of a topic
+	 * 
+	 * @param topic topic to find the node for
+	 * @param length length of the topic, excluding a wildcard suffix
+	 * @return Node of the topic
+	 */
+	private Node createNode(String topic, int length) {
+		Node node = root;
+		for (int start = 0; ; ) {
+			int end = levelEnd(topic, start, length);
+			Node child = node.child(topic, start, end);
+			if (child == null)
+				child = node.addChild(topic.substring(start, end));
+			node = child;
+			if (end == length)
+				return node;
+			start = end + 1;
+		}
+	}
+	
+	private static int levelEnd(String topic, int start, int length) {
+		int end = topic.indexOf('/', start);
+		return end < 0 || end > length ? length : end;
+	}
+	
+	private static int hash(String topic, int start, int end) {
+		int hash = 0;
+		for (int idx = start; idx < end; idx++)
+			hash = 31 * hash + topic.charAt(idx);
+		return spread(hash);
+	}
+	
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static void addAll(List<Object> matches, Object[] callbacks) {
+		for (Object callback : callbacks)
+			matches.add(callback);
+	}
+	
+	private static boolean contains(Object[] callbacks, Object callback) {
+		for (Object existing : callbacks) {
+			if (existing.equals(callback))
+				return true;
+		}
+		return false;
+	}
+	
+	private static Object[] append(Object[] callbacks, Object callback) {
+		Object[] copy = Arrays.copyOf(callbacks, callbacks.length + 1);
+		copy[callbacks.length] = callback;
+		return copy;
+	}
+	
+	private static Object[] without(Object[] callbacks, Object callback) {
+		if (callbacks.length == 1)
+			return NONE;
+		Object[] copy = new Object[callbacks.length - 1];
+		int count = 0;
+		boolean removed = false;
+		for (Object existing : callbacks) {
+			if (!removed && existing.equals(callback))
+				removed = true;
+			else
+				copy[count++] = existing;
+		}
+		return copy;
+	}
+	
+	/**
+	 * One level of a topic.  The children are kept in an open addressing 
+	 * table, slots are only ever set from empty to a node or from a node to
+	 * REMOVED, and a full table is replaced by a larger copy.
+	 */
+	private static final class Node {
+		final String level;
+		final int hash;
+		// Callbacks subscribed to the topic of this node
+		volatile Object[] exact = NONE;
+		// Callbacks subscribed to the topic of this node followed by "/#"
+		volatile Object[] wildcard = NONE;
+		volatile AtomicReferenceArray<Node> children = null;
+		// Live children and used slots, only changed while holding the index lock
+		int childCount = 0;
+		int usedSlots = 0;
+		
+		Node(String level, int hash) {
+			this.level = level;
+			this.hash = hash;
+		}
+		
+		Node child(String topic, int start, int end) {
+			AtomicReferenceArray<Node> table = children;
+			if (table == null)
+				return null;
+			
+			int length = end - start;
+			int hash = hash(topic, start, end);
+			int mask = table.length() - 1;
+			for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+				Node node = table.get(slot);
+				if (node == null)
+					return null;
+				if (node.hash == hash && node.level != null && node.level.length() == length 
+						&& topic.regionMatches(start, node.level, 0, length))
+					return node;
+			}
+		}
+		
+		Node addChild(String level) {
+			Node node = new Node(level, hash(level, 0, level.length()));
+			AtomicReferenceArray<Node> table = children;
+			// Keep at least a quarter of the slots empty so lookups end
+			if (table == null || (usedSlots + 1) * 4 > table.length() * 3) {
+				table = resized(Math.max(4, Integer.highestOneBit((childCount + 1) * 4 - 1)));
+				usedSlots = childCount;
+			}
+			int slot = freeSlot(table, node.hash);
+			if (table.get(slot) == null)
+				usedSlots++;
+			table.set(slot, node);
+			childCount++;
+			children = table;
+			return node;
+		}
+		
+		void removeChild(Node node) {
+			AtomicReferenceArray<Node> table = children;
+			int mask = table.length() - 1;
+			for (int slot = node.hash & mask; ; slot = (slot + 1) & mask) {
+				Node existing = table.get(slot);
+				if (existing == null)
+					return;
+				if (existing == node) {
+					table.set(slot, REMOVED);
+					childCount--;
+					return;
+				}
+			}
+		}
+		
+		boolean isEmpty() {
+			return exact.length == 0 && wildcard.length == 0 && childCount == 0;
+		}
+		
+		private AtomicReferenceArray<Node> resized(int capacity) {
+			AtomicReferenceArray<Node> table = new AtomicReferenceArray<Node>(capacity);
+			AtomicReferenceArray<Node> old = children;
+			if (old != null) {
+				for (int idx = 0; idx < old.length(); idx++) {
+					Node node = old.get(idx);
+					if (node != null && node != REMOVED)
+						table.set(freeSlot(table, node.hash), node);
+				}
+			}
+			return table;
+		}
+		
+		private static int freeSlot(AtomicReferenceArray<Node> table, int hash) {
+			int mask = table.length() - 1;
+			int slot = hash & mask;
+			while (table.get(slot) != null && table.get(slot) != REMOVED)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+	}
+}
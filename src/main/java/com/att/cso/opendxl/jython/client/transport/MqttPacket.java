@@ -0,0 +1,170 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A packet read by an MqttPacketReader, with accessors for the fields of 
+ * the packet types DXL clients and brokers use
+ */
+public class MqttPacket {
+	
+	private final int header;
+	private final byte[] body;
+	
+	/**
+	 * Create a packet
+	 * 
+	 * @param header First byte of the fixed header
+	 * @param body Rest of the packet after the remaining length
+	 */
+	public MqttPacket(int header, byte[] body) {
+		this.header = header;
+		this.body = body;
+	}
+	
+	/**
+	 * Get the packet type, one of the MqttPackets constants
+	 * 
+	 * @return Upper four bits of the fixed header
+	 */
+	public int getType() {
+		return header & 0xF0;
+	}
+	
+	/**
+	 * Get the flags of the fixed header
+	 * 
+	 * @return Lower four bits of the fixed header
+	 */
+	public int getFlags() {
+		return header & 0x0F;
+	}
+	
+	/**
+	 * Get the packet after its fixed header
+	 * 
+	 * @return Variable header and payload
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+	
+	/**
+	 * Get the message id of a SUBSCRIBE, SUBACK, UNSUBSCRIBE or UNSUBACK packet
+	 * 
+	 * @return Message id
+	 */
+	public int getMessageId() {
+		return readShort(0);
+	}
+	
+	/**
+	 * Get the return code of a CONNACK packet
+	 * 
+	 * @return 0 when the connection was accepted
+	 */
+	public int getReturnCode() {
+		return body.length < 2 ? -1 : body[1] & 0xFF;
+	}
+	
+	/**
+	 * Get the topic of a PUBLISH packet
+	 * 
+	 * @return Topic the message was published on
+	 */
+	public String getTopic() {
+		return readString(0);
+	}
+	
+	/**
+	 * Get the payload of a PUBLISH packet
+	 * 
+	 * @return Copy of the payload
+	 */
+	public byte[] getPayload() {
+		int start = 2 + readShort(0);
+		// A message id follows the topic above quality of service 0
+		if ((header & 0x06) != 0)
+			start += 2;
+		return Arrays.copyOfRange(body, start, body.length);
+	}
+	
+	/**
+	 * Get the client identifier of a CONNECT packet
+	 * 
+	 * @return Client identifier
+	 */
+	public String getClientId() {
+		int offset = 2 + readShort(0);
+		// Protocol level, connect flags and keep alive
+		return readString(offset + 4);
+	}
+	
+	/**
+	 * Get the keep alive interval of a CONNECT packet
+	 * 
+	 * @return Keep alive interval in seconds
+	 */
+	public int getKeepAlive() {
+		return readShort(2 + readShort(0) + 2);
+	}
+	
+	/**
+	 * Get the topic filters of a SUBSCRIBE or UNSUBSCRIBE packet
+	 * 
+	 * @return Topic filters in packet order
+	 */
+	public List<String> getTopics() {
+		List<String> topics = new ArrayList<String>();
+		boolean subscribe = getType() == MqttPackets.SUBSCRIBE;
+		int offset = 2;
+		while (offset < body.length) {
+			int length = readShort(offset);
+			topics.add(new String(body, offset + 2, length, StandardCharsets.UTF_8));
+			// SUBSCRIBE has a requested quality of service after each topic
+			offset += 2 + length + (subscribe ? 1 : 0);
+		}
+		return topics;
+	}
+	
+	private int readShort(int offset) {
+		return ((body[offset] & 0xFF) << 8) | (body[offset + 1] & 0xFF);
+	}
+	
+	private String readString(int offset) {
+		return new String(body, offset + 2, readShort(offset), StandardCharsets.UTF_8);
+	}
+}
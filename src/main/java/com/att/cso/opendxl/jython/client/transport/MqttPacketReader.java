@@ -0,0 +1,102 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a byte stream into MQTT packets.  Bytes are fed in as they arrive
+ * and a packet is returned once all of it has been read, so packets may 
+ * span any number of reads.
+ */
+public class MqttPacketReader {
+	
+	private final int maxPacketSize;
+	private int header = -1;
+	private int remainingLength;
+	private int multiplier = 1;
+	private byte[] body;
+	private int position;
+	
+	/**
+	 * Create a reader
+	 * 
+	 * @param maxPacketSize Largest remaining length accepted
+	 */
+	public MqttPacketReader(int maxPacketSize) {
+		this.maxPacketSize = maxPacketSize;
+	}
+	
+	/**
+	 * Read the next packet from the bytes in the buffer
+	 * 
+	 * @param in Buffer to read from, its position is moved past the bytes used
+	 * @return The next packet, null when more bytes are needed
+	 * @throws IOException Thrown when the remaining length is malformed or too large
+	 */
+	public MqttPacket read(ByteBuffer in) throws IOException {
+		while (body == null) {
+			if (!in.hasRemaining())
+				return null;
+			int value = in.get() & 0xFF;
+			if (header < 0) {
+				header = value;
+				continue;
+			}
+			
+			remainingLength += (value & 0x7F) * multiplier;
+			if ((value & 0x80) != 0) {
+				multiplier *= 128;
+				if (multiplier > 128 * 128 * 128)
+					throw new IOException("Malformed remaining length");
+				continue;
+			}
+			if (remainingLength > maxPacketSize)
+				throw new IOException("Packet of " + remainingLength + " bytes is too large");
+			body = new byte[remainingLength];
+		}
+		
+		int count = Math.min(in.remaining(), body.length - position);
+		in.get(body, position, count);
+		position += count;
+		if (position < body.length)
+			return null;
+		
+		MqttPacket packet = new MqttPacket(header, body);
+		header = -1;
+		remainingLength = 0;
+		multiplier = 1;
+		body = null;
+		position = 0;
+		return packet;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of the MQTT 3.1 and 3.1.1 packets used by DXL clients and 
+ * brokers.  Only quality of service 0 is used for messages, so there are no
+ * PUBACK, PUBREC, PUBREL or PUBCOMP packets.
+ */
+public final class MqttPackets {
+	
+	public static final int CONNECT = 0x10;
+	public static final int CONNACK = 0x20;
+	public static final int PUBLISH = 0x30;
+	public static final int PUBACK = 0x40;
+	public static final int SUBSCRIBE = 0x80;
+	public static final int SUBACK = 0x90;
+	public static final int UNSUBSCRIBE = 0xA0;
+	public static final int UNSUBACK = 0xB0;
+	public static final int PINGREQ = 0xC0;
+	public static final int PINGRESP = 0xD0;
+	public static final int DISCONNECT = 0xE0;
+	
+	// Protocol levels, MQTT 3.1 is what DXL clients and brokers speak
+	public static final int MQTT_V31 = 3;
+	public static final int MQTT_V311 = 4;
+	
+	// Largest remaining length that fits the four byte encoding
+	public static final int MAX_REMAINING_LENGTH = 268435455;
+	
+	private MqttPackets() {
+	}
+	
+	/**
+	 * Encode a CONNECT packet without user name, password or will
+	 * 
+	 * @param clientId Client identifier
+	 * @param protocol MQTT_V31 or MQTT_V311
+	 * @param cleanSession True to start without session state
+	 * @param keepAlive Keep alive interval in seconds, 0 to disable
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer connect(String clientId, int protocol, boolean cleanSession, int keepAlive) {
+		byte[] name = (protocol == MQTT_V31 ? "MQIsdp" : "MQTT").getBytes(StandardCharsets.US_ASCII);
+		byte[] id = clientId.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer packet = allocate(CONNECT, 2 + name.length + 4 + 2 + id.length);
+		putString(packet, name);
+		packet.put((byte) protocol);
+		packet.put((byte) (cleanSession ? 0x02 : 0));
+		packet.putShort((short) keepAlive);
+		putString(packet, id);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode a CONNACK packet
+	 * 
+	 * @param returnCode 0 to accept the connection
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer connack(int returnCode) {
+		ByteBuffer packet = allocate(CONNACK, 2);
+		packet.put((byte) 0);
+		packet.put((byte) returnCode);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode a PUBLISH packet at quality of service 0
+	 * 
+	 * @param topic Topic to publish on
+	 * @param payload Payload, may be empty
+	 * @param retain True for the broker to keep the message for new subscribers
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer publish(String topic, byte[] payload, boolean retain) {
+		byte[] name = topic.getBytes(StandardCharsets.UTF_8);
+		int length = payload == null ? 0 : payload.length;
+		ByteBuffer packet = allocate(PUBLISH | (retain ? 1 : 0), 2 + name.length + length);
+		putString(packet, name);
+		if (length > 0)
+			packet.put(payload);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode a SUBSCRIBE packet for one topic at quality of service 0
+	 * 
+	 * @param messageId Message id the SUBACK packet refers to
+	 * @param topic Topic filter
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer subscribe(int messageId, String topic) {
+		byte[] name = topic.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer packet = allocate(SUBSCRIBE | 0x02, 2 + 2 + name.length + 1);
+		packet.putShort((short) messageId);
+		putString(packet, name);
+		packet.put((byte) 0);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode an UNSUBSCRIBE packet for one topic
+	 * 
+	 * @param messageId Message id the UNSUBACK packet refers to
+	 * @param topic Topic filter
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer unsubscribe(int messageId, String topic) {
+		byte[] name = topic.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer packet = allocate(UNSUBSCRIBE | 0x02, 2 + 2 + name.length);
+		packet.putShort((short) messageId);
+		putString(packet, name);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode a SUBACK packet
+	 * 
+	 * @param messageId Message id of the SUBSCRIBE packet
+	 * @param topics Number of topics in the SUBSCRIBE packet, all granted quality of service 0
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer suback(int messageId, int topics) {
+		ByteBuffer packet = allocate(SUBACK, 2 + topics);
+		packet.putShort((short) messageId);
+		for (int idx = 0; idx < topics; idx++)
+			packet.put((byte) 0);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode an UNSUBACK packet
+	 * 
+	 * @param messageId Message id of the UNSUBSCRIBE packet
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer unsuback(int messageId) {
+		ByteBuffer packet = allocate(UNSUBACK, 2);
+		packet.putShort((short) messageId);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Encode a packet without variable header or payload, such as PINGREQ,
+	 * PINGRESP or DISCONNECT
+	 * 
+	 * @param type Packet type
+	 * @return Packet ready to be written
+	 */
+	public static ByteBuffer empty(int type) {
+		ByteBuffer packet = ByteBuffer.allocate(2);
+		packet.put((byte) type);
+		packet.put((byte) 0);
+		packet.flip();
+		return packet;
+	}
+	
+	/**
+	 * Allocate a packet and write its fixed header
+	 * 
+	 * @param header First byte of the fixed header, packet type and flags
+	 * @param remainingLength Length of the rest of the packet
+	 * @return Buffer positioned after the fixed header
+	 */
+	private static ByteBuffer allocate(int header, int remainingLength) {
+		if (remainingLength > MAX_REMAINING_LENGTH)
+			throw new IllegalArgumentException("Packet too large");
+		
+		int lengthBytes = remainingLength < 128 ? 1 : remainingLength < 16384 ? 2 : remainingLength < 2097152 ? 3 : 4;
+		ByteBuffer packet = ByteBuffer.allocate(1 + lengthBytes + remainingLength);
+		packet.put((byte) header);
+		int length = remainingLength;
+		do {
+			int digit = length & 0x7F;
+			length >>>= 7;
+			packet.put((byte) (length > 0 ? digit | 0x80 : digit));
+		} while (length > 0);
+		return packet;
+	}
+	
+	private static void putString(ByteBuffer packet, byte[] value) {
+		if (value.length > 0xFFFF)
+			throw new IllegalArgumentException("String too long");
+		packet.putShort((short) value.length);
+		packet.put(value);
+	}
+}
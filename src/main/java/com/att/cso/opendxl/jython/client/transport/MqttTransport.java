@@ -0,0 +1,656 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MQTT 3.1/3.1.1 client transport on a non-blocking SocketChannel, with TLS
+ * through an SSLEngine.  It covers what the DXL client uses of the paho
+ * client: QoS 0 publishes, subscriptions and keepalive.
+ * 
+ * Connecting, including the TLS handshake, runs on the calling thread.
+ * Afterwards a single network thread reads and dispatches packets and 
+ * writes queued packets, several of them per socket write or TLS record.
+ */
+public class MqttTransport {
+	
+	/** Result of a successful call */
+	public static final int SUCCESS = 0;
+	/** Result of a call that needs a connection */
+	public static final int NO_CONNECTION = 4;
+	
+	private static final long CONNECT_TIMEOUT_MS = 30000;
+	private static final long DISCONNECT_TIMEOUT_MS = 5000;
+	// Plaintext coalesced into a single TLS record
+	private static final int MAX_RECORD = 16384;
+	private static final int PLAIN_BUFFER_SIZE = 65536;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	
+	Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	private final String clientId;
+	private final boolean cleanSession;
+	private final int protocol;
+	private final MqttTransportListener listener;
+	
+	private SSLContext sslContext;
+	private boolean verifyHostname;
+	private int maxPacketSize = MqttPackets.MAX_REMAINING_LENGTH;
+	
+	private volatile SocketChannel channel;
+	private Selector selector;
+	private SelectionKey key;
+	private SSLEngine engine;
+	private MqttPacketReader reader;
+	private ByteBuffer netIn;
+	private ByteBuffer appIn;
+	private ByteBuffer netOut;
+	private ByteBuffer appOut;
+	
+	private final ConcurrentLinkedQueue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<ByteBuffer>();
+	private ByteBuffer head;
+	private final AtomicBoolean wakeupPending = new AtomicBoolean();
+	private final AtomicInteger messageIds = new AtomicInteger();
+	
+	private Thread thread;
+	private volatile boolean running;
+	private volatile boolean disconnecting;
+	private long keepAliveNanos;
+	private long lastWrite;
+	private long pingSent;
+	
+	/**
+	 * Create a transport
+	 * 
+	 * @param clientId Client id sent in the CONNECT packet
+	 * @param cleanSession Whether the broker discards the session state
+	 * @param protocol MqttPackets.MQTT_V31 or MqttPackets.MQTT_V311
+	 * @param listener Listener called for incoming packets and disconnects
+	 */
+	public MqttTransport(String clientId, boolean cleanSession, int protocol, MqttTransportListener listener) {
+		this.clientId = clientId;
+		this.cleanSession = cleanSession;
+		this.protocol = protocol;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Enable TLS for the following connects
+	 * 
+	 * @param sslContext Context the SSLEngine is created from
+	 * @param verifyHostname Whether the broker certificate must match the host name
+	 */
+	public synchronized void setTls(SSLContext sslContext, boolean verifyHostname) {
+		this.sslContext = sslContext;
+		this.verifyHostname = verifyHostname;
+	}
+	
+	/**
+	 * Set the largest incoming packet accepted, larger packets close the connection
+	 * 
+	 * @param maxPacketSize Largest remaining length of an incoming packet
+	 */
+	public synchronized void setMaxPacketSize(int maxPacketSize) {
+		this.maxPacketSize = maxPacketSize;
+	}
+	
+	/**
+	 * Connect to a broker and send the CONNECT packet.  The CONNACK packet is
+	 * read by the network loop, which calls connected.
+	 * 
+	 * @param host Host name or address of the broker
+	 * @param port Port of the broker
+	 * @param keepAlive Keepalive interval in seconds, 0 for none
+	 * @throws IOException Thrown when the connection or the TLS handshake fails
+	 */
+	public synchronized void connect(String host, int port, int keepAlive) throws IOException {
+		if (thread != null)
+			throw new IllegalStateException("The network loop is running");
+		closeChannel();
+		
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MS);
+		SocketChannel socket = SocketChannel.open();
+		try {
+			socket.socket().setTcpNoDelay(true);
+			socket.socket().connect(new InetSocketAddress(host, port), (int) CONNECT_TIMEOUT_MS);
+			socket.configureBlocking(false);
+			channel = socket;
+			selector = Selector.open();
+			key = socket.register(selector, 0);
+			
+			if (sslContext != null) {
+				engine = sslContext.createSSLEngine(host, port);
+				engine.setUseClientMode(true);
+				if (verifyHostname) {
+					SSLParameters parameters = engine.getSSLParameters();
+					parameters.setEndpointIdentificationAlgorithm("HTTPS");
+					engine.setSSLParameters(parameters);
+				}
+				netIn = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+				netOut = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+				appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+				appOut = ByteBuffer.allocate(MAX_RECORD);
+				appOut.flip();
+				handshake(deadline);
+			} else {
+				engine = null;
+				appIn = ByteBuffer.allocateDirect(PLAIN_BUFFER_SIZE);
+				netOut = ByteBuffer.allocateDirect(PLAIN_BUFFER_SIZE);
+			}
+			
+			reader = new MqttPacketReader(maxPacketSize);
+			outgoing.clear();
+			head = null;
+			disconnecting = false;
+			keepAliveNanos = TimeUnit.SECONDS.toNanos(keepAlive);
+			pingSent = 0;
+			outgoing.add(MqttPackets.connect(clientId, protocol, cleanSession, keepAlive));
+			flushBlocking(deadline);
+		} catch (IOException | RuntimeException e) {
+			closeChannel();
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Start the network thread
+	 */
+	public synchronized void startLoop() {
+		if (thread != null)
+			return;
+		running = true;
+		thread = new Thread(this::loop, "MqttTransport-" + clientId);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stop the network thread and wait for it to end, the connection is kept
+	 * 
+	 * @throws InterruptedException Thrown when interrupted while waiting
+	 */
+	public void stopLoop() throws InterruptedException {
+		Thread current;
+		synchronized (this) {
+			current = thread;
+			if (current == null)
+				return;
+			running = false;
+		}
+		Selector waker = selector;
+		if (waker != null)
+			waker.wakeup();
+		if (current != Thread.currentThread())
+			current.join();
+		synchronized (this) {
+			thread = null;
+		}
+	}
+	
+	/**
+	 * Send a DISCONNECT packet and close the connection.  Without a network
+	 * thread this is done before returning, otherwise by the network thread.
+	 * 
+	 * @return SUCCESS or NO_CONNECTION
+	 */
+	public int disconnect() {
+		synchronized (this) {
+			if (channel == null)
+				return NO_CONNECTION;
+			if (thread != null) {
+				// Queued first, so the network thread only closes once it is written
+				outgoing.add(MqttPackets.empty(MqttPackets.DISCONNECT));
+				disconnecting = true;
+				wakeup();
+				return SUCCESS;
+			}
+			
+			outgoing.add(MqttPackets.empty(MqttPackets.DISCONNECT));
+			try {
+				flushBlocking(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DISCONNECT_TIMEOUT_MS));
+			} catch (IOException e) {
+				logger.debug("Unable to send the MQTT DISCONNECT packet", e);
+			}
+			closeChannel();
+		}
+		listener.disconnected(0);
+		return SUCCESS;
+	}
+	
+	/**
+	 * Queue a QoS 0 PUBLISH packet
+	 * 
+	 * @param topic Topic to publish on
+	 * @param payload Payload of the message
+	 * @param retain Whether the broker retains the message
+	 * @param flush Whether to wake the network thread, false to batch several publishes
+	 * @return SUCCESS or NO_CONNECTION
+	 */
+	public int publish(String topic, byte[] payload, boolean retain, boolean flush) {
+		if (channel == null)
+			return NO_CONNECTION;
+		outgoing.add(MqttPackets.publish(topic, payload, retain));
+		if (flush)
+			wakeup();
+		return SUCCESS;
+	}
+	
+	/**
+	 * Wake the network thread to write the queued packets
+	 */
+	public void flush() {
+		wakeup();
+	}
+	
+	/**
+	 * Queue a QoS 0 SUBSCRIBE packet
+	 * 
+	 * @param topic Topic filter to subscribe to
+	 * @return Message id acknowledged through subscribed, -1 when not connected
+	 */
+	public int subscribe(String topic) {
+		if (channel == null)
+			return -1;
+		int messageId = nextMessageId();
+		outgoing.add(MqttPackets.subscribe(messageId, topic));
+		wakeup();
+		return messageId;
+	}
+	
+	/**
+	 * Queue an UNSUBSCRIBE packet
+	 * 
+	 * @param topic Topic filter to unsubscribe from
+	 * @return Message id acknowledged through unsubscribed, -1 when not connected
+	 */
+	public int unsubscribe(String topic) {
+		if (channel == null)
+			return -1;
+		int messageId = nextMessageId();
+		outgoing.add(MqttPackets.unsubscribe(messageId, topic));
+		wakeup();
+		return messageId;
+	}
+	
+	/**
+	 * Return whether a connection is open
+	 * 
+	 * @return True while connected
+	 */
+	public boolean isConnected() {
+		return channel != null;
+	}
+	
+	private int nextMessageId() {
+		// Message ids run from 1 to 65535
+		return Math.floorMod(messageIds.getAndIncrement(), 65535) + 1;
+	}
+	
+	private void wakeup() {
+		// One wakeup per select is enough however many packets are queued
+		Selector waker = selector;
+		if (waker != null && wakeupPending.compareAndSet(false, true))
+			waker.wakeup();
+	}
+	
+	private void loop() {
+		int reason = 1;
+		try {
+			lastWrite = System.nanoTime();
+			while (running) {
+				long now = System.nanoTime();
+				if (keepAliveNanos > 0) {
+					if (pingSent != 0 && now - pingSent >= keepAliveNanos)
+						throw new SocketTimeoutException("No PINGRESP from the broker");
+					if (pingSent == 0 && now - lastWrite >= keepAliveNanos) {
+						outgoing.add(MqttPackets.empty(MqttPackets.PINGREQ));
+						pingSent = now;
+					}
+				}
+				
+				boolean flushed = write();
+				if (flushed && disconnecting) {
+					reason = 0;
+					break;
+				}
+				key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				
+				// Packets queued after the write and before the flag is 
+				// cleared did not wake the selector
+				wakeupPending.set(false);
+				if (flushed && !outgoing.isEmpty())
+					continue;
+				
+				long timeout = 0;
+				if (keepAliveNanos > 0) {
+					long due = pingSent != 0 ? pingSent + keepAliveNanos : lastWrite + keepAliveNanos;
+					timeout = Math.max(1, TimeUnit.NANOSECONDS.toMillis(due - System.nanoTime()) + 1);
+				}
+				selector.select(timeout);
+				selector.selectedKeys().clear();
+				if (key.isValid() && key.isReadable())
+					read();
+			}
+			if (!disconnecting)
+				return;
+			reason = 0;
+		} catch (IOException e) {
+			if (disconnecting) {
+				reason = 0;
+			} else {
+				logger.warn("MQTT connection of {} lost: {}", clientId, e.toString());
+			}
+		}
+		synchronized (this) {
+			closeChannel();
+		}
+		listener.disconnected(reason);
+	}
+	
+	private void handshake(long deadline) throws IOException {
+		engine.beginHandshake();
+		while (true) {
+			switch (engine.getHandshakeStatus()) {
+			case NEED_WRAP:
+				wrap(EMPTY);
+				while (!writeNet())
+					await(SelectionKey.OP_WRITE, deadline);
+				break;
+			case NEED_UNWRAP:
+				if (!unwrap(true) && !engine.isInboundDone())
+					fill(deadline);
+				break;
+			case NEED_TASK:
+				runTasks();
+				break;
+			default:
+				// Also write what the last unwrap or wrap left behind
+				while (!writeNet())
+					await(SelectionKey.OP_WRITE, deadline);
+				return;
+			}
+			if (engine.isInboundDone())
+				throw new EOFException("Connection closed during the TLS handshake");
+		}
+	}
+	
+	private void fill(long deadline) throws IOException {
+		while (true) {
+			int count = channel.read(netIn);
+			if (count < 0)
+				throw new EOFException("Connection closed by the broker");
+			if (count > 0)
+				return;
+			await(SelectionKey.OP_READ, deadline);
+		}
+	}
+	
+	private void await(int ops, long deadline) throws IOException {
+		long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (remaining <= 0)
+			throw new SocketTimeoutException("Timeout on the connection to the broker");
+		key.interestOps(ops);
+		selector.select(remaining);
+		selector.selectedKeys().clear();
+	}
+	
+	private void runTasks() {
+		Runnable task;
+		while ((task = engine.getDelegatedTask()) != null)
+			task.run();
+	}
+	
+	/**
+	 * Unwrap the TLS records in netIn into appIn
+	 * 
+	 * @param handshaking Whether to stop as soon as the engine needs something else
+	 * @return True when progress was made, false when more input is needed
+	 */
+	private boolean unwrap(boolean handshaking) throws IOException {
+		netIn.flip();
+		try {
+			boolean progress = false;
+			while (true) {
+				SSLEngineResult result = engine.unwrap(netIn, appIn);
+				switch (result.getStatus()) {
+				case BUFFER_UNDERFLOW:
+					return progress;
+				case BUFFER_OVERFLOW:
+					if (handshaking || appIn.position() == 0)
+						throw new SSLException("Unable to unwrap a TLS record");
+					dispatch();
+					continue;
+				case CLOSED:
+					throw new EOFException("TLS session closed by the broker");
+				default:
+					break;
+				}
+				progress = true;
+				SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+				if (handshaking && status != SSLEngineResult.HandshakeStatus.NEED_UNWRAP)
+					return true;
+				if (status == SSLEngineResult.HandshakeStatus.NEED_TASK)
+					runTasks();
+				if (engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+					// Post-handshake messages, such as a TLS 1.3 key update
+					wrap(EMPTY);
+				}
+				if (!netIn.hasRemaining())
+					return true;
+			}
+		} finally {
+			netIn.compact();
+		}
+	}
+	
+	/**
+	 * Wrap plaintext into netOut
+	 * 
+	 * @param source Plaintext to wrap
+	 * @return True when all of it was wrapped, false when netOut must be written first
+	 */
+	private boolean wrap(ByteBuffer source) throws IOException {
+		do {
+			SSLEngineResult result = engine.wrap(source, netOut);
+			if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+				if (netOut.position() == 0)
+					throw new SSLException("Unable to wrap a TLS record");
+				return false;
+			}
+			if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+				throw new EOFException("TLS session closed");
+			if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK)
+				runTasks();
+		} while (source.hasRemaining());
+		return true;
+	}
+	
+	/**
+	 * Write netOut to the socket
+	 * 
+	 * @return True when netOut is empty
+	 */
+	private boolean writeNet() throws IOException {
+		if (netOut.position() == 0)
+			return true;
+		netOut.flip();
+		try {
+			channel.write(netOut);
+			lastWrite = System.nanoTime();
+			return !netOut.hasRemaining();
+		} finally {
+			netOut.compact();
+		}
+	}
+	
+	/**
+	 * Write as many queued packets as the socket takes
+	 * 
+	 * @return True when all queued packets were written
+	 */
+	private boolean write() throws IOException {
+		while (true) {
+			if (!writeNet())
+				return false;
+			// Plaintext left over when netOut filled up
+			if (engine != null && appOut.hasRemaining()) {
+				wrap(appOut);
+				continue;
+			}
+			if (head == null || !head.hasRemaining())
+				head = outgoing.poll();
+			if (head == null)
+				return true;
+			
+			// Coalesce queued packets, into a single TLS record with TLS
+			ByteBuffer target = engine != null ? (ByteBuffer) appOut.clear() : netOut;
+			while (head != null && target.hasRemaining()) {
+				int count = Math.min(head.remaining(), target.remaining());
+				int limit = head.limit();
+				head.limit(head.position() + count);
+				target.put(head);
+				head.limit(limit);
+				if (!head.hasRemaining())
+					head = outgoing.poll();
+			}
+			if (engine != null) {
+				appOut.flip();
+				wrap(appOut);
+			}
+		}
+	}
+	
+	private void flushBlocking(long deadline) throws IOException {
+		while (!write())
+			await(SelectionKey.OP_WRITE, deadline);
+	}
+	
+	private void read() throws IOException {
+		if (engine == null) {
+			if (channel.read(appIn) < 0)
+				throw new EOFException("Connection closed by the broker");
+			dispatch();
+			return;
+		}
+		
+		if (channel.read(netIn) < 0)
+			throw new EOFException("Connection closed by the broker");
+		unwrap(false);
+		dispatch();
+	}
+	
+	private void dispatch() throws IOException {
+		appIn.flip();
+		try {
+			MqttPacket packet;
+			while ((packet = reader.read(appIn)) != null)
+				dispatch(packet);
+		} finally {
+			appIn.clear();
+		}
+	}
+	
+	private void dispatch(MqttPacket packet) {
+		try {
+			switch (packet.getType()) {
+			case MqttPackets.CONNACK:
+				listener.connected(packet.getReturnCode());
+				break;
+			case MqttPackets.PUBLISH:
+				listener.messageArrived(packet.getTopic(), packet.getPayload());
+				break;
+			case MqttPackets.SUBACK:
+				listener.subscribed(packet.getMessageId());
+				break;
+			case MqttPackets.UNSUBACK:
+				listener.unsubscribed(packet.getMessageId());
+				break;
+			case MqttPackets.PINGRESP:
+				pingSent = 0;
+				break;
+			default:
+				logger.debug("Ignoring MQTT packet type {}", packet.getType() >> 4);
+			}
+		} catch (RuntimeException e) {
+			logger.error("Error handling MQTT packet", e);
+		}
+	}
+	
+	private void closeChannel() {
+		SocketChannel current = channel;
+		if (current == null)
+			return;
+		channel = null;
+		try {
+			if (engine != null) {
+				engine.closeOutbound();
+				netOut.clear();
+				engine.wrap(EMPTY, netOut);
+				netOut.flip();
+				current.write(netOut);
+			}
+		} catch (IOException ignored) {
+		}
+		try {
+			selector.close();
+			current.close();
+		} catch (IOException e) {
+			logger.debug("Unable to close the MQTT connection", e);
+		}
+		selector = null;
+		key = null;
+	}
+}
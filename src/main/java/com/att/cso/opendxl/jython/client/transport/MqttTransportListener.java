@@ -0,0 +1,74 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+/**
+ * Callbacks of an MqttTransport, all called on its network thread except
+ * for the disconnect that follows a call to disconnect.
+ */
+public interface MqttTransportListener {
+	
+	/**
+	 * The broker answered the CONNECT packet
+	 * 
+	 * @param returnCode Return code of the CONNACK packet, 0 when accepted
+	 */
+	public void connected(int returnCode);
+	
+	/**
+	 * The connection was closed
+	 * 
+	 * @param reason 0 after a call to disconnect, otherwise the connection was lost
+	 */
+	public void disconnected(int reason);
+	
+	/**
+	 * A message arrived on a subscribed topic
+	 * 
+	 * @param topic Topic the message was published on
+	 * @param payload Payload of the message, owned by the listener
+	 */
+	public void messageArrived(String topic, byte[] payload);
+	
+	/**
+	 * The broker acknowledged a subscription
+	 * 
+	 * @param messageId Message id returned by subscribe
+	 */
+	public void subscribed(int messageId);
+	
+	/**
+	 * The broker acknowledged an unsubscription
+	 * 
+	 * @param messageId Message id returned by unsubscribe
+	 */
+	public void unsubscribed(int messageId);
+}
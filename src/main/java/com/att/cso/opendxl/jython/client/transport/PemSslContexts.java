@@ -0,0 +1,233 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Builds SSLContexts from the PEM files of a DXL client configuration: the
+ * broker CA bundle, the client certificate and its private key.  Private 
+ * keys may be PKCS#8, PKCS#1 RSA or SEC1 EC keys, but not encrypted.
+ */
+public final class PemSslContexts {
+	
+	private static final Pattern PEM = Pattern.compile(
+			"-----BEGIN ([A-Z0-9 ]+)-----([A-Za-z0-9+/=\\s]*)-----END \\1-----");
+	
+	// AlgorithmIdentifier of PKCS#1 rsaEncryption, with NULL parameters
+	private static final byte[] RSA_ALGORITHM = {
+		0x30, 0x0D, 0x06, 0x09, 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01, 0x05, 0x00 };
+	// Object identifier of id-ecPublicKey
+	private static final byte[] EC_ALGORITHM = { 
+		0x06, 0x07, 0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x02, 0x01 };
+	
+	private PemSslContexts() {
+	}
+	
+	/**
+	 * Create an SSLContext that trusts the CA bundle and authenticates with 
+	 * the client certificate
+	 * 
+	 * @param caBundle PEM file of the CA certificates to trust
+	 * @param certFile PEM file of the client certificate, null for none
+	 * @param keyFile PEM file of the private key of the client certificate
+	 * @return Initialized SSLContext
+	 * @throws IOException Thrown when a file cannot be read or parsed
+	 */
+	public static SSLContext create(String caBundle, String certFile, String keyFile) throws IOException {
+		try {
+			KeyStore trusted = KeyStore.getInstance(KeyStore.getDefaultType());
+			trusted.load(null, null);
+			int idx = 0;
+			for (Certificate certificate : readCertificates(caBundle))
+				trusted.setCertificateEntry("ca" + idx++, certificate);
+			TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			trustManagers.init(trusted);
+			
+			KeyManagerFactory keyManagers = null;
+			if (certFile != null) {
+				Collection<? extends Certificate> chain = readCertificates(certFile);
+				KeyStore identity = KeyStore.getInstance(KeyStore.getDefaultType());
+				identity.load(null, null);
+				identity.setKeyEntry("client", readPrivateKey(keyFile == null ? certFile : keyFile), new char[0], 
+						chain.toArray(new Certificate[chain.size()]));
+				keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+				keyManagers.init(identity, new char[0]);
+			}
+			
+			SSLContext context = SSLContext.getInstance("TLS");
+			context.init(keyManagers == null ? null : keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+			return context;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Unable to set up TLS: " + e.getMessage(), e);
+		}
+	}
+	
+	private static Collection<? extends Certificate> readCertificates(String file) throws IOException, GeneralSecurityException {
+		Collection<? extends Certificate> certificates = CertificateFactory.getInstance("X.509")
+				.generateCertificates(new ByteArrayInputStream(Files.readAllBytes(Paths.get(file))));
+		if (certificates.isEmpty())
+			throw new IOException(file + ": no certificates found");
+		return certificates;
+	}
+	
+	private static PrivateKey readPrivateKey(String file) throws IOException, GeneralSecurityException {
+		Matcher matcher = PEM.matcher(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.US_ASCII));
+		while (matcher.find()) {
+			String type = matcher.group(1);
+			if (!type.endsWith("PRIVATE KEY"))
+				continue;
+			byte[] der = Base64.getMimeDecoder().decode(matcher.group(2));
+			switch (type) {
+			case "PRIVATE KEY":
+				return pkcs8(der, "RSA", "EC");
+			case "RSA PRIVATE KEY":
+				return pkcs8(wrapPkcs8(RSA_ALGORITHM, der), "RSA");
+			case "EC PRIVATE KEY":
+				return pkcs8(wrapPkcs8(ecAlgorithm(der), der), "EC");
+			default:
+				throw new IOException(file + ": " + type.toLowerCase() + "s are not supported");
+			}
+		}
+		throw new IOException(file + ": no private key found");
+	}
+	
+	private static PrivateKey pkcs8(byte[] der, String... algorithms) throws GeneralSecurityException {
+		GeneralSecurityException failure = null;
+		for (String algorithm : algorithms) {
+			try {
+				return KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(der));
+			} catch (GeneralSecurityException e) {
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+	
+	/**
+	 * The AlgorithmIdentifier of a SEC1 key names its curve, taken from the
+	 * [0] parameters of the ECPrivateKey structure
+	 */
+	private static byte[] ecAlgorithm(byte[] sec1) throws IOException {
+		// SEQUENCE { INTEGER 1, OCTET STRING key, [0] { OID curve } ... }
+		int offset = headerLength(sec1, 0);
+		offset += headerLength(sec1, offset) + contentLength(sec1, offset);
+		offset += headerLength(sec1, offset) + contentLength(sec1, offset);
+		if (offset >= sec1.length || (sec1[offset] & 0xFF) != 0xA0)
+			throw new IOException("EC private key without named curve");
+		offset += headerLength(sec1, offset);
+		int curveLength = headerLength(sec1, offset) + contentLength(sec1, offset);
+		
+		ByteArrayOutputStream algorithm = new ByteArrayOutputStream();
+		algorithm.write(0x30);
+		writeLength(algorithm, EC_ALGORITHM.length + curveLength);
+		algorithm.write(EC_ALGORITHM, 0, EC_ALGORITHM.length);
+		algorithm.write(sec1, offset, curveLength);
+		return algorithm.toByteArray();
+	}
+	
+	/**
+	 * Wrap a PKCS#1 or SEC1 key into PKCS#8 PrivateKeyInfo
+	 */
+	private static byte[] wrapPkcs8(byte[] algorithm, byte[] key) {
+		ByteArrayOutputStream octets = new ByteArrayOutputStream();
+		octets.write(0x04);
+		writeLength(octets, key.length);
+		octets.write(key, 0, key.length);
+		
+		int length = 3 + algorithm.length + octets.size();
+		ByteArrayOutputStream info = new ByteArrayOutputStream();
+		info.write(0x30);
+		writeLength(info, length);
+		// Version 0
+		info.write(0x02);
+		info.write(0x01);
+		info.write(0x00);
+		info.write(algorithm, 0, algorithm.length);
+		info.write(octets.toByteArray(), 0, octets.size());
+		return info.toByteArray();
+	}
+	
+	private static int headerLength(byte[] der, int offset) throws IOException {
+		if (offset + 1 >= der.length)
+			throw new IOException("Truncated private key");
+		int first = der[offset + 1] & 0xFF;
+		return first < 0x80 ? 2 : 2 + (first & 0x7F);
+	}
+	
+	private static int contentLength(byte[] der, int offset) throws IOException {
+		int first = der[offset + 1] & 0xFF;
+		if (first < 0x80)
+			return first;
+		int length = 0;
+		for (int idx = 0; idx < (first & 0x7F); idx++)
+			length = (length << 8) | (der[offset + 2 + idx] & 0xFF);
+		return length;
+	}
+	
+	private static void writeLength(ByteArrayOutputStream out, int length) {
+		if (length < 0x80) {
+			out.write(length);
+		} else if (length < 0x100) {
+			out.write(0x81);
+			out.write(length);
+		} else if (length < 0x10000) {
+			out.write(0x82);
+			out.write(length >> 8);
+			out.write(length);
+		} else {
+			out.write(0x83);
+			out.write(length >> 16);
+			out.write(length >> 8);
+			out.write(length);
+		}
+	}
+}
@@ -3,13 +3,23 @@
 # Copyright (c) 2017 McAfee Inc. - All Rights Reserved.
 ################################################################################
 
+import logging
 import threading
+import time
 import types
 
 from dxlclient import _BaseObject
 from dxlclient.callbacks import MessageCallback, RequestCallback, ResponseCallback, EventCallback
+from dxlclient.callbacks import BatchEventCallback
 from dxlclient._dxl_utils import WildcardCallback, DxlUtils
 
+try:
+    # Native topic index, resolves the callbacks of a topic without building
+    # the wildcard strings
+    from com.att.cso.opendxl.jython.client.topic import DxlTopicIndex as _JavaTopicIndex
+except ImportError:
+    _JavaTopicIndex = None
+
 
 def _has_wildcard(channel_name):
     """
@@ -23,6 +33,9 @@ def _has_wildcard(channel_name):
     return channel_name and channel_name[-1] == '#'
 
 
+logger = logging.getLogger(__name__)
+
+
 class _CallbackManager(_BaseObject):
     def __init__(self):
         super(_CallbackManager, self).__init__()
@@ -33,6 +46,8 @@ class _CallbackManager(_BaseObject):
         self.callbacks_by_channel = {}
         # Is wildcarding enabled
         self.wildcarding_enabled = False
+        # Index of the callbacks in callbacks_by_channel, None when not available
+        self._topic_index = _JavaTopicIndex() if _JavaTopicIndex is not None else None
 
     def validate_callback(self, callback):  # pylint: disable=no-self-use
         """
@@ -99,6 +114,8 @@ class _CallbackManager(_BaseObject):
                 callbacks.append(callback)
                 callbacks_by_channel[channel] = callbacks
                 rc = True  # pylint: disable=invalid-name
+                if self._topic_index is not None:
+                    self._topic_index.add(channel, callback)
             self.callbacks_by_channel = callbacks_by_channel
         return rc
 
@@ -125,6 +142,8 @@ class _CallbackManager(_BaseObject):
             if callbacks is not None:
                 if callback in callbacks:
                     callbacks.remove(callback)
+                    if self._topic_index is not None:
+                        self._topic_index.remove(channel, callback)
                 if len(callbacks) == 0:
                     del callbacks_by_channel[channel]
                 else:
@@ -154,6 +173,11 @@ class _CallbackManager(_BaseObject):
         # contents that no concurrent modification errors are encountered.
         callbacks_by_channel = self.callbacks_by_channel
 
+        # The index returns the global, channel and wildcard listeners in one walk
+        if self._topic_index is not None:
+            self._fire_message(self._topic_index.match(message.destination_topic), message)
+            return
+
         # Fire for global listeners (channel="")
         self._fire_message(callbacks_by_channel.get(""), message)
 
@@ -275,11 +299,118 @@ class _ResponseCallbackManager(_CallbackManager):
             response_callback.on_response(response)
 
 
+class _EventBatcher(object):
+    """
+    Collects events for a {@link BatchEventCallback} and delivers them in batches, flushed by
+    size or by the latency of the oldest pending event.
+    """
+
+    def __init__(self, callback):
+        self.callback = callback
+        self.max_batch_size = max(1, int(callback.max_batch_size))
+        self.max_latency = max(0.0, float(callback.max_latency))
+        self.condition = threading.Condition()
+        # Pending events, and the time by which they must be delivered
+        self.events = []
+        self.deadline = 0
+        self.closed = False
+        self.thread = threading.Thread(target=self._run, name="DxlBatchEventCallback")
+        self.thread.daemon = True
+        self.thread.start()
+
+    def add(self, event):
+        """
+        Adds an event to the pending batch, waiting while a full batch has not been taken yet.
+
+        :param event: The event to add
+        """
+        with self.condition:
+            while len(self.events) >= self.max_batch_size and not self.closed:
+                self.condition.wait()
+            if self.closed:
+                return
+            self.events.append(event)
+            if len(self.events) == 1:
+                self.deadline = time.time() + self.max_latency
+                self.condition.notify_all()
+            elif len(self.events) >= self.max_batch_size:
+                self.condition.notify_all()
+
+    def close(self):
+        """
+        Delivers the pending events and stops the delivery thread.
+        """
+        with self.condition:
+            self.closed = True
+            self.condition.notify_all()
+        if self.thread is not threading.current_thread():
+            self.thread.join()
+
+    def _run(self):
+        while True:
+            with self.condition:
+                while not self.events and not self.closed:
+                    self.condition.wait()
+                if not self.events:
+                    return
+                remaining = self.deadline - time.time()
+                if len(self.events) < self.max_batch_size and remaining > 0 and not self.closed:
+                    self.condition.wait(remaining)
+                    continue
+                batch, self.events = self.events, []
+                self.condition.notify_all()
+            try:
+                self.callback.on_events(batch)
+            except Exception as ex:  # pylint: disable=broad-except
+                logger.error("Error in batch event callback: %s", ex)
+
+
 class _EventCallbackManager(_CallbackManager):
     """
     Manager for {@link EventCallback} message callbacks.
     """
 
+    def __init__(self):
+        super(_EventCallbackManager, self).__init__()
+
+        # Batchers for registered {@link BatchEventCallback} instances, by callback
+        self.batchers = {}
+        # Set once destroyed, no batcher is created afterwards
+        self.destroyed = False
+
+    def remove_callback(self, channel="", callback=None):
+        """
+        Removes the callback that was registered for the specified channel. Events pending for a
+        {@link BatchEventCallback} are delivered once it is no longer registered on any channel.
+
+        :param channel: The channel name
+        :param callback: The callback to remove
+        :return: True if the callback was removed successfully; False otherwise
+        """
+        batcher = None
+        # Removed under the same lock that handle_fire creates batchers under, so an event
+        # still being fired cannot create a new batcher for the removed callback
+        with self.lock:
+            rc = super(_EventCallbackManager, self).remove_callback(channel, callback)  # pylint: disable=invalid-name
+            if callback in self.batchers and not self._is_registered(callback):
+                batcher = self.batchers.pop(callback)
+        if batcher is not None:
+            batcher.close()
+        return rc
+
+    def destroy(self):
+        """
+        Delivers the events pending for batch callbacks and stops their delivery threads.
+        """
+        with self.lock:
+            self.destroyed = True
+            batchers, self.batchers = self.batchers, {}
+        for batcher in batchers.values():
+            batcher.close()
+
+    def _is_registered(self, callback):
+        return any(callback in callbacks for callbacks in self.callbacks_by_channel.values())
+
     def validate_callback(self, callback):
         """
         Validates if `callback` is a valid EventCallback.
@@ -303,8 +434,21 @@ class _EventCallbackManager(_CallbackManager):
         :param event_callback: {@link dxlclient.callbacks.EventCallback} object that will handle the event.
         :param event: {@link dxlclient.event.Event} object.
         """
+        # Batch callback instances receive the event through their batcher
+        if isinstance(event_callback, BatchEventCallback):
+            batcher = self.batchers.get(event_callback)
+            if batcher is None:
+                with self.lock:
+                    batcher = self.batchers.get(event_callback)
+                    if batcher is None:
+                        # The event was fired before the callback was removed, drop it
+                        if self.destroyed or not self._is_registered(event_callback):
+                            return
+                        batcher = _EventBatcher(event_callback)
+                        self.batchers[event_callback] = batcher
+            batcher.add(event)
         # Check if the provided eventCallback is a class
-        if isinstance(event_callback, (type, types.ClassType)):
+        elif isinstance(event_callback, (type, types.ClassType)):
             callback = event_callback()
             callback.on_event(event)
         # Not a class, but an instance
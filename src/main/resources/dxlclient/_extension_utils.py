@@ -0,0 +1,98 @@
+# -*- coding: utf-8 -*-
+# BSD License
+#
+# Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+#
+# Redistribution and use in source and binary forms, with or without modification, are permitted
+# provided that the following conditions are met:
+#
+# 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+#    and the following disclaimer.
+# 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+#    conditions and the following disclaimer in the documentation and/or other materials provided
+#    with the distribution.
+# 3. All advertising materials mentioning features or use of this software must display the
+#    following acknowledgement:  This product includes software developed by the AT&T.
+# 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+#    promote products derived from this software without specific prior written permission.
+# 
+# THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+# IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+# SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+# SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+# PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+# OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+# CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+# ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+# DAMAGE.
+
+"""
+Helpers shared by the extension modules of the OpenDXL Jython client library
+(EventPublisher, EventListener, ServiceRequester and ServiceProvider). Kept
+in one place so that payload encoding, shared clients and overload policies
+are handled the same way by all of them.
+"""
+
+from dxlclient.client import DxlClient
+from dxlclient.message import Message
+
+
+def to_payload(message):
+    """
+    Returns the DXL payload for a message handed over from Java. Java Strings
+    arrive as unicode and are encoded as UTF-8, a Java byte[] arrives as an
+    array and is sent as is, None is sent as an empty payload.
+    """
+    if message is None:
+        return ""
+    if isinstance(message, unicode):
+        return message.encode("utf8")
+    if isinstance(message, str):
+        return message
+    return message.tostring()
+
+
+def create_client(config, dispatcher, overload_policy, metrics, to_dxl_message, shared=False):
+    """
+    Creates a DXL client that applies the overload policy to its incoming
+    message queue. Messages handed to the overflow callback of the policy
+    are converted with to_dxl_message.
+    """
+    if overload_policy is None:
+        return DxlClient(config, dispatcher, metrics=metrics, shared=shared)
+
+    config.incoming_message_queue_size = overload_policy.getQueueSize()
+    config.incoming_message_overload_policy = overload_policy.getMode().getPolicyName()
+    config.incoming_request_busy_response = overload_policy.isBusyResponse()
+
+    overflow = None
+    overflow_callback = overload_policy.getOverflowCallback()
+    if overflow_callback is not None:
+        def overflow(channel, payload):
+            message = Message._from_bytes(payload)
+            message.destination_topic = channel
+            overflow_callback.callbackEvent(to_dxl_message(message))
+
+    return DxlClient(config, dispatcher, overflow, overload_policy.overloaded, metrics, shared)
+
+
+def connect_shared(client):
+    """
+    Connects a client for the connection manager to share, the client is
+    destroyed if it cannot connect.
+    """
+    try:
+        client.connect()
+    except Exception:
+        client.destroy()
+        raise
+    return client
+
+
+def release_client(connection_manager, config_file, client):
+    """
+    Destroys the client unless other objects still share it.
+    """
+    if connection_manager is None or connection_manager.release(config_file, client):
+        client.destroy()
@@ -0,0 +1,179 @@
+# -*- coding: utf-8 -*-
+# BSD License
+#
+# Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+#
+# Redistribution and use in source and binary forms, with or without modification, are permitted
+# provided that the following conditions are met:
+#
+# 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+#    and the following disclaimer.
+# 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+#    conditions and the following disclaimer in the documentation and/or other materials provided
+#    with the distribution.
+# 3. All advertising materials mentioning features or use of this software must display the
+#    following acknowledgement:  This product includes software developed by the AT&T.
+# 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+#    promote products derived from this software without specific prior written permission.
+# 
+# THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+# IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+# MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+# SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+# SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+# PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+# OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+# CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+# ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+# DAMAGE.
+
+"""
+MQTT client with the subset of the paho client API used by the DXL client,
+on top of the non-blocking Java transport of the OpenDXL Jython client
+library. Selected with the ``MqttTransport=java`` setting of the client
+configuration.
+"""
+
+import logging
+
+from com.att.cso.opendxl.jython.client.transport import MqttTransport as _JavaMqttTransport
+from com.att.cso.opendxl.jython.client.transport import MqttTransportListener as _JavaMqttTransportListener
+from com.att.cso.opendxl.jython.client.transport import MqttPackets as _JavaMqttPackets
+from com.att.cso.opendxl.jython.client.transport import PemSslContexts as _JavaPemSslContexts
+from java.io import IOException as _JavaIOException
+from java.lang import IllegalStateException as _JavaIllegalStateException
+
+import paho.mqtt.client as mqtt # pylint: disable=import-error
+
+logger = logging.getLogger(__name__)
+
+
+class MQTTMessage(object):
+    """
+    An incoming message, as passed to ``on_message``. The payload is the
+    Java byte array it was read into, which the Java message codec decodes
+    without copying.
+    """
+    __slots__ = ("topic", "payload", "qos", "retain", "mid")
+
+    def __init__(self, topic, payload):
+        self.topic = topic
+        self.payload = payload
+        self.qos = 0
+        self.retain = False
+        self.mid = 0
+
+
+class Client(_JavaMqttTransportListener):
+    """
+    Drop-in replacement for ``paho.mqtt.client.Client`` as used by
+    :class:`dxlclient.client.DxlClient`. Only QoS 0 is supported, the callbacks
+    are invoked with the same arguments as their paho counterparts.
+    """
+
+    def __init__(self, client_id="", clean_session=True, userdata=None, protocol=mqtt.MQTTv311):
+        self._userdata = userdata
+        self._transport = _JavaMqttTransport(client_id, clean_session,
+                                             _JavaMqttPackets.MQTT_V31 if protocol == mqtt.MQTTv31
+                                             else _JavaMqttPackets.MQTT_V311, self)
+        self._ssl_context = None
+        self._tls_insecure = False
+        self.on_connect = None
+        self.on_disconnect = None
+        self.on_message = None
+        self.on_subscribe = None
+        self.on_unsubscribe = None
+        self.on_log = None
+
+    def tls_set(self, ca_certs, certfile=None, keyfile=None, cert_reqs=None, tls_version=None, ciphers=None):
+        """
+        Enables TLS with the given PEM files. The protocol version and the
+        ciphers are negotiated by the Java runtime, the broker certificate is
+        always verified against ``ca_certs``.
+        """
+        try:
+            self._ssl_context = _JavaPemSslContexts.create(ca_certs, certfile, keyfile)
+        except _JavaIOException as ex:
+            raise IOError(ex.getMessage())
+        self._transport.setTls(self._ssl_context, not self._tls_insecure)
+
+    def tls_insecure_set(self, value):
+        """
+        Whether to skip the verification of the broker host name
+        """
+        self._tls_insecure = value
+        if self._ssl_context is not None:
+            self._transport.setTls(self._ssl_context, not value)
+
+    def user_data_set(self, userdata):
+        self._userdata = userdata
+
+    def connect(self, host, port=1883, keepalive=60, bind_address=""):
+        try:
+            self._transport.connect(host, port, keepalive)
+        except _JavaIOException as ex:
+            raise IOError(ex.toString())
+        except _JavaIllegalStateException as ex:
+            raise ValueError(ex.getMessage())
+        return mqtt.MQTT_ERR_SUCCESS
+
+    def loop_start(self):
+        self._transport.startLoop()
+        return mqtt.MQTT_ERR_SUCCESS
+
+    def loop_stop(self, force=False):
+        self._transport.stopLoop()
+        return mqtt.MQTT_ERR_SUCCESS
+
+    def disconnect(self):
+        return self._transport.disconnect()
+
+    def subscribe(self, topic, qos=0):
+        mid = self._transport.subscribe(topic)
+        if mid < 0:
+            return mqtt.MQTT_ERR_NO_CONN, None
+        return mqtt.MQTT_ERR_SUCCESS, mid
+
+    def unsubscribe(self, topic):
+        mid = self._transport.unsubscribe(topic)
+        if mid < 0:
+            return mqtt.MQTT_ERR_NO_CONN, None
+        return mqtt.MQTT_ERR_SUCCESS, mid
+
+    def publish(self, topic, payload=None, qos=0, retain=False):
+        if qos != 0:
+            raise ValueError("Only QoS 0 is supported by the Java MQTT transport")
+        return self._transport.publish(topic, payload or "", retain, True), 0
+
+    def publish_multiple(self, messages, qos=0, retain=False):
+        """
+        Queues all messages and wakes the network thread once for the batch
+        """
+        if qos != 0:
+            raise ValueError("Only QoS 0 is supported by the Java MQTT transport")
+        results = [(self._transport.publish(topic, payload or "", retain, False), 0)
+                   for topic, payload in messages]
+        self._transport.flush()
+        return results
+
+    # MqttTransportListener, called on the network thread
+
+    def connected(self, rc):
+        if self.on_connect:
+            self.on_connect(self, self._userdata, rc)
+
+    def disconnected(self, rc):
+        if self.on_disconnect:
+            self.on_disconnect(self, self._userdata, rc)
+
+    def messageArrived(self, topic, payload):
+        if self.on_message:
+            self.on_message(self, self._userdata, MQTTMessage(topic, payload))
+
+    def subscribed(self, mid):
+        if self.on_subscribe:
+            self.on_subscribe(self, self._userdata, mid, (0,))
+
+    def unsubscribed(self, mid):
+        if self.on_unsubscribe:
+            self.on_unsubscribe(self, self._userdata, mid)
@@ -4,15 +4,62 @@
 ################################################################################
 
 import threading
-import time
 import logging
 
 from dxlclient.exceptions import _raise_wrapped_exception, WaitTimeoutException
 from dxlclient.callbacks import ResponseCallback
 
+try:
+    # Java latches are lighter than a Condition per request under Jython
+    from java.util.concurrent import CountDownLatch as _CountDownLatch
+    from java.util.concurrent import TimeUnit as _TimeUnit
+except ImportError:
+    _CountDownLatch = None
+
 logger = logging.getLogger(__name__)
 
 
+class _ResponseSlot(object):
+    """
+    Completion slot of one synchronous request. Only the thread waiting for
+    the request is woken when its response arrives.
+    """
+
+    def __init__(self):
+        self.response = None
+        if _CountDownLatch is not None:
+            self._latch = _CountDownLatch(1)
+        else:
+            self._event = threading.Event()
+
+    def complete(self, response):
+        """
+        Stores the response and wakes the waiting thread. Only the first
+        response is kept.
+
+        :param response: The response
+        :return: None
+        """
+        if self.response is not None:
+            return
+        self.response = response
+        if _CountDownLatch is not None:
+            self._latch.countDown()
+        else:
+            self._event.set()
+
+    def wait(self, timeout):
+        """
+        Waits for the response.
+
+        :param timeout: The maximum time to wait (in seconds)
+        :return: True if the response arrived, False if the timeout elapsed
+        """
+        if _CountDownLatch is not None:
+            return self._latch.await(long(timeout * 1000000), _TimeUnit.MICROSECONDS)
+        return self._event.wait(timeout)
+
+
 # pylint: disable=too-many-instance-attributes
 class RequestManager(ResponseCallback):
     """
@@ -34,17 +81,10 @@ class RequestManager(ResponseCallback):
         # identifier of the request message that they are waiting for a response
         # to. This map is used for asynchronous requests.
         self.callback_map = {}
-        # Lock for request threads waiting for a response (for synchronous request)
-        self.sync_wait_message_lock = threading.RLock()
-        # The condition associated with the request threads waiting for a response
-        # (for synchronous request).
-        self.sync_wait_message_condition = threading.Condition(self.sync_wait_message_lock)
-        # Set of identifiers of request messages that are waiting for a response
-        # (for synchronous request).
-        self.sync_wait_message_ids = set()
-        # Messages that have been received mapped by the corresponding request
-        # message identifier (for synchronous request).
-        self.sync_wait_message_responses = {}
+        # Completion slots of the request messages that are waiting for a
+        # response, mapped by request message identifier (for synchronous
+        # request). Single dict operations are atomic, so no lock is needed.
+        self.sync_wait_slots = {}
         # Lock for the current request message identifiers (requests that are in process)
         self.current_request_message_lock = threading.RLock()
         # Current request message identifiers (requests that are in process)
@@ -118,7 +158,6 @@ class RequestManager(ResponseCallback):
         :param response_callback: The callback to be invoked when the response is received
         :return: None
         """
-        destination = request.destination_topic
         if not response_callback is None:
             self.register_async_callback(request, response_callback)
         try:
@@ -128,7 +167,7 @@ class RequestManager(ResponseCallback):
         except Exception as ex:
             try:
                 if not response_callback is None:
-                    self.unregister_async_callback(destination)
+                    self.unregister_async_callback(request.message_id)
             finally:
                 self.remove_current_request(request.message_id)
             raise
@@ -142,9 +181,7 @@ class RequestManager(ResponseCallback):
         :param request: The request that is about to be waited for.
         :return: None
         """
-        with self.sync_wait_message_lock:
-            self.sync_wait_message_ids.add(request.message_id)
-
+        self.sync_wait_slots[request.message_id] = _ResponseSlot()
 
     def unregister_wait_for_response(self, request):
         """
@@ -154,11 +191,7 @@ class RequestManager(ResponseCallback):
         :param request: The request that should no longer be waited for
         :return: None
         """
-        with self.sync_wait_message_lock:
-            if request.message_id in self.sync_wait_message_ids:
-                self.sync_wait_message_ids.remove(request.message_id)
-            if request.message_id in self.sync_wait_message_responses:
-                del self.sync_wait_message_responses[request.message_id]
+        self.sync_wait_slots.pop(request.message_id, None)
 
     def register_async_callback(self, request, response_callback):
         """
@@ -175,12 +208,22 @@ class RequestManager(ResponseCallback):
         :param message_id: The identifier for the request
         :return: The response callback or None, if not available
         """
-        if message_id in self.callback_map:
-            response_callback = self.callback_map[message_id]
-            del self.callback_map[message_id]
-        else:
-            response_callback = None
-        return response_callback
+        # Single pop so a response racing with a timeout only sees the callback once
+        return self.callback_map.pop(message_id, None)
+
+    def cancel_async_request(self, message_id):
+        """
+        Stops tracking an asynchronous request that is no longer waiting for a
+        response (for example because its timeout has elapsed). A response that
+        arrives later is ignored.
+
+        :param message_id: The identifier for the request
+        :return: The response callback that was removed or None, if not available
+        """
+        try:
+            return self.unregister_async_callback(message_id)
+        finally:
+            self.remove_current_request(message_id)
 
     def _get_async_callback_count(self):
         """
@@ -199,19 +242,11 @@ class RequestManager(ResponseCallback):
         """
         message_id = request.message_id
 
-        with self.sync_wait_message_lock:
-            wait_seconds = wait
-            wait_start = time.time()
+        slot = self.sync_wait_slots.get(message_id)
+        if slot is None or not slot.wait(wait):
+            raise WaitTimeoutException("Timeout waiting for response to message: " + message_id)
 
-            while not message_id in self.sync_wait_message_responses:
-                self.sync_wait_message_condition.wait(wait_seconds)
-                if (time.time() - wait_start) >= wait_seconds:
-                    raise WaitTimeoutException("Timeout waiting for response to message: " + message_id)
-
-            response = self.sync_wait_message_responses[message_id]
-            del self.sync_wait_message_responses[message_id]
-
-        return response
+        return slot.response
 
     def on_response(self, response):
         """
@@ -219,12 +254,10 @@ class RequestManager(ResponseCallback):
         """
         request_message_id = response.request_message_id
         try:
-            # Check for synchronous waits
-            with self.sync_wait_message_lock:
-                if request_message_id in self.sync_wait_message_ids:
-                    self.sync_wait_message_ids.remove(request_message_id)
-                    self.sync_wait_message_responses[request_message_id] = response
-                    self.sync_wait_message_condition.notifyAll()
+            # Check for synchronous waits, only the waiting thread is woken
+            slot = self.sync_wait_slots.get(request_message_id)
+            if slot is not None:
+                slot.complete(response)
 
             # Check for asynchronous callbacks
             callback = self.unregister_async_callback(request_message_id)
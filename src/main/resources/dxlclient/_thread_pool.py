@@ -3,8 +3,9 @@
 # Copyright (c) 2017 McAfee Inc. - All Rights Reserved.
 ################################################################################
 
+import time
 import traceback
-from Queue import Queue
+from Queue import Queue, Empty, Full
 from threading import Thread
 import logging
 
@@ -13,13 +14,25 @@ from dxlclient._uuid_generator import UuidGenerator
 
 logger = logging.getLogger(__name__)
 
+# Overload policies, what add_task does when the queue is full
+OVERLOAD_BLOCK = "block"
+"""Wait until a worker takes a task from the queue"""
+OVERLOAD_DROP_OLDEST = "drop_oldest"
+"""Drop the oldest queued task to make room for the new one"""
+OVERLOAD_DROP_NEWEST = "drop_newest"
+"""Drop the new task"""
+OVERLOAD_OVERFLOW = "overflow"
+"""Hand the new task to the overload callback instead of queueing it"""
+
+OVERLOAD_POLICIES = (OVERLOAD_BLOCK, OVERLOAD_DROP_OLDEST, OVERLOAD_DROP_NEWEST, OVERLOAD_OVERFLOW)
+
 
 class ThreadPoolWorker(Thread):
     """
     Thread executing tasks from a given tasks queue.
     """
 
-    def __init__(self, tasks, thread_prefix):
+    def __init__(self, tasks, thread_prefix, metrics=None):
         """
         Constructs a ThreadPoolWorker.
         """
@@ -28,6 +41,7 @@ class ThreadPoolWorker(Thread):
         _ObjectTracker.get_instance().obj_constructed(self)
 
         self.tasks = tasks
+        self.metrics = metrics
         self.daemon = True
         self.name = thread_prefix + "-" + UuidGenerator.generate_id_as_string()
         self.start()
@@ -40,12 +54,14 @@ class ThreadPoolWorker(Thread):
         Runs the worker.
         """
         while True:
-            func, args, kargs = self.tasks.get()
+            func, args, kargs, queued_at = self.tasks.get()
             try:
                 if func is None:
                     # Exit the thread
                     return
                 else:
+                    if queued_at is not None:
+                        self.metrics.recordDequeued(long((time.time() - queued_at) * 1e9))
                     func(*args, **kargs)  # pylint: disable=star-args
             except Exception as ex:  # pylint: disable=broad-except
                 logger.exception("Error in worker thread")
@@ -58,15 +74,37 @@ class ThreadPool(_BaseObject):
     Pool of threads consuming tasks from a queue.
     """
 
-    def __init__(self, queue_size, num_threads, thread_prefix):
+    def __init__(self, queue_size, num_threads, thread_prefix, overload_policy=OVERLOAD_BLOCK,
+                 on_overload=None, metrics=None):
         """
         Creates a ThreadPool.
+
+        :param overload_policy: What :func:`add_task` does when the queue is full, one of
+            :const:`OVERLOAD_POLICIES`
+        :param on_overload: Called as ``on_overload(event, func, args, kargs)`` with each task that
+            was dropped or overflowed, the event being the policy, and with each task that is about to
+            block, the event being ``blocked``
+        :param metrics: Records the depth of and wait time in the queue, through ``recordQueued()``,
+            ``recordDequeued(wait_nanos)`` and ``recordQueueDropped()``
         """
         super(ThreadPool, self).__init__()
+        if overload_policy not in OVERLOAD_POLICIES:
+            raise ValueError("Unknown overload policy: " + str(overload_policy))
         self._tasks = Queue(queue_size)
+        self._overload_policy = overload_policy
+        self._on_overload = on_overload
+        self._metrics = metrics
+        # Counters, only updated by the thread adding tasks
+        self.counters = {
+            "accepted": 0,
+            "blocked": 0,
+            OVERLOAD_DROP_OLDEST: 0,
+            OVERLOAD_DROP_NEWEST: 0,
+            OVERLOAD_OVERFLOW: 0,
+        }
         self._threads = []
         for _ in range(num_threads):
-            t = ThreadPoolWorker(self._tasks, thread_prefix)
+            t = ThreadPoolWorker(self._tasks, thread_prefix, metrics)
             self._threads.append(t)
 
     def __del__(self):
@@ -74,8 +112,61 @@ class ThreadPool(_BaseObject):
         super(ThreadPool, self).__del__()
 
     def add_task(self, func, *args, **kargs):
-        """Add a task to the queue"""
-        self._tasks.put((func, args, kargs))
+        """Add a task to the queue, applying the overload policy when it is full"""
+        metrics = self._metrics
+        if metrics is None:
+            task = (func, args, kargs, None)
+        else:
+            # Counted as queued up front, so workers never take it before it is counted
+            task = (func, args, kargs, time.time())
+            metrics.recordQueued()
+        try:
+            self._tasks.put_nowait(task)
+            self.counters["accepted"] += 1
+            return
+        except Full:
+            pass
+
+        policy = self._overload_policy
+        if policy == OVERLOAD_BLOCK:
+            self.counters["blocked"] += 1
+            self._overloaded("blocked", task)
+            self._tasks.put(task)
+            self.counters["accepted"] += 1
+            return
+
+        if policy == OVERLOAD_DROP_OLDEST:
+            # Workers may empty the queue meanwhile, in which case nothing is dropped
+            while True:
+                try:
+                    self._tasks.put_nowait(task)
+                    self.counters["accepted"] += 1
+                    return
+                except Full:
+                    pass
+                try:
+                    dropped = self._tasks.get_nowait()
+                except Empty:
+                    continue
+                self._tasks.task_done()
+                if metrics is not None:
+                    metrics.recordQueueDropped()
+                self.counters[policy] += 1
+                self._overloaded(policy, dropped)
+
+        if metrics is not None:
+            metrics.recordQueueDropped()
+        self.counters[policy] += 1
+        self._overloaded(policy, task)
+
+    def _overloaded(self, policy, task):
+        if self._on_overload is None:
+            return
+        func, args, kargs = task[:3]
+        try:
+            self._on_overload(policy, func, args, kargs)
+        except Exception:  # pylint: disable=broad-except
+            logger.exception("Error in overload callback")
 
     def wait_completion(self):
         """Wait for completion of all the tasks in the queue"""
@@ -86,9 +177,9 @@ class ThreadPool(_BaseObject):
         logger.debug("Shutting down thread pool...")
         self.wait_completion()
 
-        # Add task to stop the thread
+        # Add task to stop the thread, whatever the overload policy
         for _ in self._threads:
-            self.add_task(None)
+            self._tasks.put((None, (), {}, None))
 
         # Wait for threads to exit
         for t in self._threads:
@@ -66,6 +66,51 @@ class EventCallback(MessageCallback):  # pylint: disable=too-few-public-methods
         raise NotImplementedError("Must be implemented in a child class.")
 
 
+class BatchEventCallback(EventCallback):  # pylint: disable=too-few-public-methods
+    """
+    Concrete instances of this interface receive :class:`dxlclient.message.Event` messages in batches.
+
+    Events are collected by the client and handed to :func:`on_events` once :attr:`max_batch_size` events
+    are pending, or once the oldest pending event has waited :attr:`max_latency` seconds, whichever comes
+    first. Batches are delivered in order on a thread dedicated to the callback, the thread receiving
+    events waits while a full batch is still pending.
+
+    .. code-block:: python
+
+        from dxlclient.callbacks import BatchEventCallback
+
+        class MyBatchEventCallback(BatchEventCallback):
+            max_batch_size = 500
+            max_latency = 0.05
+
+            def on_events(self, events):
+                print "Received %d events" % len(events)
+
+        dxl_client.add_event_callback("/testeventtopic", MyBatchEventCallback())
+    """
+
+    max_batch_size = 100
+    """The maximum number of events handed to :func:`on_events` in one call"""
+    max_latency = 0.1
+    """The maximum time in seconds an event waits for its batch to fill up"""
+
+    def on_event(self, event):
+        """
+        Invoked with a batch of one event when the callback is fired directly.
+
+        :param event: The :class:`dxlclient.message.Event` message that was received
+        """
+        self.on_events([event])
+
+    def on_events(self, events):
+        """
+        Invoked when a batch of :class:`dxlclient.message.Event` messages is ready.
+
+        :param events: The list of :class:`dxlclient.message.Event` messages received, oldest first
+        """
+        raise NotImplementedError("Must be implemented in a child class.")
+
+
 class RequestCallback(MessageCallback):  # pylint: disable=too-few-public-methods
     """
     Concrete instances of this interface are used to receive :class:`dxlclient.message.Request` messages.
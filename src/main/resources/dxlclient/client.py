@@ -17,12 +17,19 @@ import dxlclient._callback_manager as callback_manager
 from dxlclient._request_manager import RequestManager
 from dxlclient.exceptions import DxlException
 from dxlclient.message import Message, Event, Request, Response, ErrorResponse
-from dxlclient._thread_pool import ThreadPool
+from dxlclient._thread_pool import ThreadPool, OVERLOAD_OVERFLOW
 from dxlclient.exceptions import WaitTimeoutException
 from dxlclient.service import _ServiceManager
 from dxlclient._uuid_generator import UuidGenerator
 from _dxl_utils import DxlUtils
 
+# Java executors signal rejected tasks with Java exceptions, which are not
+# caught by "except Exception" in Jython
+try:
+    from java.lang import Exception as _JavaException
+except ImportError:
+    _JavaException = Exception
+
 __all__ = [
     # Callbacks
     "_on_connect", "_on_disconnect", "_on_message", "_on_log",
@@ -80,6 +87,11 @@ def _on_connect_run(client, userdata, rc): # pylint: disable=invalid-name
 
         logger.debug("Connected with result code %s", str(rc))
 
+        if self._lost_connection:
+            self._lost_connection = False
+            if self._metrics is not None:
+                self._metrics.recordReconnect()
+
         # Subscribing in on_connect() means that if we lose the connection and
         # reconnect then subscriptions will be renewed.
         with self._subscriptions_lock:
@@ -140,6 +152,8 @@ def _on_disconnect_run(client, userdata, rc):  # pylint: disable=invalid-name
 
     with self._connected_lock:
         self._connected = False
+        if rc != 0:
+            self._lost_connection = True
         self._reset_current_broker()
         self._connected_wait_condition.notify_all()
 
@@ -178,8 +192,22 @@ def _on_message(client, userdata, msg): # pylint: disable=invalid-name
     # TODO: execution.
 
     try:
-        self._thread_pool.add_task(self._handle_message, channel=msg.topic, payload=msg.payload)
-    except Exception as ex:  # pylint: disable=broad-except
+        if self._ordered_executor:
+            # An ordered executor runs messages with different keys in parallel.
+            # It picks a lane from the message, so the message is decoded here
+            channel = msg.topic
+            message = Message._from_bytes(msg.payload)
+            message.destination_topic = channel
+            java_message = message._java_message
+            if java_message is not None:
+                java_message.setTopic(channel)
+            self._executor.dispatch(channel, java_message, lambda: self._run_task(self._deliver_message, message))
+        elif self._executor is not None:
+            channel, payload = msg.topic, msg.payload
+            self._executor.execute(lambda: self._run_task(self._handle_message, channel, payload))
+        else:
+            self._thread_pool.add_task(self._handle_message, channel=msg.topic, payload=msg.payload)
+    except (Exception, _JavaException) as ex:  # pylint: disable=broad-except
         logger.exception("Error handling message")
 
 
@@ -303,6 +331,8 @@ class DxlClient(_BaseObject):
     # The default "reply-to" prefix. self is typically used for setting up response
     # channels for requests, etc.
     _REPLY_TO_PREFIX = "/mcafee/client/"
+    # The error code of the response sent for a request dropped by the overload policy
+    BUSY_ERROR_CODE = 0x80000002
     # The default wait time for a synchronous request, defaults to 1 hour
     _DEFAULT_WAIT = 60 * 60
     # The default wait for policy delay (in seconds)
@@ -319,12 +349,28 @@ class DxlClient(_BaseObject):
     # acked (in seconds)
     _MAX_PACKET_ACK_WAIT = 2 * 60
 
-    def __init__(self, config):
+    def __init__(self, config, executor=None, overflow_callback=None, on_overload=None,
+                 metrics=None, shared=False):
         """
         Constructor parameters:
 
         :param config: The :class:`dxlclient.client_config.DxlClientConfig` object containing the configuration
             settings for the client.
+        :param executor: Optional executor (an object with an ``execute(task)`` method, such as a Java
+            ``java.util.concurrent.Executor``) that incoming messages are handed to instead of the client
+            thread pool. When the executor has a true ``ordered`` attribute, messages are decoded first and
+            handed to its ``dispatch(topic, java_message, task)`` method so it can keep messages with the
+            same key in order.
+        :param overflow_callback: Optional callable invoked as ``overflow_callback(channel, payload)``
+            with each incoming message that the ``overflow`` overload policy does not queue.
+        :param on_overload: Optional callable invoked with the name of each overload event, see
+            :attr:`overload_counters`.
+        :param metrics: Optional metrics registry (such as a Java ``DxlMetrics``) that the depth of and
+            wait time in the incoming message queue, and reconnects after a lost connection, are
+            recorded in.
+        :param shared: Whether the client is shared by several owners. Subscriptions of a shared client
+            are reference counted, the client only unsubscribes from a topic when it has been unsubscribed
+            as many times as it was subscribed.
         """
         super(DxlClient, self).__init__()
 
@@ -344,6 +390,10 @@ class DxlClient(_BaseObject):
         self._connected_lock = threading.RLock()
         # The condition for the flag on connection state
         self._connected_wait_condition = threading.Condition(self._connected_lock)
+        # Whether the connection was lost, the next connect is a reconnect
+        self._lost_connection = False
+        # The metrics registry, None when metrics are not recorded
+        self._metrics = metrics
         # The current broker the client is connected to
         self._current_broker = None
         # The lock for the current broker the client is connected to
@@ -377,12 +427,21 @@ class DxlClient(_BaseObject):
         self._subscriptions = set()
         # The lock for the current list of subscriptions
         self._subscriptions_lock = threading.RLock()
-
-        # The underlying MQTT client instance
-        self._client = mqtt.Client(client_id=self._config._client_id,
-                                  clean_session=True,
-                                  userdata=self,
-                                  protocol=mqtt.MQTTv31)
+        # Whether subscriptions are reference counted
+        self._shared = shared
+        # Number of subscribers per topic of a shared client
+        self._subscription_counts = {}
+
+        # The underlying MQTT client instance, the Java transport mimics the paho client
+        if config.mqtt_transport == DxlClientConfig.MQTT_TRANSPORT_JAVA:
+            from dxlclient import _java_mqtt
+            mqtt_client = _java_mqtt.Client
+        else:
+            mqtt_client = mqtt.Client
+        self._client = mqtt_client(client_id=self._config._client_id,
+                                   clean_session=True,
+                                   userdata=self,
+                                   protocol=mqtt.MQTTv31)
 
         # The MQTT client connect callback
         self._client.on_connect = _on_connect
@@ -413,11 +472,26 @@ class DxlClient(_BaseObject):
         # Generate a message pool prefix
         self._message_pool_prefix = "DxlMessagePool-" + UuidGenerator.generate_id_as_string()
 
+        # The executor for message handling, replaces the thread pool when set
+        self._executor = executor
+        # Whether the executor keeps messages with the same key in order
+        self._ordered_executor = executor is not None and bool(getattr(executor, "ordered", False))
+
+        # Called with incoming messages the overflow policy does not queue
+        self._overflow_callback = overflow_callback
+        # Called with the name of each overload event
+        self._on_overload = on_overload
+        # The number of busy responses sent for dropped requests
+        self._busy_response_count = 0
+
         # The thread pool for message handling
         self._thread_pool = ThreadPool(
             num_threads=config.incoming_message_thread_pool_size,
             queue_size=config.incoming_message_queue_size,
-            thread_prefix = self._message_pool_prefix)
+            thread_prefix = self._message_pool_prefix,
+            overload_policy=config.incoming_message_overload_policy,
+            on_overload=self._handle_overload,
+            metrics=metrics)
 
         # Subscribe to the client reply channel
         self.subscribe(self._reply_to_topic)
@@ -556,6 +630,8 @@ class DxlClient(_BaseObject):
 
                 self.disconnect()
 
+                self._event_callbacks.destroy()
+
                 self._thread_pool.shutdown()
 
                 self._config = None
@@ -831,6 +907,8 @@ class DxlClient(_BaseObject):
         logger.debug("%s(): Waiting for Subscriptions lock...", DxlUtils.func_name())
         self._subscriptions_lock.acquire()
         try:
+            if self._shared:
+                self._subscription_counts[topic] = self._subscription_counts.get(topic, 0) + 1
             if topic not in self._subscriptions:
                 self._subscriptions.add(topic)
                 if self.connected:
@@ -852,19 +930,32 @@ class DxlClient(_BaseObject):
         """
         logger.debug("%s(): Waiting for Subscriptions lock...", DxlUtils.func_name())
         self._subscriptions_lock.acquire()
+        # Only the last subscriber of a shared client unsubscribes
+        last = True
         try:
-            if topic in self._subscriptions:
+            if self._shared:
+                last = self._release_subscription(topic)
+            if last and topic in self._subscriptions:
                 if self.connected:
                     with self._packets_awaiting_ack_condition:
                         result, mid = self._client.unsubscribe(topic)
                         self._wait_packet_acked(result, mid,
                                                 "unsubscription to " + topic)
         finally:
-            if topic in self._subscriptions:
+            if last and topic in self._subscriptions:
                 self._subscriptions.remove(topic)
             logger.debug("%s(): Releasing Subscriptions lock.", DxlUtils.func_name())
             self._subscriptions_lock.release()
 
+    def _release_subscription(self, topic):
+        # Counts down the subscribers of a topic, True for the last one
+        count = self._subscription_counts.get(topic, 0)
+        if count > 1:
+            self._subscription_counts[topic] = count - 1
+            return False
+        self._subscription_counts.pop(topic, None)
+        return True
+
     def _wait_packet_acked(self, result, mid, description):
         """
         Wait until an ack packet is delivered for an MQTT message or the broker
@@ -974,6 +1065,16 @@ class DxlClient(_BaseObject):
         """
         return self._request_manager.async_request(request, response_callback)
 
+    def _cancel_async_request(self, message_id):
+        """
+        Stops waiting for the response to an asynchronous request. The response
+        callback registered via :func:`async_request` will not be invoked.
+
+        :param message_id: The identifier of the request message
+        :return: The response callback that was removed or None, if not available
+        """
+        return self._request_manager.cancel_async_request(message_id)
+
     def _get_async_callback_count(self):
         """
         Returns the count of async callbacks that are waiting for a response
@@ -1032,6 +1133,26 @@ class DxlClient(_BaseObject):
             raise ValueError("Invalid or unspecified event object")
         self._publish_message(event.destination_topic, event._to_bytes(), self._qos)
 
+    def send_events(self, events):
+        """
+        Attempts to deliver the specified list of :class:`dxlclient.message.Event` messages to the DXL fabric
+        as a single batch. The events are queued for the broker in order and the network loop is woken once
+        for the whole batch.
+
+        :param events: The list of :class:`dxlclient.message.Event` objects to send
+        :return: A list of booleans, in the order of ``events``, indicating whether each event was handed to
+            the broker connection
+        """
+        if events is None:
+            raise ValueError("Invalid or unspecified event list")
+        messages = []
+        for event in events:
+            if event is None or not isinstance(event, Event):
+                raise ValueError("Invalid or unspecified event object")
+            messages.append((event.destination_topic, event._to_bytes()))
+        results = self._client.publish_multiple(messages, qos=self._qos)
+        return [rc == mqtt.MQTT_ERR_SUCCESS for rc, _ in results]
+
     def add_request_callback(self, topic, request_callback):
         """
         Adds a :class:`dxlclient.callbacks.RequestCallback` to the client for the specified topic.
@@ -1152,6 +1273,64 @@ class DxlClient(_BaseObject):
         """
         self._event_callbacks.fire_message(event)
 
+    @property
+    def overload_counters(self):
+        """
+        Counters of the incoming message queue, by name: ``accepted`` messages, messages that
+        ``blocked`` the network thread, messages dropped by the ``drop_oldest`` and ``drop_newest``
+        policies, messages handed to the ``overflow`` callback, and ``busy_response`` error responses
+        sent for dropped requests.
+        """
+        counters = dict(self._thread_pool.counters)
+        counters["busy_response"] = self._busy_response_count
+        return counters
+
+    def _notify_overload(self, event):
+        if self._on_overload is not None:
+            self._on_overload(event)
+
+    def _handle_overload(self, policy, func, args, kargs):  # pylint: disable=unused-argument
+        """
+        Handles an incoming message that the overload policy did not queue, or that is about to block
+        the network thread. Called on the network
+        thread, so it only decodes the message when a busy response may have to be sent.
+
+        :param policy: The overload policy that applied, or ``blocked``
+        :param func: The function that would have handled the message
+        :param args: The positional arguments of the function
+        :param kargs: The keyword arguments of the function, with the channel and payload
+        """
+        channel, payload = kargs["channel"], kargs["payload"]
+        self._notify_overload(policy)
+        if policy == "blocked":
+            return
+
+        if policy == OVERLOAD_OVERFLOW and self._overflow_callback is not None:
+            self._overflow_callback(channel, payload)
+            return
+
+        if not self._config.incoming_request_busy_response:
+            return
+        message = Message._from_bytes(payload)
+        if isinstance(message, Request):
+            message.destination_topic = channel
+            self.send_response(ErrorResponse(message, self.BUSY_ERROR_CODE, "Service busy"))
+            self._busy_response_count += 1
+            self._notify_overload("busy_response")
+
+    def _run_task(self, func, *args):  # pylint: disable=no-self-use
+        """
+        Runs a message handling task handed to the executor, logging any error like the thread
+        pool workers do.
+
+        :param func: The function handling the message
+        :param args: The arguments of the function
+        """
+        try:
+            func(*args)
+        except Exception:  # pylint: disable=broad-except
+            logger.exception("Error handling message")
+
     def _handle_message(self, channel, payload):
         """
         Processes an incoming message. The bytes from the message are converted into the appropriate
@@ -1163,7 +1342,14 @@ class DxlClient(_BaseObject):
         """
         message = Message._from_bytes(payload)
         message.destination_topic = channel
+        self._deliver_message(message)
+
+    def _deliver_message(self, message):
+        """
+        Notifies the message callbacks registered for the type of a decoded incoming message.
 
+        :param message: The decoded message, with its destination topic set
+        """
         if isinstance(message, Event):
             self._fire_event(message)
         elif isinstance(message, Request):
@@ -105,6 +105,7 @@ class DxlClientConfig(_BaseObject):
 
     _GENERAL_SECTION = u"General"
     _CLIENT_ID_SETTING = u"ClientId"
+    _MQTT_TRANSPORT_SETTING = u"MqttTransport"
 
     _REQUIRED = True
     _NOT_REQUIRED = False
@@ -116,9 +117,15 @@ class DxlClientConfig(_BaseObject):
           (_PRIVATE_KEY_SETTING, "Private key file", _REQUIRED)),
          _REQUIRED),
         (_BROKERS_SECTION, (), _REQUIRED),
-        (_GENERAL_SECTION, ((_CLIENT_ID_SETTING, "Client Id", _NOT_REQUIRED),),
+        (_GENERAL_SECTION, ((_CLIENT_ID_SETTING, "Client Id", _NOT_REQUIRED),
+                            (_MQTT_TRANSPORT_SETTING, "MQTT transport", _NOT_REQUIRED)),
          _NOT_REQUIRED))
 
+    # The MQTT transports, the paho client or the non-blocking Java transport
+    MQTT_TRANSPORT_PAHO = "paho"
+    MQTT_TRANSPORT_JAVA = "java"
+    _MQTT_TRANSPORTS = (MQTT_TRANSPORT_PAHO, MQTT_TRANSPORT_JAVA)
+
     # The default number of times to retry during connect, default -1 (infinite)
     _DEFAULT_CONNECT_RETRIES = -1
     # The default keep alive interval (in seconds); client pings broker at interval
@@ -176,6 +183,7 @@ class DxlClientConfig(_BaseObject):
         self._queue = None
         self._incoming_message_queue_size = None
         self._incoming_message_thread_pool_size = None
+        self._mqtt_transport = None
         self._init_common()
 
     def _create_required_sections(self):
@@ -249,6 +257,12 @@ class DxlClientConfig(_BaseObject):
         self._incoming_message_queue_size = 1000
         # The incoming thread pool size
         self._incoming_message_thread_pool_size = 1
+        # What to do with incoming messages when the queue is full
+        self._incoming_message_overload_policy = "block"
+        # Whether requests dropped by the overload policy get a "busy" error response
+        self._incoming_request_busy_response = False
+        # The MQTT client implementation
+        self._mqtt_transport = self.MQTT_TRANSPORT_PAHO
 
     def _get_value_from_config(self, section_or_setting_name):
         """
@@ -388,6 +402,56 @@ class DxlClientConfig(_BaseObject):
     def incoming_message_thread_pool_size(self, incoming_message_thread_pool_size):
         self._incoming_message_thread_pool_size = incoming_message_thread_pool_size
 
+    @property
+    def incoming_message_overload_policy(self):
+        """
+        What to do with an incoming message when the incoming message queue is full: ``block``
+        waits for room (which also stalls the network thread), ``drop_oldest`` drops the oldest
+        queued message, ``drop_newest`` drops the new message, and ``overflow`` hands the new message
+        to the overflow callback of the :class:`dxlclient.client.DxlClient`
+
+        Defaults to ``block``
+        """
+        return self._incoming_message_overload_policy
+
+    @incoming_message_overload_policy.setter
+    def incoming_message_overload_policy(self, incoming_message_overload_policy):
+        self._incoming_message_overload_policy = incoming_message_overload_policy
+
+    @property
+    def incoming_request_busy_response(self):
+        """
+        Whether a request dropped by the overload policy is answered right away with an
+        :class:`dxlclient.message.ErrorResponse` saying the service is busy, instead of letting the
+        requester time out
+
+        Defaults to ``False``
+        """
+        return self._incoming_request_busy_response
+
+    @incoming_request_busy_response.setter
+    def incoming_request_busy_response(self, incoming_request_busy_response):
+        self._incoming_request_busy_response = incoming_request_busy_response
+
+    @property
+    def mqtt_transport(self):
+        """
+        The MQTT client the :class:`dxlclient.client.DxlClient` connects with: ``paho`` for the
+        paho client, or ``java`` for the non-blocking transport of the OpenDXL Jython client
+        library, which reads and writes on a single Java network thread. Can also be set with
+        the ``MqttTransport`` setting of the ``General`` section of the configuration file.
+
+        Defaults to ``paho``
+        """
+        return self._mqtt_transport
+
+    @mqtt_transport.setter
+    def mqtt_transport(self, mqtt_transport):
+        mqtt_transport = str(mqtt_transport).lower()
+        if mqtt_transport not in self._MQTT_TRANSPORTS:
+            raise ValueError("Unknown MQTT transport: {}".format(mqtt_transport))
+        self._mqtt_transport = mqtt_transport
+
     @property
     def connect_retries(self):
         """
@@ -602,6 +666,11 @@ class DxlClientConfig(_BaseObject):
         if client_id_from_config:
             self._client_id = client_id_from_config
 
+        mqtt_transport_from_config = self._get_value_from_config(
+            self._MQTT_TRANSPORT_SETTING)
+        if mqtt_transport_from_config:
+            self.mqtt_transport = mqtt_transport_from_config
+
     @staticmethod
     def create_dxl_config_from_file(dxl_config_file):
         """
@@ -47,6 +47,29 @@ from dxlclient import _BaseObject
 from dxlclient._uuid_generator import UuidGenerator
 from dxlclient.exceptions import DxlException
 
+try:
+    # Native Java codec, available when running on Jython with the OpenDXL
+    # Jython client library on the class path
+    from com.att.cso.opendxl.jython.client import DxlMessage as _JavaDxlMessage
+    from com.att.cso.opendxl.jython.client.codec import DxlMessageCodec as _JavaDxlMessageCodec
+    from com.att.cso.opendxl.jython.client.exceptions import DxlJythonException as _JavaCodecException
+except ImportError:
+    _JavaDxlMessage = None
+    _JavaDxlMessageCodec = None
+    _JavaCodecException = None
+
+def _java_payload(java_message):
+    payload = java_message.getPayloadBytes()
+    return payload.tostring() if payload is not None else None
+
+
+def _java_other_fields(java_message):
+    other_fields = {}
+    for entry in java_message.getOtherFields().entrySet():
+        other_fields[entry.getKey()] = entry.getValue()
+    return other_fields
+
+
 # pylint: disable=too-many-instance-attributes
 class Message(_BaseObject):
     """
@@ -57,6 +80,24 @@ class Message(_BaseObject):
     # The message version
     MESSAGE_VERSION = 2
 
+    # Codec used to convert messages to and from bytes. When the native Java
+    # codec is available it replaces the pure Python msgpack implementation.
+    _java_codec = _JavaDxlMessageCodec
+
+    # Members read lazily from the Java message view created by the native
+    # codec, by name: (minimum message version, loader)
+    _JAVA_FIELDS = {
+        '_message_id': (0, lambda java_message: java_message.getMessageId()),
+        '_source_client_id': (0, lambda java_message: java_message.getClientId()),
+        '_source_broker_id': (0, lambda java_message: java_message.getBrokerId()),
+        '_broker_ids': (0, lambda java_message: list(java_message.getBrokerIdList())),
+        '_client_ids': (0, lambda java_message: list(java_message.getClientIdList())),
+        '_payload': (0, _java_payload),
+        '_other_fields': (1, _java_other_fields),
+        '_source_tenant_guid': (2, lambda java_message: java_message.getSourceTenantGuid()),
+        '_destination_tenant_guids': (2, lambda java_message: list(java_message.getDestinationTenantGuidList())),
+    }
+
     MESSAGE_TYPE_REQUEST = 0
     """The numeric type identifier for the :class:`Request` message type"""
     MESSAGE_TYPE_RESPONSE = 1
@@ -74,6 +115,9 @@ class Message(_BaseObject):
         """
         super(Message, self).__init__()
 
+        # The Java message view this message was received as, if any
+        self._java_message = None
+
         ###########
         # Version 0
         ###########
@@ -320,12 +364,67 @@ class Message(_BaseObject):
         self._source_tenant_guid = unpacker.next()
         self._destination_tenant_guids = unpacker.next()
 
+    def _to_java_message(self, java_message):
+        """
+        Copies the message members to the Java message used by the native codec.
+
+        :param java_message: The Java DxlMessage to populate
+        """
+        java_message.setMessageVersion(self._version)
+        java_message.setMessageType(self.message_type)
+        java_message.setMessageId(self._message_id)
+        java_message.setClientId(self._source_client_id)
+        java_message.setBrokerId(self._source_broker_id)
+        java_message.setBrokerIdList(self._broker_ids)
+        java_message.setClientIdList(self._client_ids)
+        payload = self._payload
+        if isinstance(payload, unicode):
+            payload = payload.encode('utf8')
+        java_message.setPayloadBytes(payload)
+        if self._version > 0:
+            java_message.setOtherFields(self._other_fields)
+        if self._version > 1:
+            java_message.setSourceTenantGuid(self._source_tenant_guid)
+            java_message.setDestinationTenantGuidList(self._destination_tenant_guids)
+
+    def _from_java_message(self, java_message):
+        """
+        Backs the message members with the Java message view created by the
+        native codec. Members are only read from the view when first used.
+
+        :param java_message: The Java DxlMessageView
+        """
+        self._java_message = java_message
+        for name, (min_version, _) in self._JAVA_FIELDS.items():
+            if self._version >= min_version:
+                self.__dict__.pop(name, None)
+
+    def __getattr__(self, name):
+        """
+        Reads a member backed by the Java message view on first use.
+        """
+        java_message = self.__dict__.get('_java_message')
+        field = type(self)._JAVA_FIELDS.get(name)
+        if java_message is None or field is None:
+            raise AttributeError(name)
+        value = field[1](java_message)
+        self.__dict__[name] = value
+        return value
+
     def _to_bytes(self):
         """
         Converts the message to an array of bytes and returns it.
 
         :returns: {@code BytesIO} object.
         """
+        if Message._java_codec is not None:
+            java_message = _JavaDxlMessage()
+            self._to_java_message(java_message)
+            try:
+                return Message._java_codec.encode(java_message).tostring()
+            except _JavaCodecException as ex:
+                raise DxlException(ex.getMessage())
+
         buf = BytesIO()
         packer = msgpack.Packer()
         buf.write(packer.pack(self.version))
@@ -349,11 +448,20 @@ class Message(_BaseObject):
         :param raw: {@code list} of bytes.
         :returns: {@link dxlclient.message.Message} object.
         """
-        buf = BytesIO(raw)
-        buf.seek(0)
-        unpacker = msgpack.Unpacker(buf)
-        version = unpacker.next()
-        message_type = unpacker.next()
+        if Message._java_codec is not None:
+            try:
+                java_message = Message._java_codec.view(raw)
+            except _JavaCodecException as ex:
+                raise DxlException(ex.getMessage())
+            version = java_message.getMessageVersion()
+            message_type = java_message.getMessageType()
+        else:
+            java_message = None
+            buf = BytesIO(raw)
+            buf.seek(0)
+            unpacker = msgpack.Unpacker(buf)
+            version = unpacker.next()
+            message_type = unpacker.next()
 
         message = None
         if message_type == Message.MESSAGE_TYPE_REQUEST:
@@ -365,6 +473,11 @@ class Message(_BaseObject):
         elif message_type == Message.MESSAGE_TYPE_EVENT:
             message = Event(destination_topic="")
 
+        if message is not None and java_message is not None:
+            message._version = version
+            message._from_java_message(java_message)
+            return message
+
         if message is not None:
             message._version = version
             # Version 0
@@ -388,6 +501,11 @@ class Request(Message):
     service instance and in turn receives a response.
     """
 
+    _JAVA_FIELDS = dict(Message._JAVA_FIELDS, **{
+        '_reply_to_topic': (0, lambda java_message: java_message.getReplyTopic()),
+        '_service_id': (0, lambda java_message: java_message.getServiceId()),
+    })
+
     def __init__(self, destination_topic):
         """
         Constructor parameters:
@@ -452,6 +570,16 @@ class Request(Message):
         self._reply_to_topic = unpacker.next()
         self._service_id = unpacker.next()
 
+    def _to_java_message(self, java_message):
+        """
+        Copies the message members to the Java message used by the native codec.
+
+        :param java_message: The Java DxlMessage to populate
+        """
+        super(Request, self)._to_java_message(java_message)
+        java_message.setReplyTopic(self._reply_to_topic)
+        java_message.setServiceId(self._service_id)
+
 
 class Response(Message):
     """
@@ -463,6 +591,11 @@ class Response(Message):
     :func:`dxlclient.client.DxlClient.async_request`.
     """
 
+    _JAVA_FIELDS = dict(Message._JAVA_FIELDS, **{
+        '_request_message_id': (0, lambda java_message: java_message.getRequestMessageId()),
+        '_service_id': (0, lambda java_message: java_message.getServiceId()),
+    })
+
     def __init__(self, request):
         """
         Constructor parameters:
@@ -545,6 +678,16 @@ class Response(Message):
         self._request_message_id = unpacker.next()
         self._service_id = unpacker.next()
 
+    def _to_java_message(self, java_message):
+        """
+        Copies the message members to the Java message used by the native codec.
+
+        :param java_message: The Java DxlMessage to populate
+        """
+        super(Response, self)._to_java_message(java_message)
+        java_message.setRequestMessageId(self._request_message_id)
+        java_message.setServiceId(self._service_id)
+
 
 class Event(Message):
     """
@@ -593,6 +736,11 @@ class ErrorResponse(Response):
     :func:`dxlclient.client.DxlClient.send_response` method of a client instance.
     """
 
+    _JAVA_FIELDS = dict(Response._JAVA_FIELDS, **{
+        '_error_code': (0, lambda java_message: int(java_message.getErrorCode())),
+        '_error_message': (0, lambda java_message: java_message.getErrorMessage()),
+    })
+
     def __init__(self, request, error_code=0, error_message=""):
         """
         Constructor parameters:
@@ -648,3 +796,13 @@ class ErrorResponse(Response):
         super(ErrorResponse, self)._unpack_message(unpacker)
         self._error_code = unpacker.next()
         self._error_message = unpacker.next().decode('utf8')
+
+    def _to_java_message(self, java_message):
+        """
+        Copies the message members to the Java message used by the native codec.
+
+        :param java_message: The Java DxlMessage to populate
+        """
+        super(ErrorResponse, self)._to_java_message(java_message)
+        java_message.setErrorCode(str(self._error_code))
+        java_message.setErrorMessage(self._error_message)
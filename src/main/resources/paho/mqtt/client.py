@@ -883,6 +883,46 @@ class Client(object):
             self._out_message_mutex.release()
             return (MQTT_ERR_SUCCESS, local_mid)
 
+    def publish_multiple(self, messages, qos=0, retain=False):
+        """Publish a batch of messages.
+
+        messages: A list of (topic, payload) tuples. Each topic and payload is
+        validated as for publish().
+        qos: The quality of service level to use for every message.
+        retain: The retain flag to use for every message.
+
+        At qos 0 the PUBLISH packets are queued back to back and the network
+        loop is woken (or, when not threaded, the socket written) once for the
+        whole batch rather than once per message. Higher qos levels fall back
+        to calling publish() for each message.
+
+        Returns a list of (result, mid) tuples in the order of messages."""
+        if qos != 0:
+            return [self.publish(topic, payload, qos, retain) for topic, payload in messages]
+
+        results = []
+        queued = False
+        for topic, payload in messages:
+            if topic is None or len(topic) == 0:
+                raise ValueError('Invalid topic.')
+            if payload is not None and not isinstance(payload, (str, bytearray)):
+                raise TypeError('payload must be a string, bytearray or None.')
+            if payload is not None and len(payload) > 268435455:
+                raise ValueError('Payload too large.')
+            if self._topic_wildcard_len_check(topic) != MQTT_ERR_SUCCESS:
+                raise ValueError('Publish topic cannot contain wildcards.')
+
+            local_mid = self._mid_generate()
+            rc = self._send_publish(local_mid, topic, payload, 0, retain, False, False)
+            queued = queued or rc == MQTT_ERR_SUCCESS
+            results.append((rc, local_mid))
+
+        if queued:
+            rc = self._packet_wake()
+            if rc != MQTT_ERR_SUCCESS:
+                results = [(rc, mid) for _, mid in results]
+        return results
+
     def username_pw_set(self, username, password=None):
         """Set a username and optionally a password for broker authentication.
 
@@ -1615,7 +1655,7 @@ class Client(object):
             else:
                 raise TypeError
 
-    def _send_publish(self, mid, topic, payload=None, qos=0, retain=False, dup=False):
+    def _send_publish(self, mid, topic, payload=None, qos=0, retain=False, dup=False, wake=True):
         if self._sock is None and self._ssl is None:
             return MQTT_ERR_NO_CONN
 
@@ -1658,7 +1698,7 @@ class Client(object):
             else:
                 raise TypeError('payload must be a string, unicode or a bytearray.')
 
-        return self._packet_queue(PUBLISH, packet, mid, qos)
+        return self._packet_queue(PUBLISH, packet, mid, qos, wake)
 
     def _send_pubrec(self, mid):
         self._easy_log(MQTT_LOG_DEBUG, "Sending PUBREC (Mid: "+str(mid)+")")
@@ -1821,7 +1861,7 @@ class Client(object):
         self._messages_reconnect_reset_out()
         self._messages_reconnect_reset_in()
 
-    def _packet_queue(self, command, packet, mid, qos):
+    def _packet_queue(self, command, packet, mid, qos, wake=True):
         mpkt = dict(
             command = command,
             mid = mid,
@@ -1838,6 +1878,13 @@ class Client(object):
             self._current_out_packet_mutex.release()
         self._out_packet_mutex.release()
 
+        if not wake:
+            # Caller is queueing a batch and will call _packet_wake() once
+            # the last packet is queued.
+            return MQTT_ERR_SUCCESS
+        return self._packet_wake()
+
+    def _packet_wake(self):
         # Write a single byte to sockpairW (connected to sockpairR) to break
         # out of select() if in threaded mode.
         try:
@@ -0,0 +1,143 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.python.core.PyProxy;
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.interfaces.DxlRequesterInterface;
+
+/**
+ * Tests for the asynchronous requests of the requester.  The requester
+ * sends through the RequestManager of the Python client, with a stub in 
+ * place of the connection, so no DXL broker is required.
+ */
+public class DxlAsyncRequestTest extends TestCase {
+	
+	private JythonFactory jf;
+	private PythonInterpreter interpreter;
+	private DxlRequesterInterface requester;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// Same settings as JythonFactory, but respecting Java accessibility 
+		// so the test does not need the JDK internals opened up
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		interpreter = new PythonInterpreter();
+		interpreter.exec(String.join("\n",
+				"from dxlclient._request_manager import RequestManager",
+				"from dxlclient.message import Response",
+				"class Client(object):",
+				"    connected = True",
+				"    def __init__(self):",
+				"        self.sent = []",
+				"        self.manager = RequestManager(self)",
+				"    def add_response_callback(self, channel, callback):",
+				"        pass",
+				"    def _send_request(self, request):",
+				"        self.sent.append(request)",
+				"    def async_request(self, request, response_callback=None):",
+				"        self.manager.async_request(request, response_callback)",
+				"    def _cancel_async_request(self, message_id):",
+				"        return self.manager.cancel_async_request(message_id)",
+				"client = Client()",
+				"def respond(index, payload):",
+				"    # The requester runs in an interpreter of its own, with its own Request class",
+				"    response = Response(None)",
+				"    response._request_message_id = client.sent[index].message_id",
+				"    response.payload = payload",
+				"    client.manager.on_response(response)"));
+		
+		// The factory is a singleton, reopened after an earlier test closed it
+		jf = JythonFactory.getInstance();
+		jf.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION);
+		requester = jf.getDxlRequesterInterface();
+		((PyProxy)requester)._getPyInstance().__setattr__("client", interpreter.get("client"));
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		interpreter.close();
+		jf.closeFactory();
+	}
+	
+	@Test
+	public void testResponses() throws Exception {
+		// Requests in flight together each complete with their own response
+		List<CompletableFuture<DxlMessage>> futures = new ArrayList<CompletableFuture<DxlMessage>>();
+		for (int i = 0; i < 3; i++)
+			futures.add(requester.sendMessageAsync("/my/service/echo", "request " + i));
+		for (int i = futures.size() - 1; i >= 0; i--) {
+			assertFalse(futures.get(i).isDone());
+			interpreter.exec("respond(" + i + ", 'response " + i + "')");
+		}
+		for (int i = 0; i < futures.size(); i++)
+			assertEquals("response " + i, futures.get(i).get(30, TimeUnit.SECONDS).getPayload());
+		assertEquals("0", eval("client.manager._get_async_callback_count()"));
+		assertEquals("0", eval("client.manager.get_current_request_queue_size()"));
+	}
+	
+	@Test
+	public void testExpiry() throws Exception {
+		// An expired request is cancelled in the request manager, its late response is dropped
+		CompletableFuture<DxlMessage> expired = requester.sendMessageAsync("/my/service/held", "{}", 100, TimeUnit.MILLISECONDS);
+		try {
+			expired.get(30, TimeUnit.SECONDS);
+			fail("Expected the request to time out");
+		} catch (ExecutionException e) {
+			assertEquals(1300, ((DxlJythonException)e.getCause()).getErrorCode());
+		}
+		assertEquals("0", eval("client.manager._get_async_callback_count()"));
+		assertEquals("0", eval("client.manager.get_current_request_queue_size()"));
+		
+		interpreter.exec("respond(0, 'late')");
+		assertTrue(expired.isCompletedExceptionally());
+	}
+	
+	private String eval(String expression) {
+		return interpreter.eval("str(" + expression + ")").toString();
+	}
+}
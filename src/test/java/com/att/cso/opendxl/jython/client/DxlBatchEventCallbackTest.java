@@ -0,0 +1,148 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the delivery of events to batch callbacks by the event callback
+ * manager of the Python DXL client
+ */
+public class DxlBatchEventCallbackTest extends TestCase {
+	
+	private PythonInterpreter interpreter;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// See JythonFactoryTest, ignored when Jython is already initialized
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		interpreter = new PythonInterpreter();
+		interpreter.exec(String.join("\n",
+				"import threading",
+				"import time",
+				"from dxlclient.callbacks import BatchEventCallback",
+				"from dxlclient._callback_manager import _EventCallbackManager",
+				"batches = []",
+				"delivered = threading.Condition()",
+				"class Callback(BatchEventCallback):",
+				"    def on_events(self, events):",
+				"        with delivered:",
+				"            batches.append((time.time(), list(events)))",
+				"            delivered.notify_all()",
+				"def create(max_batch_size, max_latency):",
+				"    callback = Callback()",
+				"    callback.max_batch_size = max_batch_size",
+				"    callback.max_latency = max_latency",
+				"    manager = _EventCallbackManager()",
+				"    manager.add_callback('/test/event', callback)",
+				"    return manager, callback",
+				"def wait_for(count):",
+				"    deadline = time.time() + 30",
+				"    with delivered:",
+				"        while len(batches) < count and time.time() < deadline:",
+				"            delivered.wait(0.1)",
+				"def sizes():",
+				"    return [len(events) for delivered_at, events in batches]"));
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		interpreter.close();
+	}
+	
+	@Test
+	public void testFlushBySize() throws Exception {
+		// Full batches are delivered at once, the rest waits for its latency
+		// or for the callback to be removed
+		interpreter.exec(String.join("\n",
+				"manager, callback = create(3, 30)",
+				"for i in range(7):",
+				"    manager.handle_fire(callback, i)",
+				"wait_for(2)",
+				"pending = sizes()",
+				"manager.remove_callback('/test/event', callback)"));
+		assertEquals("[3, 3]", eval("pending"));
+		assertEquals("[[0, 1, 2], [3, 4, 5], [6]]", eval("[events for delivered_at, events in batches]"));
+		assertEquals("0", eval("len(manager.batchers)"));
+	}
+	
+	@Test
+	public void testFlushByLatency() throws Exception {
+		interpreter.exec(String.join("\n",
+				"manager, callback = create(100, 0.2)",
+				"fired_at = time.time()",
+				"manager.handle_fire(callback, 'first')",
+				"manager.handle_fire(callback, 'second')",
+				"wait_for(1)",
+				"waited = batches[0][0] - fired_at",
+				"manager.destroy()"));
+		assertEquals("[2]", eval("sizes()"));
+		assertEquals("True", eval("0.2 <= waited < 30"));
+	}
+	
+	@Test
+	public void testEventAfterRemove() throws Exception {
+		// An event fired with a copy of the callbacks taken before the removal
+		// is dropped, it does not start a new delivery thread
+		interpreter.exec(String.join("\n",
+				"manager, callback = create(1, 0)",
+				"manager.handle_fire(callback, 'before')",
+				"wait_for(1)",
+				"manager.remove_callback('/test/event', callback)",
+				"threads = threading.active_count()",
+				"manager.handle_fire(callback, 'after')",
+				"time.sleep(0.1)"));
+		assertEquals("[['before']]", eval("[events for delivered_at, events in batches]"));
+		assertEquals("0", eval("len(manager.batchers)"));
+		assertEquals("True", eval("threading.active_count() <= threads"));
+		
+		// Likewise once the manager is destroyed
+		interpreter.exec(String.join("\n",
+				"manager, callback = create(1, 0)",
+				"manager.destroy()",
+				"manager.handle_fire(callback, 'destroyed')"));
+		assertEquals("0", eval("len(manager.batchers)"));
+		assertEquals("1", eval("len(batches)"));
+	}
+	
+	private String eval(String expression) {
+		return interpreter.eval("str(" + expression + ")").toString();
+	}
+}
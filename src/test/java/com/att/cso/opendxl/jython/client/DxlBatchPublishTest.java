@@ -0,0 +1,125 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.python.core.PyObject;
+import org.python.core.PyProxy;
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
+
+/**
+ * Tests for the batch sends of the publisher.  A stub in place of the 
+ * Python client records the batches, so no DXL broker is required.
+ */
+public class DxlBatchPublishTest extends TestCase {
+	
+	private JythonFactory jf;
+	private PythonInterpreter interpreter;
+	private DxlPublisherInterface publisher;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// Same settings as JythonFactory, but respecting Java accessibility 
+		// so the test does not need the JDK internals opened up
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		interpreter = new PythonInterpreter();
+		interpreter.exec(String.join("\n",
+				"class Client(object):",
+				"    connected = True",
+				"    def __init__(self):",
+				"        self.batches = []",
+				"    def send_events(self, events):",
+				"        self.batches.append([(str(event.destination_topic), event.payload) for event in events])",
+				"        return [event.payload != 'refused' for event in events]",
+				"client = Client()"));
+		
+		// The factory is a singleton, reopened after an earlier test closed it
+		jf = JythonFactory.getInstance();
+		jf.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION);
+		publisher = jf.getDxlPublisherInterface();
+		PyObject instance = ((PyProxy)publisher)._getPyInstance();
+		instance.__setattr__("client", interpreter.get("client"));
+		instance.__setattr__("clients", interpreter.eval("[client]"));
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		interpreter.close();
+		jf.closeFactory();
+	}
+	
+	@Test
+	public void testSingleTopic() throws Exception {
+		// The whole list goes to the client as one batch, in order
+		List<String> messages = new ArrayList<String>();
+		for (int i = 0; i < 3; i++)
+			messages.add("event " + i);
+		boolean[] sent = publisher.sendMessages("/my/event/batch", messages);
+		assertTrue(Arrays.equals(new boolean[] { true, true, true }, sent));
+		assertEquals("[[('/my/event/batch', 'event 0'), ('/my/event/batch', 'event 1'), ('/my/event/batch', 'event 2')]]", 
+				eval("client.batches"));
+	}
+	
+	@Test
+	public void testTopicPerMessage() throws Exception {
+		// Messages without a topic or payload are not sent, a refused one reports false
+		boolean[] sent = publisher.sendMessages(Arrays.asList("/my/event/a", null, "/my/event/c", "/my/event/d"), 
+				Arrays.asList("first", "second", null, "refused"));
+		assertTrue(Arrays.equals(new boolean[] { true, false, false, false }, sent));
+		assertEquals("[[('/my/event/a', 'first'), ('/my/event/d', 'refused')]]", eval("client.batches"));
+		
+		try {
+			publisher.sendMessages(Arrays.asList("/my/event/a"), Arrays.asList("first", "second"));
+			fail("Expected the lists to be rejected");
+		} catch (DxlJythonException e) {
+			assertEquals(1400, e.getErrorCode());
+		}
+		assertEquals("1", eval("len(client.batches)"));
+	}
+	
+	private String eval(String expression) {
+		return interpreter.eval("str(" + expression + ")").toString();
+	}
+}
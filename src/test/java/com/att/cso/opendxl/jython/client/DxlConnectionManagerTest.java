@@ -0,0 +1,121 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+/**
+ * Tests for the reference counting of shared DXL clients.  Plain objects 
+ * stand in for the Python clients.
+ */
+public class DxlConnectionManagerTest extends TestCase {
+	
+	@Test
+	public void testShared() throws Exception {
+		DxlConnectionManager manager = new DxlConnectionManager();
+		AtomicInteger connects = new AtomicInteger();
+		Object client = manager.acquire("config/dxlclient.config", () -> {
+			connects.incrementAndGet();
+			return new Object();
+		});
+		// Another spelling of the same path shares the client
+		assertSame(client, manager.acquire("./config/../config/dxlclient.config", () -> {
+			connects.incrementAndGet();
+			return new Object();
+		}));
+		assertEquals(1, connects.get());
+		assertEquals(2, manager.getReferenceCount("config/dxlclient.config"));
+		
+		assertFalse(manager.release("config/dxlclient.config", client));
+		assertTrue(manager.release("config/dxlclient.config", client));
+		assertEquals(0, manager.getConnectionCount());
+		assertFalse(manager.release("config/dxlclient.config", client));
+	}
+	
+	@Test
+	public void testFailedConnect() throws Exception {
+		DxlConnectionManager manager = new DxlConnectionManager();
+		try {
+			manager.acquire("dxlclient.config", () -> {
+				throw new IOException("broker down");
+			});
+			fail("Expected the connect to fail");
+		} catch (IOException e) {
+			assertEquals(0, manager.getConnectionCount());
+		}
+		
+		Object client = new Object();
+		assertSame(client, manager.acquire("dxlclient.config", () -> client));
+		assertEquals(1, manager.getReferenceCount("dxlclient.config"));
+	}
+	
+	@Test
+	public void testConflictingSettings() throws Exception {
+		DxlConnectionManager manager = new DxlConnectionManager();
+		DxlDispatcher dispatcher = new DxlDispatcher(Runnable::run);
+		DxlOverloadPolicy policy = DxlOverloadPolicy.dropNewest();
+		Object client = manager.acquire("dxlclient.config", dispatcher, policy, () -> new Object());
+		assertSame(client, manager.acquire("dxlclient.config", dispatcher, policy, () -> new Object()));
+		
+		// Receivers with other settings are turned away, senders are not
+		try {
+			manager.acquire("dxlclient.config", dispatcher, null, () -> new Object());
+			fail("Expected the overload policy to conflict");
+		} catch (DxlJythonException e) {
+			assertEquals(DxlConnectionManager.ERROR_CONFLICTING_SETTINGS, e.getErrorCode());
+		}
+		try {
+			manager.acquire("dxlclient.config", null, policy, () -> new Object());
+			fail("Expected the dispatcher to conflict");
+		} catch (DxlJythonException e) {
+			assertEquals(DxlConnectionManager.ERROR_CONFLICTING_SETTINGS, e.getErrorCode());
+		}
+		assertSame(client, manager.acquire("dxlclient.config", () -> new Object()));
+		assertEquals(3, manager.getReferenceCount("dxlclient.config"));
+		
+		// A client created by a sender uses the defaults
+		Object other = manager.acquire("other.config", () -> new Object());
+		assertSame(other, manager.acquire("other.config", null, null, () -> new Object()));
+		try {
+			manager.acquire("other.config", dispatcher, null, () -> new Object());
+			fail("Expected the dispatcher to conflict");
+		} catch (DxlJythonException e) {
+			assertEquals(2, manager.getReferenceCount("other.config"));
+		}
+	}
+}
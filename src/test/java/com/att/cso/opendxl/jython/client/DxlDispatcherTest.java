@@ -0,0 +1,181 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the ordering of the dispatcher lanes and the metrics kept by 
+ * the dispatcher
+ */
+public class DxlDispatcherTest extends TestCase {
+	
+	private static final int KEYS = 8;
+	private static final int MESSAGES = 200;
+	
+	@Test
+	public void testOrderedByTopic() throws Exception {
+		DxlDispatcher dispatcher = DxlDispatcher.ordered(4);
+		try {
+			assertTrue(dispatcher.isOrdered());
+			assertEquals(4, dispatcher.getMaximumWorkers());
+			checkOrder(dispatcher, false);
+		} finally {
+			dispatcher.close();
+		}
+	}
+	
+	@Test
+	public void testOrderedByKey() throws Exception {
+		// Messages with the same client id stay in order whatever their topic,
+		// those without one are ordered by topic
+		DxlDispatcher dispatcher = DxlDispatcher.ordered(4, message -> message.getClientId());
+		try {
+			checkOrder(dispatcher, true);
+		} finally {
+			dispatcher.close();
+		}
+	}
+	
+	private void checkOrder(DxlDispatcher dispatcher, boolean keyed) throws Exception {
+		Map<String, List<Integer>> received = new HashMap<String, List<Integer>>();
+		Map<String, Set<String>> threads = new HashMap<String, Set<String>>();
+		for (int key = 0; key < KEYS; key++) {
+			received.put("key" + key, Collections.synchronizedList(new ArrayList<Integer>()));
+			threads.put("key" + key, Collections.synchronizedSet(new HashSet<String>()));
+		}
+		
+		CountDownLatch done = new CountDownLatch(KEYS * MESSAGES);
+		for (int i = 0; i < MESSAGES; i++) {
+			for (int key = 0; key < KEYS; key++) {
+				final String name = "key" + key;
+				final int sequence = i;
+				String topic = name;
+				DxlMessage message = null;
+				if (keyed) {
+					topic = "/my/topic/" + i;
+					message = new DxlMessage();
+					message.setClientId(name);
+				}
+				dispatcher.dispatch(topic, message, () -> {
+					received.get(name).add(sequence);
+					threads.get(name).add(Thread.currentThread().getName());
+					done.countDown();
+				});
+			}
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		
+		for (int key = 0; key < KEYS; key++) {
+			List<Integer> sequences = received.get("key" + key);
+			assertEquals(MESSAGES, sequences.size());
+			for (int i = 0; i < MESSAGES; i++)
+				assertEquals(i, sequences.get(i).intValue());
+			assertEquals(1, threads.get("key" + key).size());
+		}
+	}
+	
+	@Test
+	public void testMetrics() throws Exception {
+		DxlDispatcher dispatcher = DxlDispatcher.fixedThreadPool(2);
+		assertEquals(2, dispatcher.getMaximumWorkers());
+		
+		CountDownLatch running = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(4);
+		Runnable held = () -> {
+			running.countDown();
+			try {
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) { }
+			done.countDown();
+		};
+		dispatcher.execute(held);
+		dispatcher.execute(held);
+		assertTrue(running.await(30, TimeUnit.SECONDS));
+		assertEquals(2, dispatcher.getActiveWorkers());
+		assertEquals(1.0, dispatcher.getWorkerSaturation());
+		
+		// Both workers are busy, so these wait in the queue
+		dispatcher.execute(() -> done.countDown());
+		dispatcher.execute(() -> {
+			done.countDown();
+			throw new IllegalStateException("callback failed");
+		});
+		assertEquals(2, dispatcher.getQueueDepth());
+		assertEquals(2, dispatcher.getPeakQueueDepth());
+		
+		release.countDown();
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		long deadline = System.currentTimeMillis() + 30000;
+		while (dispatcher.getCompletedCount() < 4 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(4, dispatcher.getCompletedCount());
+		assertEquals(1, dispatcher.getFailedCount());
+		assertEquals(0, dispatcher.getQueueDepth());
+		assertEquals(0.0, dispatcher.getWorkerSaturation());
+		
+		// A closed dispatcher shuts down the pool it owns, which rejects messages
+		dispatcher.close();
+		try {
+			dispatcher.execute(() -> { });
+			fail("Expected the message to be rejected");
+		} catch (RejectedExecutionException e) { }
+		assertEquals(1, dispatcher.getRejectedCount());
+		assertEquals(0, dispatcher.getQueueDepth());
+		assertEquals(4, dispatcher.getCompletedCount());
+	}
+	
+	@Test
+	public void testExternalExecutor() throws Exception {
+		// The executor of the caller is neither sized nor shut down by the dispatcher
+		DxlDispatcher dispatcher = new DxlDispatcher(Runnable::run);
+		assertFalse(dispatcher.isOrdered());
+		assertEquals(0, dispatcher.getMaximumWorkers());
+		dispatcher.close();
+		dispatcher.execute(() -> { });
+		assertEquals(1, dispatcher.getCompletedCount());
+		assertEquals(0.0, dispatcher.getWorkerSaturation());
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the hedge budget and the percentile delay of the hedge policy
+ */
+public class DxlHedgePolicyTest extends TestCase {
+	
+	@Test
+	public void testBudget() throws Exception {
+		DxlHedgePolicy policy = DxlHedgePolicy.fixed(50, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 20; i++)
+			policy.recordRequest();
+		
+		// 10% of 20 requests
+		assertTrue(policy.tryHedge());
+		assertTrue(policy.tryHedge());
+		assertFalse(policy.tryHedge());
+		assertEquals(2, policy.getHedgeCount());
+		assertEquals(1, policy.getOverBudgetCount());
+		assertEquals(50, policy.getDelay(TimeUnit.MILLISECONDS));
+	}
+	
+	@Test
+	public void testPercentileDelay() throws Exception {
+		DxlHedgePolicy policy = DxlHedgePolicy.percentile(90, 20, TimeUnit.MILLISECONDS);
+		assertEquals(20, policy.getDelay(TimeUnit.MILLISECONDS));
+		
+		// 1 to 100 milliseconds, the 90th percentile is 90 within the histogram precision
+		for (int i = 1; i <= 100; i++)
+			policy.recordResponse(TimeUnit.MILLISECONDS.toNanos(i), false);
+		long delay = policy.getDelay(TimeUnit.MILLISECONDS);
+		assertTrue("Delay " + delay, delay >= 90 && delay <= 96);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the payload accessors, the string and byte forms are converted
+ * as UTF-8 only when asked for
+ */
+public class DxlMessageTest extends TestCase {
+	
+	@Test
+	public void testPayloadConversions() throws Exception {
+		DxlMessage message = new DxlMessage();
+		assertNull(message.getPayload());
+		assertNull(message.getPayloadBytes());
+		assertNull(message.getPayloadBuffer());
+		
+		message.setPayload("\u00e9vent");
+		assertTrue(Arrays.equals("\u00e9vent".getBytes(StandardCharsets.UTF_8), message.getPayloadBytes()));
+		
+		byte[] bytes = "caf\u00e9".getBytes(StandardCharsets.UTF_8);
+		message.setPayloadBytes(bytes);
+		assertSame(bytes, message.getPayloadBytes());
+		assertEquals("caf\u00e9", message.getPayload());
+		
+		// Setting one form drops the other
+		message.setPayload("new");
+		assertEquals("new", message.getPayload());
+		assertTrue(Arrays.equals("new".getBytes(StandardCharsets.UTF_8), message.getPayloadBytes()));
+	}
+	
+	@Test
+	public void testPayloadBuffer() throws Exception {
+		byte[] bytes = new byte[] { 0, 1, (byte)0xff };
+		DxlMessage message = new DxlMessage();
+		message.setPayloadBytes(bytes);
+		
+		// The buffer is a read-only view, not a copy
+		ByteBuffer buffer = message.getPayloadBuffer();
+		assertEquals(3, buffer.remaining());
+		bytes[0] = 9;
+		assertEquals(9, buffer.get(0));
+		try {
+			buffer.put(0, (byte)1);
+			fail("Expected a read-only buffer");
+		} catch (ReadOnlyBufferException e) { }
+		
+		// Only the remaining bytes are taken and the position is left alone
+		ByteBuffer source = ByteBuffer.wrap(new byte[] { 5, 6, 7 });
+		source.position(1);
+		message.setPayloadBuffer(source);
+		assertEquals(1, source.position());
+		assertTrue(Arrays.equals(new byte[] { 6, 7 }, message.getPayloadBytes()));
+		
+		message.setPayloadBuffer(null);
+		assertNull(message.getPayloadBytes());
+	}
+}
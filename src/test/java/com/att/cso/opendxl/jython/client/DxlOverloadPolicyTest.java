@@ -0,0 +1,179 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the overload policies, both the counters kept by DxlOverloadPolicy
+ * and the modes as applied by the thread pool of the Python DXL client.  The
+ * pool has a single worker held busy and a queue of one, so the next task 
+ * finds the queue full.
+ */
+public class DxlOverloadPolicyTest extends TestCase {
+	
+	private PythonInterpreter interpreter;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// See JythonFactoryTest, ignored when Jython is already initialized
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		interpreter = new PythonInterpreter();
+		interpreter.exec(String.join("\n",
+				"import time",
+				"from threading import Event, Thread",
+				"from dxlclient._thread_pool import ThreadPool",
+				"started = Event()",
+				"release = Event()",
+				"ran = []",
+				"events = []",
+				"def hold():",
+				"    started.set()",
+				"    release.wait(30)",
+				"def run(name):",
+				"    ran.append(name)",
+				"def on_overload(event, func, args, kargs):",
+				"    events.append((event,) + args)",
+				"def create(policy):",
+				"    pool = ThreadPool(1, 1, 'test', policy, on_overload)",
+				"    pool.add_task(hold)",
+				"    started.wait(30)",
+				"    pool.add_task(run, 'queued')",
+				"    return pool",
+				"def finish(pool):",
+				"    release.set()",
+				"    pool.shutdown()"));
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		interpreter.close();
+	}
+	
+	@Test
+	public void testCounters() throws Exception {
+		DxlOverloadPolicy policy = DxlOverloadPolicy.dropNewest();
+		assertEquals(DxlOverloadPolicy.Mode.DROP_NEWEST, policy.getMode());
+		assertEquals("drop_newest", policy.getMode().getPolicyName());
+		assertEquals(DxlOverloadPolicy.DEFAULT_QUEUE_SIZE, policy.getQueueSize());
+		assertFalse(policy.isBusyResponse());
+		
+		policy.overloaded("blocked");
+		policy.overloaded("drop_oldest");
+		policy.overloaded("drop_newest");
+		policy.overloaded("drop_newest");
+		policy.overloaded("overflow");
+		policy.overloaded("busy_response");
+		policy.overloaded("unknown");
+		assertEquals(1, policy.getBlockedCount());
+		assertEquals(1, policy.getDroppedOldestCount());
+		assertEquals(2, policy.getDroppedNewestCount());
+		assertEquals(1, policy.getOverflowCount());
+		assertEquals(1, policy.getBusyResponseCount());
+		
+		try {
+			policy.setQueueSize(0);
+			fail("Expected the queue size to be rejected");
+		} catch (IllegalArgumentException e) { }
+		try {
+			DxlOverloadPolicy.overflow(null);
+			fail("Expected the overflow callback to be required");
+		} catch (IllegalArgumentException e) { }
+		assertNotNull(DxlOverloadPolicy.overflow(message -> null).getOverflowCallback());
+	}
+	
+	@Test
+	public void testBlock() throws Exception {
+		// The task waits for room in the queue, in a thread of its own here
+		interpreter.exec(String.join("\n",
+				"pool = create('block')",
+				"adder = Thread(target=pool.add_task, args=(run, 'new'))",
+				"adder.start()",
+				"deadline = time.time() + 30",
+				"while not events and time.time() < deadline:",
+				"    time.sleep(0.01)",
+				"adding = adder.is_alive()",
+				"finish(pool)",
+				"adder.join(30)"));
+		assertEquals("True", eval("adding"));
+		assertEquals("[('blocked', 'new')]", eval("events"));
+		assertEquals("['queued', 'new']", eval("ran"));
+		assertEquals("1", eval("pool.counters['blocked']"));
+	}
+	
+	@Test
+	public void testDropOldest() throws Exception {
+		interpreter.exec("pool = create('drop_oldest')\npool.add_task(run, 'new')\nfinish(pool)");
+		assertEquals("[('drop_oldest', 'queued')]", eval("events"));
+		assertEquals("['new']", eval("ran"));
+		assertEquals("1", eval("pool.counters['drop_oldest']"));
+	}
+	
+	@Test
+	public void testDropNewest() throws Exception {
+		interpreter.exec("pool = create('drop_newest')\npool.add_task(run, 'new')\nfinish(pool)");
+		assertEquals("[('drop_newest', 'new')]", eval("events"));
+		assertEquals("['queued']", eval("ran"));
+		assertEquals("1", eval("pool.counters['drop_newest']"));
+	}
+	
+	@Test
+	public void testOverflow() throws Exception {
+		interpreter.exec("pool = create('overflow')\npool.add_task(run, 'new')\nfinish(pool)");
+		assertEquals("[('overflow', 'new')]", eval("events"));
+		assertEquals("['queued']", eval("ran"));
+		assertEquals("1", eval("pool.counters['overflow']"));
+	}
+	
+	@Test
+	public void testUnknownPolicy() throws Exception {
+		interpreter.exec(String.join("\n",
+				"try:",
+				"    ThreadPool(1, 1, 'test', 'spill')",
+				"    rejected = False",
+				"except ValueError:",
+				"    rejected = True"));
+		assertEquals("True", eval("rejected"));
+	}
+	
+	private String eval(String expression) {
+		return interpreter.eval("str(" + expression + ")").toString();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the synchronous requests of the Python DXL client, each waiting
+ * request has a completion slot that only its response completes
+ */
+public class DxlRequestManagerTest extends TestCase {
+	
+	private PythonInterpreter interpreter;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// See JythonFactoryTest, ignored when Jython is already initialized
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		interpreter = new PythonInterpreter();
+		interpreter.exec(String.join("\n",
+				"import threading",
+				"import time",
+				"from dxlclient import _request_manager",
+				"from dxlclient._request_manager import RequestManager, _ResponseSlot",
+				"from dxlclient.exceptions import WaitTimeoutException",
+				"from dxlclient.message import Request, Response",
+				"class Client(object):",
+				"    def __init__(self):",
+				"        self.sent = []",
+				"    def add_response_callback(self, channel, callback):",
+				"        pass",
+				"    def _send_request(self, request):",
+				"        self.sent.append(request)",
+				"client = Client()",
+				"manager = RequestManager(client)",
+				"results = {}",
+				"def request(name, wait):",
+				"    started = time.time()",
+				"    try:",
+				"        results[name] = manager.sync_request(Request('/test/' + name), wait).payload",
+				"    except WaitTimeoutException:",
+				"        results[name] = 'timeout after %s' % (time.time() >= started + wait)",
+				"def start(name, wait):",
+				"    thread = threading.Thread(target=request, args=(name, wait))",
+				"    thread.start()",
+				"    deadline = time.time() + 30",
+				"    while len(manager.sync_wait_slots) <= len(threads) and time.time() < deadline:",
+				"        time.sleep(0.01)",
+				"    threads.append(thread)",
+				"threads = []",
+				"def respond(index, payload):",
+				"    response = Response(client.sent[index])",
+				"    response.payload = payload",
+				"    manager.on_response(response)"));
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		interpreter.close();
+	}
+	
+	@Test
+	public void testResponseWakesItsRequest() throws Exception {
+		// The second response only wakes the second request
+		interpreter.exec(String.join("\n",
+				"start('first', 30)",
+				"start('second', 30)",
+				"respond(1, 'two')",
+				"threads[1].join(30)",
+				"first_waiting = threads[0].is_alive()",
+				"respond(0, 'one')",
+				"threads[0].join(30)"));
+		assertEquals("True", eval("first_waiting"));
+		assertEquals("[('first', 'one'), ('second', 'two')]", eval("sorted(results.items())"));
+		assertEquals("0", eval("len(manager.sync_wait_slots)"));
+		assertEquals("0", eval("manager.get_current_request_queue_size()"));
+	}
+	
+	@Test
+	public void testTimeout() throws Exception {
+		// A response arriving after the timeout finds no slot and is dropped
+		interpreter.exec(String.join("\n",
+				"request('late', 0.2)",
+				"respond(0, 'late')"));
+		assertEquals("timeout after True", eval("results['late']"));
+		assertEquals("0", eval("len(manager.sync_wait_slots)"));
+		assertEquals("0", eval("manager.get_current_request_queue_size()"));
+	}
+	
+	@Test
+	public void testSlot() throws Exception {
+		// Both the Java latch and the threading fallback keep the first response
+		interpreter.exec(String.join("\n",
+				"def check():",
+				"    slot = _ResponseSlot()",
+				"    timed_out = not slot.wait(0.05)",
+				"    slot.complete('first')",
+				"    slot.complete('second')",
+				"    return timed_out, slot.wait(0), slot.response",
+				"latch = check()",
+				"_request_manager._CountDownLatch = None",
+				"event = check()"));
+		assertEquals("(True, True, 'first')", eval("latch"));
+		assertEquals("(True, True, 'first')", eval("event"));
+	}
+	
+	private String eval(String expression) {
+		return interpreter.eval("str(" + expression + ")").toString();
+	}
+}
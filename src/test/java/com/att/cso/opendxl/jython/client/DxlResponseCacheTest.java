@@ -0,0 +1,211 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the response cache of the requesters.  Futures completed by the
+ * test stand in for the requests sent by the Python requester.
+ */
+public class DxlResponseCacheTest extends TestCase {
+	
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static DxlMessage response(int type, String payload) {
+		DxlMessage message = new DxlMessage();
+		message.setMessageType(type);
+		message.setRequestMessageId("{request}");
+		if (type == DxlMessage.MESSAGE_TYPE_ERROR) {
+			message.setErrorCode("42");
+			message.setErrorMessage(payload);
+		} else {
+			message.setPayload(payload);
+		}
+		return message;
+	}
+	
+	@Test
+	public void testCoalescedAndCached() throws Exception {
+		DxlResponseCache cache = new DxlResponseCache(10, 1 << 20, 1, TimeUnit.MINUTES);
+		AtomicInteger sent = new AtomicInteger();
+		CompletableFuture<DxlMessage> request = new CompletableFuture<DxlMessage>();
+		
+		CompletableFuture<DxlMessage> first = cache.get("/lookup", bytes("a"), () -> {
+			sent.incrementAndGet();
+			return request;
+		});
+		CompletableFuture<DxlMessage> second = cache.get("/lookup", bytes("a"), () -> {
+			sent.incrementAndGet();
+			return new CompletableFuture<DxlMessage>();
+		});
+		assertFalse(second.isDone());
+		
+		request.complete(response(DxlMessage.MESSAGE_TYPE_RESPONSE, "clean"));
+		assertEquals("clean", first.get().getPayload());
+		assertEquals("clean", second.get().getPayload());
+		// Every caller gets its own copy
+		assertNotSame(first.get(), second.get());
+		
+		DxlMessage third = cache.get("/lookup", bytes("a"), () -> {
+			throw new IllegalStateException("Expected a cache hit");
+		}).get();
+		assertEquals("clean", third.getPayload());
+		assertEquals("{request}", third.getRequestMessageId());
+		
+		assertEquals(1, sent.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getCoalescedCount());
+		assertEquals(1, cache.getHitCount());
+	}
+	
+	@Test
+	public void testCallerTimeouts() throws Exception {
+		DxlResponseCache cache = new DxlResponseCache(10, 1 << 20, 1, TimeUnit.MINUTES);
+		AtomicInteger sent = new AtomicInteger();
+		CompletableFuture<DxlMessage> request = new CompletableFuture<DxlMessage>();
+		
+		// A caller with a shorter timeout gives up without failing the request it waits for
+		CompletableFuture<DxlMessage> patient = cache.get("/lookup", bytes("d"), 1, TimeUnit.MINUTES, () -> {
+			sent.incrementAndGet();
+			return request;
+		});
+		CompletableFuture<DxlMessage> hasty = cache.get("/lookup", bytes("d"), 50, TimeUnit.MILLISECONDS, () -> {
+			sent.incrementAndGet();
+			return new CompletableFuture<DxlMessage>();
+		});
+		try {
+			hasty.get(30, TimeUnit.SECONDS);
+			fail("Expected the request to time out");
+		} catch (ExecutionException e) {
+			assertEquals(DxlResponseCache.ERROR_TIMEOUT, ((DxlJythonException)e.getCause()).getErrorCode());
+		}
+		assertFalse(patient.isDone());
+		request.complete(response(DxlMessage.MESSAGE_TYPE_RESPONSE, "clean"));
+		assertEquals("clean", patient.get(30, TimeUnit.SECONDS).getPayload());
+		
+		// A caller with a longer timeout sends its own request when the one it waits for times out
+		CompletableFuture<DxlMessage> expiring = new CompletableFuture<DxlMessage>();
+		CompletableFuture<DxlMessage> first = cache.get("/lookup", bytes("e"), 50, TimeUnit.MILLISECONDS, () -> {
+			sent.incrementAndGet();
+			return expiring;
+		});
+		CompletableFuture<DxlMessage> second = cache.get("/lookup", bytes("e"), 1, TimeUnit.MINUTES, () -> {
+			sent.incrementAndGet();
+			return CompletableFuture.completedFuture(response(DxlMessage.MESSAGE_TYPE_RESPONSE, "retried"));
+		});
+		expiring.completeExceptionally(new DxlJythonException(DxlResponseCache.ERROR_TIMEOUT, "Timeout"));
+		try {
+			first.get(30, TimeUnit.SECONDS);
+			fail("Expected the request to time out");
+		} catch (ExecutionException e) {
+			assertEquals(DxlResponseCache.ERROR_TIMEOUT, ((DxlJythonException)e.getCause()).getErrorCode());
+		}
+		assertEquals("retried", second.get(30, TimeUnit.SECONDS).getPayload());
+		
+		assertEquals(3, sent.get());
+		assertEquals(2, cache.getCoalescedCount());
+	}
+	
+	@Test
+	public void testErrorsAndFailures() throws Exception {
+		DxlResponseCache cache = new DxlResponseCache(10, 1 << 20, 1, TimeUnit.MINUTES);
+		AtomicInteger sent = new AtomicInteger();
+		
+		// Error responses are not cached by default
+		for (int i = 0; i < 2; i++) {
+			DxlMessage error = cache.get("/lookup", bytes("b"), () -> {
+				sent.incrementAndGet();
+				return CompletableFuture.completedFuture(response(DxlMessage.MESSAGE_TYPE_ERROR, "unknown"));
+			}).get();
+			assertEquals("42", error.getErrorCode());
+		}
+		assertEquals(2, sent.get());
+		
+		cache.setErrorTtl(1, TimeUnit.MINUTES);
+		for (int i = 0; i < 2; i++) {
+			cache.get("/lookup", bytes("b"), () -> {
+				sent.incrementAndGet();
+				return CompletableFuture.completedFuture(response(DxlMessage.MESSAGE_TYPE_ERROR, "unknown"));
+			}).get();
+		}
+		assertEquals(3, sent.get());
+		
+		// Failed requests are never cached
+		for (int i = 0; i < 2; i++) {
+			CompletableFuture<DxlMessage> timeout = new CompletableFuture<DxlMessage>();
+			timeout.completeExceptionally(new DxlJythonException(1300, "Timeout"));
+			try {
+				cache.get("/lookup", bytes("c"), () -> {
+					sent.incrementAndGet();
+					return timeout;
+				}).get();
+				fail("Expected the request to fail");
+			} catch (ExecutionException e) {
+				assertEquals(1300, ((DxlJythonException)e.getCause()).getErrorCode());
+			}
+		}
+		assertEquals(5, sent.get());
+		assertEquals(1, cache.getSize());
+	}
+	
+	@Test
+	public void testBounds() throws Exception {
+		DxlResponseCache cache = new DxlResponseCache(2, 1 << 20, 1, TimeUnit.MINUTES);
+		for (String key : new String[] { "a", "b", "a", "c" }) {
+			cache.get("/lookup", bytes(key), () -> 
+				CompletableFuture.completedFuture(response(DxlMessage.MESSAGE_TYPE_RESPONSE, key))).get();
+		}
+		// "b" was the least recently used
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(1, cache.getHitCount());
+		
+		// An entry larger than the memory bound is not cached
+		DxlResponseCache small = new DxlResponseCache(10, 256, 1, TimeUnit.MINUTES);
+		small.get("/lookup", bytes("a"), () ->
+			CompletableFuture.completedFuture(response(DxlMessage.MESSAGE_TYPE_RESPONSE, new String(new char[512])))).get();
+		assertEquals(0, small.getSize());
+		assertEquals(0, small.getBytes());
+	}
+}
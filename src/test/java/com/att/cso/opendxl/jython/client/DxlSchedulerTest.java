@@ -0,0 +1,77 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the shared timer, tasks scheduled with scheduleAsync must not 
+ * hold up the timer thread
+ */
+public class DxlSchedulerTest extends TestCase {
+	
+	@Test
+	public void testScheduleAsync() throws Exception {
+		CompletableFuture<Thread> timer = new CompletableFuture<Thread>();
+		DxlScheduler.schedule(() -> timer.complete(Thread.currentThread()), 0);
+		
+		// A blocked worker leaves the timer free for the tasks due after it
+		CompletableFuture<Thread> worker = new CompletableFuture<Thread>();
+		CountDownLatch release = new CountDownLatch(1);
+		DxlScheduler.scheduleAsync(() -> {
+			worker.complete(Thread.currentThread());
+			try {
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) { }
+		}, 10);
+		CompletableFuture<Thread> later = new CompletableFuture<Thread>();
+		DxlScheduler.schedule(() -> later.complete(Thread.currentThread()), 20);
+		try {
+			assertNotSame(timer.get(30, TimeUnit.SECONDS), worker.get(30, TimeUnit.SECONDS));
+			assertSame(timer.get(), later.get(30, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+		
+		// Cancelled before it is due, the task never runs
+		CountDownLatch ran = new CountDownLatch(1);
+		ScheduledFuture<?> cancelled = DxlScheduler.scheduleAsync(() -> ran.countDown(), 60000);
+		assertTrue(cancelled.cancel(false));
+		assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+	}
+}
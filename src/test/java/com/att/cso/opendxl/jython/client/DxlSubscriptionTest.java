@@ -0,0 +1,77 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the handle of a running listener or provider
+ */
+public class DxlSubscriptionTest extends TestCase {
+	
+	@Test
+	public void testClose() throws Exception {
+		AtomicInteger shutdowns = new AtomicInteger();
+		DxlSubscription subscription = new DxlSubscription(() -> shutdowns.incrementAndGet());
+		assertTrue(subscription.isActive());
+		
+		// Closing only starts the shutdown, the handle stays active until it is done
+		subscription.close();
+		subscription.close();
+		assertEquals(1, shutdowns.get());
+		assertTrue(subscription.isActive());
+		assertFalse(subscription.getStopFuture().isDone());
+		
+		subscription.stopped("done");
+		assertFalse(subscription.isActive());
+		assertEquals("done", subscription.getStopFuture().getNow(null));
+		
+		// A late second report does not change the reason
+		subscription.stopped("again");
+		assertEquals("done", subscription.getStopFuture().getNow(null));
+	}
+	
+	@Test
+	public void testStoppedBeforeClose() throws Exception {
+		AtomicInteger shutdowns = new AtomicInteger();
+		DxlSubscription subscription = new DxlSubscription(() -> shutdowns.incrementAndGet());
+		
+		// Once the extension has stopped by itself, closing has nothing left to do
+		subscription.stopped("lost connection");
+		subscription.close();
+		assertEquals(0, shutdowns.get());
+		assertFalse(subscription.isActive());
+	}
+}
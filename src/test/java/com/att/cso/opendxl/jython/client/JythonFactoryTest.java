@@ -30,60 +30,910 @@
 
 package com.att.cso.opendxl.jython.client;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
 import org.junit.Test;
+import org.python.core.PyObject;
+import org.python.core.PyProxy;
+import org.python.util.PythonInterpreter;
 
 import junit.framework.TestCase;
 
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+import com.att.cso.opendxl.jython.client.interfaces.DxlAsyncCallbackInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlCallbackInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlListenerInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlProviderInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlPublisherInterface;
+import com.att.cso.opendxl.jython.client.interfaces.DxlRequesterInterface;
+import com.att.cso.opendxl.jython.client.metrics.DxlMetrics;
+
 /**
- * Test case place holder.  This software relies on a working OpenDXL broker
- * or fabric.  Because of this, automated test cases are not really a 
- * achievable goal.  This code has been left to allow users to have a 
- * framework for writing tests that work in their environment.
+ * End to end tests of the objects created by the factory.  The DXL clients
+ * connect to a loopback broker started by the test, so no OpenDXL broker or
+ * fabric is needed.
  *
  */
 public class JythonFactoryTest extends TestCase {
 	
+	private static final String CERTS = "src/test/resources/certs/";
+	
+	private JythonFactory jf;
+	
+	@Override
+	protected void setUp() throws Exception {
+		// Same settings as JythonFactory, but respecting Java accessibility 
+		// so the test does not need the JDK internals opened up.  Jython 
+		// ignores the initialization by the factory that follows
+		Properties props = new Properties();
+		props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+		props.put("python.console.encoding", "UTF-8");
+		PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+		
+		// The factory is a singleton, reopened after an earlier test closed it
+		jf = JythonFactory.getInstance();
+		jf.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		// Also takes the metrics of the factory off JMX
+		jf.closeFactory();
+	}
+	
 	@Test
 	public void testFake() throws Exception {
 		// Just a fake test, keeps mvn build happy
-		// don't have real automated tests for build, current tests are just 
-		// brittle tests for validating code by a user.  Testing needs 
-		// DXL broker which is environment dependent
 	}
-
-//	@Test
-//	public void testEvent() throws Exception {
-//		String configFile = "temp/config/dxlclient.config";
-//		String topic = "/my/service/test/topic";
-//		String json = "{\"key\":\"value\"}";
-//		
-//
-//		JythonFactory jf = JythonFactory.getInstance();
-//		
-//		DxlPublisherInterface dxl = jf.getDxlPublisherInterface();
-//		if (dxl == null) {
-//			fail("Was unable to get the Jython object");
-//		}
-//		
-//		String result = dxl.sendMessage(configFile, topic, json);
-//		System.out.println("Result: '" + result + "'");
-//	}
-
-//	@Test
-//	public void testService() throws Exception {
-//		String configFile = "temp/config/dxlclient.config";
-//		String topic = "/my/service/test/topic";
-//		String json = "{\"key\":\"value\"}";
-//		
-//
-//		JythonFactory jf = JythonFactory.getInstance();
-//		
-//		DxlRequesterInterface dxl = jf.getDxlRequesterInterface();
-//		if (dxl == null) {
-//			fail("Was unable to get the Jython object");
-//		}
-//		
-//		String result = dxl.sendMessage(configFile, topic, json);
-//		System.out.println("Result: '" + result + "'");
-//	}
+	
+	@Test
+	public void testCreateInterfaces() throws Exception {
+		// Creating the objects needs no broker, only connecting does
+		assertNotNull(jf.getDxlPublisherInterface());
+		assertNotNull(jf.getDxlListenerInterface());
+		assertNotNull(jf.getDxlRequesterInterface());
+		assertNotNull(jf.getDxlProviderInterface());
+	}
+	
+	@Test
+	public void testInterpreterPool() throws Exception {
+		jf.closeFactory();
+		jf.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION, 2);
+		
+		// Objects alternate between the interpreters, each defining the class once
+		PyObject[] classes = new PyObject[4];
+		for (int i = 0; i < classes.length; i++)
+			classes[i] = pythonClass(jf.getDxlPublisherInterface());
+		assertSame(classes[0], classes[2]);
+		assertSame(classes[1], classes[3]);
+		assertNotSame(classes[0], classes[1]);
+		assertEquals(2, jf.getLoadedInterpreterCount());
+		
+		// Other modules are defined in the same interpreters
+		assertNotSame(pythonClass(jf.getDxlListenerInterface()), pythonClass(jf.getDxlListenerInterface()));
+		assertEquals(2, jf.getLoadedInterpreterCount());
+	}
+	
+	@Test
+	public void testDedicatedInterpreter() throws Exception {
+		DxlPublisherInterface shared = jf.getDxlPublisherInterface();
+		DxlPublisherInterface pinned = jf.getDxlPublisherInterface(true);
+		DxlRequesterInterface other = jf.getDxlRequesterInterface(true);
+		assertNotSame(pythonClass(shared), pythonClass(pinned));
+		assertEquals(2, jf.getDedicatedInterpreterCount());
+		assertEquals(3, jf.getLoadedInterpreterCount());
+		
+		assertTrue(jf.releaseInterpreter(pinned));
+		assertFalse(jf.releaseInterpreter(pinned));
+		assertFalse(jf.releaseInterpreter(shared));
+		assertEquals(1, jf.getDedicatedInterpreterCount());
+		assertEquals(2, jf.getLoadedInterpreterCount());
+		
+		// The rest are closed with the factory
+		jf.closeFactory();
+		assertEquals(0, jf.getDedicatedInterpreterCount());
+		assertEquals(0, jf.getLoadedInterpreterCount());
+		assertFalse(jf.releaseInterpreter(other));
+	}
+	
+	@Test
+	public void testModuleCache() throws Exception {
+		String path = "/test/Greeter.py";
+		String interfaceName = DxlCallbackInterface.class.getName();
+		
+		// The module is compiled from the first stream, later ones are only closed
+		ModuleStream stream = new ModuleStream(greeter("hello"));
+		DxlCallbackInterface first = (DxlCallbackInterface)jf.getJythonObject(interfaceName, stream, path, JythonFactory.DEFAULT_JYTHON_LOCATION);
+		assertEquals("hello", first.callbackEvent(new DxlMessage()));
+		assertTrue(stream.read && stream.closed);
+		
+		stream = new ModuleStream(greeter("ignored"));
+		DxlCallbackInterface second = (DxlCallbackInterface)jf.getJythonObject(interfaceName, stream, path, JythonFactory.DEFAULT_JYTHON_LOCATION);
+		assertEquals("hello", second.callbackEvent(new DxlMessage()));
+		assertTrue(!stream.read && stream.closed);
+		assertNotNull(jf.getJythonObject(interfaceName, null, path, JythonFactory.DEFAULT_JYTHON_LOCATION));
+		
+		// Invalidated, the module is compiled again, objects already created keep the old class
+		jf.invalidateModule(path);
+		assertNull(jf.getJythonObject(interfaceName, null, path, JythonFactory.DEFAULT_JYTHON_LOCATION));
+		stream = new ModuleStream(greeter("bye"));
+		DxlCallbackInterface third = (DxlCallbackInterface)jf.getJythonObject(interfaceName, stream, path, JythonFactory.DEFAULT_JYTHON_LOCATION);
+		assertEquals("bye", third.callbackEvent(new DxlMessage()));
+		assertEquals("hello", first.callbackEvent(new DxlMessage()));
+		assertTrue(stream.read && stream.closed);
+	}
+	
+	@Test
+	public void testModuleNamespaces() throws Exception {
+		// Modules loaded into the same interpreter keep their own globals
+		PyObject publisher = namespace(jf.getDxlPublisherInterface());
+		PyObject requester = namespace(jf.getDxlRequesterInterface());
+		assertNotSame(publisher, requester);
+		assertEquals("EventPublisher", publisher.__finditem__("logger").__getattr__("name").toString());
+		assertEquals("ServiceRequester", requester.__finditem__("logger").__getattr__("name").toString());
+	}
+	
+	@Test
+	public void testEvent() throws Exception {
+		String topic = "/my/service/test/topic";
+		String json = "{\"key\":\"value\"}";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			BlockingQueue<DxlMessage> received = new LinkedBlockingQueue<DxlMessage>();
+			DxlListenerInterface listener = jf.getDxlListenerInterface();
+			DxlSubscription subscription = listener.startAsync(configFile, topic, message -> {
+				received.add(message);
+				return null;
+			});
+			
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			publisher.sendMessage(topic, json);
+			
+			DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+			assertNotNull("No event received", event);
+			assertEquals(topic, event.getTopic());
+			assertEquals(json, event.getPayload());
+			
+			publisher.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testBinaryPayload() throws Exception {
+		String eventTopic = "/my/event/binary";
+		String serviceTopic = "/my/service/binary";
+		byte[] payload = new byte[256];
+		for (int i = 0; i < payload.length; i++)
+			payload[i] = (byte)i;
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			BlockingQueue<DxlMessage> received = new LinkedBlockingQueue<DxlMessage>();
+			DxlSubscription listenerSubscription = jf.getDxlListenerInterface().startAsync(configFile, eventTopic, message -> {
+				received.add(message);
+				return null;
+			});
+			DxlSubscription providerSubscription = jf.getDxlProviderInterface().startAsync(configFile, "/my/service", serviceTopic, message -> {
+				received.add(message);
+				return "size " + message.getPayloadBuffer().remaining();
+			});
+			
+			// Bytes that are not valid UTF-8 arrive unchanged
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			publisher.sendMessage(eventTopic, payload);
+			DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+			assertNotNull("No event received", event);
+			assertTrue(Arrays.equals(payload, event.getPayloadBytes()));
+			assertEquals(ByteBuffer.wrap(payload), event.getPayloadBuffer());
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			DxlMessage response = requester.sendMessage(serviceTopic, payload);
+			assertEquals("size 256", response.getPayload());
+			DxlMessage request = received.poll(30, TimeUnit.SECONDS);
+			assertNotNull("No request received", request);
+			assertTrue(Arrays.equals(payload, request.getPayloadBytes()));
+			
+			publisher.disconnect();
+			requester.disconnect();
+			listenerSubscription.close();
+			providerSubscription.close();
+			listenerSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			providerSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testStopFromCallback() throws Exception {
+		String topic = "/my/event/stop";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			// The listener closes its own subscription on the callback thread
+			CompletableFuture<DxlSubscription> started = new CompletableFuture<DxlSubscription>();
+			AtomicInteger events = new AtomicInteger();
+			DxlListenerInterface listener = jf.getDxlListenerInterface();
+			DxlSubscription subscription = listener.startAsync(configFile, topic, message -> {
+				events.incrementAndGet();
+				started.join().close();
+				return null;
+			});
+			started.complete(subscription);
+			assertTrue(subscription.isActive());
+			BlockingQueue<String> watched = new LinkedBlockingQueue<String>();
+			DxlSubscription watcher = jf.getDxlListenerInterface().startAsync(configFile, topic, message -> {
+				watched.add(message.getPayload());
+				return null;
+			});
+			
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			publisher.sendMessage(topic, "first");
+			
+			String reason = subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			assertEquals("Shutting down event listener on topic '" + topic + "'", reason);
+			assertFalse(subscription.isActive());
+			
+			// Nothing is delivered once stopped, and closing again has no effect
+			publisher.sendMessage(topic, "second");
+			subscription.close();
+			assertEquals("first", watched.poll(30, TimeUnit.SECONDS));
+			assertEquals("second", watched.poll(30, TimeUnit.SECONDS));
+			assertEquals(1, events.get());
+			
+			publisher.disconnect();
+			watcher.close();
+			watcher.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testOrderedDispatch() throws Exception {
+		int keys = 4;
+		int messages = 50;
+		
+		// Events are keyed by the start of their payload, each key is sent on
+		// changing topics and must still arrive in order on a single lane
+		DxlDispatcher dispatcher = DxlDispatcher.ordered(keys, message -> message.getPayload().split(":")[0]);
+		jf.setDispatcher(dispatcher);
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			Map<String, List<Integer>> received = new HashMap<String, List<Integer>>();
+			Map<String, Set<String>> threads = new HashMap<String, Set<String>>();
+			for (int key = 0; key < keys; key++) {
+				received.put("key" + key, Collections.synchronizedList(new ArrayList<Integer>()));
+				threads.put("key" + key, Collections.synchronizedSet(new HashSet<String>()));
+			}
+			CountDownLatch done = new CountDownLatch(keys * messages);
+			DxlSubscription subscription = jf.getDxlListenerInterface().startAsync(configFile, "/my/event/ordered/#", message -> {
+				String[] parts = message.getPayload().split(":");
+				received.get(parts[0]).add(Integer.valueOf(parts[1]));
+				threads.get(parts[0]).add(Thread.currentThread().getName());
+				done.countDown();
+				return null;
+			});
+			
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			for (int i = 0; i < messages; i++) {
+				for (int key = 0; key < keys; key++)
+					publisher.sendMessage("/my/event/ordered/" + (i % 3), "key" + key + ":" + i);
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+			
+			for (int key = 0; key < keys; key++) {
+				List<Integer> sequences = received.get("key" + key);
+				for (int i = 0; i < messages; i++)
+					assertEquals(i, sequences.get(i).intValue());
+				assertEquals(1, threads.get("key" + key).size());
+			}
+			Set<String> lanes = new HashSet<String>();
+			threads.values().forEach(lanes::addAll);
+			assertTrue("Expected the keys to use several lanes", lanes.size() > 1);
+			
+			publisher.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		} finally {
+			jf.setDispatcher(null);
+			dispatcher.close();
+		}
+	}
+	
+	@Test
+	public void testShardedPublisher() throws Exception {
+		int topics = 5;
+		int messages = 20;
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			BlockingQueue<DxlMessage> received = new LinkedBlockingQueue<DxlMessage>();
+			DxlSubscription subscription = jf.getDxlListenerInterface().startAsync(configFile, "/my/event/sharded/#", message -> {
+				received.add(message);
+				return null;
+			});
+			
+			// Each connection has its own client id
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.setConnections(3, DxlPublishRouting.BY_TOPIC);
+			publisher.connect(configFile);
+			assertEquals(4, broker.getConnectionCount());
+			PyObject clients = ((PyProxy)publisher)._getPyInstance().__getattr__("clients");
+			List<String> clientIds = new ArrayList<String>();
+			for (PyObject client : clients.asIterable())
+				clientIds.add(client.__getattr__("config").__getattr__("_client_id").toString());
+			assertEquals(3, new HashSet<String>(clientIds).size());
+			assertTrue(clientIds.get(1).endsWith("-1"));
+			assertTrue(clientIds.get(2).endsWith("-2"));
+			try {
+				publisher.setConnections(2, DxlPublishRouting.ROUND_ROBIN);
+				fail("Expected the connections to be fixed once connected");
+			} catch (DxlJythonException e) {
+				assertEquals(1100, e.getErrorCode());
+			}
+			
+			// Messages on one topic keep their order across the connections
+			for (int i = 0; i < messages; i++) {
+				for (int topic = 0; topic < topics; topic++)
+					publisher.sendMessage("/my/event/sharded/" + topic, String.valueOf(i));
+			}
+			Map<String, List<String>> byTopic = new HashMap<String, List<String>>();
+			for (int i = 0; i < topics * messages; i++) {
+				DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+				assertNotNull("No event received", event);
+				byTopic.computeIfAbsent(event.getTopic(), topic -> new ArrayList<String>()).add(event.getPayload());
+			}
+			assertEquals(topics, byTopic.size());
+			for (List<String> payloads : byTopic.values()) {
+				for (int i = 0; i < messages; i++)
+					assertEquals(String.valueOf(i), payloads.get(i));
+			}
+			publisher.disconnect();
+			
+			// Round robin spreads a batch over the connections, all of it arrives
+			DxlPublisherInterface roundRobin = jf.getDxlPublisherInterface();
+			try {
+				roundRobin.setConnections(0, DxlPublishRouting.ROUND_ROBIN);
+				fail("Expected the number of connections to be rejected");
+			} catch (DxlJythonException e) {
+				assertEquals(2400, e.getErrorCode());
+			}
+			roundRobin.setConnections(2, DxlPublishRouting.ROUND_ROBIN);
+			roundRobin.connect(configFile);
+			List<String> payloads = new ArrayList<String>();
+			for (int i = 0; i < messages; i++)
+				payloads.add(String.valueOf(i));
+			boolean[] statuses = roundRobin.sendMessages("/my/event/sharded/0", payloads);
+			for (boolean status : statuses)
+				assertTrue(status);
+			Set<String> batch = new HashSet<String>();
+			for (int i = 0; i < messages; i++) {
+				DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+				assertNotNull("No event received", event);
+				batch.add(event.getPayload());
+			}
+			assertEquals(new HashSet<String>(payloads), batch);
+			roundRobin.disconnect();
+			
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testBatchPublish() throws Exception {
+		String topic = "/my/event/batch";
+		String otherTopic = "/my/event/other";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			BlockingQueue<DxlMessage> received = new LinkedBlockingQueue<DxlMessage>();
+			DxlListenerInterface listener = jf.getDxlListenerInterface();
+			DxlSubscription subscription = listener.startAsync(configFile, "/my/event/#", message -> {
+				received.add(message);
+				return null;
+			});
+			
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			
+			// The batch goes out through paho publish_multiple, in order
+			List<String> messages = new ArrayList<String>();
+			for (int i = 0; i < 50; i++)
+				messages.add("event " + i);
+			boolean[] sent = publisher.sendMessages(topic, messages);
+			assertEquals(messages.size(), sent.length);
+			for (int i = 0; i < messages.size(); i++) {
+				assertTrue(sent[i]);
+				DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+				assertNotNull("No event received", event);
+				assertEquals(topic, event.getTopic());
+				assertEquals(messages.get(i), event.getPayload());
+			}
+			
+			sent = publisher.sendMessages(Arrays.asList(topic, otherTopic), Arrays.asList("first", "second"));
+			assertTrue(sent[0] && sent[1]);
+			assertEquals(topic, received.poll(30, TimeUnit.SECONDS).getTopic());
+			DxlMessage event = received.poll(30, TimeUnit.SECONDS);
+			assertEquals(otherTopic, event.getTopic());
+			assertEquals("second", event.getPayload());
+			
+			try {
+				publisher.sendMessages(Arrays.asList(topic), messages);
+				fail("Expected the lists to be rejected");
+			} catch (DxlJythonException e) {
+				assertEquals(1400, e.getErrorCode());
+			}
+			
+			publisher.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testService() throws Exception {
+		String service = "/my/service";
+		String topic = "/my/service/test/topic";
+		String json = "{\"key\":\"value\"}";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			// Objects of the factory record into its metrics, published on JMX
+			DxlMetrics metrics = jf.getMetrics();
+			assertTrue(metrics.isRegistered());
+			metrics.reset();
+			long received = metrics.getReceivedCount();
+			
+			DxlProviderInterface provider = jf.getDxlProviderInterface();
+			DxlSubscription subscription = provider.startAsync(configFile, service, topic, 
+					message -> "echo " + message.getPayload());
+			assertEquals(1, broker.getServiceCount());
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			DxlMessage response = requester.sendMessage(topic, json);
+			assertEquals(DxlMessage.MESSAGE_TYPE_RESPONSE, response.getMessageType());
+			assertEquals("echo " + json, response.getPayload());
+			
+			assertEquals(received + 1, metrics.getReceivedCount());
+			assertEquals(1, metrics.getRequestCount());
+			assertTrue(metrics.getQueueWait().getCount() > 0);
+			assertEquals(1, metrics.getTopicMetrics(topic).getCallbackCount());
+			ObjectName topicName = new ObjectName(DxlMetrics.JMX_DOMAIN + ":type=DxlCallback,topic=" + ObjectName.quote(topic));
+			assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(topicName, "CallbackCount"));
+			
+			// No service handles the topic, the broker answers
+			response = requester.sendMessage("/my/service/missing", json);
+			assertEquals(DxlMessage.MESSAGE_TYPE_ERROR, response.getMessageType());
+			assertEquals(String.valueOf(0x80000001L), response.getErrorCode());
+			
+			// Repeated requests are answered from the cache, error responses are not cached
+			DxlResponseCache cache = new DxlResponseCache(100, 1 << 20, 1, TimeUnit.MINUTES);
+			requester.setResponseCache(cache);
+			for (int i = 0; i < 3; i++) {
+				assertEquals("echo " + json, requester.sendMessage(topic, json).getPayload());
+				response = requester.sendMessageAsync("/my/service/missing", json).get(30, TimeUnit.SECONDS);
+				assertEquals(String.valueOf(0x80000001L), response.getErrorCode());
+			}
+			assertEquals(2, cache.getHitCount());
+			assertEquals(4, cache.getMissCount());
+			
+			requester.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			assertEquals(0, broker.getServiceCount());
+		}
+	}
+	
+	@Test
+	public void testAsyncRequests() throws Exception {
+		String topic = "/my/service/echo";
+		String heldTopic = "/my/service/held";
+		CountDownLatch release = new CountDownLatch(1);
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			Map<String, DxlCallbackInterface> callbacks = new HashMap<String, DxlCallbackInterface>();
+			callbacks.put(topic, message -> "echo " + message.getPayload());
+			callbacks.put(heldTopic, message -> {
+				try {
+					release.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) { }
+				return "late";
+			});
+			DxlProviderInterface provider = jf.getDxlProviderInterface();
+			DxlSubscription subscription = provider.startAsync(configFile, "/my/service", callbacks);
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			
+			// Requests in flight together each complete with their own response
+			List<CompletableFuture<DxlMessage>> futures = new ArrayList<CompletableFuture<DxlMessage>>();
+			for (int i = 0; i < 20; i++)
+				futures.add(requester.sendMessageAsync(topic, "request " + i));
+			for (int i = 0; i < futures.size(); i++)
+				assertEquals("echo request " + i, futures.get(i).get(30, TimeUnit.SECONDS).getPayload());
+			
+			// An expired request is cancelled in the request manager, its late response is dropped
+			CompletableFuture<DxlMessage> expired = requester.sendMessageAsync(heldTopic, "{}", 200, TimeUnit.MILLISECONDS);
+			try {
+				expired.get(30, TimeUnit.SECONDS);
+				fail("Expected the request to time out");
+			} catch (ExecutionException e) {
+				assertEquals(1300, ((DxlJythonException)e.getCause()).getErrorCode());
+			}
+			PyObject client = ((PyProxy)requester)._getPyInstance().__getattr__("client");
+			assertEquals(0, client.invoke("_get_async_callback_count").asInt());
+			release.countDown();
+			assertEquals("echo again", requester.sendMessageAsync(topic, "again").get(30, TimeUnit.SECONDS).getPayload());
+			assertTrue(expired.isCompletedExceptionally());
+			assertEquals(0, client.invoke("_get_async_callback_count").asInt());
+			
+			requester.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testSharedConnections() throws Exception {
+		jf.closeFactory();
+		jf.initJythonObject(JythonFactory.DEFAULT_JYTHON_LOCATION, 2);
+		jf.setSharedConnections(true);
+		String topic = "/my/event/shared";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			// The listeners alternate between the interpreters, the first and
+			// third share a client, the second has one of its own
+			BlockingQueue<DxlMessage> received = new LinkedBlockingQueue<DxlMessage>();
+			DxlListenerInterface[] listeners = new DxlListenerInterface[3];
+			DxlSubscription[] subscriptions = new DxlSubscription[listeners.length];
+			for (int i = 0; i < listeners.length; i++) {
+				listeners[i] = jf.getDxlListenerInterface();
+				subscriptions[i] = listeners[i].startAsync(configFile, topic, message -> {
+					received.add(message);
+					return null;
+				});
+			}
+			DxlConnectionManager first = jf.getConnectionManager(listeners[0]);
+			DxlConnectionManager second = jf.getConnectionManager(listeners[1]);
+			assertSame(first, jf.getConnectionManager());
+			assertSame(first, jf.getConnectionManager(listeners[2]));
+			assertNotSame(first, second);
+			assertEquals(2, first.getReferenceCount(configFile));
+			assertEquals(1, second.getReferenceCount(configFile));
+			
+			// One event per client, the publisher shares the client of the second interpreter
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			assertEquals(2, second.getReferenceCount(configFile));
+			publisher.sendMessage(topic, "event");
+			assertNotNull(received.poll(30, TimeUnit.SECONDS));
+			assertNotNull(received.poll(30, TimeUnit.SECONDS));
+			
+			// The client of the first interpreter runs without a dispatcher
+			DxlDispatcher dispatcher = DxlDispatcher.fixedThreadPool(1);
+			jf.setDispatcher(dispatcher);
+			DxlListenerInterface conflicting = jf.getDxlListenerInterface();
+			assertSame(first, jf.getConnectionManager(conflicting));
+			try {
+				conflicting.startAsync(configFile, topic, message -> null);
+				fail("Expected the dispatcher to conflict");
+			} catch (DxlJythonException e) {
+				assertEquals(DxlConnectionManager.ERROR_CONFLICTING_SETTINGS, e.getErrorCode());
+			}
+			assertEquals(2, first.getReferenceCount(configFile));
+			jf.setDispatcher(null);
+			dispatcher.close();
+			
+			publisher.disconnect();
+			for (DxlSubscription subscription : subscriptions) {
+				subscription.close();
+				subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			}
+			assertEquals(0, first.getConnectionCount());
+			assertEquals(0, second.getConnectionCount());
+		} finally {
+			jf.setSharedConnections(false);
+		}
+	}
+	
+	@Test
+	public void testBusyResponse() throws Exception {
+		String topic = "/my/service/busy";
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			DxlOverloadPolicy policy = DxlOverloadPolicy.dropNewest();
+			policy.setQueueSize(1);
+			policy.setBusyResponse(true);
+			DxlProviderInterface provider = jf.getDxlProviderInterface();
+			provider.setOverloadPolicy(policy);
+			DxlSubscription subscription = provider.startAsync(configFile, "/my/service", topic, message -> {
+				started.countDown();
+				try {
+					release.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) { }
+				return "done";
+			});
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			// The first request holds the only worker, the second fills the
+			// queue and the third is dropped and answered as busy
+			CompletableFuture<DxlMessage> first = requester.sendMessageAsync(topic, "{}");
+			assertTrue(started.await(30, TimeUnit.SECONDS));
+			CompletableFuture<DxlMessage> queued = requester.sendMessageAsync(topic, "{}");
+			DxlMessage response = requester.sendMessage(topic, "{}", 30, TimeUnit.SECONDS);
+			assertEquals(DxlMessage.MESSAGE_TYPE_ERROR, response.getMessageType());
+			assertEquals(String.valueOf(0x80000002L), response.getErrorCode());
+			assertEquals(1, policy.getDroppedNewestCount());
+			assertEquals(1, policy.getBusyResponseCount());
+			
+			release.countDown();
+			assertEquals("done", first.get(30, TimeUnit.SECONDS).getPayload());
+			assertEquals("done", queued.get(30, TimeUnit.SECONDS).getPayload());
+			
+			requester.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testModulesShareInterpreter() throws Exception {
+		String eventTopic = "/my/event/shared";
+		String serviceTopic = "/my/service/shared";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			// With the default pool size all four modules load into the same
+			// interpreter, the requester loading after the listener and provider
+			BlockingQueue<DxlMessage> events = new LinkedBlockingQueue<DxlMessage>();
+			DxlListenerInterface listener = jf.getDxlListenerInterface();
+			DxlSubscription listenerSubscription = listener.startAsync(configFile, eventTopic, message -> {
+				events.add(message);
+				return null;
+			});
+			BlockingQueue<DxlMessage> requests = new LinkedBlockingQueue<DxlMessage>();
+			DxlProviderInterface provider = jf.getDxlProviderInterface();
+			DxlSubscription providerSubscription = provider.startAsync(configFile, "/my/service", serviceTopic, message -> {
+				requests.add(message);
+				return "echo " + message.getPayload();
+			});
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			DxlPublisherInterface publisher = jf.getDxlPublisherInterface();
+			publisher.connect(configFile);
+			
+			publisher.sendMessage(eventTopic, "event");
+			DxlMessage event = events.poll(30, TimeUnit.SECONDS);
+			assertNotNull("No event received", event);
+			assertEquals(eventTopic, event.getTopic());
+			assertEquals("event", event.getPayload());
+			
+			DxlMessage response = requester.sendMessage(serviceTopic, "request");
+			DxlMessage request = requests.poll(30, TimeUnit.SECONDS);
+			assertNotNull("No request received", request);
+			assertEquals(serviceTopic, request.getTopic());
+			assertEquals("request", request.getPayload());
+			assertEquals(DxlMessage.MESSAGE_TYPE_RESPONSE, response.getMessageType());
+			assertEquals("echo request", response.getPayload());
+			
+			publisher.disconnect();
+			requester.disconnect();
+			listenerSubscription.close();
+			providerSubscription.close();
+			listenerSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			providerSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testAsyncService() throws Exception {
+		String topic = "/my/service/async";
+		String heldTopic = "/my/service/held";
+		CompletableFuture<String> held = new CompletableFuture<String>();
+		CountDownLatch holding = new CountDownLatch(1);
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			Map<String, DxlAsyncCallbackInterface> callbacks = new HashMap<String, DxlAsyncCallbackInterface>();
+			callbacks.put(topic, message -> {
+				if (message.getPayload().equals("fail")) {
+					CompletableFuture<String> failed = new CompletableFuture<String>();
+					failed.completeExceptionally(new DxlJythonException(4242, "Lookup failed"));
+					return failed;
+				}
+				return CompletableFuture.supplyAsync(() -> "async " + message.getPayload());
+			});
+			callbacks.put(heldTopic, message -> {
+				holding.countDown();
+				return held;
+			});
+			DxlProviderInterface provider = jf.getDxlProviderInterface();
+			try {
+				provider.startAsync(configFile, "/my/service", callbacks, -1);
+				fail("Expected the limit to be rejected");
+			} catch (DxlJythonException e) {
+				assertEquals(2600, e.getErrorCode());
+			}
+			DxlSubscription subscription = provider.startAsync(configFile, "/my/service", callbacks, 1);
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			assertEquals("async {}", requester.sendMessage(topic, "{}").getPayload());
+			
+			DxlMessage response = requester.sendMessage(topic, "fail");
+			assertEquals(DxlMessage.MESSAGE_TYPE_ERROR, response.getMessageType());
+			assertEquals("4242", response.getErrorCode());
+			assertEquals("Lookup failed", response.getErrorMessage());
+			
+			// The held request takes the only slot, the next one is turned away
+			CompletableFuture<DxlMessage> pending = requester.sendMessageAsync(heldTopic, "{}");
+			assertTrue(holding.await(30, TimeUnit.SECONDS));
+			response = requester.sendMessage(topic, "{}");
+			assertEquals(String.valueOf(0x80000002L), response.getErrorCode());
+			held.complete("released");
+			assertEquals("released", pending.get(30, TimeUnit.SECONDS).getPayload());
+			assertEquals("async {}", requester.sendMessage(topic, "{}").getPayload());
+			
+			requester.disconnect();
+			subscription.close();
+			subscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	public void testHedgedRequests() throws Exception {
+		String topic = "/my/service/hedged";
+		String slowTopic = "/my/service/slow";
+		
+		try (DxlLoopbackBroker broker = DxlLoopbackBroker.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key")) {
+			String configFile = writeConfig(broker);
+			
+			// The broker alternates between the instances, a request sent to
+			// the slow one has its hedge sent to the fast one
+			Map<String, DxlCallbackInterface> slowCallbacks = new HashMap<String, DxlCallbackInterface>();
+			DxlCallbackInterface slow = message -> {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) { }
+				return "slow";
+			};
+			slowCallbacks.put(topic, slow);
+			slowCallbacks.put(slowTopic, slow);
+			DxlProviderInterface slowProvider = jf.getDxlProviderInterface();
+			DxlSubscription slowSubscription = slowProvider.startAsync(configFile, "/my/service/a", slowCallbacks);
+			DxlProviderInterface fastProvider = jf.getDxlProviderInterface();
+			DxlSubscription fastSubscription = fastProvider.startAsync(configFile, "/my/service/b", topic, message -> "fast");
+			
+			DxlRequesterInterface requester = jf.getDxlRequesterInterface();
+			requester.connect(configFile);
+			
+			try {
+				requester.sendMessage(slowTopic, "{}", 200, TimeUnit.MILLISECONDS);
+				fail("Expected the request to time out");
+			} catch (DxlJythonException e) {
+				assertEquals(1300, e.getErrorCode());
+			}
+			
+			DxlHedgePolicy policy = DxlHedgePolicy.fixed(100, TimeUnit.MILLISECONDS);
+			policy.setMaxHedgeRatio(1);
+			requester.setHedgePolicy(policy);
+			// Without hedging the requests sent to the slow instance would answer "slow"
+			for (int i = 0; i < 4; i++)
+				assertEquals("fast", requester.sendMessage(topic, "{}", 5, TimeUnit.SECONDS).getPayload());
+			assertTrue(policy.getHedgeWinCount() > 0);
+			// A hedged request that times out fails like a plain one
+			try {
+				requester.sendMessage(slowTopic, "{}", 200, TimeUnit.MILLISECONDS);
+				fail("Expected the request to time out");
+			} catch (DxlJythonException e) {
+				assertEquals(1300, e.getErrorCode());
+			}
+			
+			requester.disconnect();
+			slowSubscription.close();
+			fastSubscription.close();
+			slowSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+			fastSubscription.getStopFuture().get(30, TimeUnit.SECONDS);
+		}
+	}
+	
+	private static String greeter(String greeting) {
+		return "from com.att.cso.opendxl.jython.client.interfaces import DxlCallbackInterface\n"
+				+ "class Greeter(DxlCallbackInterface):\n"
+				+ "    def callbackEvent(self, message):\n"
+				+ "        return '" + greeting + "'\n";
+	}
+	
+	// Module source that records whether it was read and closed
+	private static class ModuleStream extends ByteArrayInputStream {
+		private boolean read = false;
+		private boolean closed = false;
+		
+		private ModuleStream(String source) {
+			super(source.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		@Override
+		public synchronized int read() {
+			read = true;
+			return super.read();
+		}
+		
+		@Override
+		public synchronized int read(byte[] buffer, int offset, int length) {
+			read = true;
+			return super.read(buffer, offset, length);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+	
+	private static PyObject pythonClass(Object jythonObject) {
+		return ((PyProxy)jythonObject)._getPyInstance().getType();
+	}
+	
+	// Globals of the module the class of the object was defined in
+	private static PyObject namespace(Object jythonObject) {
+		return ((PyProxy)jythonObject)._getPyInstance().__getattr__("sendMessage").__getattr__("im_func").__getattr__("func_globals");
+	}
+	
+	private static String writeConfig(DxlLoopbackBroker broker) throws Exception {
+		File config = File.createTempFile("dxlclient", ".config");
+		config.deleteOnExit();
+		broker.writeConfig(config, CERTS + "ca.crt", CERTS + "client.crt", CERTS + "client.key", null);
+		return config.getPath();
+	}
 }
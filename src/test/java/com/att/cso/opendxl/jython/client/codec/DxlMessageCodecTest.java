@@ -0,0 +1,405 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.python.core.PyObject;
+import org.python.util.PythonInterpreter;
+
+import com.att.cso.opendxl.jython.client.DxlMessage;
+import com.att.cso.opendxl.jython.client.JythonFactory;
+import com.att.cso.opendxl.jython.client.exceptions.DxlJythonException;
+
+import junit.framework.TestCase;
+
+/**
+ * Compatibility tests for the native codec.  Messages are built with the
+ * bundled dxlclient/message.py and encoded with its pure Python msgpack 
+ * path, then compared byte for byte with the Java encoder and decoder.
+ * No DXL broker is required.
+ */
+public class DxlMessageCodecTest extends TestCase {
+	
+	private static PythonInterpreter interpreter = null;
+	
+	private static synchronized PythonInterpreter getInterpreter() {
+		if (interpreter == null) {
+			// Same settings as JythonFactory, but respecting Java accessibility 
+			// so the test does not need the JDK internals opened up
+			Properties props = new Properties();
+			props.put("python.home", JythonFactory.DEFAULT_JYTHON_LOCATION);
+			props.put("python.console.encoding", "UTF-8");
+			PythonInterpreter.initialize(System.getProperties(), props, new String[0]);
+			interpreter = new PythonInterpreter();
+			interpreter.exec("from dxlclient.message import Message, Event, Request, Response, ErrorResponse");
+			interpreter.exec("_codec = Message._java_codec");
+		}
+		return interpreter;
+	}
+	
+	/**
+	 * Run the script, which must assign the message to "msg", and return the
+	 * bytes produced by the pure Python msgpack implementation.
+	 */
+	private static byte[] pythonEncode(String script) {
+		PythonInterpreter python = getInterpreter();
+		python.exec(script);
+		python.exec("Message._java_codec = None");
+		try {
+			return toBytes(python.eval("msg._to_bytes()"));
+		} finally {
+			python.exec("Message._java_codec = _codec");
+		}
+	}
+	
+	// Offset of the first occurrence of part in data, -1 if not found
+	private static int indexOf(byte[] data, byte[] part) {
+		for (int i = 0; i + part.length <= data.length; i++) {
+			if (Arrays.equals(part, Arrays.copyOfRange(data, i, i + part.length)))
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Return the bytes produced by message.py when delegating to the native codec
+	 */
+	private static byte[] pythonEncodeWithJavaCodec() {
+		return toBytes(getInterpreter().eval("msg._to_bytes()"));
+	}
+	
+	private static byte[] toBytes(PyObject raw) {
+		return (byte[])raw.__tojava__(byte[].class);
+	}
+	
+	private static void assertRoundTrip(byte[] expected) throws DxlJythonException {
+		DxlMessage message = DxlMessageCodec.decode(expected);
+		assertTrue(Arrays.equals(expected, DxlMessageCodec.encode(message)));
+	}
+	
+	@Test
+	public void testEventMatchesPython() throws Exception {
+		byte[] expected = pythonEncode(
+				"msg = Event('/test/event')\n" +
+				"msg.payload = '{\"key\":\"value\"}'\n" +
+				"msg.broker_ids = ['{11111111-1111-1111-1111-111111111111}']\n" +
+				"msg.client_ids = ['{22222222-2222-2222-2222-222222222222}', 'client-2']\n" +
+				"msg.other_fields = {'one': '1', 'two': '2', 'three': u'\\u00e9'}\n" +
+				"msg.source_tenant_guid = '{33333333-3333-3333-3333-333333333333}'\n" +
+				"msg.destination_tenant_guids = ['{44444444-4444-4444-4444-444444444444}']\n");
+		
+		// message.py must have picked up the native codec
+		assertTrue(getInterpreter().eval("_codec is not None").__nonzero__());
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		
+		DxlMessage message = DxlMessageCodec.decode("/test/event", expected);
+		assertEquals("/test/event", message.getTopic());
+		assertEquals(2, message.getMessageVersion());
+		assertEquals(DxlMessage.MESSAGE_TYPE_EVENT, message.getMessageType());
+		assertEquals(getInterpreter().eval("msg.message_id").toString(), message.getMessageId());
+		assertEquals("{\"key\":\"value\"}", message.getPayload());
+		assertEquals(Arrays.asList("{22222222-2222-2222-2222-222222222222}", "client-2"), message.getClientIdList());
+		assertEquals("\u00e9", message.getOtherFields().get("three"));
+		assertEquals(3, message.getOtherFields().size());
+		assertEquals("{33333333-3333-3333-3333-333333333333}", message.getSourceTenantGuid());
+		assertEquals(1, message.getDestinationTenantGuidList().size());
+	}
+	
+	@Test
+	public void testRequestMatchesPython() throws Exception {
+		byte[] expected = pythonEncode(
+				"msg = Request('/test/service')\n" +
+				"msg.payload = 'ping'\n" +
+				"msg.reply_to_topic = '/mcafee/client/{55555555-5555-5555-5555-555555555555}'\n" +
+				"msg.service_id = '{66666666-6666-6666-6666-666666666666}'\n");
+		
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		
+		DxlMessage message = DxlMessageCodec.decode(expected);
+		assertEquals(DxlMessage.MESSAGE_TYPE_REQUEST, message.getMessageType());
+		assertEquals("/mcafee/client/{55555555-5555-5555-5555-555555555555}", message.getReplyTopic());
+		assertEquals("{66666666-6666-6666-6666-666666666666}", message.getServiceId());
+	}
+	
+	@Test
+	public void testRequestWithoutReplyTopicMatchesPython() throws Exception {
+		byte[] expected = pythonEncode("msg = Request('/test/service')\n");
+		
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		assertNull(DxlMessageCodec.decode(expected).getReplyTopic());
+	}
+	
+	@Test
+	public void testResponseMatchesPython() throws Exception {
+		byte[] expected = pythonEncode(
+				"req = Request('/test/service')\n" +
+				"req.reply_to_topic = '/mcafee/client/abc'\n" +
+				"req.service_id = 'svc'\n" +
+				"msg = Response(req)\n" +
+				"msg.payload = 'pong' * 20\n");
+		
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		
+		DxlMessage message = DxlMessageCodec.decode(expected);
+		assertEquals(DxlMessage.MESSAGE_TYPE_RESPONSE, message.getMessageType());
+		assertEquals(getInterpreter().eval("req.message_id").toString(), message.getRequestMessageId());
+		assertEquals("svc", message.getServiceId());
+		assertEquals(80, message.getPayloadBytes().length);
+	}
+	
+	@Test
+	public void testErrorResponseMatchesPython() throws Exception {
+		byte[] expected = pythonEncode(
+				"req = Request('/test/service')\n" +
+				"msg = ErrorResponse(req, 0x80000001, u'Unable to locate service \\u00e9')\n");
+		
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		
+		DxlMessage message = DxlMessageCodec.decode(expected);
+		assertEquals(DxlMessage.MESSAGE_TYPE_ERROR, message.getMessageType());
+		assertEquals(String.valueOf(0x80000001L), message.getErrorCode());
+		assertEquals("Unable to locate service \u00e9", message.getErrorMessage());
+		
+		getInterpreter().exec("err = Message._from_bytes(msg._to_bytes())");
+		assertEquals("2147483649", getInterpreter().eval("str(err.error_code)").toString());
+	}
+	
+	@Test
+	public void testOlderVersionsMatchPython() throws Exception {
+		for (int version = 0; version < 2; version++) {
+			byte[] expected = pythonEncode(
+					"msg = Event('/test/event')\n" +
+					"msg._version = " + version + "\n" +
+					"msg.payload = 'old'\n" +
+					"msg.other_fields = {'k': 'v'}\n");
+			
+			assertRoundTrip(expected);
+			assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+			
+			DxlMessage message = DxlMessageCodec.decode(expected);
+			assertEquals(version, message.getMessageVersion());
+			assertEquals(version == 0 ? null : "v", 
+					message.getOtherFields() == null ? null : message.getOtherFields().get("k"));
+			assertNull(message.getSourceTenantGuid());
+		}
+	}
+	
+	@Test
+	public void testLargeValuesMatchPython() throws Exception {
+		byte[] expected = pythonEncode(
+				"msg = Event('/test/event')\n" +
+				"msg.payload = 'x' * 70000\n" +
+				"msg.broker_ids = ['broker-%d' % i for i in range(20)]\n" +
+				"msg.other_fields = dict(('key%d' % i, 'v' * 40) for i in range(10))\n");
+		
+		assertRoundTrip(expected);
+		assertTrue(Arrays.equals(expected, pythonEncodeWithJavaCodec()));
+		assertEquals(70000, DxlMessageCodec.decode(expected).getPayloadBytes().length);
+	}
+	
+	@Test
+	public void testPythonDecodesJavaMessage() throws Exception {
+		Map<String, String> otherFields = new LinkedHashMap<String, String>();
+		otherFields.put("header", "value");
+		
+		DxlMessage message = new DxlMessage();
+		message.setMessageType(DxlMessage.MESSAGE_TYPE_REQUEST);
+		message.setPayload("java payload");
+		message.setReplyTopic("/reply");
+		message.setServiceId("service");
+		message.setBrokerIdList(new String[] { "b1", "b2" });
+		message.setOtherFields(otherFields);
+		message.setSourceTenantGuid("tenant");
+		byte[] raw = DxlMessageCodec.encode(message);
+		assertNotNull(message.getMessageId());
+		
+		PythonInterpreter python = getInterpreter();
+		python.set("raw", raw);
+		python.exec("Message._java_codec = None");
+		try {
+			python.exec("decoded = Message._from_bytes(raw.tostring())");
+		} finally {
+			python.exec("Message._java_codec = _codec");
+		}
+		assertEquals(message.getMessageId(), python.eval("decoded.message_id").toString());
+		assertEquals("java payload", python.eval("decoded.payload").toString());
+		assertEquals("/reply", python.eval("decoded.reply_to_topic").toString());
+		assertEquals("service", python.eval("decoded.service_id").toString());
+		assertEquals("b2", python.eval("decoded.broker_ids[1]").toString());
+		assertEquals("value", python.eval("decoded.other_fields['header']").toString());
+		assertEquals("tenant", python.eval("decoded.source_tenant_guid").toString());
+	}
+	
+	private static void assertViewMatchesDecode(byte[] raw) throws DxlJythonException {
+		DxlMessage expected = DxlMessageCodec.decode("/topic", raw);
+		DxlMessage view = DxlMessageCodec.view("/topic", raw);
+		assertEquals(expected.getTopic(), view.getTopic());
+		assertEquals(expected.getMessageVersion(), view.getMessageVersion());
+		assertEquals(expected.getMessageType(), view.getMessageType());
+		assertEquals(expected.getMessageId(), view.getMessageId());
+		assertEquals(expected.getClientId(), view.getClientId());
+		assertEquals(expected.getBrokerId(), view.getBrokerId());
+		assertEquals(expected.getBrokerIdList(), view.getBrokerIdList());
+		assertEquals(expected.getClientIdList(), view.getClientIdList());
+		assertEquals(expected.getPayload(), view.getPayload());
+		assertTrue(Arrays.equals(expected.getPayloadBytes(), view.getPayloadBytes()));
+		assertEquals(expected.getPayloadBuffer(), view.getPayloadBuffer());
+		assertEquals(expected.getReplyTopic(), view.getReplyTopic());
+		assertEquals(expected.getRequestMessageId(), view.getRequestMessageId());
+		assertEquals(expected.getServiceId(), view.getServiceId());
+		assertEquals(expected.getErrorCode(), view.getErrorCode());
+		assertEquals(expected.getErrorMessage(), view.getErrorMessage());
+		assertEquals(expected.getOtherFields(), view.getOtherFields());
+		assertEquals(expected.getSourceTenantGuid(), view.getSourceTenantGuid());
+		assertEquals(expected.getDestinationTenantGuidList(), view.getDestinationTenantGuidList());
+		assertTrue(Arrays.equals(raw, DxlMessageCodec.encode(view)));
+	}
+	
+	@Test
+	public void testViewMatchesDecode() throws Exception {
+		assertViewMatchesDecode(pythonEncode(
+				"msg = Event('/test/event')\n" +
+				"msg.payload = u'\\u00e9vent'.encode('utf8')\n" +
+				"msg.broker_ids = ['{11111111-1111-1111-1111-111111111111}', '11111111-1111-1111-1111-11111111abcd']\n" +
+				"msg.client_ids = ['{ABCDEF00-1111-1111-1111-111111111111}', 'client-2']\n" +
+				"msg.other_fields = {'one': '1'}\n" +
+				"msg.source_tenant_guid = '{33333333-3333-3333-3333-333333333333}'\n" +
+				"msg.destination_tenant_guids = ['{44444444-4444-4444-4444-444444444444}']\n"));
+		assertViewMatchesDecode(pythonEncode(
+				"msg = Request('/test/service')\n" +
+				"msg.reply_to_topic = '/reply'\n" +
+				"msg.service_id = 'service'\n"));
+		assertViewMatchesDecode(pythonEncode(
+				"req = Request('/test/service')\n" +
+				"msg = ErrorResponse(req, 0x80000001, 'Unable to locate service')\n"));
+		assertViewMatchesDecode(pythonEncode(
+				"msg = Event('/test/event')\n" +
+				"msg._version = 0\n"));
+	}
+	
+	@Test
+	public void testViewPayloadIsLazy() throws Exception {
+		byte[] raw = pythonEncode(
+				"msg = Event('/test/event')\n" +
+				"msg.payload = ''.join(chr(i) for i in range(256))\n");
+		byte[] expected = new byte[256];
+		for (int i = 0; i < expected.length; i++)
+			expected[i] = (byte)i;
+		
+		// The buffer reads the received bytes in place, the byte array is a copy
+		DxlMessageView view = DxlMessageCodec.view(raw);
+		ByteBuffer buffer = view.getPayloadBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(ByteBuffer.wrap(expected), buffer);
+		byte[] bytes = view.getPayloadBytes();
+		assertTrue(Arrays.equals(expected, bytes));
+		int offset = indexOf(raw, expected);
+		raw[offset] = 42;
+		assertEquals(42, buffer.get(0));
+		assertEquals(0, bytes[0]);
+		
+		// Replacing the payload hides the received bytes
+		view.setPayloadBytes(new byte[] { 1 });
+		assertEquals(ByteBuffer.wrap(new byte[] { 1 }), view.getPayloadBuffer());
+	}
+	
+	@Test
+	public void testViewSettersReplaceWireValues() throws Exception {
+		byte[] raw = pythonEncode(
+				"msg = Request('/test/service')\n" +
+				"msg.payload = 'wire'\n" +
+				"msg.broker_ids = ['{11111111-1111-1111-1111-111111111111}']\n");
+		
+		DxlMessageView view = DxlMessageCodec.view(raw);
+		assertEquals("wire", view.getPayload());
+		view.setPayload("replaced");
+		view.setBrokerIdList(new String[] { "broker" });
+		view.setMessageId("id");
+		assertEquals("replaced", view.getPayload());
+		assertEquals(Arrays.asList("broker"), view.getBrokerIdList());
+		assertEquals("id", view.getMessageId());
+		
+		DxlMessage decoded = DxlMessageCodec.decode(DxlMessageCodec.encode(view));
+		assertEquals("replaced", decoded.getPayload());
+		assertEquals("id", decoded.getMessageId());
+	}
+	
+	@Test
+	public void testTruncatedViewIsRejected() throws Exception {
+		DxlMessage message = new DxlMessage();
+		message.setMessageType(DxlMessage.MESSAGE_TYPE_EVENT);
+		message.setPayload("payload");
+		byte[] raw = DxlMessageCodec.encode(message);
+		
+		try {
+			DxlMessageCodec.view(Arrays.copyOf(raw, raw.length - 3));
+			fail("Expected truncated message to be rejected");
+		} catch (DxlJythonException ex) {
+			assertEquals(DxlMessageCodec.ERROR_DECODE, ex.getErrorCode());
+		}
+	}
+	
+	@Test
+	public void testTruncatedMessageIsRejected() throws Exception {
+		DxlMessage message = new DxlMessage();
+		message.setMessageType(DxlMessage.MESSAGE_TYPE_EVENT);
+		message.setPayload("payload");
+		byte[] raw = DxlMessageCodec.encode(message);
+		
+		try {
+			DxlMessageCodec.decode(Arrays.copyOf(raw, raw.length - 3));
+			fail("Expected truncated message to be rejected");
+		} catch (DxlJythonException ex) {
+			assertEquals(DxlMessageCodec.ERROR_DECODE, ex.getErrorCode());
+		}
+	}
+	
+	@Test
+	public void testUnknownMessageTypeIsRejected() throws Exception {
+		try {
+			DxlMessageCodec.decode(new byte[] { 0x02, 0x07 });
+			fail("Expected unknown message type to be rejected");
+		} catch (DxlJythonException ex) {
+			assertEquals(DxlMessageCodec.ERROR_UNKNOWN_MESSAGE_TYPE, ex.getErrorCode());
+		}
+	}
+}
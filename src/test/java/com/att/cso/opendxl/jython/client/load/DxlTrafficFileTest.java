@@ -0,0 +1,83 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the traffic captures recorded and replayed by the load generator
+ */
+public class DxlTrafficFileTest extends TestCase {
+	
+	@Test
+	public void testRoundTrip() throws Exception {
+		File file = File.createTempFile("traffic", ".bin");
+		file.deleteOnExit();
+		try (DxlTrafficFile.Writer writer = new DxlTrafficFile.Writer(file)) {
+			writer.write(0, "/a/b", "first".getBytes(StandardCharsets.UTF_8));
+			writer.write(1500, "/a/c", new byte[0]);
+			writer.write(90000, "/a/b", new byte[70000]);
+			assertEquals(3, writer.getCount());
+		}
+		
+		List<DxlTrafficFile.Record> records = DxlTrafficFile.read(file);
+		assertEquals(3, records.size());
+		assertEquals(0, records.get(0).offset);
+		assertEquals("/a/b", records.get(0).topic);
+		assertEquals("first", new String(records.get(0).payload, StandardCharsets.UTF_8));
+		assertEquals(1500, records.get(1).offset);
+		assertEquals(0, records.get(1).payload.length);
+		assertEquals(70000, records.get(2).payload.length);
+	}
+	
+	@Test
+	public void testNotACapture() throws Exception {
+		File file = File.createTempFile("traffic", ".bin");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("[Certs]\n".getBytes(StandardCharsets.UTF_8));
+		}
+		try {
+			DxlTrafficFile.read(file);
+			fail("Read a file that is not a capture");
+		} catch (IOException ex) {
+			assertTrue(ex.getMessage().startsWith("Not a DXL traffic capture"));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the metrics registry, the histogram and the JMX registration.
+ */
+public class DxlMetricsTest extends TestCase {
+	
+	@Test
+	public void testHistogramPercentiles() {
+		DxlHistogram histogram = new DxlHistogram();
+		for (long value = 1; value <= 100000; value++)
+			histogram.record(value);
+		
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertWithinBucket(50000, histogram.getPercentile(50));
+		assertWithinBucket(99000, histogram.getPercentile(99));
+		assertWithinBucket(99900, histogram.getPercentile(99.9));
+		assertEquals(100000, histogram.getPercentile(100));
+		
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+	
+	@Test
+	public void testHistogramBuckets() {
+		// Small values are exact, every value falls below its bucket bound
+		for (long value = 0; value < 16; value++)
+			assertEquals(value, DxlHistogram.upperBound(DxlHistogram.index(value)));
+		long[] values = { 16, 17, 1000, 123456789, Long.MAX_VALUE };
+		for (long value : values) {
+			long bound = DxlHistogram.upperBound(DxlHistogram.index(value));
+			assertTrue(bound >= value);
+			assertTrue(bound - value <= value / 16);
+		}
+	}
+	
+	@Test
+	public void testQueueDepth() {
+		DxlMetrics metrics = new DxlMetrics();
+		metrics.recordQueued();
+		metrics.recordQueued();
+		metrics.recordQueued();
+		metrics.recordDequeued(2000);
+		metrics.recordQueueDropped();
+		
+		assertEquals(1, metrics.getQueueDepth());
+		assertEquals(3, metrics.getPeakQueueDepth());
+		assertEquals(2, metrics.getQueueWaitMaxMicros());
+		
+		metrics.reset();
+		assertEquals(1, metrics.getPeakQueueDepth());
+	}
+	
+	@Test
+	public void testTopicLimit() {
+		DxlMetrics metrics = new DxlMetrics();
+		for (int idx = 0; idx < DxlMetrics.MAX_TOPICS + 10; idx++)
+			metrics.recordCallback("/topic/" + idx, 1000);
+		
+		assertEquals(DxlMetrics.MAX_TOPICS + 1, metrics.getCallbackTopics().length);
+		assertEquals(10, metrics.getTopicMetrics(DxlMetrics.OTHER_TOPICS).getCallbackCount());
+	}
+	
+	@Test
+	public void testRegistration() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(DxlMetrics.JMX_DOMAIN + ":type=DxlMetrics");
+		ObjectName topic = new ObjectName(DxlMetrics.JMX_DOMAIN + ":type=DxlCallback,topic=" + ObjectName.quote("/early"));
+		ObjectName later = new ObjectName(DxlMetrics.JMX_DOMAIN + ":type=DxlCallback,topic=" + ObjectName.quote("/later"));
+		
+		DxlMetrics metrics = new DxlMetrics();
+		metrics.recordCallback("/early", 1000);
+		metrics.recordPublished(3);
+		metrics.register();
+		try {
+			metrics.recordCallback("/later", 1000);
+			assertEquals(3L, server.getAttribute(name, "PublishedCount"));
+			assertEquals(1L, server.getAttribute(topic, "CallbackCount"));
+			assertTrue(server.isRegistered(later));
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(server.isRegistered(name));
+		assertFalse(server.isRegistered(topic));
+		assertFalse(server.isRegistered(later));
+	}
+	
+	private static void assertWithinBucket(long expected, long actual) {
+		assertTrue(actual + " below " + expected, actual >= expected);
+		assertTrue(actual + " too far above " + expected, actual - expected <= expected / 16);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.topic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the topic index.  Matches are compared with a port of the
+ * dictionary and wildcard string lookups of the Python callback manager.
+ */
+public class DxlTopicIndexTest extends TestCase {
+	
+	@Test
+	public void testMatchOrder() {
+		DxlTopicIndex index = new DxlTopicIndex();
+		index.add("#", "all");
+		index.add("/#", "root");
+		index.add("/a/#", "a");
+		index.add("/a/b/#", "ab");
+		index.add("/a/b/c", "exact");
+		index.add("", "global");
+		index.add("/a/x", "other");
+		
+		assertEquals(Arrays.asList("global", "exact", "ab", "a", "root", "all"), index.match("/a/b/c"));
+		assertEquals(Arrays.asList("global", "a", "root", "all"), index.match("/a/b"));
+		// A received wildcard topic matches its own subscription exactly
+		assertEquals(Arrays.asList("global", "a", "root", "all"), index.match("/a/#"));
+		assertEquals(Arrays.asList("global", "all"), index.match("#"));
+		assertEquals(Arrays.asList("global", "root", "all"), index.match("a"));
+		// Topics ending in "#" skip the prefix in front of the last level
+		assertEquals(Arrays.asList("global", "a", "root", "all"), index.match("/a/b/c#"));
+		assertEquals(Arrays.asList("global", "all"), index.match("a#"));
+	}
+	
+	@Test
+	public void testMatchesReference() {
+		String[] levels = { "", "a", "b", "ab", "#", "b#" };
+		Random random = new Random(42);
+		DxlTopicIndex index = new DxlTopicIndex();
+		Reference reference = new Reference();
+		
+		for (int round = 0; round < 20000; round++) {
+			String topic = randomTopic(random, levels);
+			String callback = "cb" + random.nextInt(3);
+			if (random.nextInt(4) == 0)
+				assertEquals(reference.remove(topic, callback), index.remove(topic, callback));
+			else
+				assertEquals(reference.add(topic, callback), index.add(topic, callback));
+			
+			String received = randomTopic(random, levels);
+			assertEquals(received, reference.match(received), index.match(received));
+		}
+		assertEquals(reference.size(), index.size());
+	}
+	
+	@Test
+	public void testRemove() {
+		DxlTopicIndex index = new DxlTopicIndex();
+		for (int idx = 0; idx < 100; idx++)
+			assertTrue(index.add("/svc/" + idx + "/event", "cb" + idx));
+		assertFalse(index.add("/svc/7/event", "cb7"));
+		assertEquals(100, index.size());
+		
+		for (int idx = 0; idx < 100; idx += 2)
+			assertTrue(index.remove("/svc/" + idx + "/event", "cb" + idx));
+		assertFalse(index.remove("/svc/0/event", "cb0"));
+		assertEquals(50, index.size());
+		assertEquals(Arrays.asList(), index.match("/svc/0/event"));
+		assertEquals(Arrays.asList("cb1"), index.match("/svc/1/event"));
+		
+		// Slots of removed topics are reused
+		for (int idx = 0; idx < 100; idx += 2)
+			assertTrue(index.add("/svc/" + idx + "/event", "again" + idx));
+		assertEquals(Arrays.asList("again0"), index.match("/svc/0/event"));
+		assertEquals(Arrays.asList("cb99"), index.match("/svc/99/event"));
+	}
+	
+	private static String randomTopic(Random random, String[] levels) {
+		StringBuilder topic = new StringBuilder(random.nextInt(4) == 0 ? "" : "/");
+		int depth = random.nextInt(4);
+		for (int idx = 0; idx < depth; idx++) {
+			if (idx > 0)
+				topic.append('/');
+			topic.append(levels[random.nextInt(levels.length)]);
+		}
+		return topic.toString();
+	}
+	
+	/**
+	 * Port of the lookups of dxlclient/_callback_manager.py and the wildcard 
+	 * generator of dxlclient/_dxl_utils.py
+	 */
+	private static class Reference {
+		private final Map<String, List<Object>> callbacksByChannel = new LinkedHashMap<String, List<Object>>();
+		
+		boolean add(String channel, Object callback) {
+			List<Object> callbacks = callbacksByChannel.get(channel);
+			if (callbacks == null)
+				callbacksByChannel.put(channel, callbacks = new ArrayList<Object>());
+			if (callbacks.contains(callback))
+				return false;
+			return callbacks.add(callback);
+		}
+		
+		boolean remove(String channel, Object callback) {
+			List<Object> callbacks = callbacksByChannel.get(channel);
+			if (callbacks == null || !callbacks.remove(callback))
+				return false;
+			if (callbacks.isEmpty())
+				callbacksByChannel.remove(channel);
+			return true;
+		}
+		
+		int size() {
+			int size = 0;
+			for (List<Object> callbacks : callbacksByChannel.values())
+				size += callbacks.size();
+			return size;
+		}
+		
+		List<Object> match(String topic) {
+			List<Object> matches = new ArrayList<Object>();
+			fire(matches, "");
+			fire(matches, topic);
+			while (!topic.equals("#")) {
+				topic = wildcard(topic);
+				fire(matches, topic);
+			}
+			return matches;
+		}
+		
+		private void fire(List<Object> matches, String channel) {
+			List<Object> callbacks = callbacksByChannel.get(channel);
+			if (callbacks != null)
+				matches.addAll(callbacks);
+		}
+		
+		private static String wildcard(String topic) {
+			if (topic.isEmpty())
+				return "#";
+			List<String> split = Arrays.asList(topic.split("/", -1));
+			if (topic.charAt(topic.length() - 1) != '#')
+				return String.join("/", split.subList(0, split.size() - 1)) + "/#";
+			if (topic.length() == 2)
+				return "#";
+			return String.join("/", split.subList(0, Math.max(0, split.size() - 2))) + "/#";
+		}
+	}
+}
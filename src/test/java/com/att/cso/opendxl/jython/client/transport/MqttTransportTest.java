@@ -0,0 +1,138 @@
+/*
+ * BSD License
+ *
+ * Copyright 2018 AT&T Intellectual Property. All other rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions
+ *    and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ *    conditions and the following disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ * 3. All advertising materials mentioning features or use of this software must display the
+ *    following acknowledgement:  This product includes software developed by the AT&T.
+ * 4. Neither the name of AT&T nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY AT&T INTELLECTUAL PROPERTY ''AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL AT&T INTELLECTUAL PROPERTY BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;  LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+
+package com.att.cso.opendxl.jython.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+import com.att.cso.opendxl.jython.client.broker.DxlLoopbackBroker;
+
+/**
+ * Tests for the MQTT transport against the loopback broker, over plain TCP and
+ * over TLS with the test certificates.
+ */
+public class MqttTransportTest extends TestCase {
+	
+	private static final String CERTS = "src/test/resources/certs/";
+	
+	@Test
+	public void testPlain() throws Exception {
+		try (DxlLoopbackBroker broker = new DxlLoopbackBroker(null)) {
+			roundTrip(broker, null, false);
+		}
+	}
+	
+	@Test
+	public void testTls() throws Exception {
+		SSLContext brokerContext = PemSslContexts.create(CERTS + "ca.crt", CERTS + "broker.crt", CERTS + "broker.key");
+		SSLContext clientContext = PemSslContexts.create(CERTS + "ca.crt", CERTS + "client.crt", CERTS + "client.key");
+		try (DxlLoopbackBroker broker = new DxlLoopbackBroker(brokerContext)) {
+			roundTrip(broker, clientContext, true);
+		}
+	}
+	
+	private void roundTrip(DxlLoopbackBroker broker, SSLContext sslContext, boolean verifyHostname) throws Exception {
+		RecordingListener listener = new RecordingListener();
+		MqttTransport transport = new MqttTransport("test-client", true, MqttPackets.MQTT_V311, listener);
+		if (sslContext != null)
+			transport.setTls(sslContext, verifyHostname);
+		
+		transport.connect("localhost", broker.getPort(), 60);
+		transport.startLoop();
+		assertEquals("connected 0", listener.next());
+		
+		int messageId = transport.subscribe("/test/events/#");
+		assertEquals("subscribed " + messageId, listener.next());
+		
+		// A batch is written on a single flush, large payloads span TLS records
+		byte[] large = new byte[100000];
+		assertEquals(MqttTransport.SUCCESS, transport.publish("/test/events/a", "first".getBytes(StandardCharsets.UTF_8), false, false));
+		assertEquals(MqttTransport.SUCCESS, transport.publish("/test/ignored/b", "other".getBytes(StandardCharsets.UTF_8), false, false));
+		assertEquals(MqttTransport.SUCCESS, transport.publish("/test/events/b", large, false, false));
+		transport.flush();
+		assertEquals("/test/events/a 5", listener.next());
+		assertEquals("/test/events/b 100000", listener.next());
+		
+		messageId = transport.unsubscribe("/test/events/#");
+		assertEquals("unsubscribed " + messageId, listener.next());
+		
+		transport.stopLoop();
+		assertEquals(MqttTransport.SUCCESS, transport.disconnect());
+		assertEquals("disconnected 0", listener.next());
+		assertFalse(transport.isConnected());
+		assertEquals(MqttTransport.NO_CONNECTION, transport.publish("/test/events/a", large, false, true));
+		assertEquals(-1, transport.subscribe("/test/events/a"));
+	}
+	
+	private static class RecordingListener implements MqttTransportListener {
+		
+		private final BlockingQueue<String> calls = new LinkedBlockingQueue<String>();
+		
+		String next() throws InterruptedException {
+			String call = calls.poll(10, TimeUnit.SECONDS);
+			assertNotNull("No call to the listener", call);
+			return call;
+		}
+		
+		@Override
+		public void connected(int returnCode) {
+			calls.add("connected " + returnCode);
+		}
+		
+		@Override
+		public void disconnected(int reason) {
+			calls.add("disconnected " + reason);
+		}
+		
+		@Override
+		public void messageArrived(String topic, byte[] payload) {
+			calls.add(topic + " " + payload.length);
+		}
+		
+		@Override
+		public void subscribed(int messageId) {
+			calls.add("subscribed " + messageId);
+		}
+		
+		@Override
+		public void unsubscribed(int messageId) {
+			calls.add("unsubscribed " + messageId);
+		}
+	}
+}